@@ -0,0 +1,165 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Reports the size of BrailleZephyr files and the time to write and read
+ * them in the text format, compressed with gzip at levels 1, 6 and 9, and
+ * in the paged format of {@link PagedBZY}, with and without compression,
+ * and the time to read the page with the caret of a paged file.
+ * </p><p>
+ * Documents of 10,000 and 100,000 pages are generated, with the caret in
+ * the middle.  Each time is the best of a few runs, after the file is in
+ * the page cache.  The ratio is of the size of the file to the text
+ * format, and the throughput is of characters of the document.
+ * </p><p>
+ * Options are <code>--pages=</code> as a comma separated list,
+ * <code>--runs=</code> and <code>--dir=</code>.
+ * </p>
+ */
+public final class BZYReport {
+    private static final int LINES_PER_PAGE = 25, CHARS_PER_LINE = 40;
+
+    private interface Run {
+        void run() throws Exception;
+    }
+
+    public static void main(String... args) throws Exception {
+        int[] pages = {10_000, 100_000};
+        int runs = 5;
+        Path dir = Path.of("target/regression");
+        for (String arg : args)
+            if (arg.startsWith("--pages="))
+                pages = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).toArray();
+            else if (arg.startsWith("--runs="))
+                runs = Integer.parseInt(arg.substring(7));
+            else if (arg.startsWith("--dir="))
+                dir = Path.of(arg.substring(6));
+            else
+                throw new IllegalArgumentException("Invalid option:  " + arg);
+
+        Files.createDirectories(dir);
+        System.out.printf("%-24s %8s %6s %9s %8s %9s %8s %14s%n",
+                          "file", "MB", "ratio", "write ms", "MB/s", "read ms", "MB/s", "caret page ms");
+        for (int count : pages) {
+            Path brf = dir.resolve("bzy-" + count + ".brf");
+            if (!Files.exists(brf))
+                try (Writer writer = Files.newBufferedWriter(brf, StandardCharsets.US_ASCII)) {
+                    new CorpusGenerator(42, count, LINES_PER_PAGE, CHARS_PER_LINE, 0.1, true).writeBRF(writer);
+                }
+            BZDocument document = BZFile.readDocument(brf);
+            BZFormat.BZYHeader header = new BZFormat.BZYHeader(null, document.getCharCount() / 2, null, false, List.of());
+            Path text = dir.resolve("bzy-" + count + ".v1.bzy");
+            long textSize = reportText(text, 0, document, header, runs, 0);
+            for (int level : new int[]{1, 6, 9})
+                reportText(dir.resolve("bzy-" + count + ".v1-gzip" + level + ".bzy"), level, document, header, runs, textSize);
+            reportPaged(dir.resolve("bzy-" + count + ".v2.bzy"), document, header, false, runs, textSize);
+            reportPaged(dir.resolve("bzy-" + count + ".v2-deflated.bzy"), document, header, true, runs, textSize);
+        }
+    }
+
+    /**
+     * <p>
+     * Reports the text format, compressed with gzip at <code>level</code>
+     * unless it is 0, written and read as {@link BZFile} does.
+     * </p>
+     *
+     * @param textSize the size of the uncompressed file, or 0 if this is it
+     * @return the size of the file
+     */
+    private static long reportText(Path path, int level, BZDocument document, BZFormat.BZYHeader header, int runs, long textSize) throws Exception {
+        long write = time(runs, () -> {
+            try (Writer writer = level > 0 ? BZFile.newGzipWriter(path, level) : Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                BZFormat.writeBZY(writer, document, header);
+            }
+        });
+        long read = time(runs, () -> {
+            try (BufferedReader reader = BZFile.newReader(path)) {
+                BZFormat.readBZY(reader, new BZDocument());
+            }
+        });
+        print(path, document, textSize, write, read, -1);
+        return Files.size(path);
+    }
+
+    private static void reportPaged(Path path, BZDocument document, BZFormat.BZYHeader header, boolean compress, int runs, long textSize) throws Exception {
+        long write = time(runs, () -> {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path))) {
+                PagedBZY.write(output, document, header, compress);
+            }
+        });
+        long read = time(runs, () -> {
+            try (PagedBZY file = PagedBZY.open(path)) {
+                file.readAll(new BZDocument());
+            }
+        });
+        long caretPage = time(runs, () -> caretPage(path));
+        print(path, document, textSize, write, read, caretPage);
+    }
+
+    private static void print(Path path, BZDocument document, long textSize, long write, long read, long caretPage) throws IOException {
+        long size = Files.size(path);
+        if (textSize == 0)
+            textSize = size;
+        System.out.printf("%-24s %8.1f %6.2f %9.1f %8.1f %9.1f %8.1f %14s%n",
+                          path.getFileName(),
+                          size / 1e6,
+                          (double) size / textSize,
+                          write / 1e6,
+                          document.getCharCount() / 1e6 / (write / 1e9),
+                          read / 1e6,
+                          document.getCharCount() / 1e6 / (read / 1e9),
+                          caretPage < 0 ? "-" : String.format("%.2f", caretPage / 1e6));
+    }
+
+    /**
+     * <p>
+     * Opens a paged file and reads the page with the caret, as the editor
+     * does before reading the rest in the background.
+     * </p>
+     */
+    private static void caretPage(Path path) throws IOException, BZException {
+        String eol = System.lineSeparator();
+        try (PagedBZY file = PagedBZY.open(path)) {
+            int page = file.getPageAtOffset(file.getHeader().caretOffset(), eol.length());
+            file.readPages(page, page + 1, new GapStorage.Builder(), eol);
+        }
+    }
+
+    /**
+     * @return the best time of the runs in nanoseconds
+     */
+    private static long time(int runs, Run run) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,85 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Compares the scalar and vector paths of {@link BrailleTranscoder}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx2g"})
+public class BrailleTranscoderBenchmark {
+    @Param({"1048576", "10485760", "104857600"})
+    public int size;
+
+    @Param({"scalar", "vector"})
+    public String path;
+
+    private BrailleTranscoder transcoder;
+    private char[] ascii, unicode, buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transcoder = path.equals("vector") ? BrailleTranscoder.vector() : BrailleTranscoder.scalar();
+        if (transcoder == null)
+            throw new IllegalStateException("jdk.incubator.vector or 256 bit vectors are not available");
+
+        //   lowercase BRF with line ends and page breaks
+        Random random = new Random(size);
+        ascii = new char[size];
+        for (int i = 0; i < size; i++) {
+            if (i % 41 == 40)
+                ascii[i] = '\n';
+            else if (i % 1025 == 1024)
+                ascii[i] = 0xc;
+            else
+                ascii[i] = (char) (0x20 + random.nextInt(95));
+        }
+        unicode = ascii.clone();
+        BrailleTranscoder.scalar().toUnicode(unicode, 0, size);
+        buffer = new char[size];
+    }
+
+    @Benchmark
+    public char[] toUnicode() {
+        System.arraycopy(ascii, 0, buffer, 0, size);
+        transcoder.toUnicode(buffer, 0, size);
+        return buffer;
+    }
+
+    @Benchmark
+    public char[] toAscii() {
+        System.arraycopy(unicode, 0, buffer, 0, size);
+        transcoder.toAscii(buffer, 0, size);
+        return buffer;
+    }
+
+    @Benchmark
+    public char[] toUpperCase() {
+        System.arraycopy(ascii, 0, buffer, 0, size);
+        transcoder.toUpperCase(buffer, 0, size);
+        return buffer;
+    }
+}
@@ -0,0 +1,219 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Generates synthetic braille documents for benchmarks.
+ * </p><p>
+ * The same settings always produce the same document.  Words are built
+ * from ASCII braille characters weighted roughly as in contracted English
+ * braille, lines are filled up to the characters per line, and paragraphs
+ * start with a two cell indent.  Documents are written a line at a time,
+ * so they can be much larger than memory.
+ * </p>
+ */
+final class CorpusGenerator {
+    /**
+     * ASCII braille characters repeated by how often they occur.
+     */
+    private static final String WEIGHTED_CHARS =
+            "EEEEEEEEEEEETTTTTTTTTAAAAAAAAOOOOOOOIIIIIIINNNNNNNSSSSSSHHHHHHRRRRRRDDDDLLLLCCCUUUMMMWWFFGGYYPPBBVK"
+            + "JXQZ,,;;//55??:++**&&%%==!![[]]\"\"''--##((";
+
+    private final long seed;
+    private final int pages, linesPerPage, charsPerLine;
+    private final double paragraphDensity;
+    private final boolean mixedEols;
+
+    /**
+     * Receives the generated lines.
+     */
+    private interface LineSink {
+        void line(int index, String text, boolean paragraphEnd, String eol) throws IOException;
+    }
+
+    /**
+     * @param seed             the random seed
+     * @param pages            the number of pages
+     * @param linesPerPage     the lines on each page
+     * @param charsPerLine     the maximum characters on each line
+     * @param paragraphDensity the chance of a line ending a paragraph
+     * @param mixedEols        whether BRF lines end with a mixture of \r\n, \n and \r
+     */
+    CorpusGenerator(long seed, int pages, int linesPerPage, int charsPerLine, double paragraphDensity, boolean mixedEols) {
+        this.seed = seed;
+        this.pages = pages;
+        this.linesPerPage = linesPerPage;
+        this.charsPerLine = charsPerLine;
+        this.paragraphDensity = paragraphDensity;
+        this.mixedEols = mixedEols;
+    }
+
+    CorpusGenerator(long seed, int pages, int linesPerPage, int charsPerLine, double paragraphDensity) {
+        this(seed, pages, linesPerPage, charsPerLine, paragraphDensity, false);
+    }
+
+    int getLinesPerPage() {
+        return linesPerPage;
+    }
+
+    int getCharsPerLine() {
+        return charsPerLine;
+    }
+
+    private void generate(LineSink sink) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder line = new StringBuilder(charsPerLine);
+        boolean paragraphStart = true;
+
+        for (int i = 0; i < pages * linesPerPage; i++) {
+            line.setLength(0);
+            if (paragraphStart)
+                line.append("  ");
+            while (true) {
+                int length = 1 + random.nextInt(Math.min(8, charsPerLine));
+                int needed = line.length() == 0 || (paragraphStart && line.length() == 2) ? length : length + 1;
+                if (line.length() + needed > charsPerLine)
+                    break;
+                if (needed > length)
+                    line.append(' ');
+                for (int j = 0; j < length; j++)
+                    line.append(WEIGHTED_CHARS.charAt(random.nextInt(WEIGHTED_CHARS.length())));
+            }
+
+            paragraphStart = random.nextDouble() < paragraphDensity;
+
+            String eol = "\r\n";
+            if (mixedEols) {
+                double choice = random.nextDouble();
+                if (choice < 0.25)
+                    eol = "\n";
+                else if (choice < 0.3)
+                    eol = "\r";
+            }
+
+            sink.line(i, line.toString(), paragraphStart, eol);
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the lines of the document, with paragraph ends marked by
+     * {@link BZFormat#PARAGRAPH_END}.
+     * </p>
+     *
+     * @return the lines
+     */
+    List<String> lines() {
+        List<String> lines = new ArrayList<>(pages * linesPerPage);
+        try {
+            generate((index, text, paragraphEnd, eol) -> lines.add(paragraphEnd ? text + BZFormat.PARAGRAPH_END : text));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return lines;
+    }
+
+    /**
+     * @param eol the line delimiter
+     * @return the document as editor content
+     */
+    String text(String eol) {
+        return String.join(eol, lines());
+    }
+
+    /**
+     * <p>
+     * Writes the document in BRF format, with form feeds between pages.
+     * </p>
+     *
+     * @param writer where to write the document
+     */
+    void writeBRF(Writer writer) throws IOException {
+        String[] previousEol = {null};
+        generate((index, text, paragraphEnd, eol) -> {
+            if (index > 0) {
+                writer.write(previousEol[0]);
+                if (BZFormat.isFirstLineOnPage(index, linesPerPage))
+                    writer.write('\f');
+            }
+            writer.write(text);
+            previousEol[0] = eol;
+        });
+        writer.flush();
+    }
+
+    /**
+     * <p>
+     * Writes the document in BrailleZephyr file format.
+     * </p>
+     *
+     * @param writer where to write the document
+     */
+    void writeBZY(Writer writer) throws IOException {
+        writer.write("Version 1 0 0\n"
+                     + "CharsPerLine " + charsPerLine + '\n'
+                     + "LinesPerPage " + linesPerPage + '\n'
+                     + "CaretOffset 0\n"
+                     + "ViewFocus braille\n"
+                     + "ReturnAtEnd false\n"
+                     + "HeaderEnd\n");
+        generate((index, text, paragraphEnd, eol) -> {
+            if (index > 0)
+                writer.write('\n');
+            writer.write(text);
+            if (paragraphEnd)
+                writer.write(BZFormat.BZY_PARAGRAPH_END);
+        });
+        writer.flush();
+    }
+
+    /**
+     * @return the document in BRF format
+     * @see #writeBRF(Writer)
+     */
+    String brf() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeBRF(writer);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * @return the document in BrailleZephyr file format
+     * @see #writeBZY(Writer)
+     */
+    String bzy() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeBZY(writer);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return writer.toString();
+    }
+}
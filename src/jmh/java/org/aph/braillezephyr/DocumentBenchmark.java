@@ -0,0 +1,149 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures the document reading, writing and formatting in
+ * {@link BZFormat} and {@link BZDocument} on generated documents.
+ * </p><p>
+ * The document shape can be changed from the command line, for example
+ * <code>-p pages=5000 -p paragraphDensity=0.02</code>.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx2g"})
+public class DocumentBenchmark {
+    @Param({"10", "100", "1000"})
+    public int pages;
+
+    @Param({"25"})
+    public int linesPerPage;
+
+    @Param({"40"})
+    public int charsPerLine;
+
+    @Param({"0.1"})
+    public double paragraphDensity;
+
+    private String brf, bzy, text;
+    private BZFormat.BZYHeader header;
+    private BZDocument document;
+    private final CharArrayWriter writer = new CharArrayWriter(1 << 20);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CorpusGenerator generator = new CorpusGenerator(42, pages, linesPerPage, charsPerLine, paragraphDensity);
+        brf = generator.brf();
+        bzy = generator.bzy();
+        text = generator.text("\n");
+        header = new BZFormat.BZYHeader("1 0 0", 0, "braille", false, List.of());
+        document = newDocument(text);
+    }
+
+    private BZDocument newDocument(String text) {
+        BZDocument document = new BZDocument();
+        document.setText(text);
+        document.setEol("\n");
+        document.setLinesPerPage(linesPerPage);
+        document.setCharsPerLine(charsPerLine);
+        return document;
+    }
+
+    @Benchmark
+    public BZDocument readBRF() throws IOException {
+        BZFormat.readBRF(new StringReader(brf), document);
+        return document;
+    }
+
+    @Benchmark
+    public BZDocument readBZY() throws IOException, BZException {
+        BZFormat.readBZY(new StringReader(bzy), document);
+        return document;
+    }
+
+    @Benchmark
+    public int writeBRF() throws IOException {
+        writer.reset();
+        BZFormat.writeBRF(writer, document);
+        return writer.size();
+    }
+
+    @Benchmark
+    public int writeBZY() throws IOException {
+        writer.reset();
+        BZFormat.writeBZY(writer, document, header);
+        return writer.size();
+    }
+
+    /**
+     * Rewraps every paragraph of the document to a narrower line.
+     */
+    @Benchmark
+    public int rewrap(RewrapState state) {
+        BZDocument document = state.document;
+        int line = 0;
+        while (line < document.getLineCount()) {
+            BZFormat.rewrap(document, line);
+
+            //   move to the start of the next paragraph
+            while (line < document.getLineCount() && !document.isParagraphEnd(line))
+                line++;
+            line++;
+        }
+        return document.getLineCount();
+    }
+
+    @Benchmark
+    public int paragraphEnds() {
+        int count = 0;
+        for (int i = 0; i < document.getLineCount(); i++)
+            if (document.isParagraphEnd(i))
+                count++;
+        return count;
+    }
+
+    @Benchmark
+    public int pageLines() {
+        int count = 0;
+        for (int i = 0; i < document.getLineCount(); i++)
+            if (document.isFirstLineOnPage(i))
+                count += document.getOffsetAtLine(i);
+        return count;
+    }
+
+    @State(Scope.Thread)
+    public static class RewrapState {
+        private BZDocument document;
+
+        @Setup(Level.Invocation)
+        public void setUp(DocumentBenchmark benchmark) {
+            document = benchmark.newDocument(benchmark.text);
+            document.setCharsPerLine(benchmark.charsPerLine - 8);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Reports garbage collection pauses while scrolling and typing in a large
+ * document, held on the heap and then memory mapped.
+ * </p><p>
+ * A BRF file of about the given size is generated and read.  Scrolling
+ * reads a screen of lines at a time, as StyledText does when painting,
+ * moving down by half a screen, and typing inserts characters a word at a
+ * time with a screen read after each, at places spread through the
+ * document.  Every pause reported by the collectors while doing so is
+ * counted.  Run with enough heap for the document on the heap, for example
+ * <code>-Xmx3g</code> for the default of 500 MB.
+ * </p><p>
+ * Options are <code>--megabytes=</code> and <code>--dir=</code>.
+ * </p>
+ */
+public final class GcPauseReport {
+    private static final int LINES_PER_PAGE = 25, CHARS_PER_LINE = 40;
+    private static final int SCREEN_LINES = 50;
+    private static final int SCROLLS = 200_000;
+    private static final int KEYSTROKES = 5_000;
+
+    private final LatencyHistogram pauses = new LatencyHistogram();
+    private volatile boolean recording;
+
+    public static void main(String... args) throws Exception {
+        int megabytes = 500;
+        Path dir = Path.of("target/regression");
+        for (String arg : args)
+            if (arg.startsWith("--megabytes="))
+                megabytes = Integer.parseInt(arg.substring(12));
+            else if (arg.startsWith("--dir="))
+                dir = Path.of(arg.substring(6));
+            else
+                throw new IllegalArgumentException("Invalid option:  " + arg);
+
+        int pages = (int) ((long) megabytes * 1024 * 1024 / (LINES_PER_PAGE * (CHARS_PER_LINE + 2L)));
+        Files.createDirectories(dir);
+        Path brf = dir.resolve("heap-" + megabytes + ".brf");
+        if (!Files.exists(brf))
+            try (Writer writer = Files.newBufferedWriter(brf, StandardCharsets.US_ASCII)) {
+                new CorpusGenerator(42, pages, LINES_PER_PAGE, CHARS_PER_LINE, 0.1, true).writeBRF(writer);
+            }
+
+        GcPauseReport report = new GcPauseReport();
+        report.listen();
+        System.out.printf("%-8s %10s %10s %8s %10s %10s %10s%n", "storage", "load ms", "heap MB", "pauses", "total ms", "p99 ms", "max ms");
+        report.run(brf, false);
+        report.run(brf, true);
+    }
+
+    private void listen() {
+        NotificationListener listener = (notification, handback) -> {
+            if (!recording || !notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+                return;
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+
+            //   concurrent cycles do not stop the application
+            if (info.getGcName().contains("Concurrent") || info.getGcAction().contains("concurrent"))
+                return;
+            pauses.record(TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+        };
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            ((NotificationEmitter) bean).addNotificationListener(listener, null, null);
+    }
+
+    private void run(Path brf, boolean mapped) throws Exception {
+        System.gc();
+        long start = System.nanoTime();
+        BZDocument document = new BZDocument();
+        document.setMapped(mapped);
+        try (var reader = Files.newBufferedReader(brf, StandardCharsets.US_ASCII)) {
+            BZFormat.readBRF(reader, document);
+        }
+        long load = System.nanoTime() - start;
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        pauses.reset();
+        recording = true;
+        Random random = new Random(1);
+        long characters = 0;
+
+        //   scroll down through the document
+        int lineCount = document.getLineCount();
+        for (int i = 0; i < SCROLLS; i++) {
+            int top = (int) ((long) i * (SCREEN_LINES / 2) % Math.max(1, lineCount - SCREEN_LINES));
+            for (int line = top; line < top + SCREEN_LINES && line < lineCount; line++)
+                characters += document.getLine(line).length();
+        }
+
+        //   type a word at a time in different places
+        int offset = 0;
+        for (int i = 0; i < KEYSTROKES; i++) {
+            if (i % 6 == 0)
+                offset = document.getOffsetAtLine(random.nextInt(document.getLineCount()));
+            document.replaceTextRange(offset, 0, i % 6 == 5 ? " " : "A");
+            offset++;
+            int line = document.getLineAtOffset(offset);
+            for (int j = Math.max(0, line - SCREEN_LINES / 2); j < line + SCREEN_LINES / 2 && j < document.getLineCount(); j++)
+                characters += document.getLine(j).length();
+        }
+        recording = false;
+
+        System.out.printf("%-8s %10.0f %10.1f %8d %10.1f %10.1f %10.1f%n",
+                          mapped ? "mapped" : "heap",
+                          LatencyHistogram.toMillis(load),
+                          heap / 1048576.0,
+                          pauses.getCount(),
+                          LatencyHistogram.toMillis((long) (pauses.getMean() * pauses.getCount())),
+                          LatencyHistogram.toMillis(pauses.getValueAtPercentile(99)),
+                          LatencyHistogram.toMillis(pauses.getMax()));
+        if (characters == 0)
+            System.out.println();
+    }
+}
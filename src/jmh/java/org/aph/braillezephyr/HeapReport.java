@@ -0,0 +1,98 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <p>
+ * Reports the heap held by a large document, with text stored one byte
+ * per character and, as it was before, one char per character.
+ * </p><p>
+ * A BRF and a BZY file of about the given size are generated, each read
+ * into a {@link BZDocument}, and the heap in use after a full collection
+ * compared with before reading.  The char layout is measured by inserting
+ * and removing a character that does not fit in a byte, which switches the
+ * document to chars.  Run with enough heap for the char layout, for example
+ * <code>-Xmx2g</code> for the default of 100 MB.
+ * </p><p>
+ * Options are <code>--megabytes=</code> and <code>--dir=</code>.
+ * </p>
+ */
+public final class HeapReport {
+    private static final int LINES_PER_PAGE = 25, CHARS_PER_LINE = 40;
+
+    private static final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String... args) throws Exception {
+        int megabytes = 100;
+        Path dir = Path.of("target/regression");
+        for (String arg : args)
+            if (arg.startsWith("--megabytes="))
+                megabytes = Integer.parseInt(arg.substring(12));
+            else if (arg.startsWith("--dir="))
+                dir = Path.of(arg.substring(6));
+            else
+                throw new IllegalArgumentException("Invalid option:  " + arg);
+
+        //   a full page is about the lines times the characters and a delimiter
+        int pages = (int) ((long) megabytes * 1024 * 1024 / (LINES_PER_PAGE * (CHARS_PER_LINE + 2L)));
+        CorpusGenerator generator = new CorpusGenerator(42, pages, LINES_PER_PAGE, CHARS_PER_LINE, 0.1, true);
+        Files.createDirectories(dir);
+        Path brf = dir.resolve("heap-" + megabytes + ".brf"), bzy = dir.resolve("heap-" + megabytes + ".bzy");
+        if (!Files.exists(brf))
+            try (Writer writer = Files.newBufferedWriter(brf, StandardCharsets.US_ASCII)) {
+                generator.writeBRF(writer);
+            }
+        if (!Files.exists(bzy))
+            try (Writer writer = Files.newBufferedWriter(bzy, StandardCharsets.UTF_8)) {
+                generator.writeBZY(writer);
+            }
+
+        System.out.printf("%-30s %12s %12s %12s %12s%n", "file", "file MB", "chars", "bytes MB", "chars MB");
+        for (Path path : new Path[]{brf, bzy})
+            report(path);
+    }
+
+    private static void report(Path path) throws Exception {
+        long before = usedHeap();
+        BZDocument document = BZFile.readDocument(path);
+        long compact = usedHeap() - before;
+        if (!document.isCompact())
+            throw new IllegalStateException(path + " was not stored compactly");
+
+        document.replaceTextRange(0, 0, "⠀");
+        document.replaceTextRange(0, 1, "");
+        long inflated = usedHeap() - before;
+
+        System.out.printf("%-30s %12.1f %12d %12.1f %12.1f%n",
+                          path.getFileName(),
+                          Files.size(path) / 1048576.0,
+                          document.getCharCount(),
+                          compact / 1048576.0,
+                          inflated / 1048576.0);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,175 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>
+ * Reports the time to open a BRF file with and without a
+ * {@link LineIndexCache} snapshot of its lines.
+ * </p><p>
+ * BRF files of 10,000 and 100,000 pages are generated.  Each is viewed with
+ * a {@link MappedBRF} until its whole index has been appended, and read
+ * into a {@link BZDocument} for editing, first scanning for lines and then
+ * with the snapshot taken by the scan.  Each is timed as the best of a few
+ * runs, after the file is in the page cache, so the times are of indexing
+ * rather than the disk.
+ * </p><p>
+ * Options are <code>--pages=</code> as a comma separated list,
+ * <code>--runs=</code> and <code>--dir=</code>.
+ * </p>
+ */
+public final class IndexReport {
+    private static final int LINES_PER_PAGE = 25, CHARS_PER_LINE = 40;
+
+    public static void main(String... args) throws Exception {
+        int[] pages = {10_000, 100_000};
+        int runs = 5;
+        Path dir = Path.of("target/regression");
+        for (String arg : args)
+            if (arg.startsWith("--pages="))
+                pages = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).toArray();
+            else if (arg.startsWith("--runs="))
+                runs = Integer.parseInt(arg.substring(7));
+            else if (arg.startsWith("--dir="))
+                dir = Path.of(arg.substring(6));
+            else
+                throw new IllegalArgumentException("Invalid option:  " + arg);
+
+        Files.createDirectories(dir);
+        System.out.printf("%-22s %10s %12s %12s %12s %12s %12s%n",
+                          "file", "file MB", "snapshot KB", "view ms", "+snapshot ms", "edit ms", "+snapshot ms");
+        for (int count : pages) {
+            Path brf = dir.resolve("index-" + count + ".brf");
+            if (!Files.exists(brf))
+                try (Writer writer = Files.newBufferedWriter(brf, StandardCharsets.US_ASCII)) {
+                    new CorpusGenerator(42, count, LINES_PER_PAGE, CHARS_PER_LINE, 0.1, true).writeBRF(writer);
+                }
+            report(brf, dir.resolve("index-cache"), runs);
+        }
+    }
+
+    private static void report(Path path, Path cacheDir, int runs) throws Exception {
+        LineIndexCache cache = new LineIndexCache(cacheDir);
+        cache.retain(List.of());
+
+        long view = Long.MAX_VALUE, viewSnapshot = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++)
+            view = Math.min(view, view(path, null));
+
+        //   the first run takes the snapshot
+        view(path, cache);
+        long snapshotSize = waitForSnapshot(cacheDir);
+        for (int i = 0; i < runs; i++)
+            viewSnapshot = Math.min(viewSnapshot, view(path, cache));
+
+        long size = Files.size(path);
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        long edit = Long.MAX_VALUE, editSnapshot = Long.MAX_VALUE;
+        int[] lineStarts = null;
+        long hash = 0;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            CRC32C crc = new CRC32C();
+            BZDocument document = read(path, null, crc);
+            hash = LineIndexCache.contentHash(crc, size);
+            edit = Math.min(edit, System.nanoTime() - start);
+            lineStarts = document.getLineStarts();
+        }
+        cache.write(path.toString(), size, modified, hash, lineStarts);
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            LineIndexCache.Snapshot snapshot = cache.read(path.toString(), LineIndexCache.Offsets.DOCUMENT, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+            CRC32C crc = new CRC32C();
+            BZDocument document = read(path, snapshot == null ? null : snapshot.lineStarts(), crc);
+            if (!document.isLineStartsFromHint() || snapshot.hash() != LineIndexCache.contentHash(crc, size))
+                throw new IllegalStateException("Snapshot not used");
+            editSnapshot = Math.min(editSnapshot, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-22s %10.1f %12.1f %12.1f %12.1f %12.1f %12.1f%n",
+                          path.getFileName(),
+                          size / 1e6,
+                          snapshotSize / 1024.0,
+                          view / 1e6,
+                          viewSnapshot / 1e6,
+                          edit / 1e6,
+                          editSnapshot / 1e6);
+    }
+
+    /**
+     * <p>
+     * Views a file until its whole index is appended, appending on the
+     * index thread rather than a UI thread.
+     * </p>
+     *
+     * @return the time taken in nanoseconds
+     */
+    private static long view(Path path, LineIndexCache cache) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<MappedBRF> viewer = new AtomicReference<>();
+        long start = System.nanoTime();
+        viewer.set(new MappedBRF(path, task -> {
+            task.run();
+            if (viewer.get().isIndexed())
+                done.countDown();
+        }, cache));
+        viewer.get().start();
+        if (!viewer.get().isIndexed())
+            done.await();
+        long time = System.nanoTime() - start;
+        viewer.get().close();
+        return time;
+    }
+
+    private static BZDocument read(Path path, int[] lineStarts, CRC32C crc) throws IOException {
+        BZDocument document = new BZDocument();
+        document.setLineStartsHint(lineStarts);
+        try (BufferedReader reader = BZFile.newReader(path, crc)) {
+            BZFormat.readBRF(reader, document);
+        }
+        return document;
+    }
+
+    /**
+     * <p>
+     * Waits for the snapshot written after the index is appended.
+     * </p>
+     *
+     * @return its size in bytes
+     */
+    private static long waitForSnapshot(Path cacheDir) throws Exception {
+        for (int i = 0; i < 600; i++) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*.idx")) {
+                for (Path file : stream)
+                    return Files.size(file);
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("No snapshot written");
+    }
+}
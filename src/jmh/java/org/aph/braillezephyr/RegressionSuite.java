@@ -0,0 +1,284 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * <p>
+ * Runs generated documents through the document core and compares the
+ * time and memory allocated by each stage with a stored baseline.
+ * </p><p>
+ * The stages are generating the BRF and BZY files, opening them, making
+ * edits, rewrapping every paragraph, and saving in both formats.  Each
+ * stage is run a few times to warm up and then measured several times, keeping
+ * the lowest time and allocation.  No display is needed.
+ * </p><p>
+ * Options are given as <code>--name=value</code>:
+ * </p>
+ * <dl>
+ *     <dt>pages</dt><dd>comma separated document sizes in pages</dd>
+ *     <dt>baseline</dt><dd>the baseline properties file</dd>
+ *     <dt>dir</dt><dd>where to write the generated files</dd>
+ *     <dt>update</dt><dd>if true, write the results as the new baseline</dd>
+ *     <dt>tolerance</dt><dd>how many times slower than the baseline counts as a regression</dd>
+ * </dl>
+ * <p>
+ * The exit status is 1 if any stage regressed.
+ * </p>
+ */
+public final class RegressionSuite {
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 5;
+    private static final int EDITS = 1000;
+
+    /**
+     * Time below which differences are treated as noise, in milliseconds.
+     */
+    private static final double TIME_FLOOR = 20;
+
+    /**
+     * Allocation below which differences are treated as noise, in megabytes.
+     */
+    private static final double ALLOCATION_FLOOR = 2;
+    private static final double ALLOCATION_TOLERANCE = 1.5;
+
+    private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Map<String, double[]> results = new LinkedHashMap<>();
+
+    /**
+     * A stage being measured.
+     */
+    private interface Stage {
+        /**
+         * Prepares for a run, not measured.
+         */
+        default void setUp() throws Exception {
+        }
+
+        void run() throws Exception;
+    }
+
+    public static void main(String... args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("pages", "100,1000,5000");
+        options.put("baseline", "src/jmh/regression-baseline.properties");
+        options.put("dir", "target/regression");
+        options.put("update", "false");
+        options.put("tolerance", "2");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals == -1)
+                throw new IllegalArgumentException("Invalid option:  " + arg);
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        RegressionSuite suite = new RegressionSuite();
+        Path dir = Path.of(options.get("dir"));
+        Files.createDirectories(dir);
+        for (String pages : options.get("pages").split(","))
+            suite.runDocument(dir, Integer.parseInt(pages.trim()));
+
+        Path baseline = Path.of(options.get("baseline"));
+        if (Boolean.parseBoolean(options.get("update"))) {
+            suite.writeBaseline(baseline);
+            System.out.println("Baseline written to " + baseline);
+            return;
+        }
+        if (!suite.compare(baseline, Double.parseDouble(options.get("tolerance"))))
+            System.exit(1);
+    }
+
+    private void runDocument(Path dir, int pages) throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(42, pages, 25, 40, 0.1, true);
+        Path brf = dir.resolve(pages + ".brf"), bzy = dir.resolve(pages + ".bzy");
+        Path savedBRF = dir.resolve(pages + "-saved.brf"), savedBZY = dir.resolve(pages + "-saved.bzy");
+        BZDocument[] document = new BZDocument[1];
+
+        measure("generate", pages, () -> {
+            try (Writer writer = Files.newBufferedWriter(brf, StandardCharsets.US_ASCII)) {
+                generator.writeBRF(writer);
+            }
+            try (Writer writer = Files.newBufferedWriter(bzy, StandardCharsets.UTF_8)) {
+                generator.writeBZY(writer);
+            }
+        });
+
+        measure("openBRF", pages, () -> BZFile.readDocument(brf));
+        measure("openBZY", pages, () -> document[0] = BZFile.readDocument(bzy));
+
+        measure("edit", pages, new Stage() {
+            @Override
+            public void setUp() throws Exception {
+                document[0] = BZFile.readDocument(bzy);
+            }
+
+            @Override
+            public void run() {
+                edit(document[0]);
+            }
+        });
+
+        measure("rewrap", pages, new Stage() {
+            @Override
+            public void setUp() throws Exception {
+                document[0] = BZFile.readDocument(bzy);
+                document[0].setCharsPerLine(32);
+            }
+
+            @Override
+            public void run() {
+                BZDocument rewrapped = document[0];
+                int line = 0;
+                while (line < rewrapped.getLineCount()) {
+                    BZFormat.rewrap(rewrapped, line);
+                    while (line < rewrapped.getLineCount() && !rewrapped.isParagraphEnd(line))
+                        line++;
+                    line++;
+                }
+            }
+        });
+
+        BZDocument saved = BZFile.readDocument(bzy);
+        measure("saveBRF", pages, () -> {
+            try (Writer writer = Files.newBufferedWriter(savedBRF, StandardCharsets.US_ASCII)) {
+                BZFormat.writeBRF(writer, saved);
+            }
+        });
+        measure("saveBZY", pages, () -> {
+            try (Writer writer = Files.newBufferedWriter(savedBZY, StandardCharsets.UTF_8)) {
+                BZFormat.writeBZY(writer, saved, new BZFormat.BZYHeader("1 0 0", 0, "braille", false, List.of()));
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Types a run of characters, then inserts and deletes words at random
+     * places.
+     * </p>
+     */
+    private static void edit(BZDocument document) {
+        Random random = new Random(EDITS);
+        int offset = document.getOffsetAtLine(document.getLineCount() / 2);
+        for (int i = 0; i < EDITS / 2; i++) {
+            document.replaceTextRange(offset, 0, i % 6 == 5 ? " " : "A");
+            offset++;
+        }
+        for (int i = 0; i < EDITS / 2; i++) {
+            int start = random.nextInt(document.getCharCount());
+            if (start > 0 && document.charAt(start - 1) == '\r' && document.charAt(start) == '\n')
+                start++;
+            if (i % 2 == 0)
+                document.replaceTextRange(start, 0, " WORD");
+            else {
+                int end = Math.min(document.getCharCount(), start + 1 + random.nextInt(8));
+                if (end < document.getCharCount() && document.charAt(end - 1) == '\r' && document.charAt(end) == '\n')
+                    end++;
+                document.replaceTextRange(start, end - start, "");
+            }
+        }
+    }
+
+    private void measure(String name, int pages, Stage stage) throws Exception {
+        long bestNanos = Long.MAX_VALUE, bestBytes = Long.MAX_VALUE;
+        for (int i = 0; i < WARMUP_RUNS + RUNS; i++) {
+            stage.setUp();
+
+            //   keep collections from earlier runs out of the measurement
+            System.gc();
+            long bytes = threadBean.getCurrentThreadAllocatedBytes();
+            long nanos = System.nanoTime();
+            stage.run();
+            nanos = System.nanoTime() - nanos;
+            bytes = threadBean.getCurrentThreadAllocatedBytes() - bytes;
+
+            if (i >= WARMUP_RUNS) {
+                bestNanos = Math.min(bestNanos, nanos);
+                bestBytes = Math.min(bestBytes, bytes);
+            }
+        }
+
+        double milliseconds = bestNanos / 1e6, megabytes = bestBytes / (1024.0 * 1024.0);
+        results.put(name + '.' + pages, new double[]{milliseconds, megabytes});
+        System.out.printf("%-10s %6d pages %10.2f ms %10.2f MB%n", name, pages, milliseconds, megabytes);
+    }
+
+    private void writeBaseline(Path path) throws IOException {
+        Properties properties = new Properties() {
+            //   keep the file in a stable order
+            @Override
+            public Set<Map.Entry<Object, Object>> entrySet() {
+                Set<Map.Entry<Object, Object>> sorted = new TreeSet<>(Comparator.comparing(entry -> entry.getKey().toString()));
+                sorted.addAll(super.entrySet());
+                return sorted;
+            }
+        };
+        for (Map.Entry<String, double[]> entry : results.entrySet()) {
+            properties.setProperty(entry.getKey() + ".ms", String.format(Locale.ROOT, "%.2f", entry.getValue()[0]));
+            properties.setProperty(entry.getKey() + ".mb", String.format(Locale.ROOT, "%.2f", entry.getValue()[1]));
+        }
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.ISO_8859_1)) {
+            properties.store(writer, "BrailleZephyr regression baseline:  time in ms and allocation in MB per stage and page count");
+        }
+    }
+
+    private boolean compare(Path path, double tolerance) throws IOException {
+        if (!Files.exists(path)) {
+            System.out.println("No baseline at " + path + ", run with --update=true to create one");
+            return true;
+        }
+
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.ISO_8859_1)) {
+            baseline.load(reader);
+        }
+
+        boolean passed = true;
+        for (Map.Entry<String, double[]> entry : results.entrySet()) {
+            String time = baseline.getProperty(entry.getKey() + ".ms");
+            String allocation = baseline.getProperty(entry.getKey() + ".mb");
+            if (time == null || allocation == null) {
+                System.out.println(entry.getKey() + ":  no baseline");
+                continue;
+            }
+
+            double milliseconds = entry.getValue()[0], megabytes = entry.getValue()[1];
+            double baseMilliseconds = Double.parseDouble(time), baseMegabytes = Double.parseDouble(allocation);
+            if (milliseconds > baseMilliseconds * tolerance && milliseconds - baseMilliseconds > TIME_FLOOR) {
+                System.out.printf("REGRESSION  %s:  %.2f ms, baseline %.2f ms%n", entry.getKey(), milliseconds, baseMilliseconds);
+                passed = false;
+            }
+            if (megabytes > baseMegabytes * ALLOCATION_TOLERANCE && megabytes - baseMegabytes > ALLOCATION_FLOOR) {
+                System.out.printf("REGRESSION  %s:  %.2f MB, baseline %.2f MB%n", entry.getKey(), megabytes, baseMegabytes);
+                passed = false;
+            }
+        }
+
+        if (passed)
+            System.out.println("No regressions against " + path);
+        return passed;
+    }
+}
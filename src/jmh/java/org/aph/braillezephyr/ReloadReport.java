@@ -0,0 +1,107 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Reports the time to reload a BRF file that has been changed by another
+ * program, and how much of the document is replaced.
+ * </p><p>
+ * A file of 50,000 pages, about 50 MB, is generated, then written again
+ * with one page in the middle changed.  The changed file is read and its
+ * lines hashed, as is done on the watching thread, then the document is
+ * made the same by {@link BZFormat#replaceChangedLines}, as is done on the
+ * UI thread.  Each time is the best of a few runs.
+ * </p><p>
+ * Options are <code>--pages=</code> as a comma separated list,
+ * <code>--runs=</code> and <code>--dir=</code>.
+ * </p>
+ */
+public final class ReloadReport {
+    private static final int LINES_PER_PAGE = 25, CHARS_PER_LINE = 40;
+
+    public static void main(String... args) throws Exception {
+        int[] pages = {50_000};
+        int runs = 5;
+        Path dir = Path.of("target/regression");
+        for (String arg : args)
+            if (arg.startsWith("--pages="))
+                pages = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).toArray();
+            else if (arg.startsWith("--runs="))
+                runs = Integer.parseInt(arg.substring(7));
+            else if (arg.startsWith("--dir="))
+                dir = Path.of(arg.substring(6));
+            else
+                throw new IllegalArgumentException("Invalid option:  " + arg);
+
+        Files.createDirectories(dir);
+        System.out.printf("%-22s %10s %10s %10s %12s %12s%n",
+                          "file", "file MB", "read ms", "replace ms", "lines", "chars");
+        for (int count : pages) {
+            Path brf = dir.resolve("reload-" + count + ".brf");
+            try (Writer writer = Files.newBufferedWriter(brf, StandardCharsets.US_ASCII)) {
+                new CorpusGenerator(42, count, LINES_PER_PAGE, CHARS_PER_LINE, 0.1, true).writeBRF(writer);
+            }
+            BZDocument changed = BZFile.readDocument(brf);
+            int firstLine = count / 2 * LINES_PER_PAGE;
+            for (int i = firstLine; i < firstLine + LINES_PER_PAGE; i++)
+                changed.replaceTextRange(changed.getOffsetAtLine(i), changed.getLine(i).length(), "CHANGED LINE " + i);
+            Path changedBrf = dir.resolve("reload-" + count + ".changed.brf");
+            BZFile.writeDocument(changed, changedBrf);
+            report(brf, changedBrf, runs);
+        }
+    }
+
+    private static void report(Path path, Path changedPath, int runs) throws Exception {
+        long read = Long.MAX_VALUE, replace = Long.MAX_VALUE;
+        long[] chars = new long[1];
+        int lines = 0;
+        for (int i = 0; i < runs; i++) {
+            BZDocument document = BZFile.readDocument(path);
+
+            long start = System.nanoTime();
+            BZDocument updated = BZFile.readDocument(changedPath);
+            long[] hashes = LineDiff.hashLines(updated);
+            read = Math.min(read, System.nanoTime() - start);
+
+            chars[0] = 0;
+            start = System.nanoTime();
+            int[] hunks = BZFormat.replaceChangedLines(document, updated, hashes, (offset, length, text) -> {
+                chars[0] += length;
+                document.replaceTextRange(offset, length, text);
+            });
+            replace = Math.min(replace, System.nanoTime() - start);
+            lines = 0;
+            for (int j = 0; j < hunks.length; j += 4)
+                lines += Math.max(hunks[j + 1] - hunks[j], hunks[j + 3] - hunks[j + 2]);
+            if (!document.getLines().equals(updated.getLines()))
+                throw new IllegalStateException("Reload differs");
+        }
+
+        System.out.printf("%-22s %10.1f %10.1f %10.1f %12d %12d%n",
+                          path.getFileName(),
+                          Files.size(path) / 1e6,
+                          read / 1e6,
+                          replace / 1e6,
+                          lines,
+                          chars[0]);
+    }
+}
@@ -0,0 +1,145 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
+
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Reports the heap held by each additional document open in a tab, and the
+ * time to switch the shown document between tabs.
+ * </p><p>
+ * BRF files of 10, 100 and 1000 pages are generated, and a number of copies
+ * of each read into documents, as inactive tabs hold them.  Small files are
+ * read more times, so that there are at least 8 MB of them.  The heap in use
+ * after a full collection is compared with before reading.  Switching is
+ * timed by swapping each document into one {@link BZDocumentContent}, with
+ * a listener reading the first screen of lines as the views do when text
+ * is set.  Painting needs a display, so is not included, a recording from
+ * the editor has the whole time in its Tab events.
+ * </p><p>
+ * Options are <code>--tabs=</code>, <code>--pages=</code> as a comma
+ * separated list, and <code>--dir=</code>.
+ * </p>
+ */
+public final class TabReport {
+    private static final int LINES_PER_PAGE = 25, CHARS_PER_LINE = 40;
+    private static final int SCREEN_LINES = 60, SWITCHES = 2000;
+    private static final long MEASURED_BYTES = 8 * 1024 * 1024;
+
+    private static final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String... args) throws Exception {
+        int tabs = 10;
+        int[] pages = {10, 100, 1000};
+        Path dir = Path.of("target/regression");
+        for (String arg : args)
+            if (arg.startsWith("--tabs="))
+                tabs = Integer.parseInt(arg.substring(7));
+            else if (arg.startsWith("--pages="))
+                pages = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).toArray();
+            else if (arg.startsWith("--dir="))
+                dir = Path.of(arg.substring(6));
+            else
+                throw new IllegalArgumentException("Invalid option:  " + arg);
+
+        Files.createDirectories(dir);
+        System.out.printf("%-20s %8s %12s %14s %14s %12s%n", "file", "tabs", "file KB", "KB per tab", "storage KB", "switch us");
+        for (int count : pages) {
+            Path brf = dir.resolve("tabs-" + count + ".brf");
+            if (!Files.exists(brf))
+                try (Writer writer = Files.newBufferedWriter(brf, StandardCharsets.US_ASCII)) {
+                    new CorpusGenerator(42, count, LINES_PER_PAGE, CHARS_PER_LINE, 0.1, true).writeBRF(writer);
+                }
+            report(brf, tabs);
+        }
+    }
+
+    private static void report(Path path, int tabs) throws Exception {
+        //   enough small documents that the heap measured is not lost in noise
+        tabs = (int) Math.max(tabs, MEASURED_BYTES / Files.size(path));
+        List<BZDocument> documents = new ArrayList<>(tabs);
+
+        //   read once first, so loading classes is not counted
+        BZFile.readDocument(path);
+        long before = usedHeap();
+        for (int i = 0; i < tabs; i++)
+            documents.add(BZFile.readDocument(path));
+        long perTab = (usedHeap() - before) / tabs;
+
+        BZDocumentContent content = new BZDocumentContent(new BZDocument());
+        content.addTextChangeListener(new ScreenReader(content));
+        long[] times = new long[SWITCHES];
+        for (int i = 0; i < SWITCHES; i++) {
+            long start = System.nanoTime();
+            content.setDocument(documents.get(i % tabs), null);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+
+        System.out.printf("%-20s %8d %12.1f %14.1f %14.1f %12.1f%n",
+                          path.getFileName(),
+                          tabs,
+                          Files.size(path) / 1024.0,
+                          perTab / 1024.0,
+                          documents.get(0).getStorageSize() / 1024.0,
+                          times[SWITCHES / 2] / 1000.0);
+    }
+
+    /**
+     * Reads the lines a view would show when its text is set.
+     */
+    private static final class ScreenReader implements TextChangeListener {
+        private final BZDocumentContent content;
+        private int length;
+
+        private ScreenReader(BZDocumentContent content) {
+            this.content = content;
+        }
+
+        @Override
+        public void textSet(TextChangedEvent event) {
+            int lines = Math.min(SCREEN_LINES, content.getLineCount());
+            for (int i = 0; i < lines; i++)
+                length += content.getLine(i).length();
+        }
+
+        @Override
+        public void textChanging(TextChangingEvent event) {
+        }
+
+        @Override
+        public void textChanged(TextChangedEvent event) {
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+}
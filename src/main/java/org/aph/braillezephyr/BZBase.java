@@ -23,18 +23,13 @@ public class BZBase {
     }
 
     protected void logError(String message, String info, boolean showMessage) {
-        String string;
-
         if (info == null)
-            string = "ERROR:  " + message;
+            bzStyledText.getLog().error(getClass().getSimpleName(), message);
         else
-            string = "ERROR:  " + message + ":  " + info;
-        System.err.println(string);
-        System.err.flush();
-        bzStyledText.getLogWriter().println(string);
-        bzStyledText.getLogWriter().flush();
+            bzStyledText.getLog().error(getClass().getSimpleName(), message + ":  " + info);
 
         if (showMessage) {
+            String string;
             if (info == null)
                 string = "ERROR:  " + message;
             else
@@ -66,8 +61,6 @@ public class BZBase {
     }
 
     protected void logMessage(String string) {
-        System.out.println(string);
-        bzStyledText.getLogWriter().println(string);
-        bzStyledText.getLogWriter().flush();
+        bzStyledText.getLog().info(getClass().getSimpleName(), string);
     }
 }
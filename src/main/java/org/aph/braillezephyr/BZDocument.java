@@ -0,0 +1,445 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * The text and formatting of a braille document, independent of any
+ * display.
+ * </p><p>
+ * The text is held in a {@link TextStorage} with an index of line start
+ * offsets that is updated around each change.  Normally the storage is a
+ * {@link GapStorage} on the heap, holding one byte per character for BRF.
+ * If the document is set to be mapped before its text is loaded, a
+ * {@link MappedStorage} is used, keeping the text outside of the heap.
+ * </p><p>
+ * Lines are delimited by \r, \n or \r\n, and a line ending with
+ * {@link BZFormat#PARAGRAPH_END} ends a paragraph.  The document also
+ * carries the line delimiter, lines per page and characters per line used
+ * when it is written or rewrapped.
+ * </p><p>
+ * A document is not thread safe, but separate documents can be used on
+ * separate threads.
+ * </p>
+ *
+ * @see BZFormat
+ * @see BZDocumentContent
+ */
+final class BZDocument {
+    /**
+     * Receives changes to a document.
+     */
+    interface Listener {
+        /**
+         * Called before text is replaced.
+         */
+        void textChanging(int start, int replaceCharCount, int newCharCount, int replaceLineCount, int newLineCount, @NonNull String newText);
+
+        /**
+         * Called after text is replaced.
+         */
+        void textChanged();
+
+        /**
+         * Called after all the text is set.
+         */
+        void textSet();
+    }
+
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private @NonNull TextStorage storage = new GapStorage();
+    private boolean mapped;
+
+    private int[] lineStarts = new int[]{0};
+    private int lineCount = 1;
+    private int @Nullable [] lineStartsHint;
+    private boolean lineStartsFromHint;
+
+    private @NonNull String eol = System.lineSeparator();
+    private int linesPerPage = 25;
+    private int charsPerLine = 40;
+
+    void addListener(@NonNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @NonNull String getEol() {
+        return eol;
+    }
+
+    void setEol(@NonNull String eol) {
+        this.eol = eol;
+    }
+
+    int getLinesPerPage() {
+        return linesPerPage;
+    }
+
+    void setLinesPerPage(int linesPerPage) {
+        this.linesPerPage = linesPerPage;
+    }
+
+    int getCharsPerLine() {
+        return charsPerLine;
+    }
+
+    void setCharsPerLine(int charsPerLine) {
+        this.charsPerLine = charsPerLine;
+    }
+
+    int getCharCount() {
+        return storage.length();
+    }
+
+    /**
+     * @return whether the text is held in one byte per character
+     */
+    boolean isCompact() {
+        return storage.isCompact();
+    }
+
+    /**
+     * @return whether the text is held outside of the heap
+     */
+    boolean isMapped() {
+        return storage instanceof MappedStorage;
+    }
+
+    /**
+     * <p>
+     * Sets whether text loaded with {@link #newBuilder()} is held outside
+     * of the heap.  Text set from a string is always on the heap.
+     * </p>
+     */
+    void setMapped(boolean mapped) {
+        this.mapped = mapped;
+    }
+
+    /**
+     * <p>
+     * Returns the approximate number of bytes used on the heap by the text
+     * and line index, including unused space.
+     * </p>
+     */
+    long getStorageSize() {
+        return storage.getHeapSize() + 4L * lineStarts.length;
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    char charAt(int offset) {
+        return storage.charAt(offset);
+    }
+
+    /**
+     * <p>
+     * Returns the text of a line without its delimiter.
+     * </p>
+     *
+     * @param lineIndex the line
+     * @return the text of the line
+     */
+    @NonNull String getLine(int lineIndex) {
+        int start = lineStarts[lineIndex];
+        int end = lineIndex + 1 < lineCount ? lineStarts[lineIndex + 1] : getCharCount();
+        while (end > start && isDelimiter(charAt(end - 1)))
+            end--;
+        return getTextRange(start, end - start);
+    }
+
+    int getOffsetAtLine(int lineIndex) {
+        return lineStarts[lineIndex];
+    }
+
+    int getLineAtOffset(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    @NonNull String getTextRange(int start, int length) {
+        return storage.substring(start, length);
+    }
+
+    /**
+     * @param lineIndex the line
+     * @return whether the line ends a paragraph
+     */
+    boolean isParagraphEnd(int lineIndex) {
+        int start = lineStarts[lineIndex];
+        int end = lineIndex + 1 < lineCount ? lineStarts[lineIndex + 1] : getCharCount();
+        while (end > start && isDelimiter(charAt(end - 1)))
+            end--;
+        return end > start && charAt(end - 1) == BZFormat.PARAGRAPH_END;
+    }
+
+    /**
+     * @param lineIndex the line
+     * @return whether the line starts a page
+     */
+    boolean isFirstLineOnPage(int lineIndex) {
+        return BZFormat.isFirstLineOnPage(lineIndex, linesPerPage);
+    }
+
+    /**
+     * <p>
+     * Returns the lines of the document without paragraph end markers.
+     * </p>
+     *
+     * @return the lines of the document
+     */
+    @NonNull List<String> getLines() {
+        List<String> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            String line = getLine(i);
+            if (BZFormat.isParagraphEnd(line))
+                line = line.substring(0, line.length() - 1);
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * <p>
+     * Replaces a range of text.
+     * </p>
+     *
+     * @param start         the offset of the text to replace
+     * @param replaceLength the length of the text to replace
+     * @param text          the new text
+     * @throws IllegalArgumentException if the range is outside the document or splits a \r\n
+     */
+    void replaceTextRange(int start, int replaceLength, @NonNull String text) {
+        int charCount = getCharCount();
+        if (start < 0 || replaceLength < 0 || start + replaceLength > charCount)
+            throw new IllegalArgumentException("Invalid range " + start + ", " + replaceLength);
+        if (splitsDelimiter(start) || splitsDelimiter(start + replaceLength))
+            throw new IllegalArgumentException("Range splits a line delimiter");
+
+        int replaceLineCount = countLines(start, start + replaceLength);
+        int newLineCount = countLines(text);
+        for (Listener listener : listeners)
+            listener.textChanging(start, replaceLength, text.length(), replaceLineCount, newLineCount, text);
+
+        //   lines whose starts may change, including a line ending in \r before the change
+        int firstLine = Math.max(0, getLineAtOffset(start) - 1);
+        int lastLine = getLineAtOffset(start + replaceLength);
+        int delta = text.length() - replaceLength;
+
+        storage.replace(start, replaceLength, text);
+
+        updateLines(firstLine, lastLine, delta);
+
+        for (Listener listener : listeners)
+            listener.textChanged();
+    }
+
+    /**
+     * <p>
+     * Replaces all the text, on the heap.
+     * </p>
+     *
+     * @param text the new text
+     */
+    void setText(@NonNull String text) {
+        setText(new GapStorage.Builder().append(text).build());
+    }
+
+    /**
+     * <p>
+     * Returns a builder for loading new text into the document, which is
+     * then set with {@link #setText(TextStorage)}.
+     * </p>
+     */
+    TextStorage.@NonNull Builder newBuilder() throws IOException {
+        return mapped ? new MappedStorage.Builder() : new GapStorage.Builder();
+    }
+
+    /**
+     * <p>
+     * Replaces all the text.
+     * </p>
+     *
+     * @param storage the new text, from {@link #newBuilder()}
+     */
+    void setText(@NonNull TextStorage storage) {
+        this.storage = storage;
+
+        int length = storage.length();
+        int[] hint = lineStartsHint;
+        lineStartsHint = null;
+        lineStartsFromHint = hint != null && fitsLineStarts(hint);
+        if (lineStartsFromHint) {
+            lineStarts = hint;
+            lineCount = hint.length;
+            for (Listener listener : listeners)
+                listener.textSet();
+            return;
+        }
+
+        int[] starts = new int[Math.max(16, length / 32)];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = 0; i < length; i++) {
+            char c = storage.charAt(i);
+            if (c == '\r' && i + 1 < length && storage.charAt(i + 1) == '\n')
+                i++;
+            else if (!isDelimiter(c))
+                continue;
+            if (count == starts.length)
+                starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = i + 1;
+        }
+        lineStarts = starts;
+        lineCount = count;
+
+        for (Listener listener : listeners)
+            listener.textSet();
+    }
+
+    /**
+     * <p>
+     * Gives the line start offsets expected of the next text set by
+     * {@link #setText(TextStorage)}, such as from a {@link LineIndexCache}
+     * snapshot, so that it need not scan the text for lines.  They are
+     * only used if each follows a line delimiter within the text.  The
+     * text between them is not scanned, so they must be of the same text,
+     * such as a file with the same content hash.
+     * </p>
+     *
+     * @param lineStarts the line start offsets, or null to scan the text
+     */
+    void setLineStartsHint(int @Nullable [] lineStarts) {
+        lineStartsHint = lineStarts;
+    }
+
+    /**
+     * @return whether the line starts of the current text came from {@link #setLineStartsHint(int[])}
+     */
+    boolean isLineStartsFromHint() {
+        return lineStartsFromHint;
+    }
+
+    /**
+     * @return a copy of the line start offsets
+     */
+    int @NonNull [] getLineStarts() {
+        return Arrays.copyOf(lineStarts, lineCount);
+    }
+
+    private boolean fitsLineStarts(int[] starts) {
+        int length = storage.length();
+        if (starts.length == 0 || starts[0] != 0 || starts[starts.length - 1] > length)
+            return false;
+        for (int i = 1; i < starts.length; i++) {
+            int start = starts[i];
+            if (start <= starts[i - 1] || !isDelimiter(storage.charAt(start - 1)))
+                return false;
+            if (start < length && storage.charAt(start - 1) == '\r' && storage.charAt(start) == '\n')
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private boolean splitsDelimiter(int offset) {
+        return offset > 0 && offset < getCharCount() && charAt(offset - 1) == '\r' && charAt(offset) == '\n';
+    }
+
+    private int countLines(int start, int end) {
+        int lines = 0;
+        for (int i = start; i < end; i++) {
+            char c = charAt(i);
+            if (c == '\r') {
+                lines++;
+                if (i + 1 < end && charAt(i + 1) == '\n')
+                    i++;
+            } else if (c == '\n')
+                lines++;
+        }
+        return lines;
+    }
+
+    private static int countLines(String text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                lines++;
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n')
+                    i++;
+            } else if (c == '\n')
+                lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * <p>
+     * Rescans the lines from <code>firstLine</code> to <code>lastLine</code>
+     * after a change, and shifts the starts of the lines after them.
+     * </p>
+     */
+    private void updateLines(int firstLine, int lastLine, int delta) {
+        int charCount = getCharCount();
+        boolean toEnd = lastLine + 1 == lineCount;
+        int scanStart = lineStarts[firstLine];
+        int scanEnd = toEnd ? charCount : lineStarts[lastLine + 1] + delta;
+
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = scanStart;
+        for (int i = scanStart; i < scanEnd; i++) {
+            char c = charAt(i);
+            if (c == '\r' && i + 1 < charCount && charAt(i + 1) == '\n')
+                i++;
+            else if (!isDelimiter(c))
+                continue;
+            if (i + 1 < scanEnd || toEnd) {
+                if (count == starts.length)
+                    starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = i + 1;
+            }
+        }
+
+        //   splice the rescanned starts in and shift the rest
+        int tail = lineCount - (lastLine + 1);
+        int newCount = firstLine + count + tail;
+        int[] result = newCount <= lineStarts.length ? lineStarts : Arrays.copyOf(lineStarts, newCount + newCount / 2);
+        System.arraycopy(lineStarts, lastLine + 1, result, firstLine + count, tail);
+        System.arraycopy(starts, 0, result, firstLine, count);
+        for (int i = firstLine + count; i < newCount; i++)
+            result[i] += delta;
+        lineStarts = result;
+        lineCount = newCount;
+    }
+}
@@ -0,0 +1,249 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Presents a {@link BZDocument} to <code>StyledText</code>.
+ * </p><p>
+ * Changes made to the document directly, such as by {@link BZFormat}, are
+ * passed on to the widgets as well as changes made through the widgets.
+ * </p><p>
+ * A {@link Source}, such as a read only view, can be shown instead of the
+ * document, and its changes are passed on in the same way.
+ * </p>
+ */
+final class BZDocumentContent implements StyledTextContent, BZDocument.Listener {
+    /**
+     * Text shown instead of the document.  A source tells the content about
+     * its changes as a {@link BZDocument.Listener} while it is shown.
+     */
+    interface Source {
+        /**
+         * @param listener told about changes, or null while the source is not shown
+         */
+        void setListener(BZDocument.@Nullable Listener listener);
+
+        int getCharCount();
+
+        int getLineCount();
+
+        @NonNull String getLine(int lineIndex);
+
+        int getOffsetAtLine(int lineIndex);
+
+        int getLineAtOffset(int offset);
+
+        @NonNull String getTextRange(int start, int length);
+
+        /**
+         * @throws IllegalStateException if the text is read only
+         */
+        void replaceTextRange(int start, int replaceLength, @NonNull String text);
+
+        /**
+         * @param lineIndex    the line
+         * @param linesPerPage the lines per page to use if the source has none of its own
+         * @return whether the line starts a page
+         */
+        boolean isFirstLineOnPage(int lineIndex, int linesPerPage);
+
+        /**
+         * @return the lines of the source without paragraph end markers
+         */
+        @NonNull List<String> getLines();
+
+        /**
+         * <p>
+         * Called when the source is no longer shown.
+         * </p>
+         */
+        void close();
+    }
+
+    private @NonNull BZDocument document;
+    private final List<TextChangeListener> listeners = new ArrayList<>();
+    private @Nullable Source source;
+
+    BZDocumentContent(@NonNull BZDocument document) {
+        this.document = document;
+        document.addListener(this);
+    }
+
+    @NonNull BZDocument getDocument() {
+        return document;
+    }
+
+    @Nullable Source getSource() {
+        return source;
+    }
+
+    /**
+     * <p>
+     * Shows a source instead of the document, or the document again if
+     * <code>source</code> is null.  The previous source is closed.
+     * </p>
+     *
+     * @param source the source to show, or null
+     */
+    void setSource(@Nullable Source source) {
+        if (source == this.source)
+            return;
+        if (this.source != null)
+            this.source.close();
+        this.source = source;
+        if (source != null)
+            source.setListener(this);
+        fireTextSet();
+    }
+
+    /**
+     * <p>
+     * Shows another document, such as when switching tabs.  Unlike
+     * {@link #setSource(Source)}, the previous source is not closed, so it
+     * can be shown again.
+     * </p>
+     *
+     * @param document the document to show
+     * @param source   the source to show instead of the document, or null
+     */
+    void setDocument(@NonNull BZDocument document, @Nullable Source source) {
+        this.document.removeListener(this);
+        if (this.source != null)
+            this.source.setListener(null);
+        this.document = document;
+        this.source = source;
+        document.addListener(this);
+        if (source != null)
+            source.setListener(this);
+        fireTextSet();
+    }
+
+    @Override
+    public void addTextChangeListener(TextChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeTextChangeListener(TextChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public int getCharCount() {
+        if (source != null)
+            return source.getCharCount();
+        return document.getCharCount();
+    }
+
+    @Override
+    public String getLine(int lineIndex) {
+        if (source != null)
+            return source.getLine(lineIndex);
+        return document.getLine(lineIndex);
+    }
+
+    @Override
+    public int getLineAtOffset(int offset) {
+        if (source != null)
+            return source.getLineAtOffset(offset);
+        return document.getLineAtOffset(offset);
+    }
+
+    @Override
+    public int getLineCount() {
+        if (source != null)
+            return source.getLineCount();
+        return document.getLineCount();
+    }
+
+    @Override
+    public String getLineDelimiter() {
+        return System.lineSeparator();
+    }
+
+    @Override
+    public int getOffsetAtLine(int lineIndex) {
+        if (source != null)
+            return source.getOffsetAtLine(lineIndex);
+        return document.getOffsetAtLine(lineIndex);
+    }
+
+    @Override
+    public String getTextRange(int start, int length) {
+        if (source != null)
+            return source.getTextRange(start, length);
+        return document.getTextRange(start, length);
+    }
+
+    @Override
+    public void replaceTextRange(int start, int replaceLength, String text) {
+        if (source != null)
+            source.replaceTextRange(start, replaceLength, text);
+        else
+            document.replaceTextRange(start, replaceLength, text);
+    }
+
+    @Override
+    public void setText(String text) {
+        document.setText(text);
+    }
+
+    @Override
+    public void textChanging(int start, int replaceCharCount, int newCharCount, int replaceLineCount, int newLineCount, @NonNull String newText) {
+        TextChangingEvent event = new TextChangingEvent(this);
+        event.start = start;
+        event.replaceCharCount = replaceCharCount;
+        event.newCharCount = newCharCount;
+        event.replaceLineCount = replaceLineCount;
+        event.newLineCount = newLineCount;
+        event.newText = newText;
+        for (TextChangeListener listener : listeners.toArray(new TextChangeListener[0]))
+            listener.textChanging(event);
+    }
+
+    @Override
+    public void textChanged() {
+        TextChangedEvent event = new TextChangedEvent(this);
+        for (TextChangeListener listener : listeners.toArray(new TextChangeListener[0]))
+            listener.textChanged(event);
+    }
+
+    @Override
+    public void textSet() {
+        //   setting the text of the document stops showing a source
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+        fireTextSet();
+    }
+
+    private void fireTextSet() {
+        TextChangedEvent event = new TextChangedEvent(this);
+        for (TextChangeListener listener : listeners.toArray(new TextChangeListener[0]))
+            listener.textSet(event);
+    }
+}
@@ -0,0 +1,150 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import jdk.jfr.*;
+
+/**
+ * <p>
+ * Java Flight Recorder events for the places where the editor spends its
+ * time.
+ * </p><p>
+ * Each event measures its own duration between <code>begin()</code> and
+ * <code>commit()</code>.  The fields are only filled in when
+ * <code>shouldCommit()</code> is true, so the events cost very little when
+ * no recording is running.
+ * </p>
+ */
+final class BZEvents {
+    private static final String CATEGORY = "BrailleZephyr";
+
+    private BZEvents() {
+    }
+
+    @Name("org.aph.braillezephyr.File")
+    @Label("File")
+    @Description("Opening or saving a document")
+    @Category(CATEGORY)
+    static final class FileEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Path")
+        String path;
+
+        @Label("Characters")
+        int characters;
+
+        @Label("Lines")
+        int lines;
+    }
+
+    @Name("org.aph.braillezephyr.Codec")
+    @Label("Codec")
+    @Description("Reading or writing BRF or BrailleZephyr file data")
+    @Category(CATEGORY)
+    static final class CodecEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Characters")
+        int characters;
+
+        @Label("Lines")
+        int lines;
+    }
+
+    @Name("org.aph.braillezephyr.Rewrap")
+    @Label("Rewrap")
+    @Description("Rewrapping lines from the caret")
+    @Category(CATEGORY)
+    static final class RewrapEvent extends Event {
+        @Label("First Line")
+        int firstLine;
+
+        @Label("Lines Before")
+        int linesBefore;
+
+        @Label("Lines After")
+        int linesAfter;
+
+        @Label("Characters Per Line")
+        int charsPerLine;
+    }
+
+    @Name("org.aph.braillezephyr.Paint")
+    @Label("Paint")
+    @Description("Painting the page lines, margin and paragraph marks of a view")
+    @Category(CATEGORY)
+    static final class PaintEvent extends Event {
+        @Label("View")
+        String view;
+
+        @Label("Top Line")
+        int topLine;
+
+        @Label("Lines Painted")
+        int linesPainted;
+
+        @Label("Document Lines")
+        int lines;
+    }
+
+    @Name("org.aph.braillezephyr.AdjustOther")
+    @Label("Adjust Other View")
+    @Description("Scrolling the other view to follow the caret")
+    @Category(CATEGORY)
+    static final class AdjustOtherEvent extends Event {
+        @Label("Line")
+        int line;
+
+        @Label("Document Lines")
+        int lines;
+    }
+
+    @Name("org.aph.braillezephyr.BrailleKey")
+    @Label("Braille Key")
+    @Description("Inserting a braille cell typed with the six key entry")
+    @Category(CATEGORY)
+    static final class BrailleKeyEvent extends Event {
+        @Label("Character")
+        char character;
+
+        @Label("Offset")
+        int offset;
+
+        @Label("Document Characters")
+        int characters;
+    }
+
+    @Name("org.aph.braillezephyr.Tab")
+    @Label("Tab")
+    @Description("Opening, switching or closing a tab, including painting the document shown")
+    @Category(CATEGORY)
+    static final class TabEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Tabs")
+        int tabs;
+
+        @Label("Document Characters")
+        int characters;
+
+        @Label("Storage Bytes")
+        @DataAmount
+        long storageBytes;
+    }
+}
@@ -16,6 +16,9 @@
 package org.aph.braillezephyr;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.MessageBox;
 import org.jspecify.annotations.NonNull;
@@ -25,7 +28,20 @@ import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * <p>
@@ -35,7 +51,66 @@ import java.nio.file.Path;
  * @author Mike Gray mgray@aph.org
  */
 public final class BZFile extends BZBase {
+    private static final String[] FILTER_EXTENSIONS = {"*.brf", "*.bzy", "*.txt", "*" + VolumeSet.MANIFEST_EXTENSION, "*.brf;*.bzy;*.txt;*" + VolumeSet.MANIFEST_EXTENSION, "*.*"};
+    private static final String[] FILTER_NAMES = {"Braille Ready Format File", "BrailleZephyr File", "Unicode Braille Text", "BrailleZephyr Volume Set", "Braille Files", "All Files"};
+    private static final int FILTER_INDEX = 4;
+
+    /**
+     * <p>
+     * Files at least this many bytes are loaded outside of the heap, set in
+     * megabytes by the <code>braillezephyr.mappedThreshold</code> property,
+     * or never if it is negative.
+     * </p>
+     */
+    private static final long MAPPED_THRESHOLD = Long.getLong("braillezephyr.mappedThreshold", 200) * 1024 * 1024;
+
+    /**
+     * <p>
+     * BRF files at least this many bytes are opened read only in a
+     * {@link MappedBRF}, set in megabytes by the
+     * <code>braillezephyr.viewerThreshold</code> property, or never if it is
+     * negative.
+     * </p>
+     */
+    private static final long VIEWER_THRESHOLD = Long.getLong("braillezephyr.viewerThreshold", 512) * 1024 * 1024;
+
+    /**
+     * <p>
+     * The level at which BrailleZephyr files are compressed with gzip, from
+     * 1 for the fastest to 9 for the smallest, set by the
+     * <code>braillezephyr.bzyGzip</code> property, or 0 to not compress
+     * them.  Compressed files are in the text format, as the pages of the
+     * paged format could not be read on their own.
+     * </p>
+     */
+    private static final int GZIP_LEVEL = Integer.getInteger("braillezephyr.bzyGzip", 0);
+
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * <p>
+     * Whether the file being edited is watched for changes by other
+     * programs, unless the <code>braillezephyr.watchFiles</code> property
+     * is false.
+     * </p>
+     */
+    private static final boolean WATCH_FILES = Boolean.parseBoolean(System.getProperty("braillezephyr.watchFiles", "true"));
+
+    /**
+     * The size and modified time of a file when it was last read or written.
+     */
+    private record FileStamp(long size, long modified) {
+        static @NonNull FileStamp of(@NonNull BasicFileAttributes attributes) {
+            return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+    }
+
     private @Nullable String fileName;
+    private final List<Runnable> fileNameListeners = new ArrayList<>();
+    private @Nullable BZSettings bzSettings;
+    private final Display display;
+    private final @Nullable FileWatcher fileWatcher;
+    private final Map<String, FileStamp> fileStamps = new ConcurrentHashMap<>();
 
     /**
      * <p>
@@ -46,33 +121,583 @@ public final class BZFile extends BZBase {
      */
     public BZFile(BZStyledText bzStyledText) {
         super(bzStyledText);
+        bzStyledText.addCaretListener(e -> updateVolumeTitle());
+        display = parentShell.getDisplay();
+        fileWatcher = WATCH_FILES ? newFileWatcher() : null;
+    }
+
+    private @Nullable FileWatcher newFileWatcher() {
+        try {
+            FileWatcher watcher = new FileWatcher(this::fileChanged);
+            parentShell.addDisposeListener(e -> {
+                try {
+                    watcher.close();
+                } catch (IOException ignored) {
+                }
+            });
+            return watcher;
+        } catch (IOException exception) {
+            logError("Unable to watch files", exception.getMessage(), false);
+            return null;
+        }
     }
 
     @Nullable String getFileName() {
         return fileName;
     }
 
+    /**
+     * <p>
+     * Sets the name of the file being edited, such as when switching tabs,
+     * and updates the title.
+     * </p>
+     *
+     * @param fileName the file name, or null if the document is untitled
+     */
+    void setFileName(@Nullable String fileName) {
+        this.fileName = fileName;
+        updateTitle();
+        watchFile();
+        for (Runnable listener : fileNameListeners)
+            listener.run();
+    }
+
+    /**
+     * <p>
+     * Watches the file being edited, unless it is a volume set, and checks
+     * whether it has changed while it was not watched, such as while
+     * another tab was shown.
+     * </p>
+     */
+    private void watchFile() {
+        if (fileWatcher == null)
+            return;
+        Path path = fileName == null || bzStyledText.getVolumeSet() != null ? null : Path.of(fileName);
+        try {
+            fileWatcher.watch(path);
+        } catch (IOException exception) {
+            logError("Unable to watch file", fileName + ":  " + exception.getMessage(), false);
+            return;
+        }
+        if (path != null && fileStamps.containsKey(fileName))
+            CompletableFuture.runAsync(() -> fileChanged(path));
+    }
+
+    /**
+     * <p>
+     * Reads a file that may have been changed by another program, off the
+     * UI thread, then has the UI thread reload it.  Nothing is read if the
+     * file has the same size and modified time as when it was last read or
+     * written, such as after the editor saves it.
+     * </p>
+     */
+    private void fileChanged(@NonNull Path path) {
+        String name = path.toString();
+        try {
+            FileStamp stamp = FileStamp.of(Files.readAttributes(path, BasicFileAttributes.class));
+            FileStamp known = fileStamps.get(name);
+            if (known == null || known.equals(stamp))
+                return;
+            BZDocument updated = isViewed(path) ? null : readDocument(path);
+            long[] hashes = updated == null ? null : LineDiff.hashLines(updated);
+            if (!display.isDisposed())
+                display.asyncExec(() -> reloadFile(path, stamp, updated, hashes));
+        } catch (NoSuchFileException exception) {
+            //   the file is being replaced, which is another change
+        } catch (IOException exception) {
+            logError("Unable to reload file", name + ":  " + exception.getMessage(), false);
+        } catch (BZException exception) {
+            logError("Unable to reload file", name + ":  " + exception.getMessage(), false);
+        }
+    }
+
+    /**
+     * <p>
+     * Reloads the file being edited after it has been changed by another
+     * program, asking first if the document has been modified.
+     * </p><p>
+     * Only the lines that differ are replaced, so the caret stays where it
+     * was, and the reload can be undone.  A file shown read only, or still
+     * being read, is read again from the start.
+     * </p>
+     *
+     * @param path    the file that changed
+     * @param stamp   the size and modified time of the file as read
+     * @param updated the text of the file, or null if it is to be shown read only
+     * @param hashes  the line hashes of <code>updated</code>
+     */
+    private void reloadFile(@NonNull Path path, @NonNull FileStamp stamp, @Nullable BZDocument updated, long @Nullable [] hashes) {
+        String name = path.toString();
+        if (!name.equals(fileName) || stamp.equals(fileStamps.get(name)))
+            return;
+        fileStamps.put(name, stamp);
+
+        if (bzStyledText.getModified()) {
+            MessageBox messageBox = new MessageBox(parentShell, SWT.ICON_QUESTION | SWT.YES | SWT.NO);
+            messageBox.setMessage(path.getFileName() + " has been changed by another program.  Would you like to reload it, losing your changes?");
+            if (messageBox.open() != SWT.YES)
+                return;
+        }
+
+        BZEvents.FileEvent event = new BZEvents.FileEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            if (updated == null || hashes == null || bzStyledText.getViewer() != null || bzStyledText.isLoading()) {
+                int caretOffset = bzStyledText.getCaretOffset();
+                if (updated == null)
+                    bzStyledText.viewBRF(path, bzSettings == null ? null : bzSettings.getLineIndexCache());
+                else
+                    readFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+
+                //   a paged file read in the background shows the page with its own caret
+                if (!bzStyledText.isLoading())
+                    bzStyledText.setCaretOffset(caretOffset);
+                logMessage("Reloaded " + name);
+            } else {
+                int[] hunks = bzStyledText.reload(updated, hashes);
+                int lines = 0;
+                for (int i = 0; i < hunks.length; i += 4)
+                    lines += Math.max(hunks[i + 1] - hunks[i], hunks[i + 3] - hunks[i + 2]);
+                logMessage(String.format("Reloaded %s, %d lines changed in %d places, in %d ms",
+                                         name, lines, hunks.length / 4, (System.nanoTime() - start) / 1_000_000));
+            }
+            updateTitle();
+            rememberDocument(name, stamp.size(), stamp.modified());
+            commitFileEvent(event, "reload", name);
+        } catch (IOException exception) {
+            logError("Unable to reload file", exception);
+        } catch (BZException exception) {
+            logError("Unable to reload file", name + ":  " + exception.getMessage());
+        }
+    }
+
+    /**
+     * @param listener run whenever the file name is set
+     */
+    void addFileNameListener(@NonNull Runnable listener) {
+        fileNameListeners.add(listener);
+    }
+
+    /**
+     * <p>
+     * Sets where the state of each document is remembered, so that it is
+     * restored when the document is opened again.
+     * </p>
+     *
+     * @param bzSettings the settings, or null to not remember documents
+     */
+    void setSettings(@Nullable BZSettings bzSettings) {
+        this.bzSettings = bzSettings;
+    }
+
+    /**
+     * <p>
+     * Remembers the caret, view focus and page size of the current
+     * document, before it is closed or hidden by another.  Untitled
+     * documents and volume sets are not remembered.
+     * </p>
+     */
+    void rememberDocument() {
+        if (bzSettings == null || fileName == null || bzStyledText.getVolumeSet() != null)
+            return;
+        SettingsStore.DocumentSettings settings = bzSettings.getDocumentSettings(fileName);
+        if (settings == null)
+            rememberDocument(fileName, -1, -1);
+        else
+            rememberDocument(fileName, settings.size(), settings.modified());
+    }
+
+    /**
+     * <p>
+     * Remembers the state of the current document, and the size and
+     * modified time of its file when last read or written.
+     * </p>
+     */
+    private void rememberDocument(@NonNull String fileName, long size, long modified) {
+        if (bzSettings == null)
+            return;
+        int linesPerPage = bzStyledText.getLinesPerPage();
+        int lineCount = bzStyledText.getLineCount();
+        int pageCount = linesPerPage > 0 ? (lineCount + linesPerPage - 1) / linesPerPage : 1;
+        MappedBRF viewer = bzStyledText.getViewer();
+        if (viewer != null && viewer.getPageCount() != -1)
+            pageCount = viewer.getPageCount();
+        bzSettings.putDocumentSettings(fileName, new SettingsStore.DocumentSettings(bzStyledText.getCaretOffset(),
+                                                                                   bzStyledText.getViewFocus(),
+                                                                                   linesPerPage,
+                                                                                   bzStyledText.getCharsPerLine(),
+                                                                                   pageCount,
+                                                                                   size,
+                                                                                   modified));
+    }
+
+    /**
+     * <p>
+     * Remembers the size and modified time of the file just written, so
+     * that it is not taken to have been changed by another program, along
+     * with the state of the document.
+     * </p>
+     */
+    private void rememberFile(@NonNull Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            fileStamps.put(path.toString(), FileStamp.of(attributes));
+            rememberDocument(path.toString(), attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException exception) {
+            logError("Unable to read file attributes", exception.getMessage(), false);
+        }
+    }
+
+    /**
+     * <p>
+     * Restores the state of a document remembered when it was last open.
+     * The caret is only restored if the file has not changed since, and
+     * the page size only for BRF and Unicode braille files that are
+     * edited, as BrailleZephyr files record their own.  While the rest of
+     * a paged BrailleZephyr file is being read, the caret is left at the
+     * page being shown.
+     * </p>
+     */
+    private void restoreDocument(@NonNull String fileName, @NonNull BasicFileAttributes attributes) {
+        if (bzSettings == null)
+            return;
+        SettingsStore.DocumentSettings settings = bzSettings.getDocumentSettings(fileName);
+        if (settings == null)
+            return;
+        if (!isBZY(fileName) && bzStyledText.getViewer() == null) {
+            bzStyledText.setLinesPerPage(settings.linesPerPage());
+            bzStyledText.setCharsPerLine(settings.charsPerLine());
+        }
+        bzStyledText.setViewFocus(settings.viewFocus());
+        if (settings.isUnchanged(attributes.size(), attributes.lastModifiedTime().toMillis()) && !bzStyledText.isLoading())
+            bzStyledText.setCaretOffset(settings.caretOffset());
+    }
+
+    private void updateTitle() {
+        if (bzStyledText.getVolumeSet() != null)
+            updateVolumeTitle();
+        else if (fileName == null)
+            parentShell.setText("BrailleZephyr");
+        else if (bzStyledText.getViewer() != null)
+            parentShell.setText(Path.of(fileName).getFileName() + " (Read Only) - BrailleZephyr");
+        else
+            parentShell.setText(Path.of(fileName).getFileName() + " - BrailleZephyr");
+    }
+
     boolean newFile() {
         if (!closeCurrentDocument()) {
             return false;
         }
 
         bzStyledText.setText("");
-        fileName = null;
-        parentShell.setText("BrailleZephyr");
+        setFileName(null);
         return true;
     }
 
+    private static boolean isBZY(@NonNull String fileName) {
+        return fileName.endsWith("bzy");
+    }
+
+    private static boolean isUnicodeBraille(@NonNull String fileName) {
+        return fileName.endsWith("txt");
+    }
+
+    private static @NonNull Charset getCharset(@NonNull String fileName) {
+        if (isBZY(fileName) || isUnicodeBraille(fileName))
+            return StandardCharsets.UTF_8;
+        return StandardCharsets.US_ASCII;
+    }
+
+    /**
+     * @return whether a BrailleZephyr file is written in the paged format of {@link PagedBZY}
+     */
+    private static boolean isPaged(@NonNull String fileName) {
+        if (!isBZY(fileName) || GZIP_LEVEL != 0)
+            return false;
+        if (PagedBZY.ENABLED)
+            return true;
+
+        //   a file already in the paged format stays in it
+        Path path = Path.of(fileName);
+        try {
+            return Files.isRegularFile(path) && PagedBZY.isPaged(path);
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * @param path the file to check
+     * @return whether the file starts with the gzip signature
+     */
+    static boolean isGzip(@NonNull Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return input.read() == 0x1f && input.read() == 0x8b;
+        }
+    }
+
+    /**
+     * <p>
+     * Opens a file to read as text.  A BrailleZephyr file starting with
+     * the gzip signature is decompressed as it is read.
+     * </p>
+     *
+     * @param path the file to read
+     * @return the reader, which must be closed
+     */
+    static @NonNull BufferedReader newReader(@NonNull Path path) throws IOException {
+        return newReader(path, null);
+    }
+
+    /**
+     * <p>
+     * Opens a file to read as text, as {@link #newReader(Path)}, updating
+     * <code>checksum</code> with each byte of the file as it is read.
+     * </p>
+     *
+     * @param path     the file to read
+     * @param checksum the checksum of the bytes read, or null for none
+     * @return the reader, which must be closed
+     */
+    static @NonNull BufferedReader newReader(@NonNull Path path, @Nullable Checksum checksum) throws IOException {
+        String fileName = path.toString();
+        if (!isBZY(fileName) && checksum == null)
+            return Files.newBufferedReader(path, getCharset(fileName));
+
+        InputStream input = Files.newInputStream(path);
+        if (checksum != null)
+            input = new CheckedInputStream(input, checksum);
+        input = new BufferedInputStream(input, BUFFER_SIZE);
+        if (!isBZY(fileName))
+            return new BufferedReader(new InputStreamReader(input, getCharset(fileName).newDecoder()), BUFFER_SIZE);
+        try {
+            input.mark(2);
+            boolean gzip = input.read() == 0x1f && input.read() == 0x8b;
+            input.reset();
+            if (gzip)
+                input = new GZIPInputStream(input, BUFFER_SIZE);
+        } catch (IOException exception) {
+            input.close();
+            throw exception;
+        }
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * <p>
+     * Opens a file to write as text, compressing BrailleZephyr files with
+     * gzip if {@link #GZIP_LEVEL} is set.
+     * </p>
+     *
+     * @param path the file to write
+     * @return the writer, which must be closed
+     */
+    private static @NonNull BufferedWriter newWriter(@NonNull Path path) throws IOException {
+        String fileName = path.toString();
+        if (isBZY(fileName) && GZIP_LEVEL > 0)
+            return newGzipWriter(path, GZIP_LEVEL);
+        return Files.newBufferedWriter(path, getCharset(fileName));
+    }
+
+    /**
+     * <p>
+     * Opens a file to write as UTF-8 text compressed with gzip.  The text
+     * is compressed as it is written, so none of it is kept.
+     * </p>
+     *
+     * @param path  the file to write
+     * @param level the compression level, from 1 for the fastest to 9 for
+     *              the smallest, or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION}
+     * @return the writer, which must be closed
+     */
+    static @NonNull BufferedWriter newGzipWriter(@NonNull Path path, int level) throws IOException {
+        OutputStream output = Files.newOutputStream(path);
+        try {
+            output = new GZIPOutputStream(output, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        } catch (IOException exception) {
+            output.close();
+            throw exception;
+        }
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * <p>
+     * Converts between BRF, Unicode braille text and BrailleZephyr files,
+     * depending on the extensions of <code>input</code> and
+     * <code>output</code>.
+     * </p><p>
+     * Conversion between BRF and Unicode braille text is streamed.  Other
+     * conversions go through a {@link BZDocument}.  Neither needs a display,
+     * so conversions can run in parallel on worker threads.
+     * </p>
+     *
+     * @param input  the file to read
+     * @param output the file to write
+     */
+    static void convertFile(@NonNull Path input, @NonNull Path output) throws IOException, BZException {
+        String inputName = input.toString(), outputName = output.toString();
+        if (isBZY(inputName) || isBZY(outputName)) {
+            writeDocument(readDocument(input), output);
+            return;
+        }
+
+        try (Reader fileReader = Files.newBufferedReader(input, getCharset(inputName));
+             Writer fileWriter = Files.newBufferedWriter(output, getCharset(outputName))) {
+            Reader reader = isUnicodeBraille(inputName) ? new UnicodeBrailleReader(fileReader) : fileReader;
+            Writer writer = isUnicodeBraille(outputName) ? new UnicodeBrailleWriter(fileWriter) : fileWriter;
+            reader.transferTo(writer);
+            writer.flush();
+        }
+    }
+
+    /**
+     * <p>
+     * Reads a braille file into a new document without a display.
+     * </p>
+     *
+     * @param path the file to read
+     * @return the document
+     * @throws BZException if the file is a BrailleZephyr file with an invalid header
+     */
+    static @NonNull BZDocument readDocument(@NonNull Path path) throws IOException, BZException {
+        String fileName = path.toString();
+        BZDocument document = new BZDocument();
+        document.setMapped(isLarge(path));
+        if (isBZY(fileName) && PagedBZY.isPaged(path)) {
+            try (PagedBZY file = PagedBZY.open(path)) {
+                file.readAll(document);
+            }
+            return document;
+        }
+        try (BufferedReader fileReader = newReader(path)) {
+            if (isBZY(fileName))
+                BZFormat.readBZY(fileReader, document);
+            else if (isUnicodeBraille(fileName))
+                BZFormat.readBRF(new UnicodeBrailleReader(fileReader), document);
+            else
+                BZFormat.readBRF(fileReader, document);
+        }
+        return document;
+    }
+
+    private static boolean isLarge(@NonNull Path path) throws IOException {
+        return MAPPED_THRESHOLD >= 0 && Files.size(path) >= MAPPED_THRESHOLD;
+    }
+
+    private static boolean isViewed(@NonNull Path path) throws IOException {
+        String fileName = path.toString();
+        if (isBZY(fileName) || isUnicodeBraille(fileName))
+            return false;
+        return VIEWER_THRESHOLD >= 0 && Files.size(path) >= VIEWER_THRESHOLD;
+    }
+
+    /**
+     * <p>
+     * Writes a document without a display, in the format given by the
+     * extension of <code>path</code>.  BrailleZephyr files are written in
+     * the paged format if {@link PagedBZY#ENABLED} is true or the file is
+     * already in it, unless they are compressed.
+     * </p>
+     *
+     * @param document the document to write
+     * @param path     the file to write
+     */
+    static void writeDocument(@NonNull BZDocument document, @NonNull Path path) throws IOException {
+        String fileName = path.toString();
+        if (isPaged(fileName)) {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path))) {
+                PagedBZY.write(output, document, new BZFormat.BZYHeader(null, 0, null, false, List.of()), PagedBZY.COMPRESS);
+            }
+            return;
+        }
+        try (Writer fileWriter = newWriter(path)) {
+            writeDocument(document, fileName, fileWriter);
+        }
+    }
+
+    private static void writeDocument(@NonNull BZDocument document, @NonNull String fileName, @NonNull Writer writer) throws IOException {
+        if (isBZY(fileName))
+            BZFormat.writeBZY(writer, document, new BZFormat.BZYHeader(null, 0, null, false, List.of()));
+        else if (isUnicodeBraille(fileName))
+            BZFormat.writeBRF(new UnicodeBrailleWriter(writer), document);
+        else
+            BZFormat.writeBRF(writer, document);
+    }
+
+    /**
+     * <p>
+     * Asks for a file and shows its differences from the current document.
+     * </p>
+     */
+    void compareWithFile() {
+        //   a view may not be indexed yet, and is too large to hold as strings
+        if (bzStyledText.getViewer() != null) {
+            logError("Unable to compare", "a read only view cannot be compared");
+            return;
+        }
+        if (bzStyledText.isLoading()) {
+            logError("Unable to compare", "the file has not been read");
+            return;
+        }
+
+        FileDialog fileDialog = new FileDialog(parentShell, SWT.OPEN);
+        fileDialog.setFilterExtensions(FILTER_EXTENSIONS);
+        fileDialog.setFilterNames(FILTER_NAMES);
+        fileDialog.setFilterIndex(FILTER_INDEX);
+        String otherFileName = fileDialog.open();
+        if (otherFileName == null)
+            return;
+
+        Path path = Path.of(otherFileName);
+        List<String> otherLines;
+        try {
+            otherLines = readDocument(path).getLines();
+        } catch (IOException exception) {
+            logError("Unable to read file", exception);
+            return;
+        } catch (BZException exception) {
+            logError("Unable to read file", otherFileName + ":  " + exception.getMessage());
+            return;
+        }
+
+        List<String> lines = bzStyledText.getLines();
+        long start = System.nanoTime();
+        int[] hunks = LineDiff.diff(LineDiff.hashLines(lines), LineDiff.hashLines(otherLines));
+        logMessage(String.format("Compared %d and %d lines, %d differences in %d ms",
+                                 lines.size(), otherLines.size(), hunks.length / 4, (System.nanoTime() - start) / 1_000_000));
+
+        String name = fileName == null ? "Untitled" : Path.of(fileName).getFileName().toString();
+        new CompareDialog(parentShell, bzStyledText, name, lines, path.getFileName().toString(), otherLines, hunks);
+    }
+
     boolean openFile(@NonNull Path path) {
-        Charset charset = path.toString().endsWith("bzy") ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII;
-        try (BufferedReader fileReader = Files.newBufferedReader(path, charset)) {
-            if (path.toString().endsWith("bzy")) {
-                bzStyledText.readBZY(fileReader);
-            } else {
-                bzStyledText.readBRF(fileReader);
+        BZEvents.FileEvent event = new BZEvents.FileEvent();
+        event.begin();
+        String fileName = path.toString();
+        rememberDocument();
+        try {
+            if (VolumeSet.isVolumeSet(path)) {
+                bzStyledText.openVolumeSet(path);
+                setFileName(fileName);
+                commitFileEvent(event, "open", fileName);
+                return true;
             }
-            parentShell.setText(path.getFileName().toString() + " - BrailleZephyr");
-            this.fileName = path.toString();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (isViewed(path))
+                bzStyledText.viewBRF(path, bzSettings == null ? null : bzSettings.getLineIndexCache());
+            else
+                readFile(path, attributes);
+            restoreDocument(fileName, attributes);
+            rememberDocument(fileName, attributes.size(), attributes.lastModifiedTime().toMillis());
+            fileStamps.put(fileName, FileStamp.of(attributes));
+            setFileName(fileName);
+            commitFileEvent(event, "open", fileName);
             return true;
         } catch (FileNotFoundException exception) {
             logError("Unable to open file", exception);
@@ -85,15 +710,124 @@ public final class BZFile extends BZBase {
         return false;
     }
 
+    /**
+     * <p>
+     * Asks for a directory and opens its volumes as a volume set.
+     * </p>
+     */
+    boolean openVolumeDirectory() {
+        if (!closeCurrentDocument())
+            return false;
+
+        DirectoryDialog directoryDialog = new DirectoryDialog(parentShell, SWT.OPEN);
+        directoryDialog.setMessage("Choose a directory of BRF or BrailleZephyr volumes");
+        String directoryName = directoryDialog.open();
+        if (directoryName == null)
+            return false;
+
+        return openFile(Path.of(directoryName));
+    }
+
+    /**
+     * <p>
+     * Shows the volume and page of the caret in the title while a volume
+     * set is open.  Pages are numbered through the whole set.
+     * </p>
+     */
+    private void updateVolumeTitle() {
+        VolumeSet volumeSet = bzStyledText.getVolumeSet();
+        if (volumeSet == null)
+            return;
+        StyledText text = bzStyledText.getCurrentText();
+        int line = text.getLineAtOffset(text.getCaretOffset());
+        String title = String.format("%s - Volume %d of %d, Page %d of %d - BrailleZephyr",
+                                     volumeSet.getPath().getFileName(),
+                                     volumeSet.getVolumeAtLine(line) + 1,
+                                     volumeSet.getVolumeCount(),
+                                     volumeSet.getPageNumber(line),
+                                     volumeSet.getPageCount());
+        if (!title.equals(parentShell.getText()))
+            parentShell.setText(title);
+    }
+
+    /**
+     * <p>
+     * Reads a file into the document.  The lines of a large file are
+     * snapshot, so that if it has not changed when it is next opened its
+     * text need not be scanned for lines, except for paged BrailleZephyr
+     * files which keep their own.
+     * </p><p>
+     * The hash of the file is found as it is read.  If it differs from
+     * that of the snapshot used, the file changed without changing its size
+     * or modification time, and is read again, scanning it for lines.
+     * </p>
+     */
+    private void readFile(@NonNull Path path, @NonNull BasicFileAttributes attributes) throws IOException, BZException {
+        String fileName = path.toString();
+        long size = attributes.size();
+        BZDocument document = bzStyledText.getDocument();
+        if (isBZY(fileName) && PagedBZY.isPaged(path)) {
+            //   the page directory already gives the lines of each page
+            document.setMapped(isLarge(path));
+            bzStyledText.readPagedBZY(path);
+            return;
+        }
+        if (bzSettings == null || size < LineIndexCache.THRESHOLD) {
+            readText(path, document, null, null);
+            return;
+        }
+
+        long modified = attributes.lastModifiedTime().toMillis();
+        LineIndexCache.Snapshot snapshot = bzSettings.readLineStarts(fileName, size, modified);
+        CRC32C crc = new CRC32C();
+        readText(path, document, snapshot == null ? null : snapshot.lineStarts(), crc);
+        long hash = LineIndexCache.contentHash(crc, size);
+        if (snapshot != null && snapshot.hash() != hash) {
+            crc.reset();
+            readText(path, document, null, crc);
+            hash = LineIndexCache.contentHash(crc, size);
+        }
+
+        if (!document.isLineStartsFromHint())
+            bzSettings.writeLineStarts(fileName, size, modified, hash, document.getLineStarts());
+    }
+
+    private void readText(@NonNull Path path, @NonNull BZDocument document, int @Nullable [] lineStarts, @Nullable Checksum checksum) throws IOException, BZException {
+        String fileName = path.toString();
+        document.setLineStartsHint(lineStarts);
+        try (BufferedReader fileReader = newReader(path, checksum)) {
+            document.setMapped(isLarge(path));
+            if (isBZY(fileName)) {
+                bzStyledText.readBZY(fileReader);
+            } else if (isUnicodeBraille(fileName)) {
+                bzStyledText.readBRF(new UnicodeBrailleReader(fileReader));
+            } else {
+                bzStyledText.readBRF(fileReader);
+            }
+        } finally {
+            document.setLineStartsHint(null);
+        }
+    }
+
+    private void commitFileEvent(BZEvents.FileEvent event, String operation, String fileName) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = fileName;
+            event.characters = bzStyledText.getContent().getCharCount();
+            event.lines = bzStyledText.getContent().getLineCount();
+            event.commit();
+        }
+    }
+
     boolean openFile() {
         if (!closeCurrentDocument()) {
             return false;
         }
 
         FileDialog fileDialog = new FileDialog(parentShell, SWT.OPEN);
-        fileDialog.setFilterExtensions("*.brf", "*.bzy", "*.brf;*.bzy", "*.*");
-        fileDialog.setFilterNames("Braille Ready Format File", "BrailleZephyr File", "Braille Files", "All Files");
-        fileDialog.setFilterIndex(2);
+        fileDialog.setFilterExtensions(FILTER_EXTENSIONS);
+        fileDialog.setFilterNames(FILTER_NAMES);
+        fileDialog.setFilterIndex(FILTER_INDEX);
         String fileName = fileDialog.open();
         if (fileName == null)
             return false;
@@ -102,6 +836,8 @@ public final class BZFile extends BZBase {
     }
 
     public boolean closeCurrentDocument() {
+        rememberDocument();
+
         //   check if text has been modified
         if (bzStyledText.getModified()) {
             MessageBox messageBox = new MessageBox(parentShell, SWT.ICON_QUESTION | SWT.YES | SWT.NO | SWT.CANCEL);
@@ -117,15 +853,19 @@ public final class BZFile extends BZBase {
     }
 
     boolean saveFile() {
+        //   a volume set is always saved in place
+        if (bzStyledText.getVolumeSet() != null)
+            return saveVolumes();
+
         String fileName;
 
         //   check if file name is set
         if (this.fileName == null) {
             FileDialog fileDialog = new FileDialog(parentShell, SWT.SAVE);
             fileDialog.setFileName(this.fileName);
-            fileDialog.setFilterExtensions("*.brf", "*.bzy", "*.brf;*.bzy", "*.*");
-            fileDialog.setFilterNames("Braille Ready Format File", "BrailleZephyr File", "Braille Files", "All Files");
-            fileDialog.setFilterIndex(2);
+            fileDialog.setFilterExtensions(FILTER_EXTENSIONS);
+            fileDialog.setFilterNames(FILTER_NAMES);
+            fileDialog.setFilterIndex(FILTER_INDEX);
             fileName = fileDialog.open();
             if (fileName == null)
                 return false;
@@ -148,16 +888,35 @@ public final class BZFile extends BZBase {
         } else
             fileName = this.fileName;
 
-        Charset charset = fileName.endsWith("bzy") ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII;
-        try(BufferedWriter writer = Files.newBufferedWriter(Path.of(fileName), charset)) {
-            if (fileName.endsWith("bzy")) {
-                bzStyledText.writeBZY(writer);
+        MappedBRF viewer = bzStyledText.getViewer();
+        if (viewer != null)
+            return saveViewedFile(viewer, fileName);
+        Path loadingPath = bzStyledText.getLoadingPath();
+        if (loadingPath != null)
+            return saveLoadingFile(loadingPath, fileName);
+
+        BZEvents.FileEvent event = new BZEvents.FileEvent();
+        event.begin();
+        try {
+            if (isPaged(fileName)) {
+                try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(Path.of(fileName)))) {
+                    bzStyledText.writePagedBZY(output);
+                }
             } else {
-                bzStyledText.writeBRF(writer);
+                try (BufferedWriter writer = newWriter(Path.of(fileName))) {
+                    if (isBZY(fileName)) {
+                        bzStyledText.writeBZY(writer);
+                    } else if (isUnicodeBraille(fileName)) {
+                        bzStyledText.writeBRF(new UnicodeBrailleWriter(writer));
+                    } else {
+                        bzStyledText.writeBRF(writer);
+                    }
+                }
             }
 
-            parentShell.setText(new File(fileName).getName() + " - BrailleZephyr");
-            this.fileName = fileName;
+            rememberFile(Path.of(fileName));
+            setFileName(fileName);
+            commitFileEvent(event, "save", fileName);
             return true;
         } catch (FileNotFoundException exception) {
             logError("Unable to open file", exception);
@@ -168,6 +927,67 @@ public final class BZFile extends BZBase {
         return false;
     }
 
+    private boolean saveVolumes() {
+        BZEvents.FileEvent event = new BZEvents.FileEvent();
+        event.begin();
+        try {
+            int saved = bzStyledText.saveVolumes();
+            logMessage("Saved " + saved + (saved == 1 ? " volume" : " volumes"));
+            commitFileEvent(event, "save", fileName);
+            return true;
+        } catch (IOException exception) {
+            logError("Unable to write file", exception);
+        }
+
+        return false;
+    }
+
+    /**
+     * <p>
+     * Saves a read only view, which cannot have changed, by copying the
+     * file it shows.
+     * </p>
+     */
+    private boolean saveViewedFile(@NonNull MappedBRF viewer, @NonNull String fileName) {
+        if (isBZY(fileName) || isUnicodeBraille(fileName)) {
+            logError("Unable to write file", fileName + ":  a read only view can only be saved as BRF");
+            return false;
+        }
+        return saveCopy(viewer.getPath(), fileName);
+    }
+
+    /**
+     * <p>
+     * Saves a paged file still being read, which cannot have changed yet,
+     * by copying it.
+     * </p>
+     */
+    private boolean saveLoadingFile(@NonNull Path loadingPath, @NonNull String fileName) {
+        if (!isBZY(fileName)) {
+            logError("Unable to write file", fileName + ":  until the file has been read it can only be saved as a BrailleZephyr file");
+            return false;
+        }
+        return saveCopy(loadingPath, fileName);
+    }
+
+    private boolean saveCopy(@NonNull Path source, @NonNull String fileName) {
+        BZEvents.FileEvent event = new BZEvents.FileEvent();
+        event.begin();
+        try {
+            Path path = Path.of(fileName);
+            if (!Files.exists(path) || !Files.isSameFile(path, source))
+                Files.copy(source, path, StandardCopyOption.REPLACE_EXISTING);
+            rememberFile(path);
+            setFileName(fileName);
+            commitFileEvent(event, "save", fileName);
+            return true;
+        } catch (IOException exception) {
+            logError("Unable to write file", exception);
+        }
+
+        return false;
+    }
+
     boolean saveAsFile() {
         //   set fileName to null so saveFile will ask for a new file name
         String fileName = this.fileName;
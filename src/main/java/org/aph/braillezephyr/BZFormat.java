@@ -0,0 +1,490 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Reads, writes and rewraps a {@link BZDocument}.
+ * </p><p>
+ * None of these methods need a display, so they can be used for
+ * conversion and benchmarking as well as by {@link BZStyledText}.
+ * </p>
+ */
+final class BZFormat {
+    /**
+     * The character marking the end of a paragraph in the editor.
+     */
+    static final char PARAGRAPH_END = 0xfeff;
+
+    /**
+     * The character marking the end of a paragraph in BrailleZephyr files.
+     */
+    static final char BZY_PARAGRAPH_END = 0xb6;
+
+    /**
+     * The header of a BrailleZephyr file.
+     *
+     * <p>
+     * The characters per line and lines per page are kept in the
+     * {@link BZDocument}.
+     * </p>
+     *
+     * @param version     the version numbers separated by spaces, or null if not given
+     * @param caretOffset the caret offset
+     * @param viewFocus   the view with the focus, or null if not given
+     * @param returnAtEnd whether the document ends with a line delimiter
+     * @param unknown     the header lines that were not understood
+     */
+    record BZYHeader(String version,
+                     int caretOffset,
+                     String viewFocus,
+                     boolean returnAtEnd,
+                     @NonNull List<String> unknown) {
+    }
+
+    private static final int MAX_UNKNOWN = 6;
+
+    /**
+     * Replaces a range of text, such as through a view so it can be undone.
+     */
+    @FunctionalInterface
+    interface Replacer {
+        void replaceTextRange(int start, int length, @NonNull String text);
+    }
+
+    private BZFormat() {
+    }
+
+    static boolean isParagraphEnd(@NonNull String line) {
+        return !line.isEmpty() && line.charAt(line.length() - 1) == PARAGRAPH_END;
+    }
+
+    static boolean isFirstLineOnPage(int index, int linesPerPage) {
+        if (linesPerPage == 0)
+            return false;
+        return index % linesPerPage == 0;
+    }
+
+    /**
+     * <p>
+     * Replaces the text of <code>document</code> with data in BRF format.
+     * </p><p>
+     * The text is kept as it is, so lowercase ASCII braille stays lowercase
+     * and searches fold the case as they match.  If the data has form
+     * feeds, they are removed and the number of lines before the first one
+     * becomes the lines per page.  The line delimiter of the data becomes
+     * the document's delimiter.
+     * </p>
+     *
+     * @param reader   the reader from which to read the data
+     * @param document the document to replace
+     */
+    static void readBRF(@NonNull Reader reader, @NonNull BZDocument document) throws IOException {
+        TextStorage.Builder builder = document.newBuilder();
+        boolean checkLinesPerPage = true;
+        boolean removeFormFeed = true;
+        char[] buffer = new char[65536];
+        int cnt, trim;
+        int linesPerPage = -1;
+        String eol = null;
+
+        while ((cnt = reader.read(buffer)) > 0) {
+            //   see if lines per page can be determined
+            if (checkLinesPerPage) {
+                checkLinesPerPage = false;
+                int lines = 0, i;
+                outer:
+                for (i = 0; i < cnt; i++)
+                    switch (buffer[i]) {
+                        case '\n':
+                            lines++;
+                            break;
+
+                        case '\r':
+
+                            if (eol == null)
+                                eol = "\r\n";
+                            break;
+
+                        case 0xc:
+
+                            linesPerPage = lines;
+                            break outer;
+                    }
+
+                if (i == cnt)
+                    removeFormFeed = false;
+            }
+
+            //   remove form feeds
+            if (removeFormFeed) {
+                trim = 0;
+                for (int i = 0; i < cnt; i++) {
+                    if (buffer[i] != 0xc) {
+                        buffer[trim] = buffer[i];
+                        trim++;
+                    }
+                }
+            } else
+                trim = cnt;
+
+            builder.append(buffer, 0, trim);
+        }
+
+        document.setText(builder.build());
+        if (linesPerPage != -1)
+            document.setLinesPerPage(linesPerPage);
+        document.setEol(eol == null ? "\n" : eol);
+    }
+
+    /**
+     * <p>
+     * Writes <code>document</code> in BRF format, with a form feed at the
+     * start of each page after the first.
+     * </p>
+     *
+     * @param writer   the writer to write the data to
+     * @param document the document to write
+     */
+    static void writeBRF(@NonNull Writer writer, @NonNull BZDocument document) throws IOException {
+        String eol = document.getEol();
+
+        //   write first line
+        String line = document.getLine(0);
+        if (isParagraphEnd(line))
+            writer.write(line, 0, line.length() - 1);
+        else
+            writer.write(line);
+
+        //   write remaining lines
+        for (int i = 1; i < document.getLineCount(); i++) {
+            writer.write(eol);
+            if (document.isFirstLineOnPage(i))
+                writer.write(0xc);
+            line = document.getLine(i);
+            if (isParagraphEnd(line))
+                writer.write(line, 0, line.length() - 1);
+            else
+                writer.write(line);
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * <p>
+     * Replaces the text of <code>document</code> with data in BrailleZephyr
+     * file format.
+     * </p><p>
+     * The document's characters per line and lines per page are set from
+     * the header, and its line delimiter becomes the system's.
+     * </p>
+     *
+     * @param reader   the reader from which to read the data
+     * @param document the document to replace
+     * @return the header of the file
+     * @throws BZException if the header is missing or has too many unknown lines
+     */
+    static @NonNull BZYHeader readBZY(@NonNull Reader reader, @NonNull BZDocument document) throws IOException, BZException {
+        String eol = System.lineSeparator();
+        String line;
+        String version = null, viewFocus = null;
+        int charsPerLine = -1, linesPerPage = -1, caretOffset = 0;
+        boolean returnAtEnd = false;
+        List<String> unknown = new ArrayList<>();
+
+        BufferedReader buffer = reader instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(reader);
+
+        //   read configuration lines
+        header:
+        while ((line = buffer.readLine()) != null) {
+            String[] tokens = line.split(" ");
+            switch (tokens[0]) {
+
+                case "Version":
+                    version = line.substring(tokens[0].length()).trim();
+                    break;
+
+                case "CharsPerLine":
+                    charsPerLine = Integer.parseInt(tokens[1]);
+                    break;
+                case "LinesPerPage":
+                    linesPerPage = Integer.parseInt(tokens[1]);
+                    break;
+
+                case "CaretOffset":
+                    caretOffset = Integer.parseInt(tokens[1]);
+                    break;
+                case "ViewFocus":
+                    viewFocus = tokens[1];
+                    break;
+
+                case "ReturnAtEnd":
+                    returnAtEnd = Boolean.parseBoolean(tokens[1]);
+                    break;
+
+                case "HeaderEnd":
+                    break header;
+
+                default:
+
+                    unknown.add(line);
+                    if (unknown.size() > MAX_UNKNOWN)
+                        throw new BZException("Invalid file format");
+                    break;
+            }
+        }
+        if (line == null)
+            throw new BZException("Invalid file format");
+
+        //   read lines, there may be none for an empty document
+        TextStorage.Builder builder = document.newBuilder();
+        boolean first = true;
+        while ((line = buffer.readLine()) != null) {
+            if (!first)
+                builder.append(eol);
+            first = false;
+            if (!line.isEmpty() && line.charAt(line.length() - 1) == BZY_PARAGRAPH_END)
+                builder.append(line, 0, line.length() - 1).append(PARAGRAPH_END);
+            else
+                builder.append(line);
+        }
+
+        if (returnAtEnd)
+            builder.append(eol);
+
+        document.setText(builder.build());
+        document.setEol(eol);
+        if (charsPerLine != -1)
+            document.setCharsPerLine(charsPerLine);
+        if (linesPerPage != -1)
+            document.setLinesPerPage(linesPerPage);
+        return new BZYHeader(version, caretOffset, viewFocus, returnAtEnd, unknown);
+    }
+
+    /**
+     * <p>
+     * Writes <code>document</code> in BrailleZephyr file format.
+     * </p><p>
+     * The <code>returnAtEnd</code> and <code>unknown</code> values of
+     * <code>header</code> are ignored, ReturnAtEnd is written from the
+     * document.
+     * </p>
+     *
+     * @param writer   the writer to write the data to
+     * @param document the document to write
+     * @param header   the header values to write
+     */
+    static void writeBZY(@NonNull Writer writer, @NonNull BZDocument document, @NonNull BZYHeader header) throws IOException {
+        String eol = document.getEol();
+
+        //   write configuration lines
+        if (header.version() != null)
+            writer.write("Version " + header.version() + eol);
+
+        writer.write("CharsPerLine " + document.getCharsPerLine() + eol);
+        writer.write("LinesPerPage " + document.getLinesPerPage() + eol);
+
+        writer.write("CaretOffset " + header.caretOffset() + eol);
+        if (header.viewFocus() != null)
+            writer.write("ViewFocus " + header.viewFocus() + eol);
+
+        if (document.getCharCount() > 0)
+            writer.write("ReturnAtEnd " + (document.getLine(document.getLineCount() - 1).isEmpty()) + eol);
+        else
+            writer.write("ReturnAtEnd false" + eol);
+
+        writer.write("HeaderEnd" + eol);
+
+        //   write first line
+        String line = document.getLine(0);
+        if (isParagraphEnd(line)) {
+            writer.write(line, 0, line.length() - 1);
+            writer.write(BZY_PARAGRAPH_END);
+        } else
+            writer.write(line);
+
+        //   write text
+        for (int i = 1; i < document.getLineCount(); i++) {
+            writer.write(eol);
+            line = document.getLine(i);
+            if (isParagraphEnd(line)) {
+                writer.write(line, 0, line.length() - 1);
+                writer.write(BZY_PARAGRAPH_END);
+            } else
+                writer.write(line);
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * <p>
+     * Makes <code>document</code> the same as <code>updated</code> by
+     * replacing only the lines that differ, such as when its file has been
+     * changed by another program.
+     * </p><p>
+     * The lines are compared with {@link LineDiff}, including paragraph
+     * ends, and each range of differing lines is replaced with one call to
+     * <code>replacer</code>, from the end of the document back, so offsets
+     * of the ranges not yet replaced stay the same.  The lines inserted
+     * take the delimiter of <code>document</code>.
+     * </p>
+     *
+     * @param document      the document to change
+     * @param updated       the document to make it the same as
+     * @param updatedHashes the line hashes of <code>updated</code>, from {@link LineDiff#hashLines(BZDocument)}
+     * @param replacer      replaces the text of <code>document</code>
+     * @return the differences, as from {@link LineDiff#diff(long[], long[])}
+     */
+    static int @NonNull [] replaceChangedLines(@NonNull BZDocument document,
+                                               @NonNull BZDocument updated,
+                                               long @NonNull [] updatedHashes,
+                                               @NonNull Replacer replacer) {
+        int[] hunks = mergeAdjacent(LineDiff.diff(LineDiff.hashLines(document), updatedHashes));
+        String eol = document.getEol();
+        StringBuilder text = new StringBuilder();
+        for (int i = hunks.length - 4; i >= 0; i -= 4) {
+            int start = hunks[i], end = hunks[i + 1];
+            int updatedStart = hunks[i + 2], updatedEnd = hunks[i + 3];
+            int lineCount = document.getLineCount();
+            text.setLength(0);
+            int startOffset, endOffset;
+            if (end < lineCount) {
+                //   replace whole lines with their delimiters
+                startOffset = document.getOffsetAtLine(start);
+                endOffset = document.getOffsetAtLine(end);
+                for (int j = updatedStart; j < updatedEnd; j++)
+                    text.append(updated.getLine(j)).append(eol);
+            } else if (start == end) {
+                //   append lines after the last line
+                startOffset = endOffset = document.getCharCount();
+                for (int j = updatedStart; j < updatedEnd; j++)
+                    text.append(eol).append(updated.getLine(j));
+            } else if (updatedStart == updatedEnd) {
+                //   remove the last lines along with the delimiter before them
+                startOffset = document.getOffsetAtLine(start - 1) + document.getLine(start - 1).length();
+                endOffset = document.getCharCount();
+            } else {
+                startOffset = document.getOffsetAtLine(start);
+                endOffset = document.getCharCount();
+                for (int j = updatedStart; j < updatedEnd; j++) {
+                    if (j > updatedStart)
+                        text.append(eol);
+                    text.append(updated.getLine(j));
+                }
+            }
+            replacer.replaceTextRange(startOffset, endOffset - startOffset, text.toString());
+        }
+        return hunks;
+    }
+
+    /**
+     * <p>
+     * Joins differences with no equal lines between them, so that a range
+     * at the end of the document always has lines before it.
+     * </p>
+     */
+    private static int @NonNull [] mergeAdjacent(int @NonNull [] hunks) {
+        int count = 0;
+        for (int i = 0; i < hunks.length; i += 4)
+            if (count > 0 && hunks[count - 3] == hunks[i] && hunks[count - 1] == hunks[i + 2]) {
+                hunks[count - 3] = hunks[i + 1];
+                hunks[count - 1] = hunks[i + 3];
+            } else {
+                System.arraycopy(hunks, i, hunks, count, 4);
+                count += 4;
+            }
+        return Arrays.copyOf(hunks, count);
+    }
+
+    /**
+     * <p>
+     * Wraps lines at and below <code>firstLine</code> that exceed the
+     * document's characters per line, up to the end of the paragraph.
+     * </p><p>
+     * Lines are wrapped at spaces between words when possible.  Lines that
+     * don't exceed the number of characters per line are not changed.
+     * </p>
+     *
+     * @param document  the document to rewrap
+     * @param firstLine the line to start at
+     */
+    static void rewrap(@NonNull BZDocument document, int firstLine) {
+        int charsPerLine = document.getCharsPerLine();
+        String eol = document.getEol();
+        StringBuilder stringBuilder = new StringBuilder(charsPerLine * 3);
+
+        for (int i = firstLine; i < document.getLineCount(); i++) {
+            final String line = document.getLine(i);
+            if (!line.isEmpty()) {
+                if (line.length() > charsPerLine) {
+                    //   line too long
+                    int wordWrap, wordEnd;
+
+                    //   find beginning of word being wrapped
+                    if (line.charAt(charsPerLine) != ' ') {
+                        for (wordWrap = charsPerLine; wordWrap > charsPerLine / 2; wordWrap--)
+                            if (line.charAt(wordWrap) == ' ')
+                                break;
+                        if (wordWrap == charsPerLine / 2)
+                            continue;
+                        wordWrap++;
+                    } else {
+                        for (wordWrap = charsPerLine; wordWrap < line.length(); wordWrap++)
+                            if (line.charAt(wordWrap) != ' ')
+                                break;
+                        if (wordWrap == line.length())
+                            continue;
+                    }
+
+                    //   find end of word before word being wrapped
+                    for (wordEnd = wordWrap - 1; wordEnd > charsPerLine / 4; wordEnd--)
+                        if (line.charAt(wordEnd) != ' ')
+                            break;
+                    if (wordEnd == charsPerLine / 4)
+                        continue;
+                    wordEnd++;
+
+                    //   build replacement text
+                    int length = line.length();
+                    stringBuilder.setLength(0);
+                    stringBuilder.append(line, 0, wordEnd).append(eol).append(line, wordWrap, length);
+                    if (line.charAt(length - 1) != PARAGRAPH_END) {
+                        if (i < document.getLineCount() - 1) {
+                            String next = document.getLine(i + 1);
+                            stringBuilder.append(' ').append(next);
+                            length += eol.length() + next.length();
+                        }
+                    }
+
+                    document.replaceTextRange(document.getOffsetAtLine(i), length, stringBuilder.toString());
+                } else if (line.charAt(line.length() - 1) == PARAGRAPH_END) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Holds the most recent log entries in a ring buffer of fixed capacity.
+ * </p><p>
+ * Entries are written to the console, and optionally to a file, by a
+ * background thread so that logging never waits on output.  If the
+ * appender falls behind, entries are still kept in the ring buffer but are
+ * not written out.  Consecutive identical messages are collapsed into one
+ * entry with a repeat count.
+ * </p>
+ */
+final class BZLog {
+    enum Level {DEBUG, INFO, WARNING, ERROR}
+
+    /**
+     * A single log entry.
+     *
+     * @param sequence the number of the entry since the log was created
+     * @param time     when the entry was first logged, in milliseconds since the epoch
+     * @param level    the severity
+     * @param source   where the entry was logged from
+     * @param message  the message
+     * @param repeats  how many more times the same message was logged in a row
+     */
+    record Entry(long sequence, long time, @NonNull Level level, @NonNull String source, @NonNull String message, int repeats) {
+        private boolean isRepeatOf(Level level, String source, String message) {
+            return this.level == level && this.source.equals(source) && this.message.equals(message);
+        }
+
+        @Override
+        public @NonNull String toString() {
+            return TIME_FORMAT.format(Instant.ofEpochMilli(time)) + ' ' + level + ' ' + source + ":  " + message;
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 2000;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final Entry CLOSE = new Entry(-1, 0, Level.DEBUG, "", "", 0);
+    static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final Entry[] entries;
+    private long next;
+    private volatile @NonNull Level threshold;
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread appender;
+    private volatile @Nullable Writer fileWriter;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * <p>
+     * Creates a new <code>BZLog</code> and starts its appender thread.
+     * </p>
+     *
+     * @param capacity the number of entries kept
+     */
+    BZLog(int capacity) {
+        entries = new Entry[capacity];
+        threshold = Boolean.getBoolean("braillezephyr.debug") ? Level.DEBUG : Level.INFO;
+        appender = new Thread(this::append, "BZLog appender");
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    BZLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <p>
+     * Also writes entries to a file, appending to it if it exists.
+     * </p>
+     *
+     * @param path the file to write to
+     */
+    void setFile(@NonNull Path path) throws IOException {
+        Writer writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Writer previous = fileWriter;
+        fileWriter = writer;
+        if (previous != null)
+            previous.close();
+    }
+
+    boolean isEnabled(@NonNull Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    void setThreshold(@NonNull Level threshold) {
+        this.threshold = threshold;
+    }
+
+    void log(@NonNull Level level, @NonNull String source, @NonNull String message) {
+        if (!isEnabled(level))
+            return;
+
+        Entry entry, finished = null;
+        synchronized (this) {
+            Entry last = next > 0 ? entries[(int) ((next - 1) % entries.length)] : null;
+            if (last != null && last.isRepeatOf(level, source, message)) {
+                entries[(int) ((next - 1) % entries.length)] = new Entry(last.sequence, last.time, level, source, message, last.repeats + 1);
+                return;
+            }
+            if (last != null && last.repeats > 0)
+                finished = last;
+            entry = new Entry(next, System.currentTimeMillis(), level, source, message, 0);
+            entries[(int) (next % entries.length)] = entry;
+            next++;
+        }
+
+        if (finished != null)
+            enqueue(finished);
+        enqueue(entry);
+    }
+
+    void error(@NonNull String source, @NonNull String message) {
+        log(Level.ERROR, source, message);
+    }
+
+    void warning(@NonNull String source, @NonNull String message) {
+        log(Level.WARNING, source, message);
+    }
+
+    void info(@NonNull String source, @NonNull String message) {
+        log(Level.INFO, source, message);
+    }
+
+    void debug(@NonNull String source, @NonNull String message) {
+        log(Level.DEBUG, source, message);
+    }
+
+    /**
+     * @return the sequence number of the oldest entry still held
+     */
+    synchronized long getFirst() {
+        return Math.max(0, next - entries.length);
+    }
+
+    /**
+     * @return the sequence number the next entry will have
+     */
+    synchronized long getNext() {
+        return next;
+    }
+
+    /**
+     * <p>
+     * Returns the entry with sequence number <code>sequence</code>.
+     * </p>
+     *
+     * @param sequence the sequence number
+     * @return the entry, or null if it has been overwritten or not yet logged
+     */
+    synchronized @Nullable Entry getEntry(long sequence) {
+        if (sequence < getFirst() || sequence >= next)
+            return null;
+        return entries[(int) (sequence % entries.length)];
+    }
+
+    /**
+     * @return the number of entries not written out because the appender was behind
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private void enqueue(Entry entry) {
+        if (!queue.offer(entry))
+            dropped.incrementAndGet();
+    }
+
+    private void append() {
+        try {
+            Entry entry;
+            while ((entry = queue.take()) != CLOSE) {
+                String line;
+                if (entry.repeats > 0)
+                    line = "last message repeated " + entry.repeats + " more times";
+                else
+                    line = entry.toString();
+
+                PrintStream console = entry.level.compareTo(Level.WARNING) >= 0 ? System.err : System.out;
+                console.println(line);
+
+                Writer writer = fileWriter;
+                if (writer != null) {
+                    try {
+                        writer.write(line);
+                        writer.write(System.lineSeparator());
+                        if (queue.isEmpty())
+                            writer.flush();
+                    } catch (IOException exception) {
+                        fileWriter = null;
+                        System.err.println("ERROR:  Unable to write log file:  " + exception.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException ignored) {
+            //   stop appending
+        }
+
+        Writer writer = fileWriter;
+        fileWriter = null;
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                //   nothing more can be done
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Waits briefly for pending entries to be written, then stops the
+     * appender thread and closes the log file.
+     * </p>
+     */
+    void close() {
+        try {
+            if (queue.offer(CLOSE, 500, TimeUnit.MILLISECONDS))
+                appender.join(500);
+            else
+                appender.interrupt();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
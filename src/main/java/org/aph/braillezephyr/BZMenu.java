@@ -16,12 +16,13 @@
 
 package org.aph.braillezephyr;
 
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.*;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.*;
@@ -33,6 +34,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.text.ParseException;
 import java.util.List;
 
 /**
@@ -44,6 +46,10 @@ import java.util.List;
  */
 public final class BZMenu extends BZBase {
     private final BZSettings bzSettings;
+    private final BZSearch bzSearch;
+    private FindDialog findDialog;
+    private LibrarySearchDialog librarySearchDialog;
+    private Recording recording;
 
     /**
      * <p>
@@ -60,9 +66,31 @@ public final class BZMenu extends BZBase {
      * @param bzSettings   the bzSettings object for recent files.
      */
     public BZMenu(BZStyledText bzStyledText, BZFile bzFile, BZSettings bzSettings) {
+        this(bzStyledText, bzFile, bzSettings, null, null);
+    }
+
+    /**
+     * <p>
+     * Creates a new <code>BZMenu</code> object.
+     * </p>
+     *
+     * <p>
+     * If <code>bzTabs</code> is null, then there will be no New Tab or
+     * Close Tab menu items.  If <code>watchdog</code> is null, then there
+     * will be no Event Loop Stalls menu item.
+     * </p>
+     *
+     * @param bzStyledText the bzStyledText object to operate on (cannot be null)
+     * @param bzFile       the bzFile object for file operations (cannot be null)
+     * @param bzSettings   the bzSettings object for recent files.
+     * @param bzTabs       the tabs of the open documents.
+     * @param watchdog     the watchdog of the event loop.
+     */
+    BZMenu(BZStyledText bzStyledText, BZFile bzFile, BZSettings bzSettings, @Nullable BZTabs bzTabs, @Nullable UIWatchdog watchdog) {
         super(bzStyledText);
 
         this.bzSettings = bzSettings;
+        bzSearch = new BZSearch(bzStyledText);
 
         Menu menuBar = new Menu(parentShell, SWT.BAR);
         parentShell.setMenuBar(menuBar);
@@ -84,12 +112,22 @@ public final class BZMenu extends BZBase {
         item.setMenu(menu);
 
         addMenuItemTo(menu, "&New", e -> bzFile.newFile());
+        if (bzTabs != null) {
+            addMenuItemTo(menu, "New Tab\t" + mod1KeyName + "T", SWT.MOD1 | 't', e -> bzTabs.newTab());
+            addMenuItemTo(menu, "Close Tab\t" + mod1KeyName + "W", SWT.MOD1 | 'w', e -> bzTabs.closeCurrentTab());
+        }
         addMenuItemTo(menu, "&Open\t" + mod1KeyName + "O", SWT.MOD1 | 'o', e -> {
             if (bzFile.openFile()) {
                 addRecentFile(bzFile.getFileName());
             }
         });
 
+        addMenuItemTo(menu, "Open Volume Set", e -> {
+            if (bzFile.openVolumeDirectory()) {
+                addRecentFile(bzFile.getFileName());
+            }
+        });
+
         if (bzSettings != null) {
             Menu recentFilesMenu = createRecentFilesMenu(bzFile, bzSettings, menu);
             addSubMenuItemTo(menu, "Open Recent", recentFilesMenu);
@@ -101,6 +139,7 @@ public final class BZMenu extends BZBase {
                 addRecentFile(bzFile.getFileName());
             }
         });
+        addMenuItemTo(menu, "Compare With", e -> bzFile.compareWithFile());
         addMenuItemTo(menu, "Quit\t" + mod1KeyName + "Q", SWT.MOD1 | 'q', e -> parentShell.close());
         new MenuItem(menu, SWT.SEPARATOR);
         addMenuItemTo(menu, "Load Line Margin Bell", e -> {
@@ -171,6 +210,16 @@ public final class BZMenu extends BZBase {
         new MenuItem(menu, SWT.SEPARATOR);
         addMenuItemTo(menu, "Undo\t" + mod1KeyName + "Z", SWT.MOD1 | 'z', e -> bzStyledText.undo());
         addMenuItemTo(menu, "Redo\t" + mod2KeyName + mod1KeyName + "Z", SWT.MOD1 | SWT.MOD2 | 'z', e -> bzStyledText.redo());
+        new MenuItem(menu, SWT.SEPARATOR);
+        addMenuItemTo(menu, "Find and Replace\t" + mod1KeyName + "H", SWT.MOD1 | 'h', e -> showFindDialog());
+        addMenuItemTo(menu, "Find Next\tF3", SWT.F3, e -> findNext(true));
+        addMenuItemTo(menu, "Find Previous\t" + mod2KeyName + "F3", SWT.MOD2 | SWT.F3, e -> findNext(false));
+        addMenuItemTo(menu, "Search Files\t" + mod2KeyName + mod1KeyName + "H", SWT.MOD1 | SWT.MOD2 | 'h', e -> {
+            if (librarySearchDialog == null || librarySearchDialog.isDisposed())
+                librarySearchDialog = new LibrarySearchDialog(parentShell, bzStyledText, bzFile, bzTabs);
+            else
+                librarySearchDialog.setFocus();
+        });
 
         //   view menu
         menu = new Menu(menuBar);
@@ -222,7 +271,12 @@ public final class BZMenu extends BZBase {
 
         addMenuItemTo(menu, "About", e -> showAboutDialog(parentShell));
         //TODO:  hide on non-development version
-        addMenuItemTo(menu, "View Log", e -> showLogViewerDialog(parentShell));
+        addMenuItemTo(menu, "View Log", e -> new LogDialog(parentShell, bzStyledText.getLog()));
+        addMenuItemTo(menu, "Start Recording", e -> toggleRecording((MenuItem) e.widget));
+        if (watchdog != null)
+            addMenuItemTo(menu, "Event Loop Stalls", e -> new StallDialog(parentShell, watchdog));
+        addMenuItemTo(menu, "Keystroke Latency", e -> new KeystrokeLatencyDialog(parentShell, bzStyledText));
+        addMenuItemTo(menu, "Startup Timeline", e -> new StartupDialog(parentShell, StartupTimeline.getInstance()));
     }
 
     private static Menu createRecentFilesMenu(BZFile bzFile, BZSettings bzSettings, Menu menu) {
@@ -235,7 +289,12 @@ public final class BZMenu extends BZBase {
             }
             List<String> recentFiles = bzSettings.getRecentFiles();
             for (String fileName : recentFiles) {
-                addMenuItemTo(m, fileName, e -> {
+                //   from when the file was last open, without reading it
+                SettingsStore.DocumentSettings settings = bzSettings.getDocumentSettings(fileName);
+                String tag = fileName;
+                if (settings != null)
+                    tag += "  (" + settings.pageCount() + (settings.pageCount() == 1 ? " page)" : " pages)");
+                addMenuItemTo(m, tag, e -> {
                     if (bzFile.openFile(Path.of(fileName))) {
                         bzSettings.addRecentFile(fileName);
                     } else {
@@ -253,6 +312,63 @@ public final class BZMenu extends BZBase {
         }
     }
 
+    private void showFindDialog() {
+        if (findDialog == null || findDialog.isDisposed())
+            findDialog = new FindDialog(parentShell, bzSearch);
+        else
+            findDialog.setFocus();
+    }
+
+    private void findNext(boolean forward) {
+        if (bzSearch.getQuery() == null)
+            showFindDialog();
+        else if (!bzSearch.findNext(forward))
+            parentShell.getDisplay().beep();
+    }
+
+    /**
+     * <p>
+     * Starts a flight recording to a file chosen by the user, or stops the
+     * current one, so that it can be attached to a bug report.
+     * </p>
+     *
+     * @see BZEvents
+     */
+    private void toggleRecording(MenuItem item) {
+        if (recording != null) {
+            Path destination = recording.getDestination();
+            recording.stop();
+            recording.close();
+            recording = null;
+            item.setText("Start Recording");
+            logMessage("Recording written to " + destination);
+            return;
+        }
+
+        FileDialog fileDialog = new FileDialog(parentShell, SWT.SAVE);
+        fileDialog.setFilterExtensions(new String[]{"*.jfr"});
+        fileDialog.setFilterNames(new String[]{"Flight Recording"});
+        fileDialog.setFileName("braillezephyr.jfr");
+        fileDialog.setOverwrite(true);
+        String fileName = fileDialog.open();
+        if (fileName == null)
+            return;
+
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("BrailleZephyr");
+            recording.setDestination(Path.of(fileName));
+            recording.setDumpOnExit(true);
+            recording.start();
+            this.recording = recording;
+        } catch (IOException | ParseException exception) {
+            logError("Unable to start recording", exception);
+            return;
+        }
+        item.setText("Stop Recording");
+        logMessage("Recording to " + fileName);
+    }
+
     private final class VisibleHandler extends SelectionAdapter {
         private final MenuItem brailleItem;
         private final MenuItem asciiItem;
@@ -337,17 +453,6 @@ public final class BZMenu extends BZBase {
         dialog.open();
     }
 
-    private void showLogViewerDialog(Shell parentShell) {
-        Shell dialog = new Shell(parentShell, SWT.DIALOG_TRIM | SWT.PRIMARY_MODAL);
-        dialog.setLayout(new FillLayout());
-        dialog.setText("Log Messages");
-
-        Text text = new Text(dialog, SWT.READ_ONLY | SWT.BORDER | SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL);
-        text.setText(bzStyledText.getLogString());
-
-        dialog.open();
-    }
-
     private static MenuItem addMenuItemTo(
             Menu menu,
             String tag,
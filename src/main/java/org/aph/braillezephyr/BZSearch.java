@@ -0,0 +1,455 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.*;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Point;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * <p>
+ * This class handles finding and replacing text in BZStyledText.
+ * </p><p>
+ * All matches of the current query are kept, and when highlighting is on
+ * they are styled by a <code>LineStyleListener</code>, so only the lines
+ * in view of either text are styled.  The matches are found again shortly
+ * after the text changes.
+ * </p>
+ */
+public final class BZSearch extends BZBase {
+    private static final int RESEARCH_DELAY = 300;
+
+    /**
+     * <p>
+     * The ways a query string can be interpreted.
+     * </p>
+     */
+    enum QueryType {
+        /**
+         * Literal text, ignoring the case of ASCII braille.
+         */
+        TEXT,
+        /**
+         * A regular expression.
+         */
+        REGEX,
+        /**
+         * Braille cells given by dot numbers, such as <code>1-2 15</code>.
+         */
+        DOTS
+    }
+
+    /**
+     * <p>
+     * A compiled search.
+     * </p>
+     */
+    static final class Query {
+        private final Pattern pattern;
+        private final @Nullable String literal;
+
+        private Query(Pattern pattern, @Nullable String literal) {
+            this.pattern = pattern;
+            this.literal = literal;
+        }
+
+        /**
+         * <p>
+         * Compiles a query string.
+         * </p>
+         *
+         * @param string the query string
+         * @param type   how to interpret the query string
+         * @return the compiled query
+         * @throws BZException if the query string is not valid for its type
+         */
+        static @NonNull Query compile(@NonNull String string, @NonNull QueryType type) throws BZException {
+            if (string.isEmpty())
+                throw new BZException("Nothing to find");
+            if (type == QueryType.REGEX) {
+                try {
+                    return new Query(Pattern.compile(string), null);
+                } catch (PatternSyntaxException exception) {
+                    throw new BZException(exception.getDescription());
+                }
+            }
+
+            if (type == QueryType.DOTS)
+                string = parseDots(string);
+            string = fold(string);
+            return new Query(Pattern.compile(string, Pattern.LITERAL), string);
+        }
+
+        /**
+         * <p>
+         * Returns whether matching ignores the case of ASCII braille.  If so,
+         * the text given to {@link #getPattern()} must already be uppercase.
+         * </p>
+         *
+         * @return whether the pattern expects uppercase text
+         */
+        boolean isFolded() {
+            return literal != null;
+        }
+
+        Pattern getPattern() {
+            return pattern;
+        }
+
+        /**
+         * @return the literal text to find, or <code>null</code> for a regular expression
+         */
+        @Nullable String getLiteral() {
+            return literal;
+        }
+
+        /**
+         * @return the matcher for a line
+         */
+        Matcher matcher(String line) {
+            return pattern.matcher(literal != null ? fold(line) : line);
+        }
+
+        /**
+         * <p>
+         * Replaces matches in a line.
+         * </p>
+         *
+         * @param line        the line
+         * @param replacement the replacement text, which may refer to regular
+         *                    expression groups
+         * @param onlyStart   the offset in the line of the match to replace,
+         *                    or -1 for all matches
+         * @return the line with matches replaced, or <code>null</code> if nothing matched
+         */
+        @Nullable String replace(String line, String replacement, int onlyStart) {
+            Matcher matcher = matcher(line);
+            StringBuilder stringBuilder = null;
+            int end = 0;
+            while (matcher.find()) {
+                if (matcher.end() == matcher.start())
+                    continue;
+                if (onlyStart >= 0 && matcher.start() != onlyStart)
+                    continue;
+                if (stringBuilder == null)
+                    stringBuilder = new StringBuilder(line.length() + replacement.length());
+                stringBuilder.append(line, end, matcher.start());
+                if (literal != null)
+                    stringBuilder.append(replacement);
+                else {
+                    //   appendReplacement also appends the text since the previous append
+                    StringBuilder expanded = new StringBuilder();
+                    matcher.appendReplacement(expanded, replacement);
+                    stringBuilder.append(expanded, matcher.start() - end, expanded.length());
+                }
+                end = matcher.end();
+            }
+            if (stringBuilder == null)
+                return null;
+            return stringBuilder.append(line, end, line.length()).toString();
+        }
+    }
+
+    private final SearchIndex index;
+    private final Color highlightColor;
+    private final LineStyleListener highlighter = this::highlightLine;
+
+    private @Nullable Query query;
+    private int[] matchStarts = new int[0], matchLengths = new int[0];
+    private int matchCount;
+    private boolean matchesValid, highlighting, researchScheduled;
+
+    /**
+     * <p>
+     * Creates a new <code>BZSearch</code> object.
+     * </p>
+     *
+     * @param bzStyledText the bzStyledText object to operate on (cannot be null)
+     */
+    public BZSearch(@NonNull BZStyledText bzStyledText) {
+        super(bzStyledText);
+        index = new SearchIndex(bzStyledText.getContent(), parentShell.getDisplay()::asyncExec);
+        highlightColor = parentShell.getDisplay().getSystemColor(SWT.COLOR_YELLOW);
+        bzStyledText.getContent().addTextChangeListener(new TextChangeListener() {
+            @Override
+            public void textChanging(TextChangingEvent event) {
+            }
+
+            @Override
+            public void textChanged(TextChangedEvent event) {
+                invalidateMatches();
+            }
+
+            @Override
+            public void textSet(TextChangedEvent event) {
+                invalidateMatches();
+            }
+        });
+    }
+
+    static String fold(String string) {
+        char[] chars = string.toCharArray();
+        BrailleTranscoder.getInstance().toUpperCase(chars, 0, chars.length);
+        return new String(chars);
+    }
+
+    /**
+     * <p>
+     * Converts cells given as dot numbers to ASCII braille.  Cells are
+     * separated by spaces or slashes, dots within a cell may be separated by
+     * hyphens, and 0 is a blank cell.
+     * </p>
+     */
+    static String parseDots(String string) throws BZException {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (String cell : string.trim().split("[\\s/]+")) {
+            int dots = 0;
+            for (int i = 0; i < cell.length(); i++) {
+                char c = cell.charAt(i);
+                if (c >= '1' && c <= '6')
+                    dots |= 1 << (c - '1');
+                else if (c != '-' && c != '0')
+                    throw new BZException("Invalid dot pattern:  " + cell);
+            }
+            stringBuilder.append(UnicodeBraille.ASCII_BRAILLE.charAt(dots));
+        }
+        return stringBuilder.toString();
+    }
+
+    @Nullable Query getQuery() {
+        return query;
+    }
+
+    /**
+     * <p>
+     * Sets the current query and finds all its matches.
+     * </p>
+     *
+     * @param query the new query
+     * @return the number of matches
+     */
+    int setQuery(@NonNull Query query) {
+        this.query = query;
+        findMatches();
+        if (highlighting)
+            bzStyledText.redraw();
+        return matchCount;
+    }
+
+    int getMatchCount() {
+        if (!matchesValid)
+            findMatches();
+        return matchCount;
+    }
+
+    boolean getHighlighting() {
+        return highlighting;
+    }
+
+    void setHighlighting(boolean highlighting) {
+        if (this.highlighting == highlighting)
+            return;
+        this.highlighting = highlighting;
+        if (highlighting) {
+            getMatchCount();
+            bzStyledText.addLineStyleListener(highlighter);
+        } else
+            bzStyledText.removeLineStyleListener(highlighter);
+        bzStyledText.redraw();
+    }
+
+    private void invalidateMatches() {
+        matchesValid = false;
+        if (!highlighting || researchScheduled)
+            return;
+
+        //   wait for typing to pause before finding matches again
+        researchScheduled = true;
+        parentShell.getDisplay().timerExec(RESEARCH_DELAY, () -> {
+            researchScheduled = false;
+            if (highlighting && !matchesValid && !parentShell.isDisposed()) {
+                findMatches();
+                bzStyledText.redraw();
+            }
+        });
+    }
+
+    private void addMatch(int start, int length) {
+        if (matchCount == matchStarts.length) {
+            int size = Math.max(16, matchCount * 2);
+            matchStarts = Arrays.copyOf(matchStarts, size);
+            matchLengths = Arrays.copyOf(matchLengths, size);
+        }
+        matchStarts[matchCount] = start;
+        matchLengths[matchCount] = length;
+        matchCount++;
+    }
+
+    private void findMatches() {
+        matchCount = 0;
+        matchesValid = true;
+        Query query = this.query;
+        if (query == null)
+            return;
+
+        StyledTextContent content = bzStyledText.getContent();
+        index.findCandidates(query.literal, (firstLine, lineCount) -> {
+            for (int i = firstLine; i < firstLine + lineCount; i++) {
+                String line = content.getLine(i);
+                Matcher matcher = query.matcher(line);
+                int lineOffset = -1;
+                while (matcher.find()) {
+                    if (matcher.end() == matcher.start())
+                        continue;
+                    if (lineOffset < 0)
+                        lineOffset = content.getOffsetAtLine(i);
+                    addMatch(lineOffset + matcher.start(), matcher.end() - matcher.start());
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * @return the index of the first match starting at or after offset
+     */
+    private int findMatchIndex(int offset) {
+        int index = Arrays.binarySearch(matchStarts, 0, matchCount, offset);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * <p>
+     * Selects the next or previous match from the caret, wrapping around
+     * the document.
+     * </p>
+     *
+     * @param forward whether to search forward
+     * @return whether a match was found
+     */
+    boolean findNext(boolean forward) {
+        if (getMatchCount() == 0)
+            return false;
+
+        StyledText currentText = bzStyledText.getCurrentText();
+        int i;
+        if (forward) {
+            Point selection = currentText.getSelection();
+            i = findMatchIndex(selection.x == selection.y ? selection.x : selection.x + 1);
+            if (i == matchCount)
+                i = 0;
+        } else {
+            i = findMatchIndex(currentText.getSelection().x) - 1;
+            if (i < 0)
+                i = matchCount - 1;
+        }
+
+        bzStyledText.setSelectionRange(matchStarts[i], matchLengths[i]);
+        return true;
+    }
+
+    /**
+     * <p>
+     * Replaces the selected text if it is a match, then selects the next
+     * match.
+     * </p>
+     *
+     * @param replacement the replacement text, which may refer to regular
+     *                    expression groups
+     * @return whether a match was found
+     */
+    boolean replace(@NonNull String replacement) {
+        Query query = this.query;
+        if (query == null || getMatchCount() == 0)
+            return false;
+
+        Point selection = bzStyledText.getCurrentText().getSelection();
+        int i = findMatchIndex(selection.x);
+        if (i < matchCount && matchStarts[i] == selection.x && matchStarts[i] + matchLengths[i] == selection.y) {
+            StyledTextContent content = bzStyledText.getContent();
+            int lineIndex = content.getLineAtOffset(selection.x);
+            int lineOffset = content.getOffsetAtLine(lineIndex);
+            String line = content.getLine(lineIndex);
+            String replaced = query.replace(line, replacement, selection.x - lineOffset);
+            if (replaced != null) {
+                bzStyledText.replaceTextRange(lineOffset, line.length(), replaced);
+                bzStyledText.setSelectionRange(selection.y + replaced.length() - line.length(), 0);
+            }
+        }
+        return findNext(true);
+    }
+
+    /**
+     * <p>
+     * Replaces every match as a single change, so it is undone in one step.
+     * </p>
+     *
+     * @param replacement the replacement text, which may refer to regular
+     *                    expression groups
+     * @return the number of matches replaced
+     */
+    int replaceAll(@NonNull String replacement) {
+        Query query = this.query;
+        int count = getMatchCount();
+        if (query == null || count == 0)
+            return 0;
+
+        StyledTextContent content = bzStyledText.getContent();
+        int firstLine = content.getLineAtOffset(matchStarts[0]);
+        int lastLine = content.getLineAtOffset(matchStarts[count - 1]);
+        int start = content.getOffsetAtLine(firstLine);
+        int end = content.getOffsetAtLine(lastLine) + content.getLine(lastLine).length();
+
+        StringBuilder stringBuilder = new StringBuilder(end - start);
+        for (int i = firstLine; i <= lastLine; i++) {
+            String line = content.getLine(i);
+            String replaced = query.replace(line, replacement, -1);
+            stringBuilder.append(replaced != null ? replaced : line);
+            if (i < lastLine) {
+                int lineEnd = content.getOffsetAtLine(i) + line.length();
+                stringBuilder.append(content.getTextRange(lineEnd, content.getOffsetAtLine(i + 1) - lineEnd));
+            }
+        }
+
+        bzStyledText.replaceTextRange(start, end - start, stringBuilder.toString());
+        bzStyledText.setSelectionRange(start, 0);
+        return count;
+    }
+
+    private void highlightLine(LineStyleEvent event) {
+        if (!matchesValid)
+            return;
+
+        int lineEnd = event.lineOffset + event.lineText.length();
+        int first = findMatchIndex(event.lineOffset), last = first;
+        while (last < matchCount && matchStarts[last] < lineEnd)
+            last++;
+        if (first == last)
+            return;
+
+        StyleRange[] styles = new StyleRange[last - first];
+        for (int i = first; i < last; i++)
+            styles[i - first] = new StyleRange(matchStarts[i], matchLengths[i], null, highlightColor);
+        event.styles = styles;
+    }
+}
@@ -26,12 +26,9 @@ import org.jspecify.annotations.Nullable;
 
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -39,19 +36,126 @@ import java.util.List;
  * <p>
  * This class handles access to the settings file on the system.  This allows
  * the settings to be restored between executions.
+ * </p><p>
+ * The settings are kept in a {@link SettingsStore}, which reads and writes
+ * the file on a background thread.  Each setting is written shortly after
+ * it changes, so they are kept even if the editor does not exit cleanly.
+ * The state of recently opened documents is kept in the same file.
  * </p>
  *
  * @author Mike Gray mgray@aph.org
  */
 public final class BZSettings extends BZBase {
-    private final @NonNull File file;
+    /**
+     * The size of the window.
+     *
+     * @param width     the width
+     * @param height    the height
+     * @param maximized whether the window is maximized
+     */
+    record WindowSize(int width, int height, boolean maximized) {
+        static @NonNull WindowSize parse(@NonNull String value) {
+            String[] tokens = value.split(" ");
+            if (tokens.length != 3)
+                throw new IllegalArgumentException("Bad window size:  " + value);
+            return new WindowSize(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]), Boolean.parseBoolean(tokens[2]));
+        }
+
+        @NonNull String format() {
+            return width + " " + height + ' ' + maximized;
+        }
+    }
+
+    /**
+     * A font, as written in the settings file.
+     *
+     * @param height the height in points
+     * @param style  the SWT style
+     * @param name   the name
+     */
+    record FontSetting(int height, int style, @NonNull String name) {
+        static @NonNull FontSetting parse(@NonNull String value) {
+            String[] tokens = value.split(" ", 3);
+            if (tokens.length != 3 || tokens[2].isEmpty())
+                throw new IllegalArgumentException("Bad font:  " + value);
+            return new FontSetting(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]), tokens[2]);
+        }
+
+        static @NonNull FontSetting of(@NonNull Font font) {
+            FontData fontData = font.getFontData()[0];
+            return new FontSetting(fontData.getHeight(), fontData.getStyle(), fontData.getName());
+        }
+
+        @NonNull String format() {
+            return height + " " + style + ' ' + name;
+        }
+    }
+
+    static final SettingsStore.Key<WindowSize> SIZE = SettingsStore.key("size", null, WindowSize::parse, WindowSize::format);
+    static final SettingsStore.Key<Integer> CHARS_PER_LINE = SettingsStore.intKey("charsPerLine");
+    static final SettingsStore.Key<Integer> LINE_MARGIN_BELL = SettingsStore.intKey("lineMarginBell");
+    static final SettingsStore.Key<String> LINE_MARGIN_FILE_NAME = SettingsStore.stringKey("lineMarginFileName");
+    static final SettingsStore.Key<String> LINE_END_FILE_NAME = SettingsStore.stringKey("lineEndFileName");
+    static final SettingsStore.Key<Integer> LINES_PER_PAGE = SettingsStore.intKey("linesPerPage");
+    static final SettingsStore.Key<Integer> PAGE_MARGIN_BELL = SettingsStore.intKey("pageMarginBell");
+    static final SettingsStore.Key<String> PAGE_MARGIN_FILE_NAME = SettingsStore.stringKey("pageMarginFileName");
+    static final SettingsStore.Key<Boolean> BRAILLE_VISIBLE = SettingsStore.booleanKey("brailleText.visible");
+    static final SettingsStore.Key<FontSetting> BRAILLE_FONT = SettingsStore.key("brailleText.font", null, FontSetting::parse, FontSetting::format);
+    static final SettingsStore.Key<Boolean> ASCII_VISIBLE = SettingsStore.booleanKey("asciiText.visible");
+    static final SettingsStore.Key<FontSetting> ASCII_FONT = SettingsStore.key("asciiText.font", null, FontSetting::parse, FontSetting::format);
+    static final SettingsStore.Key<Integer> RECENT_FILES_MAX = SettingsStore.key("recentFilesMax", 6, Integer::valueOf, String::valueOf);
+    static final SettingsStore.Key<String> RECENT_FILE = SettingsStore.stringKey("recentFile");
 
-    private int recentFilesMax = 6;
+    /**
+     * The settings, in the order they are applied and written.
+     */
+    static final List<SettingsStore.Key<?>> SCHEMA = List.of(SIZE,
+                                                             CHARS_PER_LINE,
+                                                             LINE_MARGIN_BELL,
+                                                             LINE_MARGIN_FILE_NAME,
+                                                             LINE_END_FILE_NAME,
+                                                             LINES_PER_PAGE,
+                                                             PAGE_MARGIN_BELL,
+                                                             PAGE_MARGIN_FILE_NAME,
+                                                             BRAILLE_VISIBLE,
+                                                             BRAILLE_FONT,
+                                                             ASCII_VISIBLE,
+                                                             ASCII_FONT,
+                                                             RECENT_FILES_MAX,
+                                                             RECENT_FILE);
+
+    private final @NonNull SettingsStore store;
+    private final @NonNull LineIndexCache lineIndexCache;
+
+    private int recentFilesMax;
     private final @NonNull List<@NonNull String> recentFiles = new LinkedList<>();
 
     private Point shellSize;
     private boolean shellMaximized;
 
+    /**
+     * <p>
+     * Returns the settings file to use when none is given, the file
+     * &quot;.braillezephyr.conf&quot; in the user's home directory.
+     * </p>
+     */
+    static @NonNull Path getDefaultFile() {
+        return Path.of(System.getProperty("user.home"), ".braillezephyr.conf");
+    }
+
+    /**
+     * <p>
+     * Starts reading a settings file in the background, so that it can be
+     * read while the display and window are created.
+     * </p>
+     *
+     * @param file the settings file
+     * @return the store to pass to {@link #BZSettings(BZStyledText, SettingsStore, boolean)}
+     */
+    static @NonNull SettingsStore openStore(@NonNull Path file) {
+        return new SettingsStore(file, SCHEMA);
+    }
+
     /**
      * <p>
      * Creates a new <code>BZSettings</code> object for BZStyledText.
@@ -70,19 +174,7 @@ public final class BZSettings extends BZBase {
      * @param useSize      whether or not to resize the parent of bzStyledText
      */
     public BZSettings(@NonNull BZStyledText bzStyledText, @Nullable String fileName, boolean useSize) {
-        super(bzStyledText);
-
-        file = fileName != null ? new File(fileName) : new File(System.getProperty("user.home"), ".braillezephyr.conf");
-        readSettings();
-
-        if (useSize) {
-            parentShell.addControlListener(new ControlHandler());
-            if (shellSize == null) {
-                shellSize = new Point(640, 480);
-            }
-            parentShell.setSize(shellSize);
-            parentShell.setMaximized(shellMaximized);
-        }
+        this(bzStyledText, openStore(fileName != null ? Path.of(fileName) : getDefaultFile()), useSize);
     }
 
     /**
@@ -111,17 +203,53 @@ public final class BZSettings extends BZBase {
         this(bzStyledText, null);
     }
 
+    /**
+     * <p>
+     * Creates a new <code>BZSettings</code> object from a store opened by
+     * {@link #openStore(Path)}, waiting for it to be read if it has not
+     * been already.
+     * </p>
+     *
+     * @param bzStyledText the bzStyledText object to operate on (cannot be null)
+     * @param store        the settings
+     * @param useSize      whether or not to resize the parent of bzStyledText
+     * @see #BZSettings(BZStyledText, String, boolean)
+     */
+    BZSettings(@NonNull BZStyledText bzStyledText, @NonNull SettingsStore store, boolean useSize) {
+        super(bzStyledText);
+        this.store = store;
+        lineIndexCache = new LineIndexCache(LineIndexCache.getDirectory(store.getFile()));
+        store.setErrorHandler(message -> bzStyledText.getLog().error(getClass().getSimpleName(), message));
+        parentShell.addDisposeListener(e -> store.close());
+
+        readSettings();
+
+        if (useSize) {
+            parentShell.addControlListener(new ControlHandler());
+            if (shellSize == null) {
+                shellSize = new Point(640, 480);
+            }
+            parentShell.setSize(shellSize);
+            parentShell.setMaximized(shellMaximized);
+        }
+
+        //   keep the store up to date from now on
+        updateSettings();
+        bzStyledText.addSettingsListener(this::updateSettings);
+    }
+
     @NonNull List<String> getRecentFiles() {
         return recentFiles;
     }
 
     void removeRecentFile(@NonNull String fileName) {
         recentFiles.remove(fileName);
+        recentFilesChanged();
     }
 
     void addRecentFile(@NonNull String fileName) {
         //   check for duplicates
-        removeRecentFile(fileName);
+        recentFiles.remove(fileName);
 
         recentFiles.addFirst(fileName);
 
@@ -130,236 +258,231 @@ public final class BZSettings extends BZBase {
         if (excessRecentFiles > 0) {
             recentFiles.reversed().subList(0, excessRecentFiles).clear();
         }
+        recentFilesChanged();
     }
 
-    private boolean readLine(String line) {
-        if (line.isEmpty())
-            return true;
-
-        int offset = line.indexOf(' ');
-        if (offset < 0)
-            return false;
-
-        String value = line.substring(offset + 1);
-        if (value.isEmpty())
-            return false;
-
-        String[] tokens;
-        switch (line.substring(0, offset)) {
-            case "size":
-
-                tokens = value.split(" ");
-                if (tokens.length != 3)
-                    return false;
-                shellSize = new Point(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]));
-                shellMaximized = Boolean.parseBoolean(tokens[2]);
-                break;
-
-            case "charsPerLine":
-                bzStyledText.setCharsPerLine(Integer.parseInt(value));
-                break;
-            case "lineMarginBell":
-                bzStyledText.setLineMarginBell(Integer.parseInt(value));
-                break;
-            case "lineMarginFileName":
-
-                try {
-                    bzStyledText.loadLineMarginFileName(value);
-                } catch (FileNotFoundException exception) {
-                    logError("Unable to open line margin sound file", exception);
-                } catch (IOException exception) {
-                    logError("Unable to read line margin sound file", exception);
-                } catch (UnsupportedAudioFileException ignore) {
-                    logError("Sound file unsupported for line margin bell", value);
-                } catch (LineUnavailableException ignore) {
-                    logError("Line unavailable for line margin bell", value);
-                }
-                break;
-
-            case "lineEndFileName":
-
-                try {
-                    bzStyledText.loadLineEndFileName(value);
-                } catch (FileNotFoundException exception) {
-                    logError("Unable to open line end sound file", exception);
-                } catch (IOException exception) {
-                    logError("Unable to read line end sound file", exception);
-                } catch (UnsupportedAudioFileException ignore) {
-                    logError("Sound file unsupported for line end bell", value);
-                } catch (LineUnavailableException ignore) {
-                    logError("Line unavailable for line end bell", value);
-                }
-                break;
-
-            case "linesPerPage":
-                bzStyledText.setLinesPerPage(Integer.parseInt(value));
-                break;
-            case "pageMarginBell":
-                bzStyledText.setPageMarginBell(Integer.parseInt(value));
-                break;
-            case "pageMarginFileName":
-
-                try {
-                    bzStyledText.loadPageMarginFileName(value);
-                } catch (FileNotFoundException exception) {
-                    logError("Unable to open page margin sound file", exception);
-                } catch (IOException exception) {
-                    logError("Unable to read page margin sound file", exception);
-                } catch (UnsupportedAudioFileException ignore) {
-                    logError("Sound file unsupported for page margin bell", value);
-                } catch (LineUnavailableException ignore) {
-                    logError("Line unavailable for page margin bell", value);
-                }
-                break;
-
-            case "brailleText.visible":
-                bzStyledText.setBrailleVisible(Boolean.parseBoolean(value));
-                break;
-            case "brailleText.font":
-
-                //   find offset for fileName
-                offset = value.indexOf(' ') + 1;
-                if (offset < 1 || offset == value.length())
-                    return false;
-                offset = value.indexOf(' ', offset) + 1;
-                if (offset < 1 || offset == value.length())
-                    return false;
-                tokens = value.split(" ");
-                if (tokens.length < 3)
-                    return false;
-                bzStyledText.setBrailleFont(new Font(parentShell.getDisplay(),
-                        value.substring(offset),
-                        Integer.parseInt(tokens[0]),
-                        Integer.parseInt(tokens[1])));
-                break;
-
-            case "asciiText.visible":
-                bzStyledText.setAsciiVisible(Boolean.parseBoolean(value));
-                break;
-            case "asciiText.font":
-
-                //   find offset for fileName
-                offset = value.indexOf(' ') + 1;
-                if (offset < 1 || offset == value.length())
-                    return false;
-                offset = value.indexOf(' ', offset) + 1;
-                if (offset < 1 || offset == value.length())
-                    return false;
-                tokens = value.split(" ");
-                if (tokens.length < 3)
-                    return false;
-                bzStyledText.setAsciiFont(new Font(parentShell.getDisplay(),
-                        value.substring(offset),
-                        Integer.parseInt(tokens[0]),
-                        Integer.parseInt(tokens[1])));
-                break;
-
-            case "recentFilesMax":
-                recentFilesMax = Integer.parseInt(value);
-                break;
-            case "recentFile":
-
-                if (recentFiles.size() < recentFilesMax)
-                    recentFiles.add(value);
-                break;//TODO:  rereading settings?
-
-            default:
-                return false;
-        }
+    /**
+     * <p>
+     * Stores the recent files, and deletes the line index snapshots of
+     * files that are no longer recent.
+     * </p>
+     */
+    private void recentFilesChanged() {
+        store.setList(RECENT_FILE, recentFiles);
+        List<String> fileNames = List.copyOf(recentFiles);
+        store.execute(() -> {
+            try {
+                lineIndexCache.retain(fileNames);
+            } catch (IOException exception) {
+                bzStyledText.getLog().warning(getClass().getSimpleName(), "Unable to clean line index cache:  " + exception.getMessage());
+            }
+        });
+    }
 
-        return true;
+    /**
+     * @return the cache of line indexes of recent files, which are deleted once they are no longer recent
+     */
+    @NonNull LineIndexCache getLineIndexCache() {
+        return lineIndexCache;
     }
 
-    boolean readSettings() {
-        if (!file.exists()) {
-            logMessage("Settings file not found:  " + file.getPath());
-            return false;
+    /**
+     * <p>
+     * Reads the line starts of a document snapshot when it was last read,
+     * if the file has the same size and modification time.  The hash of
+     * the snapshot must be checked once the file has been read.
+     * </p>
+     *
+     * @param fileName the file name of the document
+     * @param size     the size of the file now
+     * @param modified the modification time of the file now, in milliseconds
+     * @return the snapshot, or null if there is none or the file has changed
+     * @see LineIndexCache#read(String, LineIndexCache.Offsets, long, long)
+     */
+    LineIndexCache.@Nullable Snapshot readLineStarts(@NonNull String fileName, long size, long modified) {
+        try {
+            return lineIndexCache.read(fileName, LineIndexCache.Offsets.DOCUMENT, size, modified);
+        } catch (IOException exception) {
+            bzStyledText.getLog().warning(getClass().getSimpleName(), "Unable to read line index:  " + exception.getMessage());
+            return null;
         }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-
-            String line;
-            int lineNumber = 1;
-            while ((line = reader.readLine()) != null) {
-                try {
-                    if (!readLine(line))
-                        logError("Unknown setting, line #" + lineNumber, line + " -- " + file.getPath(), false);
-                } catch (NumberFormatException ignored) {
-                    logError("Bad setting value, line #" + lineNumber, line + " -- " + file.getPath(), false);
-                } finally {
-                    lineNumber++;
-                }
+    /**
+     * <p>
+     * Snapshots the line starts of a document just read, in the
+     * background.
+     * </p>
+     *
+     * @param fileName   the file name of the document
+     * @param size       the size of the file when it was read
+     * @param modified   the modification time of the file when it was read, in milliseconds
+     * @param hash       the content hash of the file when it was read
+     * @param lineStarts the line start offsets, which must not be changed afterwards
+     * @see LineIndexCache#write(String, long, long, long, int[])
+     */
+    void writeLineStarts(@NonNull String fileName, long size, long modified, long hash, int @NonNull [] lineStarts) {
+        store.execute(() -> {
+            try {
+                lineIndexCache.write(fileName, size, modified, hash, lineStarts);
+            } catch (IOException exception) {
+                bzStyledText.getLog().warning(getClass().getSimpleName(), "Unable to write line index:  " + exception.getMessage());
             }
-        } catch (FileNotFoundException exception) {
-            logError("Unable to open settings file for reading", exception);
-        } catch (IOException exception) {
-            logError("Unable to read settings file", exception);
-        }
+        });
+    }
 
-        return true;
+    /**
+     * <p>
+     * Returns the state of a document when it was last open.
+     * </p>
+     *
+     * @param fileName the file name of the document
+     * @return the state, or null if it is not known
+     */
+    SettingsStore.@Nullable DocumentSettings getDocumentSettings(@NonNull String fileName) {
+        return store.getDocument(fileName);
     }
 
-    private void writeLines(PrintWriter writer) {
-        String fileName;
+    /**
+     * <p>
+     * Remembers the state of a document, to restore when it is opened again.
+     * </p>
+     *
+     * @param fileName the file name of the document
+     * @param settings the state
+     */
+    void putDocumentSettings(@NonNull String fileName, SettingsStore.@NonNull DocumentSettings settings) {
+        store.putDocument(fileName, settings);
+    }
 
-        if (shellSize != null)
-            writer.println("size " + shellSize.x + ' ' + shellSize.y + ' ' + shellMaximized);
+    boolean readSettings() {
+        boolean exists = store.waitForLoad();
+        for (String problem : store.takeProblems())
+            logError(problem, store.getFile().toString(), false);
+        if (!exists)
+            logMessage("Settings file not found:  " + store.getFile());
+
+        WindowSize size = store.get(SIZE);
+        if (size != null) {
+            shellSize = new Point(size.width(), size.height());
+            shellMaximized = size.maximized();
+        }
 
-        writer.println("charsPerLine " + bzStyledText.getCharsPerLine());
-        writer.println("lineMarginBell " + bzStyledText.getLineMarginBell());
-        fileName = bzStyledText.getLineMarginFileName();
+        Integer value = store.get(CHARS_PER_LINE);
+        if (value != null)
+            bzStyledText.setCharsPerLine(value);
+        value = store.get(LINE_MARGIN_BELL);
+        if (value != null)
+            bzStyledText.setLineMarginBell(value);
+        String fileName = store.get(LINE_MARGIN_FILE_NAME);
         if (fileName != null) {
-            writer.println("lineMarginFileName " + fileName);
+            try {
+                bzStyledText.loadLineMarginFileName(fileName);
+            } catch (FileNotFoundException exception) {
+                logError("Unable to open line margin sound file", exception);
+            } catch (IOException exception) {
+                logError("Unable to read line margin sound file", exception);
+            } catch (UnsupportedAudioFileException ignore) {
+                logError("Sound file unsupported for line margin bell", fileName);
+            } catch (LineUnavailableException ignore) {
+                logError("Line unavailable for line margin bell", fileName);
+            }
         }
-        fileName = bzStyledText.getLineEndFileName();
+        fileName = store.get(LINE_END_FILE_NAME);
         if (fileName != null) {
-            writer.println("lineEndFileName " + fileName);
+            try {
+                bzStyledText.loadLineEndFileName(fileName);
+            } catch (FileNotFoundException exception) {
+                logError("Unable to open line end sound file", exception);
+            } catch (IOException exception) {
+                logError("Unable to read line end sound file", exception);
+            } catch (UnsupportedAudioFileException ignore) {
+                logError("Sound file unsupported for line end bell", fileName);
+            } catch (LineUnavailableException ignore) {
+                logError("Line unavailable for line end bell", fileName);
+            }
         }
 
-        writer.println("linesPerPage " + bzStyledText.getLinesPerPage());
-        writer.println("pageMarginBell " + bzStyledText.getPageMarginBell());
-        fileName = bzStyledText.getPageMarginFileName();
+        value = store.get(LINES_PER_PAGE);
+        if (value != null)
+            bzStyledText.setLinesPerPage(value);
+        value = store.get(PAGE_MARGIN_BELL);
+        if (value != null)
+            bzStyledText.setPageMarginBell(value);
+        fileName = store.get(PAGE_MARGIN_FILE_NAME);
         if (fileName != null) {
-            writer.println("pageMarginFileName " + fileName);
+            try {
+                bzStyledText.loadPageMarginFileName(fileName);
+            } catch (FileNotFoundException exception) {
+                logError("Unable to open page margin sound file", exception);
+            } catch (IOException exception) {
+                logError("Unable to read page margin sound file", exception);
+            } catch (UnsupportedAudioFileException ignore) {
+                logError("Sound file unsupported for page margin bell", fileName);
+            } catch (LineUnavailableException ignore) {
+                logError("Line unavailable for page margin bell", fileName);
+            }
         }
 
-        writer.println();
-
-        writer.println("brailleText.visible " + bzStyledText.getBrailleVisible());
-        FontData fontData = bzStyledText.getBrailleFont().getFontData()[0];
-        writer.println("brailleText.font "
-                + fontData.getHeight() + ' '
-                + fontData.getStyle() + ' '
-                + fontData.getName());
+        Boolean visible = store.get(BRAILLE_VISIBLE);
+        if (visible != null)
+            bzStyledText.setBrailleVisible(visible);
+        FontSetting font = store.get(BRAILLE_FONT);
+        if (font != null)
+            bzStyledText.setBrailleFont(new Font(parentShell.getDisplay(), font.name(), font.height(), font.style()));
+
+        visible = store.get(ASCII_VISIBLE);
+        if (visible != null)
+            bzStyledText.setAsciiVisible(visible);
+        font = store.get(ASCII_FONT);
+        if (font != null)
+            bzStyledText.setAsciiFont(new Font(parentShell.getDisplay(), font.name(), font.height(), font.style()));
+
+        recentFilesMax = store.get(RECENT_FILES_MAX);
+        for (String recentFile : store.getList(RECENT_FILE))
+            if (recentFiles.size() < recentFilesMax)
+                recentFiles.add(recentFile);
+
+        return exists;
+    }
 
-        writer.println();
+    /**
+     * <p>
+     * Copies the current settings into the store, which writes them shortly
+     * if any have changed.
+     * </p>
+     */
+    private void updateSettings() {
+        store.set(CHARS_PER_LINE, bzStyledText.getCharsPerLine());
+        store.set(LINE_MARGIN_BELL, bzStyledText.getLineMarginBell());
+        store.set(LINE_MARGIN_FILE_NAME, bzStyledText.getLineMarginFileName());
+        store.set(LINE_END_FILE_NAME, bzStyledText.getLineEndFileName());
 
-        writer.println("asciiText.visible " + bzStyledText.getAsciiVisible());
-        fontData = bzStyledText.getAsciiFont().getFontData()[0];
-        writer.println("asciiText.font "
-                + fontData.getHeight() + ' '
-                + fontData.getStyle() + ' '
-                + fontData.getName());
+        store.set(LINES_PER_PAGE, bzStyledText.getLinesPerPage());
+        store.set(PAGE_MARGIN_BELL, bzStyledText.getPageMarginBell());
+        store.set(PAGE_MARGIN_FILE_NAME, bzStyledText.getPageMarginFileName());
 
-        writer.println();
+        store.set(BRAILLE_VISIBLE, bzStyledText.getBrailleVisible());
+        store.set(BRAILLE_FONT, FontSetting.of(bzStyledText.getBrailleFont()));
 
-        writer.println("recentFilesMax " + recentFilesMax);
-        for (String recentFile : recentFiles) {
-            writer.println("recentFile " + recentFile);
-        }
+        store.set(ASCII_VISIBLE, bzStyledText.getAsciiVisible());
+        store.set(ASCII_FONT, FontSetting.of(bzStyledText.getAsciiFont()));
 
-        writer.println();
+        store.set(RECENT_FILES_MAX, recentFilesMax);
+        store.setList(RECENT_FILE, recentFiles);
     }
 
+    /**
+     * <p>
+     * Writes the settings now, rather than waiting for the background
+     * thread.
+     * </p>
+     *
+     * @return whether the settings were written
+     */
     boolean writeSettings() {
-        try (PrintWriter writer = new PrintWriter(file)) {
-            writeLines(writer);
-        } catch (FileNotFoundException exception) {
-            logError("Unable to open settings file for writing", exception);
-            return false;
-        }
-
-        return true;
+        updateSettings();
+        return store.flush();
     }
 
     private class ControlHandler implements ControlListener {
@@ -399,10 +522,14 @@ public final class BZSettings extends BZBase {
         private class CheckMaximizeThread implements Runnable {
             @Override
             public void run() {
+                checkingMaximize = false;
+                if (parentShell.isDisposed())
+                    return;
                 shellMaximized = parentShell.getMaximized();
                 if (shellMaximized)
                     shellSize = prevShellSize;
-                checkingMaximize = false;
+                if (shellSize != null)
+                    store.set(SIZE, new WindowSize(shellSize.x, shellSize.y, shellMaximized));
             }
         }
     }
@@ -24,8 +24,10 @@ import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import javax.sound.sampled.*;
 import java.io.*;
@@ -34,6 +36,8 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * <p>
@@ -44,12 +48,14 @@ import java.util.List;
  * @author Mike Gray mgray@aph.org
  */
 public class BZStyledText {
-    private static final char PARAGRAPH_END = 0xfeff;
+    private static final char PARAGRAPH_END = BZFormat.PARAGRAPH_END;
+    private static final String SOURCE = "BZStyledText";
 
     private final @NonNull Shell parentShell;
     private final Composite composite;
     private final StyledText brailleText, asciiText;
-    private final StyledTextContent content;
+    private BZDocument document = new BZDocument();
+    private final BZDocumentContent content = new BZDocumentContent(document);
 
     private final String versionString;
     private final int versionMajor, versionMinor, versionPatch;
@@ -60,9 +66,6 @@ public class BZStyledText {
 
     private StyledText currentText;
 
-    private String eol = System.lineSeparator();
-    private int linesPerPage = 25;
-    private int charsPerLine = 40;
 
     private int lineMarginBell = 33;
     private Clip lineMarginClip;
@@ -75,12 +78,14 @@ public class BZStyledText {
     private Clip lineEndClip;
     private String lineEndFileName;
 
-    private final List<ExtendedModifyEvent> changes = new ArrayList<>(1000);
+    private List<Change> changes = new ArrayList<>(1000);
     private int changeIndex, saveIndex;
-    private boolean undoing, redoing;
+    private boolean undoing, redoing, joining;
 
-    private final StringWriter logString = new StringWriter();
-    private final PrintWriter logWriter = new PrintWriter(logString);
+    private final BZLog log = new BZLog();
+    private final KeystrokeLatency keystrokeLatency = new KeystrokeLatency();
+    private final List<Runnable> settingsListeners = new ArrayList<>();
+    private @Nullable PageLoad pageLoad;
 
     /**
      * <p>
@@ -91,6 +96,17 @@ public class BZStyledText {
      */
     public BZStyledText(@NonNull Shell parentShell) {
         this.parentShell = parentShell;
+        parentShell.addListener(SWT.Dispose, e -> log.close());
+
+        //   optional log file
+        String logFileName = System.getProperty("braillezephyr.log");
+        if (logFileName != null) {
+            try {
+                log.setFile(Path.of(logFileName));
+            } catch (IOException exception) {
+                log.error(SOURCE, "Unable to open log file:  " + exception.getMessage());
+            }
+        }
 
         //   version from jar manifest
         String version = getClass().getPackage().getImplementationVersion();
@@ -102,7 +118,7 @@ public class BZStyledText {
 
         //   no version
         if (version == null) {
-            logWriter.println("WARNING:  unable to determine version, using 0.0");
+            log.warning(SOURCE, "unable to determine version, using 0.0");
             version = "0.0";
         }
 
@@ -122,6 +138,7 @@ public class BZStyledText {
 
         composite = new Composite(parentShell, 0);
         composite.setLayout(new GridLayout(2, true));
+        composite.setLayoutData(new GridData(GridData.FILL_BOTH));
 
         //   load fonts
         loadFont("BrailleZephyr_6.otf");
@@ -136,18 +153,19 @@ public class BZStyledText {
         loadFont("BrailleZephyr_8wb.otf");
         loadFont("BrailleZephyr_8ws.otf");
         loadFont("BrailleZephyr_8wsb.otf");
+        StartupTimeline.getInstance().mark("Fonts");
 
         //   load line margin bell
         try (InputStream inputStreamBellMargin = getClass().getResourceAsStream("/sounds/line_margin_bell.wav")) {
             lineMarginClip = loadClip(inputStreamBellMargin);
         } catch (IOException exception) {
-            logWriter.println("ERROR:  Unable to read default line margin bell file:  " + exception.getMessage());
+            log.error(SOURCE, "Unable to read default line margin bell file:  " + exception.getMessage());
             lineMarginClip = null;
         } catch (UnsupportedAudioFileException exception) {
-            logWriter.println("ERROR:  Sound file unsupported for default line margin bell:  " + exception.getMessage());
+            log.error(SOURCE, "Sound file unsupported for default line margin bell:  " + exception.getMessage());
             lineMarginClip = null;
         } catch (LineUnavailableException exception) {
-            logWriter.println("ERROR:  Line unavailable for default line margin bell:  " + exception.getMessage());
+            log.error(SOURCE, "Line unavailable for default line margin bell:  " + exception.getMessage());
             lineMarginClip = null;
         }
 
@@ -155,13 +173,13 @@ public class BZStyledText {
         try (InputStream inputStreamBellPage = getClass().getResourceAsStream("/sounds/page_margin_bell.wav")) {
             pageMarginClip = loadClip(inputStreamBellPage);
         } catch (IOException exception) {
-            logWriter.println("ERROR:  Unable to read default page margin bell file:  " + exception.getMessage());
+            log.error(SOURCE, "Unable to read default page margin bell file:  " + exception.getMessage());
             pageMarginClip = null;
         } catch (UnsupportedAudioFileException exception) {
-            logWriter.println("ERROR:  Sound file unsupported for default page margin bell:  " + exception.getMessage());
+            log.error(SOURCE, "Sound file unsupported for default page margin bell:  " + exception.getMessage());
             pageMarginClip = null;
         } catch (LineUnavailableException exception) {
-            logWriter.println("ERROR:  Line unavailable for default page margin bell:  " + exception.getMessage());
+            log.error(SOURCE, "Line unavailable for default page margin bell:  " + exception.getMessage());
             pageMarginClip = null;
         }
 
@@ -169,15 +187,16 @@ public class BZStyledText {
         try (InputStream inputStreamBellPage = getClass().getResourceAsStream("/sounds/line_end_bell.wav")) {
             lineEndClip = loadClip(inputStreamBellPage);
         } catch (IOException exception) {
-            logWriter.println("ERROR:  Unable to read default line end bell file:  " + exception.getMessage());
+            log.error(SOURCE, "Unable to read default line end bell file:  " + exception.getMessage());
             lineEndClip = null;
         } catch (UnsupportedAudioFileException exception) {
-            logWriter.println("ERROR:  Sound file unsupported for default line end bell:  " + exception.getMessage());
+            log.error(SOURCE, "Sound file unsupported for default line end bell:  " + exception.getMessage());
             lineEndClip = null;
         } catch (LineUnavailableException exception) {
-            logWriter.println("ERROR:  Line unavailable for default line end bell:  " + exception.getMessage());
+            log.error(SOURCE, "Line unavailable for default line end bell:  " + exception.getMessage());
             lineEndClip = null;
         }
+        StartupTimeline.getInstance().mark("Bells");
 
         brailleText = new StyledText(composite, SWT.BORDER | SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL);
         brailleText.setLayoutData(new GridData(GridData.FILL_BOTH));
@@ -189,7 +208,7 @@ public class BZStyledText {
         brailleText.addVerifyKeyListener(brailleKeyHandler);
         brailleText.addExtendedModifyListener(new ExtendedModifyHandler(brailleText));
 
-        content = brailleText.getContent();
+        brailleText.setContent(content);
 
         asciiText = new StyledText(composite, SWT.BORDER | SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL);
         asciiText.setContent(content);
@@ -204,6 +223,7 @@ public class BZStyledText {
         asciiText.addCaretListener(new CaretHandler(asciiText, brailleText));
 
         currentText = brailleText;
+        StartupTimeline.getInstance().mark("Views");
     }
 
     private void loadFont(String fontFileName) {
@@ -219,9 +239,9 @@ public class BZStyledText {
             Files.copy(fontInputStream, fontFile, StandardCopyOption.REPLACE_EXISTING);
             parentShell.getDisplay().loadFont(fontFile.toString());
         } catch (FileNotFoundException exception) {
-            logWriter.println("ERROR:  Unable to open font file:  " + exception.getMessage());
+            log.error(SOURCE, "Unable to open font file:  " + exception.getMessage());
         } catch (IOException exception) {
-            logWriter.println("ERROR:  Unable to read font file:  " + exception.getMessage());
+            log.error(SOURCE, "Unable to read font file:  " + exception.getMessage());
         }
     }
 
@@ -233,6 +253,295 @@ public class BZStyledText {
         return versionString;
     }
 
+    BZDocument getDocument() {
+        return document;
+    }
+
+    StyledTextContent getContent() {
+        return content;
+    }
+
+    /**
+     * <p>
+     * A document that is not being shown, with what is needed to show it
+     * again.  Only the model is kept, not any widgets.  A paged file still
+     * being read carries on being read, and replaces its page once it is
+     * shown again.
+     * </p>
+     */
+    static final class DocumentState {
+        private final @NonNull BZDocument document;
+        private final BZDocumentContent.@Nullable Source source;
+        private final @NonNull List<Change> changes;
+        private final int changeIndex, saveIndex;
+        private final int caretOffset, topIndex;
+        private final @Nullable PageLoad pageLoad;
+
+        private DocumentState(@NonNull BZDocument document,
+                              BZDocumentContent.@Nullable Source source,
+                              @NonNull List<Change> changes,
+                              int changeIndex,
+                              int saveIndex,
+                              int caretOffset,
+                              int topIndex,
+                              @Nullable PageLoad pageLoad) {
+            this.document = document;
+            this.source = source;
+            this.changes = changes;
+            this.changeIndex = changeIndex;
+            this.saveIndex = saveIndex;
+            this.caretOffset = caretOffset;
+            this.topIndex = topIndex;
+            this.pageLoad = pageLoad;
+        }
+
+        @NonNull BZDocument getDocument() {
+            return document;
+        }
+
+        /**
+         * @return whether the document has been modified since it was last saved
+         */
+        boolean isModified() {
+            if (source instanceof VolumeSet volumeSet && volumeSet.isModified())
+                return true;
+            return saveIndex != changeIndex;
+        }
+
+        /**
+         * <p>
+         * Releases the document's source, for when it will not be shown
+         * again, and abandons reading it if it is still being read.
+         * </p>
+         */
+        void close() {
+            if (source != null)
+                source.close();
+            if (pageLoad != null)
+                try {
+                    pageLoad.file.close();
+                } catch (IOException ignored) {
+                    //   the file was only being read
+                }
+        }
+    }
+
+    /**
+     * <p>
+     * Shows another document in the same widgets, returning the state of
+     * the one that was shown.
+     * </p><p>
+     * The fonts, bells and settings stay as they are.  A new document takes
+     * the lines per page and characters per line of the one it replaces.
+     * If the document shown is still being read, it carries on being read
+     * in the state returned.
+     * </p>
+     *
+     * @param state the document to show, or null for a new empty document
+     * @return the state of the document that was shown
+     */
+    @NonNull DocumentState swapDocument(@Nullable DocumentState state) {
+        DocumentState previous = new DocumentState(document,
+                                                   content.getSource(),
+                                                   changes,
+                                                   changeIndex,
+                                                   saveIndex,
+                                                   currentText.getCaretOffset(),
+                                                   currentText.getTopIndex(),
+                                                   pageLoad);
+        if (state == null) {
+            BZDocument newDocument = new BZDocument();
+            newDocument.setLinesPerPage(document.getLinesPerPage());
+            newDocument.setCharsPerLine(document.getCharsPerLine());
+            state = new DocumentState(newDocument, null, new ArrayList<>(1000), 0, 0, 0, 0, null);
+        }
+
+        document = state.document;
+        content.setDocument(state.document, state.source);
+        changes = state.changes;
+        changeIndex = state.changeIndex;
+        saveIndex = state.saveIndex;
+        pageLoad = state.pageLoad;
+        setEditable(!(state.source instanceof MappedBRF) && pageLoad == null);
+
+        int caretOffset = Math.min(state.caretOffset, content.getCharCount());
+        brailleText.setCaretOffset(caretOffset);
+        asciiText.setCaretOffset(caretOffset);
+        currentText.setTopIndex(state.topIndex);
+
+        //   a file read while it was not shown is shown now, otherwise when it has been read
+        if (pageLoad != null && pageLoad.text.isDone())
+            finishLoading();
+        return previous;
+    }
+
+    /**
+     * @return the read only view being shown, or null if the document is being edited
+     */
+    @Nullable MappedBRF getViewer() {
+        return content.getSource() instanceof MappedBRF viewer ? viewer : null;
+    }
+
+    /**
+     * @return the volume set being edited, or null if it is a single document
+     */
+    @Nullable VolumeSet getVolumeSet() {
+        return content.getSource() instanceof VolumeSet volumeSet ? volumeSet : null;
+    }
+
+    /**
+     * <p>
+     * Returns the lines of the document without paragraph end markers.
+     * </p>
+     *
+     * @return the lines of the document
+     * @throws IllegalStateException if the rest of a paged file could not be read
+     */
+    List<String> getLines() {
+        finishLoading();
+        if (pageLoad != null)
+            throw new IllegalStateException("Document could not be read completely");
+        BZDocumentContent.Source source = content.getSource();
+        if (source != null)
+            return source.getLines();
+        return document.getLines();
+    }
+
+    StyledText getCurrentText() {
+        return currentText;
+    }
+
+    void addLineStyleListener(LineStyleListener listener) {
+        brailleText.addLineStyleListener(listener);
+        asciiText.addLineStyleListener(listener);
+    }
+
+    void removeLineStyleListener(LineStyleListener listener) {
+        brailleText.removeLineStyleListener(listener);
+        asciiText.removeLineStyleListener(listener);
+    }
+
+    void addCaretListener(CaretListener listener) {
+        brailleText.addCaretListener(listener);
+        asciiText.addCaretListener(listener);
+    }
+
+    /**
+     * <p>
+     * Adds a listener that is run whenever a setting that is kept between
+     * executions is changed, such as the lines per page, bells, fonts and
+     * which views are visible.
+     * </p>
+     *
+     * @param listener the listener, run on the UI thread
+     */
+    void addSettingsListener(@NonNull Runnable listener) {
+        settingsListeners.add(listener);
+    }
+
+    private void settingsChanged() {
+        for (Runnable listener : settingsListeners)
+            listener.run();
+    }
+
+    /**
+     * <p>
+     * Moves the caret of both views, keeping it within the text, and
+     * scrolls it into view.
+     * </p>
+     *
+     * @param caretOffset the new caret offset
+     */
+    void setCaretOffset(int caretOffset) {
+        caretOffset = Math.max(0, Math.min(caretOffset, content.getCharCount()));
+        brailleText.setCaretOffset(caretOffset);
+        asciiText.setCaretOffset(caretOffset);
+        scrollToCaret();
+    }
+
+    /**
+     * @return the caret offset in the whole document, even while only a page of it is shown
+     */
+    int getCaretOffset() {
+        int caretOffset = currentText.getCaretOffset();
+        return pageLoad == null ? caretOffset : caretOffset + pageLoad.startOffset;
+    }
+
+    /**
+     * @return the number of lines in the whole document, even while only a page of it is shown
+     */
+    int getLineCount() {
+        return pageLoad == null ? content.getLineCount() : pageLoad.lineCount;
+    }
+
+    /**
+     * @return whether only a page of a paged file is shown while the rest is read, or after it could not be read
+     */
+    boolean isLoading() {
+        return pageLoad != null;
+    }
+
+    /**
+     * @return the paged file being read, or null if there is none
+     * @see #isLoading()
+     */
+    @Nullable Path getLoadingPath() {
+        return pageLoad == null ? null : pageLoad.path;
+    }
+
+    /**
+     * @return the view with the focus, braille or ascii, as written in BrailleZephyr files
+     */
+    @NonNull String getViewFocus() {
+        return currentText == brailleText ? "braille" : "ascii";
+    }
+
+    /**
+     * <p>
+     * Gives the focus to a view, if it is visible.
+     * </p>
+     *
+     * @param viewFocus the view, braille or ascii
+     */
+    void setViewFocus(@NonNull String viewFocus) {
+        if (viewFocus.equals("braille")) {
+            if (brailleText.isVisible())
+                brailleText.setFocus();
+        } else if (viewFocus.equals("ascii")) {
+            if (asciiText.isVisible())
+                asciiText.setFocus();
+        } else
+            log.error(SOURCE, "Invalid ViewFocus value:  " + viewFocus);
+    }
+
+    /**
+     * <p>
+     * Selects text in the current view and scrolls it into view.
+     * </p>
+     *
+     * @param start  the offset of the first selected character
+     * @param length the number of characters to select
+     */
+    void setSelectionRange(int start, int length) {
+        currentText.setSelectionRange(start, length);
+        scrollToCaret();
+    }
+
+    /**
+     * <p>
+     * Replaces text through the current view, so the change can be undone.
+     * </p>
+     *
+     * @param start  the offset of the first character to replace
+     * @param length the number of characters to replace
+     * @param text   the replacement text
+     */
+    void replaceTextRange(int start, int length, String text) {
+        if (!currentText.getEditable())
+            return;
+        currentText.replaceTextRange(start, length, text);
+    }
+
     /**
      * <p>
      * Returns the current number of lines per page.
@@ -242,7 +551,7 @@ public class BZStyledText {
      * @see #setLinesPerPage(int)
      */
     public int getLinesPerPage() {
-        return linesPerPage;
+        return document.getLinesPerPage();
     }
 
     /**
@@ -256,26 +565,42 @@ public class BZStyledText {
      * @see #getLinesPerPage()
      */
     public void setLinesPerPage(int linesPerPage) {
-        int bellDiff = this.linesPerPage - pageMarginBell;
-        this.linesPerPage = linesPerPage;
+        int bellDiff = document.getLinesPerPage() - pageMarginBell;
+        document.setLinesPerPage(linesPerPage);
         pageMarginBell = linesPerPage - bellDiff;
         if (pageMarginBell < 0)
             pageMarginBell = 0;
+        settingsChanged();
     }
 
     /**
      * <p>
-     * Returns the current log messages.
+     * Returns the log, which holds the most recent messages.
      * </p>
      *
-     * @return the current log messages
+     * @return the log
      */
-    public String getLogString() {
-        return logString.toString();
+    BZLog getLog() {
+        return log;
     }
 
-    PrintWriter getLogWriter() {
-        return logWriter;
+    KeystrokeLatency getKeystrokeLatency() {
+        return keystrokeLatency;
+    }
+
+    /**
+     * <p>
+     * Types keys into the braille view as if from the keyboard.
+     * </p>
+     *
+     * @param keys     the keys, as saved from {@link KeystrokeLatency#getKeys()}
+     * @param interval milliseconds between characters
+     * @param done     run when all keys have been typed
+     * @see KeyReplay
+     */
+    void replayKeys(@NonNull String keys, int interval, @NonNull Runnable done) {
+        currentText = brailleText;
+        new KeyReplay(brailleText, keys, interval, done).start();
     }
 
     /**
@@ -287,7 +612,7 @@ public class BZStyledText {
      * @see #setCharsPerLine(int)
      */
     public int getCharsPerLine() {
-        return charsPerLine;
+        return document.getCharsPerLine();
     }
 
     /**
@@ -303,11 +628,12 @@ public class BZStyledText {
      * @see #getCharsPerLine()
      */
     public void setCharsPerLine(int charsPerLine) {
-        int bellDiff = this.charsPerLine - lineMarginBell;
-        this.charsPerLine = charsPerLine;
+        int bellDiff = document.getCharsPerLine() - lineMarginBell;
+        document.setCharsPerLine(charsPerLine);
         lineMarginBell = charsPerLine - bellDiff;
         if (lineMarginBell < 0)
             lineMarginBell = 0;
+        settingsChanged();
     }
 
     /**
@@ -339,6 +665,7 @@ public class BZStyledText {
         if (lineMarginClip == null)
             return;
         this.lineMarginBell = lineMarginBell;
+        settingsChanged();
     }
 
     /**
@@ -374,6 +701,7 @@ public class BZStyledText {
         if (clip != null) {
             clip.close();
         }
+        settingsChanged();
     }
 
     /**
@@ -405,6 +733,7 @@ public class BZStyledText {
         if (pageMarginClip == null)
             return;
         this.pageMarginBell = pageMarginBell;
+        settingsChanged();
     }
 
     /**
@@ -439,6 +768,7 @@ public class BZStyledText {
         if (clip != null) {
             clip.close();
         }
+        settingsChanged();
     }
 
     /**
@@ -462,6 +792,7 @@ public class BZStyledText {
         if (clip != null) {
             clip.close();
         }
+        settingsChanged();
     }
 
     /**
@@ -501,6 +832,7 @@ public class BZStyledText {
         brailleText.setVisible(visible);
         ((GridLayout) composite.getLayout()).makeColumnsEqualWidth = visible && asciiText.getVisible();
         composite.layout();
+        settingsChanged();
     }
 
     /**
@@ -528,6 +860,7 @@ public class BZStyledText {
         asciiText.setVisible(visible);
         ((GridLayout) composite.getLayout()).makeColumnsEqualWidth = visible && brailleText.getVisible();
         composite.layout();
+        settingsChanged();
     }
 
     /**
@@ -552,6 +885,7 @@ public class BZStyledText {
      */
     public void setBrailleFont(Font font) {
         brailleText.setFont(font);
+        settingsChanged();
     }
 
     /**
@@ -576,6 +910,7 @@ public class BZStyledText {
      */
     public void setAsciiFont(Font font) {
         asciiText.setFont(font);
+        settingsChanged();
     }
 
     //TODO:  getText()
@@ -588,11 +923,18 @@ public class BZStyledText {
      * @param text the string to set the text
      */
     public void setText(String text) {
+        cancelLoading();
         content.setText(text);
+        setEditable(true);
         changes.clear();
         changeIndex = saveIndex = 0;
     }
 
+    private void setEditable(boolean editable) {
+        brailleText.setEditable(editable);
+        asciiText.setEditable(editable);
+    }
+
     /**
      * <p>
      * Redraw both braille and ascii texts.
@@ -663,6 +1005,9 @@ public class BZStyledText {
      * @see #redo()
      */
     public boolean getModified() {
+        VolumeSet volumeSet = getVolumeSet();
+        if (volumeSet != null && volumeSet.isModified())
+            return true;
         return saveIndex != changeIndex;
     }
 
@@ -670,7 +1015,8 @@ public class BZStyledText {
      * <p>
      * Undoes the last change.
      * </p><p>
-     * Currently only simply changes are recorded.
+     * Currently only simply changes are recorded.  The changes of a
+     * reload are undone together.
      * </p>
      *
      * @see #redo()
@@ -679,11 +1025,13 @@ public class BZStyledText {
     public void undo() {
         if (changeIndex < 1)
             return;
-        undoing = true;
-        changeIndex--;
-        ExtendedModifyEvent change = changes.remove(changeIndex);
-        currentText.replaceTextRange(change.start, change.length, change.replacedText);
-        currentText.setCaretOffset(change.start + change.replacedText.length());
+        Change change;
+        do {
+            changeIndex--;
+            change = changes.remove(changeIndex);
+            undoing = true;
+            apply(change);
+        } while (change.joined() && changeIndex > 0);
         scrollToCaret();
     }
 
@@ -698,17 +1046,41 @@ public class BZStyledText {
     public void redo() {
         if (changeIndex == changes.size())
             return;
-        redoing = true;
-        ExtendedModifyEvent change = changes.remove(changeIndex);
-        currentText.replaceTextRange(change.start, change.length, change.replacedText);
-        currentText.setCaretOffset(change.start + change.replacedText.length());
+        do {
+            Change change = changes.remove(changeIndex);
+            redoing = true;
+            apply(change);
+        } while (changeIndex < changes.size() && changes.get(changeIndex).joined());
         scrollToCaret();
     }
 
+    /**
+     * <p>
+     * Reverses <code>change</code>, which records the reverse as the
+     * change to undo or redo it, joined as <code>change</code> is.
+     * </p>
+     */
+    private void apply(@NonNull Change change) {
+        joining = change.joined();
+        currentText.replaceTextRange(change.start(), change.length(), change.replacedText());
+        joining = false;
+        currentText.setCaretOffset(change.start() + change.replacedText().length());
+    }
+
+    private void commitCodecEvent(BZEvents.CodecEvent event, String operation) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.characters = content.getCharCount();
+            event.lines = content.getLineCount();
+            event.commit();
+        }
+    }
+
     private boolean isFirstLineOnPage(int index) {
-        if (linesPerPage == 0)
-            return false;
-        return index % linesPerPage == 0;
+        BZDocumentContent.Source source = content.getSource();
+        if (source != null)
+            return source.isFirstLineOnPage(index, document.getLinesPerPage());
+        return document.isFirstLineOnPage(index);
     }
 
     /**
@@ -722,60 +1094,85 @@ public class BZStyledText {
      * @see #writeBRF(Writer)
      */
     public void readBRF(Reader reader) throws IOException {
-        StringBuilder stringBuilder = new StringBuilder(65536);
-        boolean checkLinesPerPage = true;
-        boolean removeFormFeed = true;
-        char[] buffer = new char[65536];
-        int cnt, trim;
-
-        eol = null;
-        while ((cnt = reader.read(buffer)) > 0) {
-            //   see if lines per page can be determined
-            if (checkLinesPerPage) {
-                checkLinesPerPage = false;
-                int lines = 0, i;
-                outer:
-                for (i = 0; i < cnt; i++)
-                    switch (buffer[i]) {
-                        case '\n':
-                            lines++;
-                            break;
-
-                        case '\r':
-
-                            if (eol == null)
-                                eol = "\r\n";
-                            break;
-
-                        case 0xc:
-
-                            linesPerPage = lines;
-                            break outer;
-                    }
-
-                if (eol == null)
-                    eol = "\n";
-                if (i == cnt)
-                    removeFormFeed = false;
-            }
-
-            //   remove form feeds
-            if (removeFormFeed) {
-                trim = 0;
-                for (int i = 0; i < cnt; i++) {
-                    if (buffer[i] != 0xc) {
-                        buffer[trim] = buffer[i];
-                        trim++;
-                    }
-                }
-            } else
-                trim = cnt;
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        cancelLoading();
+        BZFormat.readBRF(reader, document);
+        setEditable(true);
+        clearChanges();
+        commitCodecEvent(event, "readBRF");
+    }
 
-            stringBuilder.append(buffer, 0, trim);
-        }
+    /**
+     * <p>
+     * Shows a BRF file read only, without loading it into the document.
+     * </p><p>
+     * The file is mapped and indexed in the background by a
+     * {@link MappedBRF}, so the first lines are shown straight away however
+     * large it is.  Undo, rewrapping and paragraph ends are not available.
+     * Reading or setting text returns to editing.
+     * </p>
+     *
+     * @param path  the BRF file to show
+     * @param cache where the index is snapshot, or null for none
+     * @see #getViewer()
+     */
+    void viewBRF(@NonNull Path path, @Nullable LineIndexCache cache) throws IOException {
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        cancelLoading();
+        MappedBRF viewer = new MappedBRF(path, parentShell.getDisplay()::asyncExec, cache);
+
+        //   release the text being edited
+        document.setText("");
+        if (viewer.getLinesPerPage() != -1)
+            document.setLinesPerPage(viewer.getLinesPerPage());
+        content.setSource(viewer);
+        setEditable(false);
+        clearChanges();
+        viewer.start();
+        commitCodecEvent(event, "viewBRF");
+    }
 
-        content.setText(stringBuilder.toString());
+    /**
+     * <p>
+     * Opens a {@link VolumeSet} to edit as one document.
+     * </p>
+     *
+     * @param path a directory of volumes or a manifest
+     * @see #saveVolumes()
+     */
+    void openVolumeSet(@NonNull Path path) throws IOException, BZException {
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        cancelLoading();
+        VolumeSet volumeSet = new VolumeSet(path);
+
+        //   release the text being edited
+        document.setText("");
+        content.setSource(volumeSet);
+        setEditable(true);
         clearChanges();
+        commitCodecEvent(event, "openVolumeSet");
+    }
+
+    /**
+     * <p>
+     * Writes the volumes of the volume set that have changed.
+     * </p>
+     *
+     * @return the number of volumes written
+     */
+    int saveVolumes() throws IOException {
+        VolumeSet volumeSet = getVolumeSet();
+        if (volumeSet == null)
+            return 0;
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        int saved = volumeSet.save();
+        resetChanges();
+        commitCodecEvent(event, "saveVolumes");
+        return saved;
     }
 
     /**
@@ -787,27 +1184,12 @@ public class BZStyledText {
      * @see #readBRF(Reader)
      */
     public void writeBRF(Writer writer) throws IOException {
-        //   write first line
-        String line = content.getLine(0);
-        if (!line.isEmpty() && line.charAt(line.length() - 1) == PARAGRAPH_END)
-            writer.write(line.substring(0, line.length() - 1));
-        else
-            writer.write(line);
-
-        //   write remaining lines
-        for (int i = 1; i < content.getLineCount(); i++) {
-            writer.write(eol);
-            if (isFirstLineOnPage(i))
-                writer.write(0xc);
-            line = content.getLine(i);
-            if (!line.isEmpty() && line.charAt(line.length() - 1) == PARAGRAPH_END)
-                writer.write(line.substring(0, line.length() - 1));
-            else
-                writer.write(line);
-        }
-
-        writer.flush();
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        requireLoaded();
+        BZFormat.writeBRF(writer, document);
         resetChanges();
+        commitCodecEvent(event, "writeBRF");
     }
 
     /**
@@ -819,139 +1201,299 @@ public class BZStyledText {
      * @see #writeBZY(Writer)
      */
     public void readBZY(Reader reader) throws IOException, BZException {
-        String line;
-        boolean returnAtEnd = false;
-        int caretOffset = 0;
-        int unknown = 0;
-
-        content.setText("");
-        eol = System.lineSeparator();
-        BufferedReader buffer = new BufferedReader(reader);
-
-        //   read configuration lines
-        header:
-        while ((line = buffer.readLine()) != null) {
-            String[] tokens = line.split(" ");
-            switch (tokens[0]) {
-
-                //   don't do anything for now
-                case "Version":
-                    break;
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        cancelLoading();
 
-                case "CharsPerLine":
-                    charsPerLine = Integer.parseInt(tokens[1]);
-                    break;
-                case "LinesPerPage":
-                    linesPerPage = Integer.parseInt(tokens[1]);
-                    break;
+        BZFormat.BZYHeader header = BZFormat.readBZY(reader, document);
+        setEditable(true);
 
-                case "CaretOffset":
-                    caretOffset = Integer.parseInt(tokens[1]);
-                    break;
-                case "ViewFocus":
-
-                    if (tokens[1].equals("braille")) {
-                        if (brailleText.isVisible())
-                            brailleText.setFocus();
-                    } else if (tokens[1].equals("ascii")) {
-                        if (asciiText.isVisible())
-                            asciiText.setFocus();
-                    } else
-                        logWriter.println("ERROR:  Invalid ViewFocus value:  " + line);
-                    break;
+        for (String line : header.unknown())
+            log.warning(SOURCE, "Unknown file format parameter:  " + line);
+        if (header.viewFocus() != null)
+            setViewFocus(header.viewFocus());
 
-                case "ReturnAtEnd":
-                    returnAtEnd = Boolean.parseBoolean(tokens[1]);
-                    break;
+        clearChanges();
+        brailleText.setCaretOffset(header.caretOffset());
+        asciiText.setCaretOffset(header.caretOffset());
+        commitCodecEvent(event, "readBZY");
+    }
 
-                case "HeaderEnd":
-                    break header;
+    /**
+     * <p>
+     * Writes data in BrailleZephyr file format to <code>Writer</code>.
+     * </p>
+     *
+     * @param writer the writer stream to write the data.
+     * @see #readBZY(Reader)
+     */
+    public void writeBZY(Writer writer) throws IOException {
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        BZFormat.writeBZY(writer, document, newBZYHeader());
+        resetChanges();
+        commitCodecEvent(event, "writeBZY");
+    }
 
-                default:
+    private BZFormat.@NonNull BZYHeader newBZYHeader() throws IOException {
+        requireLoaded();
+        return new BZFormat.BZYHeader(versionMajor + " " + versionMinor + ' ' + versionPatch,
+                                      currentText.getCaretOffset(),
+                                      getViewFocus(),
+                                      false,
+                                      List.of());
+    }
 
-                    logWriter.println("WARNING:  Unknown file format parameter:  " + line);
-                    unknown++;
-                    if (unknown > 6)
-                        throw new BZException("Invalid file format");
-                    break;
-            }
-        }
-        if (line == null)
-            throw new BZException("Invalid file format");
+    /**
+     * <p>
+     * The rest of a paged BrailleZephyr file being read in the background,
+     * while the page with the caret is shown read only.
+     * </p>
+     *
+     * @param path        the path of the file being read
+     * @param file        the file being read
+     * @param text        the whole text and its line starts, once read
+     * @param startOffset the offset in the whole text of the page shown
+     * @param firstLine   the index in the whole text of the first line shown
+     * @param lineCount   the number of lines in the whole text
+     */
+    private record PageLoad(@NonNull Path path,
+                            @NonNull PagedBZY file,
+                            @NonNull CompletableFuture<LoadedText> text,
+                            int startOffset,
+                            int firstLine,
+                            int lineCount) {
+    }
 
-        //   read first line, may be null for empty document
-        if ((line = buffer.readLine()) != null) {
-            if (!line.isEmpty() && line.charAt(line.length() - 1) == 0xb6)
-                content.replaceTextRange(0, 0, line.substring(0, line.length() - 1) + PARAGRAPH_END);
-            else
-                content.replaceTextRange(0, 0, line);
-
-            //   read next lines
-            while ((line = buffer.readLine()) != null) {
-                content.replaceTextRange(content.getCharCount(), 0, eol);
-                if (!line.isEmpty() && line.charAt(line.length() - 1) == 0xb6)
-                    content.replaceTextRange(content.getCharCount(), 0, line.substring(0, line.length() - 1) + PARAGRAPH_END);
-                else
-                    content.replaceTextRange(content.getCharCount(), 0, line);
-            }
-        }
+    private record LoadedText(@NonNull TextStorage storage, int @NonNull [] lineStarts) {
+    }
 
-        if (returnAtEnd)
-            content.replaceTextRange(content.getCharCount(), 0, eol);
+    /**
+     * <p>
+     * A change to undo or redo, replacing <code>length</code> characters
+     * at <code>start</code> with <code>replacedText</code>.  A joined
+     * change is undone and redone along with the change before it.
+     * </p>
+     */
+    private record Change(int start, int length, @NonNull String replacedText, boolean joined) {
+    }
+
+    /**
+     * <p>
+     * Reads a BrailleZephyr file in the paged format of {@link PagedBZY}.
+     * </p><p>
+     * A large file is shown read only from the page with its caret straight
+     * away, while the whole file is read on a background thread, after which
+     * it replaces the page and can be edited.  Switching to another document
+     * leaves it being read, and it replaces the page once it is shown again.
+     * Until then it cannot be rewrapped or reloaded, and reading or setting
+     * other text abandons it.
+     * </p>
+     *
+     * @param path the file to read
+     * @see #writePagedBZY(OutputStream)
+     */
+    void readPagedBZY(@NonNull Path path) throws IOException, BZException {
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        cancelLoading();
+
+        PagedBZY file = PagedBZY.open(path);
+        boolean background = file.getPageCount() > 1 && Files.size(path) >= PagedBZY.BACKGROUND_THRESHOLD;
+        BZFormat.BZYHeader header = file.getHeader();
+        String eol = System.lineSeparator();
+        int startOffset = 0, firstLine = 0;
+        try {
+            if (background) {
+                //   show the page with the caret, which is small enough for the heap
+                int page = file.getPageAtOffset(header.caretOffset(), eol.length());
+                startOffset = file.getPageOffset(page, eol.length());
+                firstLine = file.getFirstLine(page);
+                TextStorage.Builder builder = new GapStorage.Builder();
+                file.readPages(page, page + 1, builder, eol);
+                document.setText(builder.build());
+                document.setEol(eol);
+                if (file.getCharsPerLine() != -1)
+                    document.setCharsPerLine(file.getCharsPerLine());
+                if (file.getLinesPerPage() != -1)
+                    document.setLinesPerPage(file.getLinesPerPage());
+            } else
+                file.readAll(document);
+        } catch (IOException | RuntimeException exception) {
+            close(file);
+            throw exception;
+        }
+        setEditable(!background);
 
+        if (header.viewFocus() != null)
+            setViewFocus(header.viewFocus());
         clearChanges();
+        int caretOffset = Math.max(0, Math.min(header.caretOffset() - startOffset, content.getCharCount()));
         brailleText.setCaretOffset(caretOffset);
         asciiText.setCaretOffset(caretOffset);
+
+        if (background) {
+            PageLoad load = new PageLoad(path, file, new CompletableFuture<>(), startOffset, firstLine, file.getLineCount());
+            TextStorage.Builder builder = document.newBuilder();
+            Display display = parentShell.getDisplay();
+            Thread thread = new Thread(() -> readPages(load, builder, eol, display), "BrailleZephyr BZY reader");
+            thread.setDaemon(true);
+            pageLoad = load;
+            thread.start();
+        } else
+            close(file);
+        commitCodecEvent(event, "readPagedBZY");
     }
 
     /**
      * <p>
-     * Writes data in BrailleZephyr file format to <code>Writer</code>.
+     * Reads the whole of a paged file on the background thread, then has
+     * the UI thread show it, if it is still the document shown.
      * </p>
-     *
-     * @param writer the writer stream to write the data.
-     * @see #readBZY(Reader)
      */
-    public void writeBZY(Writer writer) throws IOException {
-        //   write configuration lines
-        writer.write("Version " + versionMajor + ' ' + versionMinor + ' ' + versionPatch + eol);
-
-        writer.write("CharsPerLine " + charsPerLine + eol);
-        writer.write("LinesPerPage " + linesPerPage + eol);
+    private void readPages(@NonNull PageLoad load, TextStorage.@NonNull Builder builder, @NonNull String eol, @NonNull Display display) {
+        try {
+            int[] lineStarts = load.file.readPages(0, load.file.getPageCount(), builder, eol);
+            load.text.complete(new LoadedText(builder.build(), lineStarts));
+        } catch (IOException | RuntimeException exception) {
+            load.text.completeExceptionally(exception);
+        }
+        if (!display.isDisposed())
+            display.asyncExec(() -> {
+                if (load.text.isCompletedExceptionally())
+                    log.error(SOURCE, "Unable to read file:  " + load.path + ":  " + load.text.exceptionNow().getMessage());
+                else if (pageLoad == load)
+                    finishLoading();
+            });
+    }
 
-        writer.write("CaretOffset " + currentText.getCaretOffset() + eol);
-        writer.write("ViewFocus ");
-        if (currentText == brailleText)
-            writer.write("braille" + eol);
-        else
-            writer.write("ascii" + eol);
+    /**
+     * <p>
+     * Waits for a paged file being read in the background, then replaces
+     * the page shown with the whole document, keeping the caret and the
+     * lines shown where they were.
+     * </p><p>
+     * This blocks the UI thread until the file has been read, so it is
+     * only called once the file has been read, or where the whole text is
+     * needed and the callers have not already checked
+     * {@link #isLoading()}.
+     * </p><p>
+     * If the rest of the file could not be read, the page stays shown read
+     * only, as if it were still being read, so that it is never saved in
+     * place of the whole file.
+     * </p>
+     */
+    private void finishLoading() {
+        PageLoad load = pageLoad;
+        if (load == null)
+            return;
+        LoadedText loaded;
+        try {
+            loaded = load.text.join();
+        } catch (CompletionException exception) {
+            close(load.file);
+            return;
+        }
+        pageLoad = null;
+        int caretOffset = currentText.getCaretOffset() + load.startOffset;
+        int topIndex = currentText.getTopIndex() + load.firstLine;
+        try {
+            document.setLineStartsHint(loaded.lineStarts);
+            document.setText(loaded.storage);
+            setEditable(true);
+            clearChanges();
+            brailleText.setCaretOffset(caretOffset);
+            asciiText.setCaretOffset(caretOffset);
+            currentText.setTopIndex(topIndex);
+        } finally {
+            close(load.file);
+        }
+    }
 
-        if (content.getCharCount() > 0)
-            writer.write("ReturnAtEnd " + (content.getLine(content.getLineCount() - 1).isEmpty()) + eol);
-        else
-            writer.write("ReturnAtEnd false" + eol);
+    /**
+     * <p>
+     * Waits for a paged file being read in the background, for writing the
+     * whole document.
+     * </p>
+     *
+     * @throws IOException if the rest of the file could not be read
+     */
+    private void requireLoaded() throws IOException {
+        finishLoading();
+        PageLoad load = pageLoad;
+        if (load != null)
+            throw new IOException(load.path + ":  the file could not be read completely, only a page of it is shown");
+    }
 
-        writer.write("HeaderEnd" + eol);
+    /**
+     * <p>
+     * Abandons a paged file being read in the background, which stops
+     * when its file is closed.
+     * </p>
+     */
+    private void cancelLoading() {
+        PageLoad load = pageLoad;
+        if (load == null)
+            return;
+        pageLoad = null;
+        close(load.file);
+    }
 
-        //   write first line
-        String line = content.getLine(0);
-        if (!line.isEmpty() && line.charAt(line.length() - 1) == PARAGRAPH_END)
-            writer.write(line.substring(0, line.length() - 1) + (char) 0xb6);
-        else
-            writer.write(line);
-
-        //   write text
-        for (int i = 1; i < content.getLineCount(); i++) {
-            writer.write(eol);
-            line = content.getLine(i);
-            if (!line.isEmpty() && line.charAt(line.length() - 1) == PARAGRAPH_END)
-                writer.write(line.substring(0, line.length() - 1) + (char) 0xb6);
-            else
-                writer.write(line);
+    private void close(@NonNull PagedBZY file) {
+        try {
+            file.close();
+        } catch (IOException exception) {
+            log.warning(SOURCE, "Unable to close file:  " + exception.getMessage());
         }
+    }
 
-        writer.flush();
+    /**
+     * <p>
+     * Writes data in the paged BrailleZephyr file format of
+     * {@link PagedBZY} to <code>OutputStream</code>.
+     * </p>
+     *
+     * @param output the stream to write the data.
+     * @see #readPagedBZY(Path)
+     */
+    void writePagedBZY(@NonNull OutputStream output) throws IOException {
+        BZEvents.CodecEvent event = new BZEvents.CodecEvent();
+        event.begin();
+        PagedBZY.write(output, document, newBZYHeader(), PagedBZY.COMPRESS);
+        resetChanges();
+        commitCodecEvent(event, "writePagedBZY");
+    }
+
+    /**
+     * <p>
+     * Makes the document the same as <code>updated</code>, such as when its
+     * file has been changed by another program, replacing only the lines
+     * that differ.
+     * </p><p>
+     * The lines are replaced through the current view, so the caret stays
+     * with the text around it and the reload can be undone, all in one
+     * step as the changes after the first are joined to it.  Afterwards the
+     * document is not modified, as it is the same as the file.  It must
+     * not be called while the document is still being read, when the file
+     * is read again instead.
+     * </p>
+     *
+     * @param updated       the new text of the document
+     * @param updatedHashes the line hashes of <code>updated</code>
+     * @return the differences, as from {@link LineDiff#diff(long[], long[])}
+     * @see BZFormat#replaceChangedLines(BZDocument, BZDocument, long[], BZFormat.Replacer)
+     */
+    int @NonNull [] reload(@NonNull BZDocument updated, long @NonNull [] updatedHashes) {
+        if (pageLoad != null)
+            throw new IllegalStateException("Document is still being read");
+        int first = changeIndex;
+        int[] hunks = BZFormat.replaceChangedLines(document, updated, updatedHashes, (start, length, text) -> {
+            joining = changeIndex > first;
+            currentText.replaceTextRange(start, length, text);
+            joining = false;
+        });
         resetChanges();
+        return hunks;
     }
 
     /**
@@ -962,63 +1504,40 @@ public class BZStyledText {
      * Lines are wrapped at spaces between words when possible.  Lines that
      * don't exceed the number of characters per line are not changed.
      * </p><p>
-     * Currently this cannot be undone.
+     * Currently this cannot be undone, and a read only view or a file still
+     * being read cannot be rewrapped.  In a volume set, only the volume with
+     * the caret is rewrapped.
      * </p>
      */
     public void rewrapFromCaret() {
-        StringBuilder stringBuilder = new StringBuilder(charsPerLine * 3);
-
-        for (int i = content.getLineAtOffset(currentText.getCaretOffset()); i < content.getLineCount(); i++) {
-            final String line = content.getLine(i);
-            if (!line.isEmpty()) {
-                if (line.length() > charsPerLine) {
-                    //   line too long
-                    int wordWrap, wordEnd;
-
-                    //   find beginning of word being wrapped
-                    if (line.charAt(charsPerLine) != ' ') {
-                        for (wordWrap = charsPerLine; wordWrap > charsPerLine / 2; wordWrap--)
-                            if (line.charAt(wordWrap) == ' ')
-                                break;
-                        if (wordWrap == charsPerLine / 2)
-                            continue;
-                        wordWrap++;
-                    } else {
-                        for (wordWrap = charsPerLine; wordWrap < line.length(); wordWrap++)
-                            if (line.charAt(wordWrap) != ' ')
-                                break;
-                        if (wordWrap == line.length())
-                            continue;
-                    }
-
-                    //   find end of word before word being wrapped
-                    for (wordEnd = wordWrap - 1; wordEnd > charsPerLine / 4; wordEnd--)
-                        if (line.charAt(wordEnd) != ' ')
-                            break;
-                    if (wordEnd == charsPerLine / 4)
-                        continue;
-                    wordEnd++;
-
-                    //   build replacement text
-                    int length = line.length();
-                    stringBuilder.setLength(0);
-                    stringBuilder.append(line, 0, wordEnd).append(eol).append(line, wordWrap, length);
-                    if (line.charAt(length - 1) != PARAGRAPH_END) {
-                        if (i < content.getLineCount() - 1) {
-                            String next = content.getLine(i + 1);
-                            stringBuilder.append(' ').append(next);
-                            length += eol.length() + next.length();
-                        }
-                    }
-
-                    content.replaceTextRange(content.getOffsetAtLine(i), length, stringBuilder.toString());
-                } else if (line.charAt(line.length() - 1) == PARAGRAPH_END) {
-                    break;
-                }
-            }
+        if (getViewer() != null) {
+            log.warning(SOURCE, "Unable to rewrap a read only view");
+            return;
         }
+        if (pageLoad != null) {
+            log.warning(SOURCE, "Unable to rewrap until the file has been read");
+            return;
+        }
+        BZEvents.RewrapEvent event = new BZEvents.RewrapEvent();
+        event.begin();
+        int firstLine = content.getLineAtOffset(currentText.getCaretOffset());
+        int linesBefore = content.getLineCount();
+
+        VolumeSet volumeSet = getVolumeSet();
+        if (volumeSet != null)
+            volumeSet.rewrap(firstLine, document.getCharsPerLine());
+        else
+            BZFormat.rewrap(document, firstLine);
 
         clearChanges();
+
+        if (event.shouldCommit()) {
+            event.firstLine = firstLine;
+            event.linesBefore = linesBefore;
+            event.linesAfter = content.getLineCount();
+            event.charsPerLine = document.getCharsPerLine();
+            event.commit();
+        }
     }
 
     private final class CaretHandler implements CaretListener {
@@ -1048,8 +1567,8 @@ public class BZStyledText {
             }
 
             //   play line end bell
-            if (lineEndClip != null && charsPerLine > 0 && caretOffset == prevCaretOffset + 1) {
-                if (caretOffset - lineOffset == charsPerLine)
+            if (lineEndClip != null && getCharsPerLine() > 0 && caretOffset == prevCaretOffset + 1) {
+                if (caretOffset - lineOffset == getCharsPerLine())
                     if (!lineEndClip.isActive()) {
                         lineEndClip.setFramePosition(0);
                         lineEndClip.start();
@@ -1094,17 +1613,20 @@ public class BZStyledText {
         private int tries;
 
         private synchronized void adjustOther(StyledText source, StyledText other) {
+            BZEvents.AdjustOtherEvent event = new BZEvents.AdjustOtherEvent();
+            event.begin();
+
             if (source == null)
                 source = this.source;
             if (other == null)
                 other = this.other;
 
             if (source == null) {
-                logWriter.println("WARNING:  attempting to adjust source but no source StyledText");
+                log.warning(SOURCE, "attempting to adjust source but no source StyledText");
                 return;
             }
             if (other == null) {
-                logWriter.println("WARNING:  attempting to adjust other but no other StyledText");
+                log.warning(SOURCE, "attempting to adjust other but no other StyledText");
                 return;
             }
 
@@ -1146,11 +1668,17 @@ public class BZStyledText {
 
             other.setTopPixel(otherTopPixel);
             redraw();
+
+            if (event.shouldCommit()) {
+                event.line = lineIndex;
+                event.lines = otherLineCount;
+                event.commit();
+            }
         }
 
         private synchronized void waitPainted(StyledText source, StyledText other) {
             if (this.source != null) {
-                logWriter.println("WARNING:  attempting to wait to adjust other but already waiting");
+                log.warning(SOURCE, "attempting to wait to adjust other but already waiting");
                 return;
             }
 
@@ -1169,9 +1697,11 @@ public class BZStyledText {
         @Override
         public synchronized void run() {
             if (!paintEvent) {
-                logWriter.println("adjusting other try #" + ++tries);
+                tries++;
+                if (log.isEnabled(BZLog.Level.DEBUG))
+                    log.debug(SOURCE, "adjusting other try #" + tries);
                 if (tries > 2) {
-                    logWriter.println("ERROR:  adjusting other failed");
+                    log.error(SOURCE, "adjusting other failed");
                     return;
                 }
                 parentShell.getDisplay().asyncExec(this);
@@ -1194,6 +1724,9 @@ public class BZStyledText {
 
         @Override
         public void paintControl(PaintEvent event) {
+            BZEvents.PaintEvent paintEvent = new BZEvents.PaintEvent();
+            paintEvent.begin();
+
 			/*   Using event.gc.getFontMetrics().getAverageCharWidth()) was not
 			     enough on low resolutions, as the rounding to an int seemed
 			     enough to screw up the right margin, even when using a
@@ -1217,7 +1750,8 @@ public class BZStyledText {
             //   draw right margin
             event.gc.drawLine(rightMargin, 0, rightMargin, drawHeight);
 
-            for (int i = source.getTopIndex(); i < source.getLineCount(); i++) {
+            int i;
+            for (i = source.getTopIndex(); i < source.getLineCount(); i++) {
                 //   draw page lines
                 int at = source.getLinePixel(i);
                 if (isFirstLineOnPage(i))
@@ -1237,11 +1771,20 @@ public class BZStyledText {
             }
 
             adjustOtherThread.notifyPainted(source);
+            if (source == brailleText)
+                keystrokeLatency.painted();
+
+            if (paintEvent.shouldCommit()) {
+                paintEvent.view = source == brailleText ? "braille" : "ascii";
+                paintEvent.topLine = source.getTopIndex();
+                paintEvent.linesPainted = Math.min(i + 1, source.getLineCount()) - paintEvent.topLine;
+                paintEvent.lines = source.getLineCount();
+                paintEvent.commit();
+            }
         }
     }
 
     private final class BrailleKeyHandler implements KeyListener, VerifyKeyListener {
-        private static final String ASCII_BRAILLE = " A1B'K2L@CIF/MSP\"E3H9O6R^DJG>NTQ,*5<-U8V.%[$+X!&;:4\\0Z7(_?W]#Y)=";
         private final boolean brailleEntry;
 
         private char dotState, dotChar = 0x2800;
@@ -1294,6 +1837,7 @@ public class BZStyledText {
 
         @Override
         public void keyReleased(KeyEvent event) {
+            long released = System.nanoTime();
             if (windowBug)
                 dotState = 0;
             else switch (event.character) {
@@ -1328,11 +1872,24 @@ public class BZStyledText {
                     break;
             }
 
+            //   a read only view drops the chord
+            if (dotState == 0 && !brailleText.getEditable())
+                dotChar = 0x2800;
+
             //   insert resulting braille character
             if (dotState == 0 && (dotChar & 0xff) != 0) {
-                dotChar = ASCII_BRAILLE.charAt(dotChar & 0xff);
+                BZEvents.BrailleKeyEvent keyEvent = new BZEvents.BrailleKeyEvent();
+                keyEvent.begin();
+                dotChar = UnicodeBraille.toAscii(dotChar);
                 brailleText.insert(Character.toString(dotChar));
                 brailleText.setCaretOffset(brailleText.getCaretOffset() + 1);
+                keystrokeLatency.committed(released, dotChar);
+                if (keyEvent.shouldCommit()) {
+                    keyEvent.character = dotChar;
+                    keyEvent.offset = brailleText.getCaretOffset();
+                    keyEvent.characters = content.getCharCount();
+                    keyEvent.commit();
+                }
                 dotChar = 0x2800;
             }
         }
@@ -1345,6 +1902,8 @@ public class BZStyledText {
                 if ((event.stateMask & SWT.SHIFT) != 0) {
                     //   toggle paragraph end character
                     event.doit = false;
+                    if (!styledText.getEditable())
+                        return;
                     int index = styledText.getLineAtOffset(styledText.getCaretOffset());
                     String line = styledText.getLine(index);
                     if (!line.isEmpty())
@@ -1356,7 +1915,7 @@ public class BZStyledText {
                 } else {
                     //   play page bell
                     int index = styledText.getLineAtOffset(styledText.getCaretOffset());
-                    if (index == prevLine + 1 && index % linesPerPage == pageMarginBell - 2)
+                    if (index == prevLine + 1 && index % document.getLinesPerPage() == pageMarginBell - 2)
                         if (!pageMarginClip.isActive()) {
                             pageMarginClip.setFramePosition(0);
                             pageMarginClip.start();
@@ -1366,9 +1925,18 @@ public class BZStyledText {
             }
 
             //   check if using braille entry
-            if (brailleEntry)
-                if (event.character > ' ' && event.character < 0x7f)
-                    event.doit = false;
+            if (!brailleEntry)
+                return;
+            if (event.character > ' ' && event.character < 0x7f) {
+                event.doit = false;
+                return;
+            }
+
+            //   remember keys that are not chords for replaying
+            if (event.character == ' ')
+                keystrokeLatency.typed(' ');
+            else if (event.keyCode == '\r' || event.keyCode == '\n')
+                keystrokeLatency.typed('\n');
         }
     }
 
@@ -1388,14 +1956,15 @@ public class BZStyledText {
             if (source != currentText)
                 return;
 
+            Change change = new Change(event.start, event.length, event.replacedText, joining);
             if (undoing)
-                changes.add(changeIndex, event);
+                changes.add(changeIndex, change);
             else if (redoing)
-                changes.add(changeIndex++, event);
+                changes.add(changeIndex++, change);
             else {
                 if (changeIndex < changes.size())
                     changes.subList(changeIndex, changes.size()).clear();
-                changes.add(changeIndex++, event);
+                changes.add(changeIndex++, change);
             }
             undoing = redoing = false;
 
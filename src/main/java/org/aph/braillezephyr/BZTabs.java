@@ -0,0 +1,275 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CTabFolder;
+import org.eclipse.swt.custom.CTabFolder2Adapter;
+import org.eclipse.swt.custom.CTabFolderEvent;
+import org.eclipse.swt.custom.CTabItem;
+import org.eclipse.swt.layout.GridData;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Tabs for editing several documents in one window.
+ * </p><p>
+ * Every tab is shown in the same {@link BZStyledText}, so the fonts, bells
+ * and settings are loaded once however many documents are open.  The tabs
+ * that are not shown keep only their {@link BZStyledText.DocumentState},
+ * and switching tab swaps it into the widgets.
+ * </p>
+ */
+final class BZTabs extends BZBase {
+    private final @NonNull BZFile bzFile;
+    private final CTabFolder folder;
+    private final List<Tab> tabs = new ArrayList<>();
+    private @NonNull Tab current;
+
+    private static final class Tab {
+        private final CTabItem item;
+
+        //   only set while the tab is not shown
+        private BZStyledText.@Nullable DocumentState state;
+        private @Nullable String fileName;
+
+        private Tab(CTabItem item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * <p>
+     * Creates a new <code>BZTabs</code> object, with one tab for the
+     * document already shown.
+     * </p>
+     *
+     * @param bzStyledText the bzStyledText object to operate on (cannot be null)
+     * @param bzFile       the bzFile object for file operations (cannot be null)
+     */
+    BZTabs(@NonNull BZStyledText bzStyledText, @NonNull BZFile bzFile) {
+        super(bzStyledText);
+        this.bzFile = bzFile;
+
+        //   only the tabs are shown, the document is below them
+        folder = new CTabFolder(parentShell, SWT.TOP | SWT.BORDER);
+        folder.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        folder.moveAbove(null);
+        folder.addListener(SWT.Selection, e -> select(getTab((CTabItem) e.item)));
+        folder.addCTabFolder2Listener(new CTabFolder2Adapter() {
+            @Override
+            public void close(CTabFolderEvent event) {
+                //   the tab is disposed by closeTab, if the document is closed
+                event.doit = false;
+                closeTab(getTab((CTabItem) event.item));
+            }
+        });
+
+        current = new Tab(new CTabItem(folder, SWT.CLOSE));
+        tabs.add(current);
+        folder.setSelection(current.item);
+        bzFile.addFileNameListener(() -> current.item.setText(getLabel(bzFile.getFileName())));
+        current.item.setText(getLabel(bzFile.getFileName()));
+    }
+
+    private static @NonNull String getLabel(@Nullable String fileName) {
+        return fileName == null ? "Untitled" : Path.of(fileName).getFileName().toString();
+    }
+
+    private @NonNull Tab getTab(CTabItem item) {
+        for (Tab tab : tabs)
+            if (tab.item == item)
+                return tab;
+        throw new IllegalArgumentException("Not a tab:  " + item);
+    }
+
+    /**
+     * @return the number of open documents
+     */
+    int getTabCount() {
+        return tabs.size();
+    }
+
+    /**
+     * <p>
+     * Opens a new empty document in a new tab.
+     * </p>
+     */
+    void newTab() {
+        BZEvents.TabEvent event = new BZEvents.TabEvent();
+        event.begin();
+        bzFile.rememberDocument();
+        current.state = bzStyledText.swapDocument(null);
+        current.fileName = bzFile.getFileName();
+        current = new Tab(new CTabItem(folder, SWT.CLOSE));
+        tabs.add(current);
+        folder.setSelection(current.item);
+        bzFile.setFileName(null);
+        commitTabEvent(event, "new");
+    }
+
+    /**
+     * <p>
+     * Opens a file in a new tab, or in the current tab if it is an
+     * unmodified new document.
+     * </p>
+     *
+     * @param path the file to open
+     * @return whether the file was opened
+     */
+    boolean openInNewTab(@NonNull Path path) {
+        boolean reuse = bzFile.getFileName() == null && !bzStyledText.getModified() && bzStyledText.getContent().getCharCount() == 0;
+        if (!reuse)
+            newTab();
+        if (bzFile.openFile(path))
+            return true;
+        if (!reuse)
+            closeTab(current);
+        return false;
+    }
+
+    /**
+     * @param path a file
+     * @return whether the file is open in any tab
+     */
+    boolean isOpen(@NonNull Path path) {
+        return findTab(path) != null;
+    }
+
+    /**
+     * <p>
+     * Shows the tab the file is open in.
+     * </p>
+     *
+     * @param path a file
+     * @return whether the file is open in a tab
+     */
+    boolean selectFile(@NonNull Path path) {
+        Tab tab = findTab(path);
+        if (tab == null)
+            return false;
+        select(tab);
+        return true;
+    }
+
+    private @Nullable Tab findTab(@NonNull Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        for (Tab tab : tabs) {
+            String fileName = tab == current ? bzFile.getFileName() : tab.fileName;
+            if (fileName != null && Path.of(fileName).toAbsolutePath().normalize().equals(absolute))
+                return tab;
+        }
+        return null;
+    }
+
+    /**
+     * <p>
+     * Closes the current tab, asking to save it if it has been modified.
+     * </p>
+     *
+     * @return whether the tab was closed
+     */
+    boolean closeCurrentTab() {
+        return closeTab(current);
+    }
+
+    private boolean closeTab(@NonNull Tab tab) {
+        //   show the document being asked about
+        select(tab);
+        if (!bzFile.closeCurrentDocument())
+            return false;
+
+        //   the last tab becomes a new document
+        if (tabs.size() == 1) {
+            bzStyledText.setText("");
+            bzFile.setFileName(null);
+            return true;
+        }
+
+        BZEvents.TabEvent event = new BZEvents.TabEvent();
+        event.begin();
+        int index = tabs.indexOf(tab);
+        tabs.remove(index);
+        Tab next = tabs.get(Math.min(index, tabs.size() - 1));
+        bzStyledText.swapDocument(next.state).close();
+        show(next);
+        tab.item.dispose();
+        commitTabEvent(event, "close");
+        return true;
+    }
+
+    /**
+     * <p>
+     * Closes every document, asking to save each one that has been
+     * modified.  The tabs are left open.
+     * </p>
+     *
+     * @return whether every document was closed, or false if cancelled
+     */
+    boolean closeAllDocuments() {
+        bzFile.rememberDocument();
+        for (Tab tab : new ArrayList<>(tabs)) {
+            boolean modified = tab == current ? bzStyledText.getModified() : tab.state.isModified();
+            if (!modified)
+                continue;
+            select(tab);
+            if (!bzFile.closeCurrentDocument())
+                return false;
+        }
+        return true;
+    }
+
+    private void select(@NonNull Tab tab) {
+        if (tab == current)
+            return;
+
+        BZEvents.TabEvent event = new BZEvents.TabEvent();
+        event.begin();
+        long start = System.nanoTime();
+        bzFile.rememberDocument();
+        current.state = bzStyledText.swapDocument(tab.state);
+        current.fileName = bzFile.getFileName();
+        show(tab);
+
+        //   include painting the document
+        parentShell.update();
+        long time = System.nanoTime() - start;
+        commitTabEvent(event, "switch");
+        bzStyledText.getLog().debug(getClass().getSimpleName(), String.format("Switched to %s in %.1f ms", tab.item.getText(), time / 1e6));
+    }
+
+    private void show(@NonNull Tab tab) {
+        current = tab;
+        tab.state = null;
+        folder.setSelection(tab.item);
+        bzFile.setFileName(tab.fileName);
+    }
+
+    private void commitTabEvent(BZEvents.TabEvent event, String operation) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.tabs = tabs.size();
+            event.characters = bzStyledText.getContent().getCharCount();
+            event.storageBytes = bzStyledText.getDocument().getStorageSize();
+            event.commit();
+        }
+    }
+}
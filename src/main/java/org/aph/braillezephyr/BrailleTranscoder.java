@@ -0,0 +1,139 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+/**
+ * <p>
+ * Converts buffers of braille characters in place.
+ * </p><p>
+ * When the <code>jdk.incubator.vector</code> module is present and the
+ * hardware has 256 bit vectors the conversions are done in SIMD lanes,
+ * otherwise they are done one character at a time.  Both give the same results as the tables in
+ * {@link UnicodeBraille}.
+ * </p>
+ */
+abstract class BrailleTranscoder {
+    private static final BrailleTranscoder INSTANCE = createInstance();
+
+    /**
+     * <p>
+     * Returns the fastest transcoder available in this runtime.
+     * </p>
+     *
+     * @return the transcoder
+     */
+    static BrailleTranscoder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * <p>
+     * Returns a transcoder that does not use the vector API.
+     * </p>
+     *
+     * @return the transcoder
+     */
+    static BrailleTranscoder scalar() {
+        return new Scalar();
+    }
+
+    /**
+     * <p>
+     * Returns a transcoder that uses the vector API, or <code>null</code> if
+     * the <code>jdk.incubator.vector</code> module is not present or the
+     * hardware does not have 256 bit vectors.
+     * </p>
+     *
+     * @return the transcoder or <code>null</code>
+     */
+    static BrailleTranscoder vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return null;
+        try {
+            if (!VectorBrailleTranscoder.isSupported())
+                return null;
+            return new VectorBrailleTranscoder();
+        } catch (LinkageError ignored) {
+            return null;
+        }
+    }
+
+    private static BrailleTranscoder createInstance() {
+        BrailleTranscoder transcoder = vector();
+        if (transcoder == null)
+            transcoder = scalar();
+        return transcoder;
+    }
+
+    /**
+     * <p>
+     * Converts ASCII braille to Unicode braille, lowercase ASCII braille is
+     * converted as uppercase.
+     * </p>
+     *
+     * @param chars  the characters to convert
+     * @param offset the offset of the first character
+     * @param length the number of characters
+     */
+    abstract void toUnicode(char[] chars, int offset, int length);
+
+    /**
+     * <p>
+     * Converts Unicode braille to ASCII braille, dots 7 and 8 are dropped.
+     * </p>
+     *
+     * @param chars  the characters to convert
+     * @param offset the offset of the first character
+     * @param length the number of characters
+     */
+    abstract void toAscii(char[] chars, int offset, int length);
+
+    /**
+     * <p>
+     * Converts lowercase ASCII braille to uppercase.
+     * </p>
+     *
+     * @param chars  the characters to convert
+     * @param offset the offset of the first character
+     * @param length the number of characters
+     */
+    abstract void toUpperCase(char[] chars, int offset, int length);
+
+    static char toUpperCase(char c) {
+        if (c >= 0x60 && c < 0x7f)
+            return (char) (c - 0x20);
+        return c;
+    }
+
+    private static final class Scalar extends BrailleTranscoder {
+        @Override
+        void toUnicode(char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++)
+                chars[i] = UnicodeBraille.toUnicode(chars[i]);
+        }
+
+        @Override
+        void toAscii(char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++)
+                chars[i] = UnicodeBraille.toAscii(chars[i]);
+        }
+
+        @Override
+        void toUpperCase(char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++)
+                chars[i] = toUpperCase(chars[i]);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.*;
+import org.jspecify.annotations.NonNull;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * <p>
+ * A window showing the differences between the current document and
+ * another file side by side.
+ * </p><p>
+ * Changed lines are highlighted, and lines only present on the other side
+ * are marked by a line between the neighbouring lines.  The views scroll
+ * together, and differences can be stepped through with their page and
+ * line numbers.
+ * </p>
+ *
+ * @see LineDiff
+ */
+final class CompareDialog {
+    private final Shell shell;
+    private final StyledText leftText, rightText;
+    private final Label statusLabel;
+    private final Color changedColor, insertedColor, pageColor;
+    private final int linesPerPage;
+
+    /**
+     * The differences in groups of four as returned by
+     * {@link LineDiff#diff(long[], long[])}.
+     */
+    private final int[] hunks;
+    private final BitSet leftChanged = new BitSet(), rightChanged = new BitSet();
+    private int current = -1;
+    private boolean scrolling;
+
+    CompareDialog(Shell parentShell,
+                  @NonNull BZStyledText bzStyledText,
+                  String leftName,
+                  List<String> leftLines,
+                  String rightName,
+                  List<String> rightLines,
+                  int[] hunks) {
+        this.hunks = hunks;
+        linesPerPage = bzStyledText.getLinesPerPage();
+        for (int i = 0; i < hunks.length; i += 4) {
+            leftChanged.set(hunks[i], hunks[i + 1]);
+            rightChanged.set(hunks[i + 2], hunks[i + 3]);
+        }
+
+        shell = new Shell(parentShell, SWT.SHELL_TRIM);
+        shell.setText("Compare " + leftName + " with " + rightName);
+        shell.setLayout(new GridLayout(2, true));
+        changedColor = new Color(shell.getDisplay(), 0xff, 0xdd, 0xdd);
+        insertedColor = new Color(shell.getDisplay(), 0xdd, 0xff, 0xdd);
+        pageColor = new Color(shell.getDisplay(), 0xee, 0xee, 0xee);
+
+        new Label(shell, 0).setText(leftName);
+        new Label(shell, 0).setText(rightName);
+
+        Font font = bzStyledText.getBrailleVisible() ? bzStyledText.getBrailleFont() : bzStyledText.getAsciiFont();
+        leftText = createText(font, leftLines, leftChanged, changedColor, 0);
+        rightText = createText(font, rightLines, rightChanged, insertedColor, 2);
+        leftText.getVerticalBar().addListener(SWT.Selection, e -> follow(leftText, rightText, 0));
+        rightText.getVerticalBar().addListener(SWT.Selection, e -> follow(rightText, leftText, 2));
+
+        Composite buttons = new Composite(shell, 0);
+        buttons.setLayout(new RowLayout(SWT.HORIZONTAL));
+        GridData gridData = new GridData(GridData.FILL_HORIZONTAL);
+        gridData.horizontalSpan = 2;
+        buttons.setLayoutData(gridData);
+        Button previousButton = new Button(buttons, SWT.PUSH);
+        previousButton.setText("&Previous Difference");
+        previousButton.addListener(SWT.Selection, e -> showDifference(current - 1));
+        Button nextButton = new Button(buttons, SWT.PUSH);
+        nextButton.setText("&Next Difference");
+        nextButton.addListener(SWT.Selection, e -> showDifference(current + 1));
+        Button fontButton = new Button(buttons, SWT.PUSH);
+        fontButton.setText(bzStyledText.getBrailleVisible() ? "Show &ASCII" : "Show &Braille");
+        fontButton.addListener(SWT.Selection, e -> {
+            if (leftText.getFont() == bzStyledText.getBrailleFont()) {
+                setFont(bzStyledText.getAsciiFont());
+                fontButton.setText("Show &Braille");
+            } else {
+                setFont(bzStyledText.getBrailleFont());
+                fontButton.setText("Show &ASCII");
+            }
+            buttons.layout();
+        });
+        Button closeButton = new Button(buttons, SWT.PUSH);
+        closeButton.setText("Close");
+        closeButton.addListener(SWT.Selection, e -> shell.close());
+
+        statusLabel = new Label(shell, 0);
+        gridData = new GridData(GridData.FILL_HORIZONTAL);
+        gridData.horizontalSpan = 2;
+        statusLabel.setLayoutData(gridData);
+        if (hunks.length == 0)
+            statusLabel.setText("The documents are the same");
+        else
+            statusLabel.setText(hunks.length / 4 + " differences");
+
+        shell.addListener(SWT.Dispose, e -> {
+            changedColor.dispose();
+            insertedColor.dispose();
+            pageColor.dispose();
+        });
+
+        shell.setSize(900, 600);
+        shell.open();
+        if (hunks.length > 0)
+            showDifference(0);
+    }
+
+    private StyledText createText(Font font, List<String> lines, BitSet changed, Color color, int side) {
+        StyledText text = new StyledText(shell, SWT.BORDER | SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.READ_ONLY);
+        text.setLayoutData(new GridData(GridData.FILL_BOTH));
+        text.setFont(font);
+        text.setText(String.join("\n", lines));
+        text.addLineBackgroundListener(event -> {
+            int line = text.getLineAtOffset(event.lineOffset);
+            if (changed.get(line))
+                event.lineBackground = color;
+        });
+        text.addPaintListener(event -> {
+            int drawWidth = text.getClientArea().width;
+            int drawHeight = text.getClientArea().height;
+            int top = text.getTopIndex();
+
+            //   draw page lines
+            event.gc.setForeground(pageColor);
+            for (int i = top; i < text.getLineCount(); i++) {
+                int at = text.getLinePixel(i);
+                if (at > drawHeight)
+                    break;
+                if (linesPerPage > 0 && i % linesPerPage == 0)
+                    event.gc.drawLine(0, at, drawWidth, at);
+            }
+
+            //   mark where lines are missing from this side
+            event.gc.setForeground(shell.getDisplay().getSystemColor(SWT.COLOR_RED));
+            for (int i = 0; i < hunks.length; i += 4)
+                if (hunks[i + side] == hunks[i + side + 1] && hunks[i + side] >= top) {
+                    int at = hunks[i + side] < text.getLineCount() ? text.getLinePixel(hunks[i + side]) : text.getLinePixel(text.getLineCount() - 1) + text.getLineHeight();
+                    if (at > drawHeight)
+                        break;
+                    event.gc.drawLine(0, at, drawWidth, at);
+                }
+        });
+        return text;
+    }
+
+    private void setFont(Font font) {
+        leftText.setFont(font);
+        rightText.setFont(font);
+    }
+
+    /**
+     * <p>
+     * Returns the line on the other side matching <code>line</code>.
+     * </p>
+     *
+     * @param line the line number
+     * @param side 0 if <code>line</code> is on the left, 2 if on the right
+     * @return the corresponding line number on the other side
+     */
+    private int mapLine(int line, int side) {
+        int other = 2 - side;
+
+        //   find the last difference starting at or before line
+        int low = 0, high = hunks.length / 4 - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (hunks[mid * 4 + side] <= line) {
+                found = mid;
+                low = mid + 1;
+            } else
+                high = mid - 1;
+        }
+        if (found == -1)
+            return line;
+
+        int start = hunks[found * 4 + side], end = hunks[found * 4 + side + 1];
+        int otherStart = hunks[found * 4 + other], otherEnd = hunks[found * 4 + other + 1];
+        if (line < end)
+            return Math.min(otherStart + line - start, Math.max(otherStart, otherEnd - 1));
+        return otherEnd + line - end;
+    }
+
+    private void follow(StyledText source, StyledText target, int side) {
+        if (scrolling)
+            return;
+        scrolling = true;
+        target.setTopIndex(mapLine(source.getTopIndex(), side));
+        scrolling = false;
+    }
+
+    private void showDifference(int index) {
+        int count = hunks.length / 4;
+        if (count == 0 || index < 0 || index >= count) {
+            shell.getDisplay().beep();
+            return;
+        }
+        current = index;
+
+        int leftLine = hunks[index * 4], rightLine = hunks[index * 4 + 2];
+        scrolling = true;
+        leftText.setTopIndex(Math.max(0, leftLine - 2));
+        rightText.setTopIndex(Math.max(0, rightLine - 2));
+        scrolling = false;
+        leftText.setCaretOffset(leftText.getOffsetAtLine(Math.min(leftLine, leftText.getLineCount() - 1)));
+        rightText.setCaretOffset(rightText.getOffsetAtLine(Math.min(rightLine, rightText.getLineCount() - 1)));
+
+        statusLabel.setText("Difference " + (index + 1) + " of " + count
+                            + ":  " + describe(leftLine, hunks[index * 4 + 1])
+                            + " with " + describe(rightLine, hunks[index * 4 + 3]));
+    }
+
+    private String describe(int start, int end) {
+        String location;
+        if (linesPerPage > 0)
+            location = "page " + (start / linesPerPage + 1) + " line " + (start % linesPerPage + 1);
+        else
+            location = "line " + (start + 1);
+        if (start == end)
+            return "nothing before " + location;
+        return (end - start) + (end - start == 1 ? " line at " : " lines at ") + location;
+    }
+}
@@ -0,0 +1,119 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Watches a file for changes made by other programs, on a background
+ * thread.
+ * </p><p>
+ * The directory of the file is watched, so the file is still followed
+ * when it is replaced by renaming another over it.  A program may write a
+ * file in several steps, so the listener is only run once there have been
+ * no more changes for a quarter of a second.  The listener is run on the
+ * watching thread, and is also run for changes made by the editor itself,
+ * which it is up to the listener to tell apart.
+ * </p>
+ */
+final class FileWatcher implements Closeable {
+    private static final long QUIET_MILLIS = 250;
+
+    private final WatchService watchService;
+    private final Consumer<Path> listener;
+    private volatile @Nullable Path file;
+    private volatile @Nullable WatchKey key;
+
+    /**
+     * @param listener run on the watching thread with the file, as given to {@link #watch(Path)}, when it has changed
+     */
+    FileWatcher(@NonNull Consumer<Path> listener) throws IOException {
+        this.listener = listener;
+        watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this::run, "BrailleZephyr file watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * <p>
+     * Watches another file instead of the one being watched.
+     * </p>
+     *
+     * @param file the file to watch, or null to stop watching
+     */
+    synchronized void watch(@Nullable Path file) throws IOException {
+        Path directory = file == null ? null : file.toAbsolutePath().getParent();
+        WatchKey current = key;
+        if (current != null && !current.watchable().equals(directory)) {
+            current.cancel();
+            key = null;
+        }
+        this.file = file;
+        if (directory != null && key == null)
+            key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean changed = takeEvents(watchService.take());
+
+                //   wait for the writing to finish
+                WatchKey next;
+                while ((next = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                    changed |= takeEvents(next);
+
+                Path changedFile = file;
+                if (changed && changedFile != null)
+                    listener.accept(changedFile);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    /**
+     * @return whether any of the events of <code>key</code> are of the file being watched
+     */
+    private boolean takeEvents(@NonNull WatchKey key) {
+        boolean changed = false;
+        Path watched = file;
+        for (WatchEvent<?> event : key.pollEvents())
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                || key == this.key && watched != null && watched.getFileName().equals(event.context()))
+                changed = true;
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,161 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.*;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * <p>
+ * A modeless dialog for finding and replacing text with a BZSearch.
+ * </p>
+ */
+final class FindDialog {
+    private final @NonNull BZSearch bzSearch;
+    private final Shell shell;
+    private final Text findText, replaceText;
+    private final Button textButton, regexButton, dotsButton, highlightButton;
+    private Label statusLabel;
+
+    private String queryString = "";
+    private BZSearch.QueryType queryType = BZSearch.QueryType.TEXT;
+
+    FindDialog(Shell parentShell, @NonNull BZSearch bzSearch) {
+        this.bzSearch = bzSearch;
+        shell = new Shell(parentShell, SWT.DIALOG_TRIM | SWT.MODELESS);
+        shell.setText("Find and Replace");
+        shell.setLayout(new GridLayout(2, false));
+
+        new Label(shell, 0).setText("Find:");
+        findText = new Text(shell, SWT.BORDER | SWT.SINGLE);
+        findText.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+
+        new Label(shell, 0).setText("Replace with:");
+        replaceText = new Text(shell, SWT.BORDER | SWT.SINGLE);
+        replaceText.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+
+        Group group = new Group(shell, 0);
+        group.setText("Search For");
+        group.setLayout(new RowLayout(SWT.HORIZONTAL));
+        GridData gridData = new GridData(GridData.FILL_HORIZONTAL);
+        gridData.horizontalSpan = 2;
+        group.setLayoutData(gridData);
+        textButton = new Button(group, SWT.RADIO);
+        textButton.setText("Text");
+        textButton.setSelection(true);
+        regexButton = new Button(group, SWT.RADIO);
+        regexButton.setText("Regular Expression");
+        dotsButton = new Button(group, SWT.RADIO);
+        dotsButton.setText("Dot Pattern");
+
+        Composite buttons = new Composite(shell, 0);
+        buttons.setLayout(new RowLayout(SWT.HORIZONTAL));
+        gridData = new GridData(GridData.FILL_HORIZONTAL);
+        gridData.horizontalSpan = 2;
+        buttons.setLayoutData(gridData);
+
+        Button findNextButton = addButton(buttons, "Find Next", () -> find(true));
+        addButton(buttons, "Find Previous", () -> find(false));
+        addButton(buttons, "Replace", () -> {
+            if (updateQuery())
+                showResult(bzSearch.replace(replaceText.getText()));
+        });
+        addButton(buttons, "Replace All", () -> {
+            if (updateQuery())
+                statusLabel.setText("Replaced " + bzSearch.replaceAll(replaceText.getText()));
+        });
+        highlightButton = new Button(buttons, SWT.CHECK);
+        highlightButton.setText("Highlight All");
+        highlightButton.setSelection(bzSearch.getHighlighting());
+        highlightButton.addListener(SWT.Selection, e -> {
+            if (highlightButton.getSelection() && !updateQuery()) {
+                highlightButton.setSelection(false);
+                return;
+            }
+            bzSearch.setHighlighting(highlightButton.getSelection());
+        });
+        addButton(buttons, "Close", shell::close);
+
+        statusLabel = new Label(shell, 0);
+        gridData = new GridData(GridData.FILL_HORIZONTAL);
+        gridData.horizontalSpan = 2;
+        statusLabel.setLayoutData(gridData);
+
+        shell.setDefaultButton(findNextButton);
+        shell.pack();
+        shell.open();
+    }
+
+    private static Button addButton(Composite parent, String text, Runnable onSelection) {
+        Button button = new Button(parent, SWT.PUSH);
+        button.setText(text);
+        button.addListener(SWT.Selection, e -> onSelection.run());
+        return button;
+    }
+
+    boolean isDisposed() {
+        return shell.isDisposed();
+    }
+
+    void setFocus() {
+        shell.setActive();
+        findText.setFocus();
+    }
+
+    private BZSearch.QueryType getQueryType() {
+        if (regexButton.getSelection())
+            return BZSearch.QueryType.REGEX;
+        if (dotsButton.getSelection())
+            return BZSearch.QueryType.DOTS;
+        return BZSearch.QueryType.TEXT;
+    }
+
+    /**
+     * @return false if the query is not valid
+     */
+    private boolean updateQuery() {
+        String string = findText.getText();
+        BZSearch.QueryType type = getQueryType();
+        if (bzSearch.getQuery() != null && string.equals(queryString) && type == queryType)
+            return true;
+
+        try {
+            int count = bzSearch.setQuery(BZSearch.Query.compile(string, type));
+            queryString = string;
+            queryType = type;
+            statusLabel.setText(count + " found");
+            return true;
+        } catch (BZException exception) {
+            statusLabel.setText(exception.getMessage());
+            return false;
+        }
+    }
+
+    private void find(boolean forward) {
+        if (updateQuery())
+            showResult(bzSearch.findNext(forward));
+    }
+
+    private void showResult(boolean found) {
+        if (found)
+            statusLabel.setText(bzSearch.getMatchCount() + " found");
+        else
+            statusLabel.setText("Not found");
+    }
+}
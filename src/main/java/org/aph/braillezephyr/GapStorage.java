@@ -0,0 +1,242 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Holds text on the Java heap in a gap buffer.
+ * </p><p>
+ * While every character fits, the buffer holds one byte per character.
+ * The first character that does not fit switches the buffer to chars for
+ * the rest of its life.
+ * </p>
+ */
+final class GapStorage implements TextStorage {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    //   exactly one of these is used, chars only once text does not fit in bytes
+    private byte[] bytes;
+    private char[] chars;
+    private int gapStart, gapEnd;
+
+    /**
+     * Builds a gap buffer in place, leaving the gap at the end.
+     */
+    static final class Builder implements TextStorage.Builder {
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+        private char[] chars;
+        private int length;
+
+        private void ensureCapacity(int growth) {
+            int capacity = chars != null ? chars.length : bytes.length;
+            if (length + growth <= capacity)
+                return;
+            int newCapacity = Math.max(capacity * 2, length + growth);
+            if (chars != null)
+                chars = Arrays.copyOf(chars, newCapacity);
+            else
+                bytes = Arrays.copyOf(bytes, newCapacity);
+        }
+
+        @Override
+        public @NonNull Builder append(char c) {
+            ensureCapacity(1);
+            if (chars == null && !TextStorage.canEncode(c))
+                inflate();
+            if (chars != null)
+                chars[length++] = c;
+            else
+                bytes[length++] = TextStorage.encode(c);
+            return this;
+        }
+
+        @Override
+        public @NonNull Builder append(@NonNull CharSequence text) {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public @NonNull Builder append(@NonNull CharSequence text, int start, int end) {
+            ensureCapacity(end - start);
+            for (int i = start; i < end; i++)
+                append(text.charAt(i));
+            return this;
+        }
+
+        @Override
+        public @NonNull Builder append(char @NonNull [] chars, int offset, int length) {
+            ensureCapacity(length);
+            for (int i = offset; i < offset + length; i++)
+                append(chars[i]);
+            return this;
+        }
+
+        private void inflate() {
+            chars = new char[bytes.length];
+            for (int i = 0; i < length; i++)
+                chars[i] = TextStorage.decode(bytes[i]);
+            bytes = null;
+        }
+
+        @Override
+        public @NonNull GapStorage build() {
+            //   leave room to type before the gap has to grow, without holding on to too much
+            int capacity = Math.max(INITIAL_CAPACITY, length + length / 4);
+            int minimum = Math.min(capacity, length + (1 << 20));
+            if (chars != null)
+                return new GapStorage(null, fits(chars.length, minimum, capacity) ? chars : Arrays.copyOf(chars, capacity), length);
+            return new GapStorage(fits(bytes.length, minimum, capacity) ? bytes : Arrays.copyOf(bytes, capacity), null, length);
+        }
+
+        private static boolean fits(int arrayLength, int minimum, int capacity) {
+            return arrayLength >= minimum && arrayLength <= capacity;
+        }
+    }
+
+    GapStorage() {
+        this(new byte[INITIAL_CAPACITY], null, 0);
+    }
+
+    private GapStorage(byte[] bytes, char[] chars, int length) {
+        this.bytes = bytes;
+        this.chars = chars;
+        gapStart = length;
+        gapEnd = getCapacity();
+    }
+
+    private int getCapacity() {
+        return chars != null ? chars.length : bytes.length;
+    }
+
+    @Override
+    public int length() {
+        return getCapacity() - (gapEnd - gapStart);
+    }
+
+    @Override
+    public boolean isCompact() {
+        return chars == null;
+    }
+
+    @Override
+    public long getHeapSize() {
+        return chars != null ? 2L * chars.length : bytes.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= gapStart)
+            index += gapEnd - gapStart;
+        if (chars != null)
+            return chars[index];
+        return TextStorage.decode(bytes[index]);
+    }
+
+    @Override
+    public @NonNull String substring(int start, int length) {
+        if (chars != null) {
+            if (start + length <= gapStart)
+                return new String(chars, start, length);
+            if (start >= gapStart)
+                return new String(chars, start + gapEnd - gapStart, length);
+            char[] range = new char[length];
+            int before = gapStart - start;
+            System.arraycopy(chars, start, range, 0, before);
+            System.arraycopy(chars, gapEnd, range, before, length - before);
+            return new String(range);
+        }
+
+        //   Latin-1 strings are also kept as one byte per character
+        String text;
+        if (start + length <= gapStart)
+            text = new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        else if (start >= gapStart)
+            text = new String(bytes, start + gapEnd - gapStart, length, StandardCharsets.ISO_8859_1);
+        else {
+            byte[] range = new byte[length];
+            int before = gapStart - start;
+            System.arraycopy(bytes, start, range, 0, before);
+            System.arraycopy(bytes, gapEnd, range, before, length - before);
+            text = new String(range, StandardCharsets.ISO_8859_1);
+        }
+        return text.replace((char) (PARAGRAPH_END_BYTE & 0xff), BZFormat.PARAGRAPH_END);
+    }
+
+    @Override
+    public void replace(int start, int length, @NonNull String text) {
+        if (chars == null && !TextStorage.canEncode(text))
+            inflate();
+        moveGap(start, text.length() - length);
+        gapEnd += length;
+        if (chars != null)
+            text.getChars(0, text.length(), chars, gapStart);
+        else
+            for (int i = 0; i < text.length(); i++)
+                bytes[gapStart + i] = TextStorage.encode(text.charAt(i));
+        gapStart += text.length();
+    }
+
+    /**
+     * <p>
+     * Switches the buffer from bytes to chars.
+     * </p>
+     */
+    private void inflate() {
+        chars = new char[bytes.length];
+        for (int i = 0; i < gapStart; i++)
+            chars[i] = TextStorage.decode(bytes[i]);
+        for (int i = gapEnd; i < bytes.length; i++)
+            chars[i] = TextStorage.decode(bytes[i]);
+        bytes = null;
+    }
+
+    /**
+     * <p>
+     * Moves the gap to <code>offset</code>, making sure it can grow by
+     * <code>growth</code> characters.
+     * </p>
+     */
+    private void moveGap(int offset, int growth) {
+        Object buffer = chars != null ? chars : bytes;
+        int capacity = getCapacity();
+        int gapLength = gapEnd - gapStart;
+        if (growth > gapLength) {
+            int newLength = Math.max(capacity * 2, length() + growth + INITIAL_CAPACITY);
+            Object newBuffer = chars != null ? new char[newLength] : new byte[newLength];
+            System.arraycopy(buffer, 0, newBuffer, 0, gapStart);
+            int after = capacity - gapEnd;
+            System.arraycopy(buffer, gapEnd, newBuffer, newLength - after, after);
+            if (chars != null)
+                chars = (char[]) newBuffer;
+            else
+                bytes = (byte[]) newBuffer;
+            buffer = newBuffer;
+            gapEnd = newLength - after;
+            gapLength = gapEnd - gapStart;
+        }
+
+        if (offset < gapStart)
+            System.arraycopy(buffer, offset, buffer, offset + gapLength, gapStart - offset);
+        else if (offset > gapStart)
+            System.arraycopy(buffer, gapEnd, buffer, gapStart, offset - gapStart);
+        gapStart = offset;
+        gapEnd = offset + gapLength;
+    }
+}
@@ -0,0 +1,104 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.widgets.Event;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * <p>
+ * Types a recorded key sequence into a view, as if from the keyboard.
+ * </p><p>
+ * Each ASCII braille character is sent as key presses of its dots on
+ * <code>fdsjkl</code> followed by their releases, so it goes through the
+ * same listeners as a typed chord.  Spaces and new lines are sent as
+ * themselves.  One character is sent every <code>interval</code>
+ * milliseconds, leaving the event loop free to paint in between.
+ * </p>
+ */
+final class KeyReplay {
+    static final int DEFAULT_INTERVAL = 50;
+    private static final char[] DOT_KEYS = {'f', 'd', 's', 'j', 'k', 'l'};
+
+    private final @NonNull StyledText target;
+    private final @NonNull String keys;
+    private final int interval;
+    private final @NonNull Runnable done;
+    private int index;
+
+    /**
+     * <p>
+     * Creates a replay, which is started with {@link #start()}.
+     * </p>
+     *
+     * @param target   the view to type into
+     * @param keys     the keys, as saved by {@link KeystrokeLatency#getKeys()}
+     * @param interval milliseconds between characters
+     * @param done     run on the UI thread when all keys have been sent
+     */
+    KeyReplay(@NonNull StyledText target, @NonNull String keys, int interval, @NonNull Runnable done) {
+        this.target = target;
+        this.keys = keys;
+        this.interval = interval;
+        this.done = done;
+    }
+
+    void start() {
+        target.setFocus();
+        target.getDisplay().timerExec(interval, this::next);
+    }
+
+    private void next() {
+        if (target.isDisposed())
+            return;
+        if (index == keys.length()) {
+            done.run();
+            return;
+        }
+
+        char c = keys.charAt(index++);
+        if (c == '\n' || c == '\r') {
+            //   treat CR LF as one new line
+            if (c == '\r' && index < keys.length() && keys.charAt(index) == '\n')
+                index++;
+            sendKey(SWT.KeyDown, SWT.CR, '\r');
+            sendKey(SWT.KeyUp, SWT.CR, '\r');
+        } else if (c == ' ') {
+            sendKey(SWT.KeyDown, ' ', ' ');
+            sendKey(SWT.KeyUp, ' ', ' ');
+        } else {
+            char cell = UnicodeBraille.toUnicode(c);
+            if (cell > UnicodeBraille.BLANK_CELL && cell <= UnicodeBraille.BLANK_CELL + 0x3f) {
+                for (int dot = 0; dot < DOT_KEYS.length; dot++)
+                    if ((cell & 1 << dot) != 0)
+                        sendKey(SWT.KeyDown, DOT_KEYS[dot], DOT_KEYS[dot]);
+                for (int dot = 0; dot < DOT_KEYS.length; dot++)
+                    if ((cell & 1 << dot) != 0)
+                        sendKey(SWT.KeyUp, DOT_KEYS[dot], DOT_KEYS[dot]);
+            }
+        }
+
+        target.getDisplay().timerExec(interval, this::next);
+    }
+
+    private void sendKey(int type, int keyCode, char character) {
+        Event event = new Event();
+        event.keyCode = keyCode;
+        event.character = character;
+        target.notifyListeners(type, event);
+    }
+}
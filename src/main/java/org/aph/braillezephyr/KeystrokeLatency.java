@@ -0,0 +1,119 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>
+ * Measures the delay between releasing a braille chord and the cell being
+ * painted.
+ * </p><p>
+ * The time from the release to the end of inserting the cell, including
+ * the modify and caret listeners, is counted as the commit latency.  The
+ * time from the release to the end of the next paint of the braille view
+ * is counted as the paint latency.  Cells, spaces and new lines typed are
+ * also kept, so that they can be saved and replayed by {@link KeyReplay}.
+ * </p><p>
+ * All methods must be called on the UI thread.
+ * </p>
+ */
+final class KeystrokeLatency {
+    private static final int MAX_PENDING = 32;
+    private static final int MAX_KEYS = 100_000;
+
+    private final LatencyHistogram commits = new LatencyHistogram();
+    private final LatencyHistogram paints = new LatencyHistogram();
+    private final long[] pending = new long[MAX_PENDING];
+    private int pendingCount;
+    private final StringBuilder keys = new StringBuilder();
+
+    /**
+     * <p>
+     * Records a cell having been inserted.
+     * </p>
+     *
+     * @param released when the chord was released, from {@link System#nanoTime()}
+     * @param cell     the ASCII braille character inserted
+     */
+    void committed(long released, char cell) {
+        commits.record(System.nanoTime() - released);
+        if (pendingCount < MAX_PENDING)
+            pending[pendingCount++] = released;
+        typed(cell);
+    }
+
+    /**
+     * <p>
+     * Records a key that is not a chord, such as a space or new line, for
+     * replaying.
+     * </p>
+     */
+    void typed(char c) {
+        if (keys.length() < MAX_KEYS)
+            keys.append(c);
+    }
+
+    /**
+     * <p>
+     * Records the braille view having been painted, completing every cell
+     * inserted since the last paint.
+     * </p>
+     */
+    void painted() {
+        if (pendingCount == 0)
+            return;
+        long now = System.nanoTime();
+        for (int i = 0; i < pendingCount; i++)
+            paints.record(now - pending[i]);
+        pendingCount = 0;
+    }
+
+    @NonNull LatencyHistogram getCommits() {
+        return commits;
+    }
+
+    @NonNull LatencyHistogram getPaints() {
+        return paints;
+    }
+
+    /**
+     * Returns the keys typed since the last reset.
+     */
+    @NonNull String getKeys() {
+        return keys.toString();
+    }
+
+    void reset() {
+        commits.reset();
+        paints.reset();
+        pendingCount = 0;
+        keys.setLength(0);
+    }
+
+    /**
+     * <p>
+     * Writes both distributions.
+     * </p>
+     */
+    void write(@NonNull Writer writer) throws IOException {
+        commits.write(writer, "Chord release to cell inserted, milliseconds");
+        writer.write(System.lineSeparator());
+        paints.write(writer, "Chord release to cell painted, milliseconds");
+    }
+}
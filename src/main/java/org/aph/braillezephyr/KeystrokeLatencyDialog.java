@@ -0,0 +1,154 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.*;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <p>
+ * A dialog showing the keystroke latencies measured by
+ * {@link KeystrokeLatency}, which can be saved to a file.  The keys typed
+ * can also be saved, and a saved key file replayed into the document.
+ * </p>
+ */
+final class KeystrokeLatencyDialog {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    private final @NonNull BZStyledText bzStyledText;
+    private final @NonNull KeystrokeLatency latency;
+    private final Shell shell;
+    private final Table table;
+    private final Label statusLabel;
+
+    KeystrokeLatencyDialog(Shell parentShell, @NonNull BZStyledText bzStyledText) {
+        this.bzStyledText = bzStyledText;
+        latency = bzStyledText.getKeystrokeLatency();
+        shell = new Shell(parentShell, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.PRIMARY_MODAL);
+        shell.setText("Keystroke Latency");
+        shell.setLayout(new GridLayout(1, false));
+
+        table = new Table(shell, SWT.BORDER | SWT.SINGLE | SWT.FULL_SELECTION);
+        table.setHeaderVisible(true);
+        table.setLayoutData(new GridData(GridData.FILL_BOTH));
+        addColumn("Percentile", 100);
+        addColumn("Inserted", 120);
+        addColumn("Painted", 120);
+
+        statusLabel = new Label(shell, 0);
+        statusLabel.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+
+        Composite buttons = new Composite(shell, 0);
+        buttons.setLayout(new RowLayout(SWT.HORIZONTAL));
+        addButton(buttons, "Refresh", this::refresh);
+        addButton(buttons, "Reset", () -> {
+            latency.reset();
+            refresh();
+        });
+        addButton(buttons, "Save Report", this::saveReport);
+        addButton(buttons, "Save Keys", this::saveKeys);
+        addButton(buttons, "Replay Keys", this::replayKeys);
+        addButton(buttons, "Close", shell::close);
+
+        refresh();
+        shell.pack();
+        shell.open();
+    }
+
+    private void addColumn(String name, int width) {
+        TableColumn column = new TableColumn(table, SWT.LEFT);
+        column.setText(name);
+        column.setWidth(width);
+    }
+
+    private static void addButton(Composite parent, String text, Runnable action) {
+        Button button = new Button(parent, SWT.PUSH);
+        button.setText(text);
+        button.addListener(SWT.Selection, e -> action.run());
+    }
+
+    private void refresh() {
+        if (shell.isDisposed())
+            return;
+        table.removeAll();
+        for (double percentile : PERCENTILES) {
+            TableItem item = new TableItem(table, 0);
+            item.setText(0, percentile == 100 ? "max" : "p" + (percentile == (int) percentile ? Integer.toString((int) percentile) : Double.toString(percentile)));
+            item.setText(1, String.format("%.1f ms", LatencyHistogram.toMillis(latency.getCommits().getValueAtPercentile(percentile))));
+            item.setText(2, String.format("%.1f ms", LatencyHistogram.toMillis(latency.getPaints().getValueAtPercentile(percentile))));
+        }
+        statusLabel.setText(latency.getCommits().getCount() + " cells, " + latency.getKeys().length() + " keys recorded");
+    }
+
+    private @Nullable String askFileName(int style, @Nullable String fileName, String extension, String filterName) {
+        FileDialog fileDialog = new FileDialog(shell, style);
+        fileDialog.setFilterExtensions(new String[]{extension, "*.*"});
+        fileDialog.setFilterNames(new String[]{filterName, "All Files"});
+        if (fileName != null)
+            fileDialog.setFileName(fileName);
+        fileDialog.setOverwrite(style == SWT.SAVE);
+        return fileDialog.open();
+    }
+
+    private void saveReport() {
+        String fileName = askFileName(SWT.SAVE, "keystroke-latency.hgrm", "*.hgrm", "Latency Histogram");
+        if (fileName == null)
+            return;
+        try (Writer writer = Files.newBufferedWriter(Path.of(fileName), StandardCharsets.UTF_8)) {
+            latency.write(writer);
+        } catch (IOException exception) {
+            bzStyledText.getLog().error("KeystrokeLatency", "Unable to write report:  " + exception.getMessage());
+        }
+    }
+
+    private void saveKeys() {
+        String fileName = askFileName(SWT.SAVE, "keys.brf", "*.brf", "Braille Ready Format File");
+        if (fileName == null)
+            return;
+        try {
+            Files.writeString(Path.of(fileName), latency.getKeys(), StandardCharsets.US_ASCII);
+        } catch (IOException exception) {
+            bzStyledText.getLog().error("KeystrokeLatency", "Unable to write keys:  " + exception.getMessage());
+        }
+    }
+
+    private void replayKeys() {
+        String fileName = askFileName(SWT.OPEN, null, "*.brf", "Braille Ready Format File");
+        if (fileName == null)
+            return;
+        String keys;
+        try {
+            keys = Files.readString(Path.of(fileName), StandardCharsets.US_ASCII);
+        } catch (IOException exception) {
+            bzStyledText.getLog().error("KeystrokeLatency", "Unable to read keys:  " + exception.getMessage());
+            return;
+        }
+
+        latency.reset();
+        statusLabel.setText("Replaying " + keys.length() + " keys");
+        bzStyledText.replayKeys(keys, KeyReplay.DEFAULT_INTERVAL, this::refresh);
+    }
+}
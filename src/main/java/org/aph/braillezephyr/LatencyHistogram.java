@@ -0,0 +1,168 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Counts latencies in buckets of logarithmically increasing width, so
+ * that any value is within about 3% of its bucket without needing a
+ * bucket per value.
+ * </p><p>
+ * Values are in nanoseconds.  Recording does not allocate or lock, so it
+ * can be done on the UI thread and from any other thread at once.
+ * </p>
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(Long.MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * <p>
+     * Returns the bucket for a value.  Values below
+     * <code>SUB_BUCKET_COUNT</code> have a bucket each, above that each
+     * doubling of the value is split into <code>SUB_BUCKET_HALF</code>
+     * buckets.
+     * </p>
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest value that falls into a bucket.
+     */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        count.incrementAndGet();
+        max.accumulateAndGet(nanos, Math::max);
+        total.addAndGet(nanos);
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    double getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : total.get() / (double) count;
+    }
+
+    /**
+     * <p>
+     * Returns the value below which the given percentage of recorded values
+     * fall, rounded up to the top of its bucket.
+     * </p>
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the value in nanoseconds, or 0 if nothing has been recorded
+     */
+    long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target)
+                return Math.min(highestValueOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        count.set(0);
+        max.set(0);
+        total.set(0);
+    }
+
+    /**
+     * <p>
+     * Returns the count, p50, p99 and maximum in milliseconds.
+     * </p>
+     */
+    String summary() {
+        return String.format("%d, p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+                             getCount(),
+                             toMillis(getValueAtPercentile(50)),
+                             toMillis(getValueAtPercentile(99)),
+                             toMillis(getMax()));
+    }
+
+    /**
+     * <p>
+     * Writes the distribution of the recorded values, one line for each
+     * bucket in use, in the same layout as HdrHistogram's percentile
+     * distribution so that existing plotting tools can read it.
+     * </p>
+     *
+     * @param writer where to write
+     * @param title  written as a comment before the distribution
+     */
+    void write(Writer writer, String title) throws IOException {
+        long count = this.count.get();
+        writer.write(String.format("# %s%n", title));
+        writer.write(String.format("%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+        long seen = 0;
+        for (int i = 0; i < counts.length() && seen < count; i++) {
+            long bucket = counts.get(i);
+            if (bucket == 0)
+                continue;
+            seen += bucket;
+            double fraction = seen / (double) count;
+            if (fraction < 1)
+                writer.write(String.format("%12.3f %2.12f %10d %14.2f%n", toMillis(Math.min(highestValueOf(i), max.get())), fraction, seen, 1 / (1 - fraction)));
+            else
+                writer.write(String.format("%12.3f %2.12f %10d%n", toMillis(max.get()), fraction, seen));
+        }
+        writer.write(String.format("#[Mean    = %12.3f, Max     = %12.3f]%n", toMillis((long) getMean()), toMillis(max.get())));
+        writer.write(String.format("#[Total count    = %12d]%n", count));
+    }
+
+    static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
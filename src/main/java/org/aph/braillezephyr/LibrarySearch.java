@@ -0,0 +1,492 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ * Searches and replaces in all the BRF and BZY files below a directory.
+ * </p><p>
+ * Each file is memory mapped and matched in place on its own virtual
+ * thread, with a semaphore bounding how many files are mapped at once.
+ * BrailleZephyr files in the paged format of {@link PagedBZY} or
+ * compressed with gzip are not text, so they are read whole and matched a
+ * line at a time instead.
+ * Matches are passed to the listener as they are found, so they arrive in
+ * no particular order.
+ * </p>
+ */
+final class LibrarySearch {
+    /**
+     * <p>
+     * A match found in a file.  Lines are numbered from zero as they are
+     * in the editor, so BZY header lines are not counted.
+     * </p>
+     */
+    record Match(@NonNull Path path, int line, int column, int length, @NonNull String text) {
+    }
+
+    /**
+     * <p>
+     * The totals of a finished search.
+     * </p>
+     */
+    record Statistics(int files, int matches, long bytes, long nanos) {
+        double filesPerSecond() {
+            return nanos > 0 ? files * 1e9 / nanos : 0;
+        }
+    }
+
+    interface Listener {
+        /**
+         * <p>
+         * Called on a search thread for each match.
+         * </p>
+         */
+        void matchFound(@NonNull Match match);
+
+        /**
+         * <p>
+         * Called on a search thread when a file cannot be read.
+         * </p>
+         */
+        void fileFailed(@NonNull Path path, @NonNull IOException exception);
+
+        /**
+         * <p>
+         * Called once on a search thread when the search has finished or
+         * been cancelled.
+         * </p>
+         */
+        void finished(@NonNull Statistics statistics);
+    }
+
+    /**
+     * A BrailleZephyr file that is read whole rather than matched in place.
+     *
+     * @param gzip whether the file is text compressed with gzip, rather than paged
+     */
+    private record Document(@NonNull BZDocument document, BZFormat.@NonNull BZYHeader header, boolean gzip) {
+    }
+
+    private final @NonNull Path root;
+    private final BZSearch.@NonNull Query query;
+    private final Semaphore mapped;
+
+    private final AtomicInteger files = new AtomicInteger(), matches = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile boolean cancelled;
+
+    /**
+     * @param root        the directory to search
+     * @param query       what to find
+     * @param parallelism the most files to search at once
+     */
+    LibrarySearch(@NonNull Path root, BZSearch.@NonNull Query query, int parallelism) {
+        this.root = root;
+        this.query = query;
+        mapped = new Semaphore(parallelism);
+    }
+
+    static boolean isBrailleFile(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.endsWith(".brf") || fileName.endsWith(".bzy");
+    }
+
+    private static boolean isBZY(Path path) {
+        return path.getFileName().toString().endsWith(".bzy");
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * <p>
+     * Starts the search on a new thread.
+     * </p>
+     *
+     * @param listener receives the matches and statistics
+     */
+    void start(@NonNull Listener listener) {
+        Thread.ofPlatform().daemon().name("BrailleZephyr library search").start(() -> run(listener));
+    }
+
+    private void run(Listener listener) {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<Path> paths = Files.walk(root)) {
+            paths.filter(path -> !cancelled && Files.isRegularFile(path) && isBrailleFile(path)).forEach(path -> {
+                try {
+                    mapped.acquire();
+                } catch (InterruptedException ignored) {
+                    cancelled = true;
+                    return;
+                }
+                executor.execute(() -> {
+                    try {
+                        searchFile(path, listener);
+                    } catch (IOException exception) {
+                        listener.fileFailed(path, exception);
+                    } finally {
+                        mapped.release();
+                    }
+                });
+            });
+        } catch (IOException | UncheckedIOException exception) {
+            listener.fileFailed(root, exception instanceof UncheckedIOException unchecked ? unchecked.getCause() : (IOException) exception);
+        }
+        listener.finished(new Statistics(files.get(), matches.get(), bytes.get(), System.nanoTime() - start));
+    }
+
+    private void searchFile(Path path, Listener listener) throws IOException {
+        if (cancelled)
+            return;
+
+        Document document = readDocument(path);
+        if (document != null) {
+            files.incrementAndGet();
+            bytes.addAndGet(Files.size(path));
+            searchDocument(path, document.document(), listener);
+            return;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        files.incrementAndGet();
+        bytes.addAndGet(buffer.limit());
+
+        MappedText text = new MappedText(buffer, 0, buffer.limit(), query.isFolded());
+        Charset charset = isBZY(path) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        int bodyStart = isBZY(path) ? findBodyStart(buffer) : 0;
+        if (bodyStart < 0)
+            return;
+
+        Matcher matcher = query.getPattern().matcher(text);
+        matcher.region(bodyStart, text.length());
+        int line = 0, lineStart = bodyStart, scanned = bodyStart;
+        while (!cancelled && matcher.find()) {
+            if (matcher.end() == matcher.start())
+                continue;
+
+            //   count lines up to match
+            for (int i = scanned; i < matcher.start(); i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || (b == '\r' && (i + 1 == buffer.limit() || buffer.get(i + 1) != '\n'))) {
+                    line++;
+                    lineStart = i + 1;
+                }
+            }
+            scanned = matcher.start();
+
+            int lineEnd = lineStart;
+            while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r')
+                lineEnd++;
+            int textStart = lineStart < lineEnd && buffer.get(lineStart) == 0xc ? lineStart + 1 : lineStart;
+            byte[] lineBytes = new byte[lineEnd - textStart];
+            buffer.get(textStart, lineBytes);
+
+            matches.incrementAndGet();
+            listener.matchFound(new Match(path, line, Math.max(0, matcher.start() - textStart), matcher.end() - matcher.start(), new String(lineBytes, charset)));
+        }
+    }
+
+    private void searchDocument(Path path, BZDocument document, Listener listener) {
+        for (int i = 0; i < document.getLineCount() && !cancelled; i++) {
+            String line = document.getLine(i);
+            if (BZFormat.isParagraphEnd(line))
+                line = line.substring(0, line.length() - 1);
+            int textStart = line.startsWith("\f") ? 1 : 0;
+
+            Matcher matcher = query.matcher(line);
+            matcher.region(textStart, line.length());
+            while (!cancelled && matcher.find()) {
+                if (matcher.end() == matcher.start())
+                    continue;
+                matches.incrementAndGet();
+                listener.matchFound(new Match(path, i, matcher.start() - textStart, matcher.end() - matcher.start(), line.substring(textStart)));
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Reads a BrailleZephyr file that cannot be matched in place.
+     * </p>
+     *
+     * @return the document and header, or null if the file is text to match in place
+     */
+    private static @Nullable Document readDocument(Path path) throws IOException {
+        if (!isBZY(path))
+            return null;
+        BZDocument document = new BZDocument();
+        try {
+            if (PagedBZY.isPaged(path)) {
+                try (PagedBZY file = PagedBZY.open(path)) {
+                    file.readAll(document);
+                    return new Document(document, file.getHeader(), false);
+                }
+            }
+            if (BZFile.isGzip(path)) {
+                try (BufferedReader reader = BZFile.newReader(path)) {
+                    return new Document(document, BZFormat.readBZY(reader, document), true);
+                }
+            }
+        } catch (BZException exception) {
+            throw new IOException(exception.getMessage(), exception);
+        }
+        return null;
+    }
+
+    /**
+     * <p>
+     * Writes a document read by {@link #readDocument(Path)} in the format
+     * it was read in.
+     * </p>
+     */
+    private static void writeDocument(Path path, Document document) throws IOException {
+        if (document.gzip()) {
+            try (Writer writer = BZFile.newGzipWriter(path, Deflater.DEFAULT_COMPRESSION)) {
+                BZFormat.writeBZY(writer, document.document(), document.header());
+            }
+            return;
+        }
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path))) {
+            PagedBZY.write(output, document.document(), document.header(), PagedBZY.COMPRESS);
+        }
+    }
+
+    /**
+     * @return the offset of the line after HeaderEnd, or -1 if there is none
+     */
+    private static int findBodyStart(ByteBuffer buffer) {
+        byte[] headerEnd = "HeaderEnd".getBytes(StandardCharsets.US_ASCII);
+        int lineStart = 0;
+        for (int i = 0; i <= buffer.limit(); i++) {
+            if (i < buffer.limit() && buffer.get(i) != '\n' && buffer.get(i) != '\r')
+                continue;
+            if (i - lineStart == headerEnd.length && buffer.slice(lineStart, headerEnd.length).equals(ByteBuffer.wrap(headerEnd))) {
+                if (i + 1 < buffer.limit() && buffer.get(i) == '\r' && buffer.get(i + 1) == '\n')
+                    i++;
+                return Math.min(i + 1, buffer.limit());
+            }
+            if (i + 1 < buffer.limit() && buffer.get(i) == '\r' && buffer.get(i + 1) == '\n')
+                i++;
+            lineStart = i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * <p>
+     * Replaces all matches in a file.  The file is written to a temporary
+     * file in the same directory which is then moved over the original, so
+     * the original is never left partly written.  Page breaks, line
+     * delimiters, paragraph ends and the BZY header are kept as they are.
+     * </p>
+     *
+     * @param path        the file to change
+     * @param query       what to replace
+     * @param replacement the replacement text, which may refer to regular
+     *                    expression groups
+     * @return the number of lines changed
+     */
+    static int replaceInFile(@NonNull Path path, BZSearch.@NonNull Query query, @NonNull String replacement) throws IOException {
+        Document document = readDocument(path);
+        if (document != null) {
+            int changed = replaceInDocument(document.document(), query, replacement);
+            if (changed > 0)
+                replaceFile(path, temp -> writeDocument(temp, document));
+            return changed;
+        }
+
+        Charset charset = isBZY(path) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        String text = Files.readString(path, charset);
+        StringBuilder stringBuilder = new StringBuilder(text.length());
+        boolean header = isBZY(path);
+        int changed = 0, start = 0;
+
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '\n';
+            if (c != '\n' && c != '\r')
+                continue;
+
+            String line = text.substring(start, i);
+            String replaced = null;
+            if (header)
+                header = !line.equals("HeaderEnd");
+            else
+                replaced = replaceLine(line, query, replacement);
+
+            if (replaced != null) {
+                stringBuilder.append(replaced);
+                changed++;
+            } else
+                stringBuilder.append(line);
+
+            if (i < text.length()) {
+                stringBuilder.append(c);
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n')
+                    stringBuilder.append(text.charAt(++i));
+            }
+            start = i + 1;
+        }
+
+        if (changed > 0)
+            replaceFile(path, temp -> Files.writeString(temp, stringBuilder, charset));
+        return changed;
+    }
+
+    private static int replaceInDocument(BZDocument document, BZSearch.Query query, String replacement) {
+        int changed = 0;
+        for (int i = document.getLineCount() - 1; i >= 0; i--) {
+            String line = document.getLine(i);
+            int length = BZFormat.isParagraphEnd(line) ? line.length() - 1 : line.length();
+            String replaced = replaceLine(line.substring(0, length), query, replacement);
+            if (replaced != null) {
+                document.replaceTextRange(document.getOffsetAtLine(i), length, replaced);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the line with matches replaced, keeping a page break at its start, or null if nothing matched
+     */
+    private static @Nullable String replaceLine(String line, BZSearch.Query query, String replacement) {
+        if (!line.startsWith("\f"))
+            return query.replace(line, replacement, -1);
+        String replaced = query.replace(line.substring(1), replacement, -1);
+        return replaced == null ? null : '\f' + replaced;
+    }
+
+    /**
+     * Writes a file.
+     */
+    @FunctionalInterface
+    private interface TempFileWriter {
+        void write(Path path) throws IOException;
+    }
+
+    /**
+     * <p>
+     * Writes a temporary file in the same directory and moves it over
+     * <code>path</code>, with the permissions, and where they can be set
+     * the owner and group, of <code>path</code>.
+     * </p>
+     */
+    private static void replaceFile(Path path, TempFileWriter writer) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), ".braillezephyr", ".tmp");
+        try {
+            writer.write(temp);
+            copyAttributes(path, temp);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * <p>
+     * Gives <code>temp</code> the permissions of <code>path</code>, which
+     * it was created without, and its owner and group if this user may.
+     * </p>
+     */
+    private static void copyAttributes(Path path, Path temp) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        PosixFileAttributeView tempView = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+        if (view == null || tempView == null)
+            return;
+        PosixFileAttributes attributes = view.readAttributes();
+        tempView.setPermissions(attributes.permissions());
+        try {
+            tempView.setGroup(attributes.group());
+            tempView.setOwner(attributes.owner());
+        } catch (FileSystemException ignored) {
+            //   only the owner's group, or as root another owner, can be set
+        }
+    }
+
+    /**
+     * <p>
+     * A read only view of single byte characters in a buffer, optionally
+     * converted to uppercase.
+     * </p>
+     */
+    private static final class MappedText implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int offset, length;
+        private final boolean fold;
+
+        private MappedText(ByteBuffer buffer, int offset, int length, boolean fold) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            this.fold = fold;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            char c = (char) (buffer.get(offset + index) & 0xff);
+            return fold ? BrailleTranscoder.toUpperCase(c) : c;
+        }
+
+        @Override
+        public @NonNull CharSequence subSequence(int start, int end) {
+            return new MappedText(buffer, offset + start, end - start, fold);
+        }
+
+        @Override
+        public @NonNull String toString() {
+            StringBuilder stringBuilder = new StringBuilder(length);
+            for (int i = 0; i < length; i++)
+                stringBuilder.append(charAt(i));
+            return stringBuilder.toString();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.*;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>
+ * A modeless dialog for searching and replacing in all the braille files
+ * below a directory.
+ * </p>
+ *
+ * @see LibrarySearch
+ */
+final class LibrarySearchDialog {
+    private static final int MAX_ITEMS = 10000;
+    private static final int UPDATE_DELAY = 100;
+
+    private final @NonNull BZStyledText bzStyledText;
+    private final @NonNull BZFile bzFile;
+    private final @Nullable BZTabs bzTabs;
+    private final Shell shell;
+    private final Text directoryText, findText, replaceText;
+    private final Button regexButton, dotsButton, searchButton, replaceButton;
+    private final Table table;
+    private final Label statusLabel;
+
+    private final List<LibrarySearch.Match> matches = new ArrayList<>();
+    private LibrarySearch librarySearch;
+    private Results results = new Results();
+    private BZSearch.Query query;
+
+    /**
+     * <p>
+     * What one search has found, kept apart from other searches so that
+     * one cancelled while it was still posting cannot add to the next.
+     * </p>
+     */
+    private static final class Results {
+        private final ConcurrentLinkedQueue<LibrarySearch.Match> pending = new ConcurrentLinkedQueue<>();
+        private final List<String> failures = new ArrayList<>();
+        private volatile LibrarySearch.Statistics statistics;
+    }
+
+    LibrarySearchDialog(Shell parentShell, @NonNull BZStyledText bzStyledText, @NonNull BZFile bzFile, @Nullable BZTabs bzTabs) {
+        this.bzStyledText = bzStyledText;
+        this.bzFile = bzFile;
+        this.bzTabs = bzTabs;
+        shell = new Shell(parentShell, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.MODELESS);
+        shell.setText("Search Files");
+        shell.setLayout(new GridLayout(3, false));
+
+        new Label(shell, 0).setText("Directory:");
+        directoryText = new Text(shell, SWT.BORDER | SWT.SINGLE);
+        directoryText.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        String fileName = bzFile.getFileName();
+        if (fileName != null && Path.of(fileName).toAbsolutePath().getParent() != null)
+            directoryText.setText(Path.of(fileName).toAbsolutePath().getParent().toString());
+        Button browseButton = new Button(shell, SWT.PUSH);
+        browseButton.setText("Browse");
+        browseButton.addListener(SWT.Selection, e -> {
+            DirectoryDialog directoryDialog = new DirectoryDialog(shell);
+            directoryDialog.setFilterPath(directoryText.getText());
+            String directory = directoryDialog.open();
+            if (directory != null)
+                directoryText.setText(directory);
+        });
+
+        new Label(shell, 0).setText("Find:");
+        findText = new Text(shell, SWT.BORDER | SWT.SINGLE);
+        findText.setLayoutData(spanTwo());
+
+        new Label(shell, 0).setText("Replace with:");
+        replaceText = new Text(shell, SWT.BORDER | SWT.SINGLE);
+        replaceText.setLayoutData(spanTwo());
+
+        Composite options = new Composite(shell, 0);
+        options.setLayout(new RowLayout(SWT.HORIZONTAL));
+        options.setLayoutData(spanThree());
+        Button textButton = new Button(options, SWT.RADIO);
+        textButton.setText("Text");
+        textButton.setSelection(true);
+        regexButton = new Button(options, SWT.RADIO);
+        regexButton.setText("Regular Expression");
+        dotsButton = new Button(options, SWT.RADIO);
+        dotsButton.setText("Dot Pattern");
+
+        Composite buttons = new Composite(shell, 0);
+        buttons.setLayout(new RowLayout(SWT.HORIZONTAL));
+        buttons.setLayoutData(spanThree());
+        searchButton = new Button(buttons, SWT.PUSH);
+        searchButton.setText("Search");
+        searchButton.addListener(SWT.Selection, e -> search());
+        replaceButton = new Button(buttons, SWT.PUSH);
+        replaceButton.setText("Replace All");
+        replaceButton.setEnabled(false);
+        replaceButton.addListener(SWT.Selection, e -> replaceAll());
+        Button stopButton = new Button(buttons, SWT.PUSH);
+        stopButton.setText("Stop");
+        stopButton.addListener(SWT.Selection, e -> {
+            if (librarySearch != null)
+                librarySearch.cancel();
+        });
+        Button closeButton = new Button(buttons, SWT.PUSH);
+        closeButton.setText("Close");
+        closeButton.addListener(SWT.Selection, e -> shell.close());
+
+        table = new Table(shell, SWT.BORDER | SWT.SINGLE | SWT.FULL_SELECTION);
+        table.setHeaderVisible(true);
+        GridData gridData = new GridData(GridData.FILL_BOTH);
+        gridData.horizontalSpan = 3;
+        gridData.heightHint = 300;
+        table.setLayoutData(gridData);
+        addColumn("File", 200);
+        addColumn("Line", 60);
+        addColumn("Text", 400);
+        table.addListener(SWT.DefaultSelection, e -> openMatch());
+
+        statusLabel = new Label(shell, 0);
+        statusLabel.setLayoutData(spanThree());
+
+        shell.addListener(SWT.Dispose, e -> {
+            if (librarySearch != null)
+                librarySearch.cancel();
+        });
+        shell.setDefaultButton(searchButton);
+        shell.pack();
+        shell.open();
+    }
+
+    private static GridData spanTwo() {
+        GridData gridData = new GridData(GridData.FILL_HORIZONTAL);
+        gridData.horizontalSpan = 2;
+        return gridData;
+    }
+
+    private static GridData spanThree() {
+        GridData gridData = new GridData(GridData.FILL_HORIZONTAL);
+        gridData.horizontalSpan = 3;
+        return gridData;
+    }
+
+    private void addColumn(String text, int width) {
+        TableColumn column = new TableColumn(table, SWT.LEFT);
+        column.setText(text);
+        column.setWidth(width);
+    }
+
+    boolean isDisposed() {
+        return shell.isDisposed();
+    }
+
+    void setFocus() {
+        shell.setActive();
+        findText.setFocus();
+    }
+
+    private BZSearch.QueryType getQueryType() {
+        if (regexButton.getSelection())
+            return BZSearch.QueryType.REGEX;
+        if (dotsButton.getSelection())
+            return BZSearch.QueryType.DOTS;
+        return BZSearch.QueryType.TEXT;
+    }
+
+    private void search() {
+        Path root = Path.of(directoryText.getText());
+        if (!Files.isDirectory(root)) {
+            statusLabel.setText("Not a directory:  " + root);
+            return;
+        }
+        try {
+            query = BZSearch.Query.compile(findText.getText(), getQueryType());
+        } catch (BZException exception) {
+            statusLabel.setText(exception.getMessage());
+            return;
+        }
+
+        if (librarySearch != null)
+            librarySearch.cancel();
+        table.removeAll();
+        matches.clear();
+        Results results = new Results();
+        this.results = results;
+        searchButton.setEnabled(false);
+        replaceButton.setEnabled(false);
+        statusLabel.setText("Searching");
+
+        LibrarySearch search = new LibrarySearch(root, query, Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        librarySearch = search;
+        search.start(new LibrarySearch.Listener() {
+            @Override
+            public void matchFound(LibrarySearch.@NonNull Match match) {
+                results.pending.add(match);
+            }
+
+            @Override
+            public void fileFailed(@NonNull Path path, @NonNull IOException exception) {
+                synchronized (results.failures) {
+                    results.failures.add(path + ":  " + exception.getMessage());
+                }
+            }
+
+            @Override
+            public void finished(LibrarySearch.@NonNull Statistics finished) {
+                results.statistics = finished;
+            }
+        });
+        shell.getDisplay().timerExec(UPDATE_DELAY, () -> update(search, results));
+    }
+
+    private void update(LibrarySearch search, Results results) {
+        if (shell.isDisposed() || search != librarySearch)
+            return;
+
+        //   read statistics first so no matches are missed
+        LibrarySearch.Statistics statistics = results.statistics;
+        LibrarySearch.Match match;
+        table.setRedraw(false);
+        while ((match = results.pending.poll()) != null) {
+            matches.add(match);
+            if (table.getItemCount() < MAX_ITEMS) {
+                TableItem item = new TableItem(table, 0);
+                item.setText(new String[]{match.path().getFileName().toString(), Integer.toString(match.line() + 1), match.text()});
+                item.setData(match);
+            }
+        }
+        table.setRedraw(true);
+
+        if (statistics == null) {
+            statusLabel.setText("Searching, " + matches.size() + " found");
+            shell.getDisplay().timerExec(UPDATE_DELAY, () -> update(search, results));
+            return;
+        }
+
+        String status = String.format("%d found in %d files, %.1f MB scanned at %.0f files/s",
+                statistics.matches(), statistics.files(), statistics.bytes() / 1048576.0, statistics.filesPerSecond());
+        if (matches.size() > MAX_ITEMS)
+            status += ", first " + MAX_ITEMS + " shown";
+        synchronized (results.failures) {
+            if (!results.failures.isEmpty())
+                status += ", " + results.failures.size() + " unreadable";
+        }
+        statusLabel.setText(status);
+        statusLabel.getParent().layout();
+        searchButton.setEnabled(true);
+        replaceButton.setEnabled(!matches.isEmpty());
+    }
+
+    private boolean isOpenFile(Path path) {
+        if (bzTabs != null)
+            return bzTabs.isOpen(path);
+        String fileName = bzFile.getFileName();
+        return fileName != null && Path.of(fileName).toAbsolutePath().equals(path.toAbsolutePath());
+    }
+
+    private void openMatch() {
+        TableItem[] selection = table.getSelection();
+        if (selection.length == 0)
+            return;
+        LibrarySearch.Match match = (LibrarySearch.Match) selection[0].getData();
+
+        //   show the tab the file is open in, or open it in a new one
+        if (bzTabs != null) {
+            if (!bzTabs.selectFile(match.path()) && !bzTabs.openInNewTab(match.path()))
+                return;
+        } else if (!isOpenFile(match.path())) {
+            if (!bzFile.closeCurrentDocument() || !bzFile.openFile(match.path()))
+                return;
+        }
+
+        StyledTextContent content = bzStyledText.getContent();
+        if (match.line() >= content.getLineCount())
+            return;
+        int offset = content.getOffsetAtLine(match.line());
+        int length = content.getLine(match.line()).length();
+        int start = Math.min(match.column(), length);
+        bzStyledText.setSelectionRange(offset + start, Math.min(match.length(), length - start));
+    }
+
+    private void replaceAll() {
+        Set<Path> paths = new LinkedHashSet<>();
+        for (LibrarySearch.Match match : matches)
+            paths.add(match.path());
+
+        MessageBox messageBox = new MessageBox(shell, SWT.ICON_QUESTION | SWT.YES | SWT.NO);
+        messageBox.setMessage("Replace in " + paths.size() + " files?  This cannot be undone.");
+        if (messageBox.open() != SWT.YES)
+            return;
+
+        BZSearch.Query query = this.query;
+        List<String> failures = results.failures;
+        String replacement = replaceText.getText();
+        searchButton.setEnabled(false);
+        replaceButton.setEnabled(false);
+        Display display = shell.getDisplay();
+
+        Thread.ofPlatform().daemon().name("BrailleZephyr library replace").start(() -> {
+            int files = 0, lines = 0, skipped = 0, failed = 0;
+            for (Path path : paths) {
+                boolean[] open = new boolean[1];
+                display.syncExec(() -> open[0] = isOpenFile(path));
+                if (open[0]) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    int changed = LibrarySearch.replaceInFile(path, query, replacement);
+                    if (changed > 0) {
+                        files++;
+                        lines += changed;
+                    }
+                } catch (IOException exception) {
+                    failed++;
+                    synchronized (failures) {
+                        failures.add(path + ":  " + exception.getMessage());
+                    }
+                }
+            }
+
+            String status = "Replaced " + lines + " lines in " + files + " files";
+            if (skipped > 0)
+                status += ", skipped " + skipped + " open " + (skipped == 1 ? "file" : "files");
+            if (failed > 0)
+                status += ", " + failed + " failed";
+            String finalStatus = status;
+            display.asyncExec(() -> {
+                if (shell.isDisposed())
+                    return;
+                statusLabel.setText(finalStatus);
+                searchButton.setEnabled(true);
+            });
+        });
+    }
+}
@@ -0,0 +1,314 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Finds the differing lines between two documents.
+ * </p><p>
+ * Lines are compared by 64 bit hashes held in primitive arrays.  Lines that
+ * do not occur at all in the other document cannot match, so they are set
+ * aside first, and the remaining lines are compared with the linear space
+ * variation of Myers' O(ND) algorithm.  Memory use is linear in the number
+ * of lines.
+ * </p>
+ */
+final class LineDiff {
+    private final long[] a, b;
+
+    /**
+     * Indexes into the original arrays of the lines that take part in the
+     * Myers comparison.
+     */
+    private final int[] aIndex, bIndex;
+    private final long[] aKept, bKept;
+
+    private int[] matchA = new int[64], matchB = new int[64];
+    private int matchCount;
+
+    private LineDiff(long[] a, long[] b) {
+        this.a = a;
+        this.b = b;
+
+        LongSet aSet = new LongSet(a.length), bSet = new LongSet(b.length);
+        for (long hash : a)
+            aSet.add(hash);
+        for (long hash : b)
+            bSet.add(hash);
+
+        aIndex = keep(a, bSet);
+        bIndex = keep(b, aSet);
+        aKept = new long[aIndex.length];
+        for (int i = 0; i < aIndex.length; i++)
+            aKept[i] = a[aIndex[i]];
+        bKept = new long[bIndex.length];
+        for (int i = 0; i < bIndex.length; i++)
+            bKept[i] = b[bIndex[i]];
+    }
+
+    /**
+     * <p>
+     * Returns the 64 bit FNV-1a hash of each string.
+     * </p>
+     *
+     * @param lines the lines to hash
+     * @return the hashes
+     */
+    static long[] hashLines(List<? extends CharSequence> lines) {
+        long[] hashes = new long[lines.size()];
+        for (int i = 0; i < hashes.length; i++)
+            hashes[i] = hash(lines.get(i));
+        return hashes;
+    }
+
+    /**
+     * <p>
+     * Returns the 64 bit FNV-1a hash of each line of a document, including
+     * any paragraph end.
+     * </p>
+     *
+     * @param document the document to hash
+     * @return the hashes
+     */
+    static long[] hashLines(BZDocument document) {
+        long[] hashes = new long[document.getLineCount()];
+        for (int i = 0; i < hashes.length; i++)
+            hashes[i] = hash(document.getLine(i));
+        return hashes;
+    }
+
+    static long hash(CharSequence line) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < line.length(); i++) {
+            hash ^= line.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * <p>
+     * Compares two documents.
+     * </p>
+     *
+     * @param a the line hashes of the first document
+     * @param b the line hashes of the second document
+     * @return the differences in order, as groups of four integers:  the
+     * first and end line of the first document, then of the second document
+     */
+    static int[] diff(long[] a, long[] b) {
+        LineDiff lineDiff = new LineDiff(a, b);
+        lineDiff.compare(0, lineDiff.aKept.length, 0, lineDiff.bKept.length);
+        return lineDiff.hunks();
+    }
+
+    private static int[] keep(long[] hashes, LongSet other) {
+        int[] index = new int[hashes.length];
+        int count = 0;
+        for (int i = 0; i < hashes.length; i++)
+            if (other.contains(hashes[i]))
+                index[count++] = i;
+        return Arrays.copyOf(index, count);
+    }
+
+    private void addMatch(int aLine, int bLine) {
+        if (matchCount == matchA.length) {
+            matchA = Arrays.copyOf(matchA, matchCount * 2);
+            matchB = Arrays.copyOf(matchB, matchCount * 2);
+        }
+        matchA[matchCount] = aIndex[aLine];
+        matchB[matchCount] = bIndex[bLine];
+        matchCount++;
+    }
+
+    private int[] hunks() {
+        int[] hunks = new int[64];
+        int count = 0, aPrev = 0, bPrev = 0;
+        for (int i = 0; i <= matchCount; i++) {
+            int aNext = i < matchCount ? matchA[i] : a.length;
+            int bNext = i < matchCount ? matchB[i] : b.length;
+            if (aNext > aPrev || bNext > bPrev) {
+                if (count + 4 > hunks.length)
+                    hunks = Arrays.copyOf(hunks, hunks.length * 2);
+                hunks[count++] = aPrev;
+                hunks[count++] = aNext;
+                hunks[count++] = bPrev;
+                hunks[count++] = bNext;
+            }
+            aPrev = aNext + 1;
+            bPrev = bNext + 1;
+        }
+        return Arrays.copyOf(hunks, count);
+    }
+
+    /**
+     * <p>
+     * Records the matching lines of aKept[aLo, aHi) and bKept[bLo, bHi).
+     * </p>
+     */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        //   common prefix
+        while (aLo < aHi && bLo < bHi && aKept[aLo] == bKept[bLo])
+            addMatch(aLo++, bLo++);
+
+        //   common suffix, recorded after the middle
+        int suffix = 0;
+        while (aLo < aHi - suffix && bLo < bHi - suffix && aKept[aHi - suffix - 1] == bKept[bHi - suffix - 1])
+            suffix++;
+        aHi -= suffix;
+        bHi -= suffix;
+
+        if (aLo < aHi && bLo < bHi)
+            bisect(aLo, aHi, bLo, bHi);
+
+        for (int i = 0; i < suffix; i++)
+            addMatch(aHi + i, bHi + i);
+    }
+
+    /**
+     * <p>
+     * Finds the middle snake of the shortest edit script and compares each
+     * side of it.
+     * </p>
+     */
+    private void bisect(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo, m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int vOffset = maxD, vLength = 2 * maxD + 2;
+        int[] v1 = new int[vLength], v2 = new int[vLength];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[vOffset + 1] = 0;
+        v2[vOffset + 1] = 0;
+        int delta = n - m;
+        boolean front = (delta & 1) != 0;
+        int k1Start = 0, k1End = 0, k2Start = 0, k2End = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            //   forward path
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                int k1Offset = vOffset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1]))
+                    x1 = v1[k1Offset + 1];
+                else
+                    x1 = v1[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && aKept[aLo + x1] == bKept[bLo + y1]) {
+                    x1++;
+                    y1++;
+                }
+                v1[k1Offset] = x1;
+                if (x1 > n)
+                    k1End += 2;
+                else if (y1 > m)
+                    k1Start += 2;
+                else if (front) {
+                    int k2Offset = vOffset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1) {
+                        if (x1 >= n - v2[k2Offset]) {
+                            split(aLo, aHi, bLo, bHi, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+
+            //   reverse path
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                int k2Offset = vOffset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1]))
+                    x2 = v2[k2Offset + 1];
+                else
+                    x2 = v2[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && aKept[aHi - x2 - 1] == bKept[bHi - y2 - 1]) {
+                    x2++;
+                    y2++;
+                }
+                v2[k2Offset] = x2;
+                if (x2 > n)
+                    k2End += 2;
+                else if (y2 > m)
+                    k2Start += 2;
+                else if (!front) {
+                    int k1Offset = vOffset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1) {
+                        int x1 = v1[k1Offset];
+                        int y1 = vOffset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            split(aLo, aHi, bLo, bHi, x1, y1);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        //   nothing in common
+    }
+
+    private void split(int aLo, int aHi, int bLo, int bHi, int x, int y) {
+        compare(aLo, aLo + x, bLo, bLo + y);
+        compare(aLo + x, aHi, bLo + y, bHi);
+    }
+
+    /**
+     * <p>
+     * An open addressing set of hashes.
+     * </p>
+     */
+    private static final class LongSet {
+        private final long[] table;
+        private final boolean[] used;
+        private final int mask;
+
+        private LongSet(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2) - 1) << 1;
+            table = new long[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        private int slot(long hash) {
+            return (int) (hash ^ (hash >>> 32)) * 0x9e3779b9 & mask;
+        }
+
+        private void add(long hash) {
+            int i = slot(hash);
+            while (used[i]) {
+                if (table[i] == hash)
+                    return;
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            table[i] = hash;
+        }
+
+        private boolean contains(long hash) {
+            int i = slot(hash);
+            while (used[i]) {
+                if (table[i] == hash)
+                    return true;
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+    }
+}
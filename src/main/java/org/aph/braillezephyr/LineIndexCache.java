@@ -0,0 +1,397 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>
+ * Keeps the line and page starts of recently opened documents, so that a
+ * large file that has not changed can be opened again without scanning
+ * it for lines.
+ * </p><p>
+ * Each snapshot is a file in the cache directory named from the hash of
+ * the document's path.  It holds the path, the size and modification time
+ * of the file and a hash of its content, then the length of each line
+ * along with whether it starts a page.  A snapshot is only used if the
+ * file still has the same size, modification time and hash.
+ * </p><p>
+ * Snapshots of documents hash the whole file with
+ * {@link #contentHash(CRC32C, long)}, as a document trusts the lines it is
+ * given and a change between samples that kept the size and time would
+ * leave it with lines holding delimiters.  The hash is found as the file
+ * is read, so the file is not read twice, and is compared with that of
+ * the snapshot afterwards.  Snapshots of file offsets hash only
+ * samples with {@link #sampleHash(ByteBuffer)}, so that it is quick even
+ * for a file of gigabytes, as the viewer checks its first lines against
+ * the snapshot.
+ * </p><p>
+ * Snapshots are either of offsets in the text of a {@link BZDocument} as
+ * read, or of byte offsets in the file, as used by {@link MappedBRF}.  A
+ * snapshot is written as its lines are found, so it never needs a copy of
+ * the whole index.
+ * </p><p>
+ * None of these methods need a display, and they are called on
+ * background threads, so snapshots are read and written off the UI
+ * thread.
+ * </p>
+ */
+final class LineIndexCache {
+    private static final int MAGIC = 0x425a4c58;
+    private static final int VERSION = 3;
+    private static final String EXTENSION = ".idx";
+    private static final int SAMPLES = 64, SAMPLE_SIZE = 4096;
+
+    /**
+     * <p>
+     * Documents at least this many characters long have their lines
+     * snapshot, as smaller ones are scanned faster than a snapshot is read.
+     * </p>
+     */
+    static final int THRESHOLD = 1 << 20;
+
+    /**
+     * What the offsets of a snapshot are of.
+     */
+    enum Offsets {
+        /**
+         * Offsets in the text of a document as read.
+         */
+        DOCUMENT,
+
+        /**
+         * Byte offsets in the file.
+         */
+        FILE
+    }
+
+    /**
+     * The lines of a file.
+     *
+     * @param lineStarts the line start offsets
+     * @param pageStarts the indexes of the lines that start pages after form feeds, starting with 0
+     * @param hash       the hash of the file when the snapshot was taken
+     */
+    record Snapshot(int @NonNull [] lineStarts, int @NonNull [] pageStarts, long hash) {
+    }
+
+    private final @NonNull Path directory;
+
+    /**
+     * @param directory the cache directory, created when the first snapshot is written
+     */
+    LineIndexCache(@NonNull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * <p>
+     * Returns the cache directory to use with a settings file, named after
+     * it, so &quot;.braillezephyr.conf&quot; has
+     * &quot;.braillezephyr-cache&quot;, or the
+     * <code>braillezephyr.cache</code> property.
+     * </p>
+     *
+     * @param settingsFile the settings file
+     */
+    static @NonNull Path getDirectory(@NonNull Path settingsFile) {
+        String directory = System.getProperty("braillezephyr.cache");
+        if (directory != null)
+            return Path.of(directory);
+        String name = settingsFile.getFileName().toString();
+        if (name.endsWith(".conf"))
+            name = name.substring(0, name.length() - ".conf".length());
+        return settingsFile.resolveSibling(name + "-cache");
+    }
+
+    /**
+     * <p>
+     * Hashes the start and end of the content and samples spread evenly
+     * between them.
+     * </p>
+     *
+     * @param bytes the content
+     * @return the hash
+     */
+    static long sampleHash(@NonNull ByteBuffer bytes) {
+        CRC32C crc = new CRC32C();
+        int size = bytes.limit();
+        if (size <= SAMPLES * SAMPLE_SIZE)
+            crc.update(bytes.slice(0, size));
+        else {
+            long stride = (size - SAMPLE_SIZE) / (SAMPLES - 1);
+            for (int i = 0; i < SAMPLES; i++)
+                crc.update(bytes.slice((int) (i * stride), SAMPLE_SIZE));
+        }
+        return crc.getValue() ^ ((long) size << 32);
+    }
+
+    /**
+     * @see #sampleHash(ByteBuffer)
+     */
+    static long sampleHash(@NonNull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("File too large to hash:  " + file);
+            return sampleHash(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * <p>
+     * Hashes all of the content of a file, from the checksum of its bytes
+     * found as it was read.
+     * </p>
+     *
+     * @param crc  the checksum of every byte of the file
+     * @param size the size of the file
+     * @return the hash
+     */
+    static long contentHash(@NonNull CRC32C crc, long size) {
+        return crc.getValue() ^ (size << 32);
+    }
+
+    private @NonNull Path getSnapshotFile(@NonNull String fileName) {
+        return directory.resolve(String.format("%08x", fileName.hashCode()) + EXTENSION);
+    }
+
+    /**
+     * <p>
+     * Reads the snapshot of a file, if it was taken when the file had the
+     * same size and modification time.  The caller must check that the
+     * file still has the hash of the snapshot, which may be found as the
+     * file is read.
+     * </p>
+     *
+     * @param fileName the file name
+     * @param offsets  what the offsets must be of
+     * @param size     the size of the file now
+     * @param modified the modification time of the file now, in milliseconds
+     * @return the snapshot, or null if there is none or the file has changed
+     */
+    @Nullable Snapshot read(@NonNull String fileName, @NonNull Offsets offsets, long size, long modified) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(getSnapshotFile(fileName)), 65536))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readByte() != offsets.ordinal())
+                return null;
+            if (!input.readUTF().equals(fileName) || input.readLong() != size || input.readLong() != modified)
+                return null;
+            long hash = input.readLong();
+
+            int lineCount = input.readInt();
+            int pageCount = input.readInt();
+            if (lineCount < 1 || pageCount < 1)
+                return null;
+            int[] lineStarts = new int[lineCount];
+            int[] pageStarts = new int[pageCount];
+            int lines = 1, pages = 1;
+            int value;
+            while ((value = readVarInt(input)) != 0) {
+                if (lines == lineCount)
+                    return null;
+                lineStarts[lines] = lineStarts[lines - 1] + (value >>> 1);
+                if ((value & 1) != 0) {
+                    if (pages == pageCount)
+                        return null;
+                    pageStarts[pages++] = lines;
+                }
+                lines++;
+            }
+            if (lines != lineCount || pages != pageCount)
+                return null;
+            return new Snapshot(lineStarts, pageStarts, hash);
+        } catch (NoSuchFileException | EOFException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * <p>
+     * Writes a snapshot of the line starts of a document just read, with
+     * no page starts, replacing any earlier one.
+     * </p>
+     *
+     * @param fileName   the file name of the document
+     * @param size       the size of the file when it was read
+     * @param modified   the modification time of the file when it was read, in milliseconds
+     * @param hash       the {@link #contentHash(CRC32C, long)} of the file when it was read
+     * @param lineStarts the line start offsets of the document as read
+     */
+    void write(@NonNull String fileName, long size, long modified, long hash, int @NonNull [] lineStarts) throws IOException {
+        try (SnapshotWriter writer = newWriter(fileName, Offsets.DOCUMENT, size, modified, hash)) {
+            for (int i = 1; i < lineStarts.length; i++)
+                writer.addLine(lineStarts[i], false);
+            writer.commit();
+        }
+    }
+
+    /**
+     * <p>
+     * Starts writing a snapshot, which replaces any earlier one when it is
+     * committed.
+     * </p>
+     *
+     * @param fileName the file name
+     * @param offsets  what the offsets are of
+     * @param size     the size of the file
+     * @param modified the modification time of the file, in milliseconds
+     * @param hash     the hash of the file
+     * @return the writer, to which each line after the first is added
+     */
+    @NonNull SnapshotWriter newWriter(@NonNull String fileName, @NonNull Offsets offsets, long size, long modified, long hash) throws IOException {
+        return new SnapshotWriter(getSnapshotFile(fileName), fileName, offsets, size, modified, hash);
+    }
+
+    /**
+     * <p>
+     * Writes a snapshot line by line to a temporary file, which replaces
+     * the snapshot when committed, or is deleted if closed first.
+     * </p><p>
+     * The line counts go in the header, which is written last, so the
+     * lines need not be counted first.
+     * </p>
+     */
+    static final class SnapshotWriter implements Closeable {
+        private final Path file, temp;
+        private final DataOutputStream output;
+        private final FileChannel channel;
+        private final long countsPosition;
+        private int lineCount = 1, pageCount = 1;
+        private int lastStart;
+        private boolean committed;
+
+        private SnapshotWriter(Path file, String fileName, Offsets offsets, long size, long modified, long hash) throws IOException {
+            this.file = file;
+            Files.createDirectories(file.getParent());
+            temp = file.resolveSibling(file.getFileName() + ".tmp");
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 65536));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeByte(offsets.ordinal());
+            output.writeUTF(fileName);
+            output.writeLong(size);
+            output.writeLong(modified);
+            output.writeLong(hash);
+            countsPosition = output.size();
+            output.writeInt(0);
+            output.writeInt(0);
+        }
+
+        /**
+         * @param start     the offset of the line
+         * @param pageStart whether the line starts a page
+         */
+        void addLine(int start, boolean pageStart) throws IOException {
+            if (start - lastStart >= 1 << 30)
+                throw new IOException("Line too long to snapshot");
+            writeVarInt(output, (start - lastStart) << 1 | (pageStart ? 1 : 0));
+            lastStart = start;
+            lineCount++;
+            if (pageStart)
+                pageCount++;
+        }
+
+        /**
+         * <p>
+         * Finishes the snapshot and replaces any earlier one with it.
+         * </p>
+         */
+        void commit() throws IOException {
+            writeVarInt(output, 0);
+            output.flush();
+            ByteBuffer counts = ByteBuffer.allocate(8).putInt(lineCount).putInt(pageCount).flip();
+            channel.write(counts, countsPosition);
+            output.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (committed)
+                return;
+            output.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * <p>
+     * Deletes the snapshots of every file but the given ones.
+     * </p>
+     *
+     * @param fileNames the file names to keep
+     */
+    void retain(@NonNull Collection<String> fileNames) throws IOException {
+        if (!Files.isDirectory(directory))
+            return;
+        Set<Path> keep = new HashSet<>();
+        for (String fileName : fileNames)
+            keep.add(getSnapshotFile(fileName));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream)
+                if (!keep.contains(file))
+                    Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * <p>
+     * Writes a value in as few bytes as it needs, seven bits to a byte,
+     * most lines of a braille document taking one.
+     * </p>
+     */
+    static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            output.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Bad line length");
+    }
+}
@@ -0,0 +1,109 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.*;
+import org.jspecify.annotations.NonNull;
+
+import java.time.Instant;
+
+/**
+ * <p>
+ * A dialog listing the entries held by a {@link BZLog}.
+ * </p><p>
+ * The table is virtual, so only the rows being shown are read from the
+ * log.  Rows whose entries have since been overwritten are shown as such
+ * until the list is refreshed.
+ * </p>
+ */
+final class LogDialog {
+    private final @NonNull BZLog log;
+    private final Shell shell;
+    private final Table table;
+    private final Label statusLabel;
+    private long first;
+
+    LogDialog(Shell parentShell, @NonNull BZLog log) {
+        this.log = log;
+        shell = new Shell(parentShell, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.PRIMARY_MODAL);
+        shell.setText("Log Messages");
+        shell.setLayout(new GridLayout(1, false));
+
+        table = new Table(shell, SWT.BORDER | SWT.SINGLE | SWT.FULL_SELECTION | SWT.VIRTUAL);
+        table.setHeaderVisible(true);
+        GridData gridData = new GridData(GridData.FILL_BOTH);
+        gridData.heightHint = 300;
+        table.setLayoutData(gridData);
+        addColumn("Time", 100);
+        addColumn("Level", 80);
+        addColumn("Source", 120);
+        addColumn("Message", 400);
+        table.addListener(SWT.SetData, e -> {
+            TableItem item = (TableItem) e.item;
+            BZLog.Entry entry = log.getEntry(first + table.indexOf(item));
+            if (entry == null) {
+                item.setText(3, "(overwritten)");
+                return;
+            }
+            item.setText(0, BZLog.TIME_FORMAT.format(Instant.ofEpochMilli(entry.time())));
+            item.setText(1, entry.level().toString());
+            item.setText(2, entry.source());
+            if (entry.repeats() > 0)
+                item.setText(3, entry.message() + "  (repeated " + entry.repeats() + " more times)");
+            else
+                item.setText(3, entry.message());
+        });
+
+        statusLabel = new Label(shell, 0);
+        statusLabel.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+
+        Composite buttons = new Composite(shell, 0);
+        buttons.setLayout(new RowLayout(SWT.HORIZONTAL));
+        Button refreshButton = new Button(buttons, SWT.PUSH);
+        refreshButton.setText("Refresh");
+        refreshButton.addListener(SWT.Selection, e -> refresh());
+        Button closeButton = new Button(buttons, SWT.PUSH);
+        closeButton.setText("Close");
+        closeButton.addListener(SWT.Selection, e -> shell.close());
+
+        refresh();
+        shell.pack();
+        shell.open();
+    }
+
+    private void addColumn(String name, int width) {
+        TableColumn column = new TableColumn(table, SWT.LEFT);
+        column.setText(name);
+        column.setWidth(width);
+    }
+
+    private void refresh() {
+        long next = log.getNext();
+        first = log.getFirst();
+        table.clearAll();
+        table.setItemCount((int) (next - first));
+        if (next > first)
+            table.showItem(table.getItem(table.getItemCount() - 1));
+
+        String status = (next - first) + " of " + next + " messages";
+        if (log.getDropped() > 0)
+            status += ", " + log.getDropped() + " not written to the console or log file";
+        statusLabel.setText(status);
+    }
+}
@@ -17,13 +17,21 @@
 package org.aph.braillezephyr;
 
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.SWTError;
+import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Shell;
 import org.jspecify.annotations.NonNull;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * <p>
@@ -34,49 +42,256 @@ import java.nio.file.Path;
  */
 public final class Main {
     private final @NonNull Shell shell;
-    private final @NonNull BZFile bzFile;
+    private final @NonNull BZTabs bzTabs;
     private final @NonNull BZSettings bzSettings;
 
     public static void main(String... args) {
-        new Main(args);
+        //   the JVM starting takes about the same time either way, so is not counted
+        long launchTime = StartupTimeline.getInstance().getStartTime();
+        if (args.length > 0 && args[0].equals("--convert")) {
+            System.exit(convert(args));
+        }
+        if (args.length > 0 && args[0].equals("--profile-startup")) {
+            System.exit(profileStartup(args));
+        }
+
+        //   let a running editor open the files
+        if (isSingleInstance(args)) {
+            List<Path> files = new ArrayList<>();
+            for (String arg : args)
+                files.add(Path.of(arg).normalize());
+            if (SingleInstance.forward(SingleInstance.getSocketPath(), files, launchTime))
+                return;
+        }
+        new Main(launchTime, args);
+    }
+
+    /**
+     * <p>
+     * Returns whether this launch should hand its files to a running
+     * editor, and otherwise listen for later launches.  This can be turned
+     * off with <code>-Dbraillezephyr.singleInstance=false</code>.
+     * </p>
+     */
+    private static boolean isSingleInstance(String... args) {
+        if (args.length > 0 && args[0].startsWith("--"))
+            return false;
+        return Boolean.parseBoolean(System.getProperty("braillezephyr.singleInstance", "true"));
+    }
+
+    /**
+     * <p>
+     * Converts between braille file formats without creating a
+     * display, for use from scripts.
+     * </p>
+     *
+     * @param args the command line arguments, <code>--convert input output</code>
+     * @return the exit status
+     */
+    private static int convert(String... args) {
+        if (args.length != 3) {
+            System.err.println("Usage:  --convert <input.brf|input.txt|input.bzy> <output.brf|output.txt|output.bzy>");
+            return 2;
+        }
+
+        try {
+            BZFile.convertFile(Path.of(args[1]).normalize(), Path.of(args[2]).normalize());
+        } catch (IOException | BZException exception) {
+            System.err.println("ERROR:  Unable to convert file:  " + exception.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * <p>
+     * Starts the editor with default settings, prints the startup timeline
+     * once the window is first painted, and exits, so that startup can be
+     * timed the same way each run.  This is also the run that trains the
+     * class data sharing archive.  Without a display, only reading,
+     * rewrapping and writing a document is run.
+     * </p>
+     *
+     * @param args the command line arguments, <code>--profile-startup [file]</code>
+     * @return the exit status
+     */
+    private static int profileStartup(String... args) {
+        if (args.length > 2) {
+            System.err.println("Usage:  --profile-startup [file]");
+            return 2;
+        }
+
+        try {
+            new Main(StartupTimeline.getInstance().getStartTime(), args);
+        } catch (SWTError | LinkageError error) {
+            StartupTimeline.getInstance().mark("SWT init");
+            System.err.println("No display, profiling documents only:  " + error.getMessage());
+            try {
+                profileDocument();
+            } catch (IOException | BZException exception) {
+                System.err.println("ERROR:  Unable to profile document:  " + exception.getMessage());
+                return 1;
+            }
+        }
+        System.out.println(StartupTimeline.getInstance().summary());
+        return 0;
+    }
+
+    private static void profileDocument() throws IOException, BZException {
+        StringBuilder brf = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            brf.append("  ,A ,BRF L9E ( TEXT TO REWRAP1 ,! 4DOCU;T ! ! SAME4 WORDS4 ;EACH L9E\r\n");
+        BZDocument document = new BZDocument();
+        BZFormat.readBRF(new StringReader(brf.toString()), document);
+        StartupTimeline.getInstance().mark("Read");
+        BZFormat.rewrap(document, 0);
+        StartupTimeline.getInstance().mark("Rewrap");
+        StringWriter writer = new StringWriter();
+        BZFormat.writeBZY(writer, document, new BZFormat.BZYHeader(null, 0, null, false, List.of()));
+        BZFormat.readBZY(new StringReader(writer.toString()), document);
+        BZFormat.writeBRF(new StringWriter(), document);
+        StartupTimeline.getInstance().mark("Write");
     }
 
     public Main(String... args) {
+        this(System.currentTimeMillis(), args);
+    }
+
+    private Main(long launchTime, String... args) {
+        boolean replay = args.length > 0 && args[0].equals("--replay-keys");
+        boolean profile = args.length > 0 && args[0].equals("--profile-startup");
+
+        //   read the settings while the display and window are created, the same settings every profile run
+        SettingsStore settingsStore = BZSettings.openStore(profile ? Path.of(System.getProperty("java.io.tmpdir"), "braillezephyr-profile.conf")
+                                                                   : BZSettings.getDefaultFile());
+
         //   must be before display is created (on Macs at least)
         Display.setAppName("BrailleZephyr");
 
+        StartupTimeline timeline = StartupTimeline.getInstance();
         Display display = Display.getDefault();
+        timeline.mark("SWT init");
 
         //   needed to catch Quit (Command-Q) on Macs
         display.addListener(SWT.Close, event -> event.doit = checkClosing());
 
         shell = new Shell(display);
-        shell.setLayout(new FillLayout());
+        GridLayout layout = new GridLayout();
+        layout.marginWidth = layout.marginHeight = layout.verticalSpacing = 0;
+        shell.setLayout(layout);
         shell.setText("BrailleZephyr");
         shell.addListener(SWT.Close, e -> e.doit = checkClosing());
+        timeline.mark("Window");
 
         final BZStyledText bzStyledText = new BZStyledText(shell);
-        bzFile = new BZFile(bzStyledText);
-        bzSettings = new BZSettings(bzStyledText);
-        new BZMenu(bzStyledText, bzFile, bzSettings);
+        BZFile bzFile = new BZFile(bzStyledText);
+        bzTabs = new BZTabs(bzStyledText, bzFile);
+
+        bzSettings = new BZSettings(bzStyledText, settingsStore, true);
+        bzFile.setSettings(bzSettings);
+        timeline.mark("Settings");
+        UIWatchdog watchdog = new UIWatchdog(display, bzStyledText.getLog(), UIWatchdog.DEFAULT_INTERVAL,
+                                             UIWatchdog.getThresholdProperty(bzStyledText.getLog()));
+        new BZMenu(bzStyledText, bzFile, bzSettings, bzTabs, watchdog);
+        timeline.mark("Menu");
 
-        //   assume any argument is a file to open
-        if (args.length > 0) {
-            bzFile.openFile(Path.of(args[0]).normalize());
+        //   assume any other arguments are files to open, each in its own tab
+        if (profile) {
+            if (args.length > 1)
+                bzTabs.openInNewTab(Path.of(args[1]).normalize());
+        } else if (!replay) {
+            for (String arg : args)
+                bzTabs.openInNewTab(Path.of(arg).normalize());
+        }
+        timeline.mark("Files");
+
+        SingleInstance singleInstance = null;
+        if (isSingleInstance(args)) {
+            try {
+                singleInstance = new SingleInstance(SingleInstance.getSocketPath(), display, bzStyledText.getLog(), files -> {
+                    for (Path file : files)
+                        bzTabs.openInNewTab(file);
+                    shell.setMinimized(false);
+                    shell.forceActive();
+                    shell.update();
+                });
+            } catch (IOException exception) {
+                bzStyledText.getLog().warning("Main", "Unable to listen for other launches:  " + exception.getMessage());
+            }
         }
 
         shell.open();
+        shell.update();
+        timeline.markFirstPaint();
+        bzStyledText.getLog().info("Main", timeline.summary());
+        if (!replay && !profile) {
+            bzStyledText.getLog().info("Main", String.format("Opened %d %s, %d ms after launch",
+                                                             args.length,
+                                                             args.length == 1 ? "file" : "files",
+                                                             System.currentTimeMillis() - launchTime));
+        }
+
+        //   skip the prompt to save
+        if (profile)
+            shell.dispose();
+        if (replay)
+            replayKeys(bzStyledText, args);
         while (!shell.isDisposed()) {
             if (!display.readAndDispatch())
                 display.sleep();
         }
 
+        watchdog.stop();
+        if (singleInstance != null)
+            singleInstance.close();
         display.dispose();
     }
 
+    /**
+     * <p>
+     * Types a saved key file into a new document, writes the keystroke
+     * latencies, and exits, so that latency can be compared between
+     * versions.
+     * </p>
+     *
+     * @param args the command line arguments, <code>--replay-keys keys [report]</code>
+     */
+    private void replayKeys(BZStyledText bzStyledText, String... args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage:  --replay-keys <keys.brf> [report.hgrm]");
+            shell.dispose();
+            return;
+        }
+
+        String keys;
+        try {
+            keys = Files.readString(Path.of(args[1]), StandardCharsets.US_ASCII);
+        } catch (IOException exception) {
+            System.err.println("ERROR:  Unable to read keys:  " + exception.getMessage());
+            shell.dispose();
+            return;
+        }
+
+        bzStyledText.replayKeys(keys, KeyReplay.DEFAULT_INTERVAL, () -> {
+            StringWriter report = new StringWriter();
+            try {
+                bzStyledText.getKeystrokeLatency().write(report);
+                if (args.length == 3)
+                    Files.writeString(Path.of(args[2]), report.toString(), StandardCharsets.UTF_8);
+                else
+                    System.out.print(report);
+            } catch (IOException exception) {
+                System.err.println("ERROR:  Unable to write report:  " + exception.getMessage());
+            }
+
+            //   skip the prompt to save
+            shell.dispose();
+        });
+    }
+
     private boolean checkClosing() {
-        //   check if text has been modified
-        boolean doit = bzFile.closeCurrentDocument();
+        //   check if any text has been modified
+        boolean doit = bzTabs.closeAllDocuments();
 
         //   write settings file
         if (doit) {
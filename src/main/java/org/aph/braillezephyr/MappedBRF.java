@@ -0,0 +1,491 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ * A read only view of a BRF file, for reading files too large to edit.
+ * </p><p>
+ * The file is memory mapped and never copied.  Only the start of each line
+ * is indexed, and the text of a line is decoded when it is asked for, so
+ * only what is on screen is materialized.
+ * </p><p>
+ * The first lines are indexed when the view is created, so it can be shown
+ * straight away however large the file is.  The rest are indexed on a
+ * background thread and appended to the view on the UI thread in batches,
+ * which the listener, if there is one, is told about as changes at the end
+ * of the text.
+ * </p><p>
+ * A form feed next to a line break is taken as part of the line delimiter
+ * and starts a new page, and one on its own is taken as a line break.  If
+ * the first lines have no form feeds, pages are the lines per page long.
+ * </p><p>
+ * If there is a {@link LineIndexCache}, the line and page starts are
+ * snapshot as they are indexed.  When an unchanged file is viewed again,
+ * the background thread reads the snapshot instead of the file and appends
+ * every line at once.
+ * </p><p>
+ * Apart from the background indexing, a view is only used on the UI
+ * thread.
+ * </p>
+ */
+final class MappedBRF implements BZDocumentContent.Source {
+    private static final int FIRST_CHUNK = 65536;
+    private static final int BATCH_INTERVAL = 250;
+    private static final int CHECK_INTERVAL = 65536;
+
+    private final @NonNull Path path;
+    private final ByteBuffer bytes;
+    private final int size;
+    private final long modified;
+    private BZDocument.@Nullable Listener listener;
+    private final @NonNull Executor uiExecutor;
+    private final @Nullable LineIndexCache cache;
+
+    private int[] lineStarts = new int[1024];
+    private int lineCount;
+    private int[] pageStarts = new int[64];
+    private int pageCount;
+    private int charCount;
+    private int linesPerPage = -1;
+    private boolean formFeeds, indexed;
+    private volatile boolean closed;
+
+    /**
+     * <p>
+     * Maps a file and indexes its first lines.
+     * </p>
+     *
+     * @param path       the BRF file
+     * @param uiExecutor runs tasks on the UI thread
+     * @throws IOException if the file cannot be mapped or is over 2 GB
+     */
+    MappedBRF(@NonNull Path path, @NonNull Executor uiExecutor) throws IOException {
+        this(path, uiExecutor, null);
+    }
+
+    /**
+     * <p>
+     * Maps a file and indexes its first lines, using and keeping a
+     * snapshot of its index.
+     * </p>
+     *
+     * @param path       the BRF file
+     * @param uiExecutor runs tasks on the UI thread
+     * @param cache      where the index is snapshot, or null for none
+     * @throws IOException if the file cannot be mapped or is over 2 GB
+     */
+    MappedBRF(@NonNull Path path, @NonNull Executor uiExecutor, @Nullable LineIndexCache cache) throws IOException {
+        this.path = path;
+        this.uiExecutor = uiExecutor;
+        this.cache = cache;
+        modified = Files.getLastModifiedTime(path).toMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE)
+                throw new IOException("File too large to view:  " + path);
+            size = (int) fileSize;
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        //   index enough lines to show straight away
+        lineStarts[lineCount++] = 0;
+        pageStarts[pageCount++] = 0;
+        int position = 0;
+        while (position < size && position < FIRST_CHUNK) {
+            if (!isDelimiter(bytes.get(position))) {
+                position++;
+                continue;
+            }
+            int end = delimiterEnd(position);
+            boolean formFeed = containsFormFeed(position, end);
+            if (formFeed) {
+                formFeeds = true;
+
+                //   count the line breaks before the form feed, as BZFormat.readBRF does
+                if (linesPerPage == -1)
+                    linesPerPage = bytes.get(position) == 0xc ? lineCount - 1 : lineCount;
+            }
+            position = end;
+            addLineStart(position);
+            if (formFeed)
+                pageStarts = add(pageStarts, pageCount++, lineCount - 1);
+        }
+        if (position == size) {
+            charCount = size;
+            indexed = true;
+        } else
+            charCount = lineStarts[lineCount - 1];
+    }
+
+    /**
+     * <p>
+     * Starts indexing the rest of the file on a background thread.
+     * </p>
+     */
+    void start() {
+        if (indexed)
+            return;
+        Thread thread = new Thread(this::index, "BrailleZephyr viewer index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void setListener(BZDocument.@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * <p>
+     * Stops the background indexing.  Nothing more is appended to the view.
+     * </p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @NonNull Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * @return whether the whole file has been indexed
+     */
+    boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * @return the number of lines before the first form feed, or -1 if the first lines had none
+     */
+    int getLinesPerPage() {
+        return linesPerPage;
+    }
+
+    /**
+     * @return the number of pages indexed so far, or -1 if the first lines had no form feeds
+     */
+    int getPageCount() {
+        return formFeeds ? pageCount : -1;
+    }
+
+    /**
+     * <p>
+     * Returns the approximate number of bytes used on the heap by the line
+     * index.
+     * </p>
+     */
+    long getIndexSize() {
+        return 4L * lineStarts.length + 4L * pageStarts.length;
+    }
+
+    @Override
+    public int getCharCount() {
+        return charCount;
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    @Override
+    public int getOffsetAtLine(int lineIndex) {
+        return lineStarts[lineIndex];
+    }
+
+    @Override
+    public int getLineAtOffset(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    @Override
+    public @NonNull String getLine(int lineIndex) {
+        int start = lineStarts[lineIndex];
+        return getTextRange(start, lineEnd(lineIndex) - start);
+    }
+
+    @Override
+    public void replaceTextRange(int start, int replaceLength, @NonNull String text) {
+        throw new IllegalStateException("Text is read only");
+    }
+
+    @Override
+    public @NonNull String getTextRange(int start, int length) {
+        byte[] range = new byte[length];
+        bytes.get(start, range);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+            chars[i] = (char) (range[i] & 0xff);
+        return new String(chars);
+    }
+
+    /**
+     * <p>
+     * Returns the lines indexed so far, which may not be all of them, so
+     * the view is not compared with other files.
+     * </p>
+     */
+    @Override
+    public @NonNull List<String> getLines() {
+        List<String> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++)
+            lines.add(getLine(i));
+        return lines;
+    }
+
+    @Override
+    public boolean isFirstLineOnPage(int lineIndex, int linesPerPage) {
+        if (!formFeeds)
+            return BZFormat.isFirstLineOnPage(lineIndex, linesPerPage);
+        return Arrays.binarySearch(pageStarts, 0, pageCount, lineIndex) >= 0;
+    }
+
+    /**
+     * <p>
+     * Returns the offset after the text of a line, where its delimiter
+     * starts.
+     * </p>
+     */
+    private int lineEnd(int lineIndex) {
+        int end = lineIndex + 1 < lineCount ? lineStarts[lineIndex + 1] : charCount;
+        for (int i = lineStarts[lineIndex]; i < end; i++)
+            if (isDelimiter(bytes.get(i)))
+                return i;
+        return end;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == '\n' || b == '\r' || b == 0xc;
+    }
+
+    /**
+     * <p>
+     * Returns the offset after the delimiter starting at
+     * <code>offset</code>, which is a line break with a form feed before or
+     * after it, or either on its own.
+     * </p>
+     */
+    private int delimiterEnd(int offset) {
+        boolean formFeed = false;
+        if (bytes.get(offset) == 0xc) {
+            formFeed = true;
+            offset++;
+        }
+        if (offset < size && bytes.get(offset) == '\r') {
+            offset++;
+            if (offset < size && bytes.get(offset) == '\n')
+                offset++;
+        } else if (offset < size && bytes.get(offset) == '\n')
+            offset++;
+        if (!formFeed && offset < size && bytes.get(offset) == 0xc)
+            offset++;
+        return offset;
+    }
+
+    private boolean containsFormFeed(int start, int end) {
+        for (int i = start; i < end; i++)
+            if (bytes.get(i) == 0xc)
+                return true;
+        return false;
+    }
+
+    private void addLineStart(int offset) {
+        lineStarts = add(lineStarts, lineCount++, offset);
+    }
+
+    /**
+     * <p>
+     * Sets <code>array[index]</code>, growing the array if it is full.
+     * </p>
+     *
+     * @return the array, or its replacement
+     */
+    private static int[] add(int[] array, int index, int value) {
+        if (index == array.length)
+            array = Arrays.copyOf(array, index * 2);
+        array[index] = value;
+        return array;
+    }
+
+    /**
+     * <p>
+     * Indexes the rest of the file, passing each batch of line starts to
+     * the UI thread, or reads them all from a snapshot if the file has not
+     * changed since it was taken.
+     * </p>
+     */
+    private void index() {
+        //   until the first batch is appended, only this thread uses the index
+        LineIndexCache.SnapshotWriter writer = null;
+        if (cache != null) {
+            long hash = LineIndexCache.sampleHash(bytes);
+            try {
+                if (indexFromSnapshot(hash))
+                    return;
+                writer = cache.newWriter(path.toString(), LineIndexCache.Offsets.FILE, size, modified, hash);
+                for (int i = 1; i < lineCount; i++)
+                    writer.addLine(lineStarts[i], Arrays.binarySearch(pageStarts, 0, pageCount, i) >= 0);
+            } catch (IOException ignored) {
+                writer = abandon(writer);
+            }
+        }
+
+        int[] batch = new int[4096];
+        int[] pageBatch = new int[64];
+        int count = 0, pages = 0;
+        int lines = lineCount;
+        int position = charCount;
+        long publishTime = System.nanoTime() + BATCH_INTERVAL * 1_000_000L;
+        int checkPosition = position + CHECK_INTERVAL;
+
+        while (position < size && !closed) {
+            if (!isDelimiter(bytes.get(position)))
+                position++;
+            else {
+                int end = delimiterEnd(position);
+                boolean formFeed = containsFormFeed(position, end);
+                position = end;
+                batch = add(batch, count++, position);
+                if (formFeed)
+                    pageBatch = add(pageBatch, pages++, lines);
+                lines++;
+                if (writer != null)
+                    try {
+                        writer.addLine(position, formFeed);
+                    } catch (IOException ignored) {
+                        writer = abandon(writer);
+                    }
+            }
+
+            if (position >= checkPosition) {
+                checkPosition = position + CHECK_INTERVAL;
+                if (count > 0 && System.nanoTime() >= publishTime) {
+                    publish(Arrays.copyOf(batch, count), Arrays.copyOf(pageBatch, pages), batch[count - 1], false);
+                    count = pages = 0;
+                    publishTime = System.nanoTime() + BATCH_INTERVAL * 1_000_000L;
+                }
+            }
+        }
+
+        if (!closed) {
+            publish(Arrays.copyOf(batch, count), Arrays.copyOf(pageBatch, pages), size, true);
+            if (writer != null)
+                try {
+                    writer.commit();
+                } catch (IOException ignored) {
+                }
+        }
+        abandon(writer);
+    }
+
+    /**
+     * <p>
+     * Appends the lines after those already indexed from a snapshot, if
+     * there is one for the file as it is.  As the whole file is not read,
+     * only the first lines are checked against the snapshot.
+     * </p>
+     *
+     * @return whether the snapshot was used
+     */
+    private boolean indexFromSnapshot(long hash) throws IOException {
+        LineIndexCache.Snapshot snapshot = cache.read(path.toString(), LineIndexCache.Offsets.FILE, size, modified);
+        if (snapshot == null || snapshot.hash() != hash)
+            return false;
+        int[] starts = snapshot.lineStarts();
+        if (starts.length < lineCount || starts[starts.length - 1] > size)
+            return false;
+        for (int i = 0; i < lineCount; i++)
+            if (starts[i] != lineStarts[i])
+                return false;
+
+        int[] pages = snapshot.pageStarts();
+        int firstPage = 0;
+        while (firstPage < pages.length && pages[firstPage] < lineCount)
+            firstPage++;
+        publish(Arrays.copyOfRange(starts, lineCount, starts.length), Arrays.copyOfRange(pages, firstPage, pages.length), size, true);
+        return true;
+    }
+
+    /**
+     * <p>
+     * Deletes a snapshot that will not be finished.
+     * </p>
+     *
+     * @return null, for the writer
+     */
+    private static LineIndexCache.@Nullable SnapshotWriter abandon(LineIndexCache.@Nullable SnapshotWriter writer) {
+        if (writer != null)
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        return null;
+    }
+
+    private void publish(int[] starts, int[] pages, int end, boolean last) {
+        uiExecutor.execute(() -> append(starts, pages, end, last));
+    }
+
+    /**
+     * <p>
+     * Appends lines indexed by the background thread, on the UI thread.
+     * </p>
+     */
+    private void append(int[] starts, int[] pages, int end, boolean last) {
+        if (closed)
+            return;
+
+        //   the text is not decoded, listeners only need the counts
+        if (listener != null)
+            listener.textChanging(charCount, 0, end - charCount, 0, starts.length, "");
+        if (lineCount + starts.length > lineStarts.length)
+            lineStarts = Arrays.copyOf(lineStarts, Math.max(lineStarts.length * 2, lineCount + starts.length));
+        System.arraycopy(starts, 0, lineStarts, lineCount, starts.length);
+        lineCount += starts.length;
+        if (pageCount + pages.length > pageStarts.length)
+            pageStarts = Arrays.copyOf(pageStarts, Math.max(pageStarts.length * 2, pageCount + pages.length));
+        System.arraycopy(pages, 0, pageStarts, pageCount, pages.length);
+        pageCount += pages.length;
+        charCount = end;
+        indexed = last;
+        if (listener != null)
+            listener.textChanged();
+    }
+}
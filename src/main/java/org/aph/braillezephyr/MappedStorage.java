@@ -0,0 +1,317 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Holds text outside of the Java heap, for documents too large to edit
+ * comfortably in a {@link GapStorage}.
+ * </p><p>
+ * The text as loaded is written to a temporary file that is then memory
+ * mapped read only, so it is paged in by the operating system as needed
+ * and never scanned by the garbage collector.  Edits are kept as a piece
+ * table, a list of pieces each taken from either the mapped text or a
+ * buffer of added text on the heap, so the heap only holds what has been
+ * typed or pasted.
+ * </p><p>
+ * The mapped text is one byte per character unless the loaded text had a
+ * character that does not fit, in which case it is two.
+ * </p>
+ */
+final class MappedStorage implements TextStorage {
+    private static final int WRITE_BUFFER_SIZE = 65536;
+
+    /**
+     * A run of text from the mapped text or the added text.
+     */
+    private record Piece(boolean added, int start, int length) {
+    }
+
+    private final ByteBuffer original;
+    private final boolean wide;
+    private final StringBuilder added = new StringBuilder();
+    private final List<Piece> pieces = new ArrayList<>();
+    private int[] ends = new int[0];
+    private int length;
+    private int lastPiece;
+
+    /**
+     * Builds the mapped text by writing it to a temporary file.
+     */
+    static final class Builder implements TextStorage.Builder {
+        private final Path path;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private boolean wide;
+        private long length;
+
+        Builder() throws IOException {
+            path = Files.createTempFile("braillezephyr", ".text");
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public @NonNull Builder append(char c) throws IOException {
+            if (!wide && !TextStorage.canEncode(c))
+                widen();
+            if (buffer.remaining() < 2)
+                flush();
+            if (wide)
+                buffer.putChar(c);
+            else
+                buffer.put(TextStorage.encode(c));
+            length++;
+            return this;
+        }
+
+        @Override
+        public @NonNull Builder append(@NonNull CharSequence text) throws IOException {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public @NonNull Builder append(@NonNull CharSequence text, int start, int end) throws IOException {
+            for (int i = start; i < end; i++)
+                append(text.charAt(i));
+            return this;
+        }
+
+        @Override
+        public @NonNull Builder append(char @NonNull [] chars, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++)
+                append(chars[i]);
+            return this;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * <p>
+         * Rewrites what has been written so far with two bytes per
+         * character.
+         * </p>
+         */
+        private void widen() throws IOException {
+            flush();
+            Path widePath = Files.createTempFile("braillezephyr", ".text");
+            try (FileChannel wideChannel = FileChannel.open(widePath, StandardOpenOption.WRITE)) {
+                ByteBuffer in = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+                ByteBuffer out = ByteBuffer.allocate(2 * WRITE_BUFFER_SIZE);
+                channel.position(0);
+                while (channel.read(in) > 0) {
+                    in.flip();
+                    while (in.hasRemaining())
+                        out.putChar(TextStorage.decode(in.get()));
+                    in.clear();
+                    out.flip();
+                    while (out.hasRemaining())
+                        wideChannel.write(out);
+                    out.clear();
+                }
+            }
+
+            //   copy back so that the channel stays the same
+            channel.truncate(0);
+            try (FileChannel wideChannel = FileChannel.open(widePath, StandardOpenOption.READ)) {
+                long size = wideChannel.size();
+                for (long position = 0; position < size; )
+                    position += wideChannel.transferTo(position, size - position, channel);
+            }
+            Files.delete(widePath);
+            channel.position(2 * length);
+            wide = true;
+        }
+
+        @Override
+        public @NonNull MappedStorage build() throws IOException {
+            flush();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Document too large");
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            channel.close();
+
+            //   the mapping stays valid after the file is removed, except on Windows
+            try {
+                Files.delete(path);
+            } catch (IOException ignored) {
+                path.toFile().deleteOnExit();
+            }
+            return new MappedStorage(mapped, wide, (int) length);
+        }
+    }
+
+    private MappedStorage(ByteBuffer original, boolean wide, int length) {
+        this.original = original;
+        this.wide = wide;
+        this.length = length;
+        if (length > 0)
+            pieces.add(new Piece(false, 0, length));
+        index();
+    }
+
+    /**
+     * <p>
+     * Recalculates where each piece ends in the text.
+     * </p>
+     */
+    private void index() {
+        if (ends.length < pieces.size() || ends.length > 2 * pieces.size() + 16)
+            ends = new int[pieces.size() + pieces.size() / 2 + 8];
+        int end = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            end += pieces.get(i).length();
+            ends[i] = end;
+        }
+        lastPiece = 0;
+    }
+
+    /**
+     * <p>
+     * Returns the piece holding a character.  The last piece found is
+     * checked first, as characters tend to be read in order.
+     * </p>
+     */
+    private int findPiece(int index) {
+        int piece = lastPiece;
+        if (piece < pieces.size() && index < ends[piece] && index >= ends[piece] - pieces.get(piece).length())
+            return piece;
+        if (piece + 1 < pieces.size() && index >= ends[piece] && index < ends[piece + 1]) {
+            lastPiece = piece + 1;
+            return piece + 1;
+        }
+
+        int low = 0, high = pieces.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= index)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        lastPiece = low;
+        return low;
+    }
+
+    private char originalAt(int index) {
+        if (wide)
+            return original.getChar(2 * index);
+        return TextStorage.decode(original.get(index));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public boolean isCompact() {
+        return !wide;
+    }
+
+    @Override
+    public long getHeapSize() {
+        return 2L * added.capacity() + 16L * pieces.size() + 4L * ends.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        int piece = findPiece(index);
+        Piece p = pieces.get(piece);
+        int at = p.start() + index - (ends[piece] - p.length());
+        return p.added() ? added.charAt(at) : originalAt(at);
+    }
+
+    @Override
+    public @NonNull String substring(int start, int length) {
+        if (length == 0)
+            return "";
+        char[] chars = new char[length];
+        int piece = findPiece(start);
+        int count = 0;
+        while (count < length) {
+            Piece p = pieces.get(piece);
+            int from = p.start() + start + count - (ends[piece] - p.length());
+            int n = Math.min(length - count, p.start() + p.length() - from);
+            if (p.added())
+                added.getChars(from, from + n, chars, count);
+            else
+                for (int i = 0; i < n; i++)
+                    chars[count + i] = originalAt(from + i);
+            count += n;
+            piece++;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * <p>
+     * Makes sure a piece starts at <code>offset</code>.
+     * </p>
+     *
+     * @return the index of the piece starting at <code>offset</code>, or the number of pieces at the end
+     */
+    private int split(int offset) {
+        if (offset == length)
+            return pieces.size();
+        int piece = findPiece(offset);
+        Piece p = pieces.get(piece);
+        int pieceStart = ends[piece] - p.length();
+        if (offset == pieceStart)
+            return piece;
+
+        int before = offset - pieceStart;
+        pieces.set(piece, new Piece(p.added(), p.start(), before));
+        pieces.add(piece + 1, new Piece(p.added(), p.start() + before, p.length() - before));
+        index();
+        return piece + 1;
+    }
+
+    @Override
+    public void replace(int start, int length, @NonNull String text) {
+        int first = split(start);
+        int last = split(start + length);
+        pieces.subList(first, last).clear();
+
+        if (!text.isEmpty()) {
+            //   typing usually continues the last piece added
+            Piece previous = first > 0 ? pieces.get(first - 1) : null;
+            if (previous != null && previous.added() && previous.start() + previous.length() == added.length())
+                pieces.set(first - 1, new Piece(true, previous.start(), previous.length() + text.length()));
+            else
+                pieces.add(first, new Piece(true, added.length(), text.length()));
+            added.append(text);
+        }
+
+        this.length += text.length() - length;
+        index();
+    }
+}
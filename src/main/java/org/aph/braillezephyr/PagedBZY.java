@@ -0,0 +1,469 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * Reads and writes version 2 of the BrailleZephyr file format, which can
+ * be read a page at a time.
+ * </p><p>
+ * The file starts with a signature and the header values, followed by
+ * the pages, each of which holds its lines separated by line feeds in
+ * UTF-8, optionally compressed where that makes it smaller.  At the end is a
+ * directory of where each page is and how many characters and lines it
+ * has, then the lines that end paragraphs, so no paragraph end marks are
+ * kept in the text.  The last eight bytes give the position of the
+ * directory.
+ * </p><p>
+ * Opening a file reads only the header and directory, so any page can
+ * then be read on its own, such as the one with the caret.  Pages are
+ * read with positional reads, so the rest can be read on another thread.
+ * None of these methods need a display.
+ * </p>
+ *
+ * @see BZFormat#readBZY(java.io.Reader, BZDocument)
+ */
+final class PagedBZY implements Closeable {
+    private static final byte[] MAGIC = {(byte) 0x89, 'B', 'Z', 'Y', '\r', '\n', 0x1a, '\n'};
+    private static final int VERSION = 2;
+    private static final int DEFAULT_PAGE_LINES = 64;
+    private static final int COMPRESSED = 1;
+
+    /**
+     * <p>
+     * Whether all BrailleZephyr files are written in this format, chosen by
+     * setting the <code>braillezephyr.bzyVersion</code> property to 2.
+     * Otherwise only files already in this format are, and the rest are
+     * written in the text format, which older versions and text tools can
+     * read.
+     * </p>
+     */
+    static final boolean ENABLED = Integer.getInteger("braillezephyr.bzyVersion", 1) >= VERSION;
+
+    /**
+     * <p>
+     * Whether pages are compressed when written, set by the
+     * <code>braillezephyr.bzyCompress</code> property.  Compression makes
+     * files about a third smaller, but as each page is compressed on its
+     * own, writing and reading the whole file take several times as long.
+     * </p>
+     */
+    static final boolean COMPRESS = Boolean.getBoolean("braillezephyr.bzyCompress");
+
+    /**
+     * <p>
+     * Files at least this many bytes are shown from the page with the
+     * caret while the rest is read in the background, as smaller ones are
+     * read before there is time to notice.
+     * </p>
+     */
+    static final long BACKGROUND_THRESHOLD = 1 << 20;
+
+    /**
+     * @param position     the position of the page in the file
+     * @param storedLength the number of bytes stored in the file
+     * @param length       the number of bytes of UTF-8 text
+     * @param charCount    the number of characters in the document, including paragraph ends but not line delimiters
+     * @param firstLine    the index of the first line
+     * @param lineCount    the number of lines
+     * @param compressed   whether the stored bytes are deflated
+     */
+    private record Page(long position,
+                        int storedLength,
+                        int length,
+                        int charCount,
+                        int firstLine,
+                        int lineCount,
+                        boolean compressed) {
+    }
+
+    private final FileChannel channel;
+    private final BZFormat.BZYHeader header;
+    private final int charsPerLine, linesPerPage;
+    private final Page[] pages;
+    private final int lineCount;
+    private final BitSet paragraphEnds = new BitSet();
+
+    private PagedBZY(@NonNull FileChannel channel) throws IOException, BZException {
+        this.channel = channel;
+
+        //   read the directory from the position in the last eight bytes
+        long size = channel.size();
+        if (size < MAGIC.length + Long.BYTES || !Arrays.equals(read(0, MAGIC.length), MAGIC))
+            throw new BZException("Invalid file format");
+        long directoryPosition = ByteBuffer.wrap(read(size - Long.BYTES, Long.BYTES)).getLong();
+        if (directoryPosition < MAGIC.length || size - Long.BYTES - directoryPosition > Integer.MAX_VALUE)
+            throw new BZException("Invalid file format");
+        DataInputStream directory = dataInput(read(directoryPosition, (int) (size - Long.BYTES - directoryPosition)));
+
+        pages = new Page[directory.readInt()];
+        int line = 0;
+        for (int i = 0; i < pages.length; i++) {
+            long position = directory.readLong();
+            int storedLength = directory.readInt(), length = directory.readInt();
+            int charCount = directory.readInt(), lines = directory.readInt();
+            boolean compressed = (directory.readUnsignedByte() & COMPRESSED) != 0;
+            if (position < MAGIC.length || position + storedLength > directoryPosition || length < 0 || lines <= 0)
+                throw new BZException("Invalid file format");
+            pages[i] = new Page(position, storedLength, length, charCount, line, lines, compressed);
+            line += lines;
+        }
+        lineCount = line;
+        int paragraphs = directory.readInt();
+        line = 0;
+        for (int i = 0; i < paragraphs; i++) {
+            line += LineIndexCache.readVarInt(directory);
+            paragraphEnds.set(line);
+        }
+
+        //   the header is between the signature and the first page
+        long headerEnd = pages.length > 0 ? pages[0].position : directoryPosition;
+        DataInputStream input = dataInput(read(MAGIC.length, (int) (headerEnd - MAGIC.length)));
+        int version = input.readInt();
+        if (version > VERSION)
+            throw new BZException("Unsupported file format version " + version);
+        String appVersion = input.readUTF();
+        charsPerLine = input.readInt();
+        linesPerPage = input.readInt();
+        int caretOffset = input.readInt();
+        String viewFocus = input.readUTF();
+        header = new BZFormat.BZYHeader(appVersion.isEmpty() ? null : appVersion,
+                                        caretOffset,
+                                        viewFocus.isEmpty() ? null : viewFocus,
+                                        false,
+                                        List.of());
+    }
+
+    /**
+     * @param path the file to check
+     * @return whether the file is in this format rather than the text format
+     */
+    static boolean isPaged(@NonNull Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return Arrays.equals(input.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * <p>
+     * Opens a file, reading its header and page directory.
+     * </p>
+     *
+     * @param path the file to open
+     * @return the open file, which must be closed
+     * @throws BZException if the file is not in this format
+     */
+    static @NonNull PagedBZY open(@NonNull Path path) throws IOException, BZException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new PagedBZY(channel);
+        } catch (IOException | BZException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private byte @NonNull [] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException();
+        return buffer.array();
+    }
+
+    private static @NonNull DataInputStream dataInput(byte @NonNull [] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * @return the header, with the caret offset and view focus
+     */
+    BZFormat.@NonNull BZYHeader getHeader() {
+        return header;
+    }
+
+    int getCharsPerLine() {
+        return charsPerLine;
+    }
+
+    int getLinesPerPage() {
+        return linesPerPage;
+    }
+
+    int getPageCount() {
+        return pages.length;
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @param page the index of the page
+     * @return the index of the first line of the page
+     */
+    int getFirstLine(int page) {
+        return pages[page].firstLine;
+    }
+
+    /**
+     * @param page      the index of the page
+     * @param eolLength the length of the line delimiter of the document
+     * @return the offset of the start of the page in the document
+     */
+    int getPageOffset(int page, int eolLength) {
+        int offset = 0;
+        for (int i = 0; i < page; i++)
+            offset += pages[i].charCount + pages[i].lineCount * eolLength;
+        return offset;
+    }
+
+    /**
+     * @param offset    an offset in the document
+     * @param eolLength the length of the line delimiter of the document
+     * @return the index of the page containing the offset, or the last page if it is beyond the end
+     */
+    int getPageAtOffset(int offset, int eolLength) {
+        int start = 0;
+        for (int i = 0; i < pages.length - 1; i++) {
+            start += pages[i].charCount + pages[i].lineCount * eolLength;
+            if (offset < start)
+                return i;
+        }
+        return Math.max(0, pages.length - 1);
+    }
+
+    /**
+     * <p>
+     * Appends the text of a range of pages, with paragraph ends, and the
+     * lines separated by <code>eol</code>.
+     * </p>
+     *
+     * @param from    the index of the first page
+     * @param to      the index after the last page
+     * @param builder where to append the text
+     * @param eol     the line delimiter
+     * @return the offsets of the starts of the lines appended, from the start of the first page
+     */
+    int @NonNull [] readPages(int from, int to, TextStorage.@NonNull Builder builder, @NonNull String eol) throws IOException {
+        if (from >= to)
+            return new int[0];
+        int firstLine = pages[from].firstLine;
+        int[] lineStarts = new int[pages[to - 1].firstLine + pages[to - 1].lineCount - firstLine];
+        int offset = 0, line = 0;
+        Inflater inflater = new Inflater();
+        try {
+            for (int i = from; i < to; i++) {
+                String text = new String(readBody(pages[i], inflater), StandardCharsets.UTF_8);
+                int start = 0;
+                for (int j = 0; j < pages[i].lineCount; j++) {
+                    if (start > text.length())
+                        throw new IOException("Page " + (i + 1) + " is damaged");
+                    int end = text.indexOf('\n', start);
+                    if (end == -1)
+                        end = text.length();
+                    if (line > 0) {
+                        builder.append(eol);
+                        offset += eol.length();
+                    }
+                    lineStarts[line] = offset;
+                    builder.append(text, start, end);
+                    offset += end - start;
+                    if (paragraphEnds.get(firstLine + line)) {
+                        builder.append(BZFormat.PARAGRAPH_END);
+                        offset++;
+                    }
+                    line++;
+                    start = end + 1;
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return lineStarts;
+    }
+
+    private byte @NonNull [] readBody(@NonNull Page page, @NonNull Inflater inflater) throws IOException {
+        byte[] stored = read(page.position, page.storedLength);
+        if (!page.compressed)
+            return stored;
+        byte[] bytes = new byte[page.length];
+        inflater.reset();
+        inflater.setInput(stored);
+        try {
+            int length = 0;
+            while (length < bytes.length) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput()))
+                    throw new EOFException();
+                length += inflated;
+            }
+        } catch (DataFormatException exception) {
+            throw new IOException(exception.getMessage(), exception);
+        }
+        return bytes;
+    }
+
+    /**
+     * <p>
+     * Replaces the text of <code>document</code> with the whole file.
+     * </p><p>
+     * The document's characters per line and lines per page are set from
+     * the header, and its line delimiter becomes the system's.
+     * </p>
+     *
+     * @param document the document to replace
+     */
+    void readAll(@NonNull BZDocument document) throws IOException {
+        String eol = System.lineSeparator();
+        TextStorage.Builder builder = document.newBuilder();
+        document.setLineStartsHint(readPages(0, pages.length, builder, eol));
+        document.setText(builder.build());
+        document.setEol(eol);
+        if (charsPerLine != -1)
+            document.setCharsPerLine(charsPerLine);
+        if (linesPerPage != -1)
+            document.setLinesPerPage(linesPerPage);
+    }
+
+    /**
+     * <p>
+     * Writes <code>document</code> in this format, a page of the
+     * document's lines per page to each page of the file, or 64 lines if
+     * it has no pages.
+     * </p><p>
+     * The <code>returnAtEnd</code> and <code>unknown</code> values of
+     * <code>header</code> are ignored, as an empty last line is kept as
+     * any other line.
+     * </p>
+     *
+     * @param output   the stream to write to
+     * @param document the document to write
+     * @param header   the header values to write
+     * @param compress whether to compress pages that become smaller
+     */
+    static void write(@NonNull OutputStream output,
+                      @NonNull BZDocument document,
+                      BZFormat.@NonNull BZYHeader header,
+                      boolean compress) throws IOException {
+        DataOutputStream data = new DataOutputStream(output);
+        data.write(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(header.version() == null ? "" : header.version());
+        data.writeInt(document.getCharsPerLine());
+        data.writeInt(document.getLinesPerPage());
+        data.writeInt(header.caretOffset());
+        data.writeUTF(header.viewFocus() == null ? "" : header.viewFocus());
+
+        //   positions are counted here as DataOutputStream only counts to 2 GB
+        long position = data.size();
+        int lineCount = document.getLineCount();
+        int linesPerPage = document.getLinesPerPage() > 0 ? document.getLinesPerPage() : DEFAULT_PAGE_LINES;
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+        DataOutputStream directory = new DataOutputStream(directoryBytes);
+        directory.writeInt((lineCount + linesPerPage - 1) / linesPerPage);
+        BitSet paragraphEnds = new BitSet();
+        StringBuilder text = new StringBuilder();
+        byte[] deflated = new byte[0];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            for (int firstLine = 0; firstLine < lineCount; firstLine += linesPerPage) {
+                int lastLine = Math.min(lineCount, firstLine + linesPerPage);
+                int charCount = 0;
+                text.setLength(0);
+                for (int i = firstLine; i < lastLine; i++) {
+                    String line = document.getLine(i);
+                    charCount += line.length();
+                    if (i > firstLine)
+                        text.append('\n');
+                    if (BZFormat.isParagraphEnd(line)) {
+                        text.append(line, 0, line.length() - 1);
+                        paragraphEnds.set(i);
+                    } else
+                        text.append(line);
+                }
+
+                byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                byte[] stored = bytes;
+                int storedLength = bytes.length;
+                if (compress && bytes.length > 0) {
+                    //   keep the page as it is unless deflating makes it smaller
+                    if (deflated.length < bytes.length)
+                        deflated = new byte[bytes.length];
+                    deflater.reset();
+                    deflater.setInput(bytes);
+                    deflater.finish();
+                    int length = 0;
+                    while (!deflater.finished() && length < bytes.length)
+                        length += deflater.deflate(deflated, length, bytes.length - length);
+                    if (deflater.finished() && length < bytes.length) {
+                        stored = deflated;
+                        storedLength = length;
+                    }
+                }
+
+                data.write(stored, 0, storedLength);
+                directory.writeLong(position);
+                directory.writeInt(storedLength);
+                directory.writeInt(bytes.length);
+                directory.writeInt(charCount);
+                directory.writeInt(lastLine - firstLine);
+                directory.writeByte(stored == deflated ? COMPRESSED : 0);
+                position += storedLength;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        directory.writeInt(paragraphEnds.cardinality());
+        int previous = 0;
+        for (int i = paragraphEnds.nextSetBit(0); i >= 0; i = paragraphEnds.nextSetBit(i + 1)) {
+            LineIndexCache.writeVarInt(directory, i - previous);
+            previous = i;
+        }
+        directoryBytes.writeTo(data);
+        data.writeLong(position);
+        data.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
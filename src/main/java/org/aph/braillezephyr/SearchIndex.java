@@ -0,0 +1,276 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ * A trigram index over the lines of a <code>StyledTextContent</code>, used
+ * to skip lines that cannot contain a search string.
+ * </p><p>
+ * The lines are grouped into blocks, and each block has a bit filter of the
+ * case folded trigrams in its lines.  A block is only searched when all the
+ * trigrams of the search string are set in its filter.  False positives are
+ * possible, so the lines of a candidate block must still be searched.
+ * </p><p>
+ * The initial index is built on a background thread from a copy of the
+ * text.  After that, each change only merges and clears the filters of the
+ * blocks it touches, and those blocks are reindexed when next searched.
+ * </p>
+ */
+final class SearchIndex implements TextChangeListener {
+    private static final int BLOCK_LINES = 32;
+    private static final int FILTER_SHIFT = 13;
+    private static final int FILTER_LONGS = (1 << FILTER_SHIFT) / 64;
+
+    @FunctionalInterface
+    interface BlockVisitor {
+        /**
+         * @param firstLine the index of the first line of the block
+         * @param lineCount the number of lines in the block
+         * @return false to stop visiting blocks
+         */
+        boolean visit(int firstLine, int lineCount);
+    }
+
+    private static final class Block {
+        private int lineCount;
+        private long @Nullable [] filter;
+
+        private Block(int lineCount, long @Nullable [] filter) {
+            this.lineCount = lineCount;
+            this.filter = filter;
+        }
+    }
+
+    private final StyledTextContent content;
+    private final Executor uiExecutor;
+
+    private List<Block> blocks = new ArrayList<>();
+    private boolean ready, building;
+    private int modifications;
+    private int changeLine, replaceLineCount, newLineCount;
+
+    /**
+     * <p>
+     * Creates a new index and starts building it.
+     * </p>
+     *
+     * @param content    the content to index, only accessed on the UI thread
+     * @param uiExecutor runs tasks on the UI thread
+     */
+    SearchIndex(StyledTextContent content, Executor uiExecutor) {
+        this.content = content;
+        this.uiExecutor = uiExecutor;
+        content.addTextChangeListener(this);
+        rebuild();
+    }
+
+    void dispose() {
+        content.removeTextChangeListener(this);
+    }
+
+    /**
+     * <p>
+     * Returns whether the background build has finished.  Until then every
+     * line is a candidate.
+     * </p>
+     *
+     * @return whether the index can filter lines
+     */
+    boolean isReady() {
+        return ready;
+    }
+
+    private void rebuild() {
+        ready = false;
+        if (building)
+            return;
+        building = true;
+
+        final int snapshotModifications = modifications;
+        final String text = content.getTextRange(0, content.getCharCount());
+        Thread thread = new Thread(() -> {
+            List<Block> built = build(text);
+            uiExecutor.execute(() -> {
+                building = false;
+                if (snapshotModifications != modifications) {
+                    rebuild();
+                    return;
+                }
+                blocks = built;
+                ready = true;
+            });
+        }, "BrailleZephyr search index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static List<Block> build(String text) {
+        List<Block> built = new ArrayList<>(text.length() / (BLOCK_LINES * 32) + 1);
+        long[] filter = new long[FILTER_LONGS];
+        int lines = 0, start = 0, length = text.length();
+
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : '\n';
+            if (c != '\n' && c != '\r')
+                continue;
+
+            addLine(filter, text, start, i);
+            lines++;
+            if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n')
+                i++;
+            start = i + 1;
+
+            if (lines == BLOCK_LINES) {
+                built.add(new Block(lines, filter));
+                filter = new long[FILTER_LONGS];
+                lines = 0;
+            }
+        }
+        if (lines > 0 || built.isEmpty())
+            built.add(new Block(lines, filter));
+
+        return built;
+    }
+
+    private static int fold(char c) {
+        return BrailleTranscoder.toUpperCase(c);
+    }
+
+    private static int hash(int c0, int c1, int c2) {
+        return ((c0 * 961 + c1 * 31 + c2) * 0x9e3779b9) >>> (32 - FILTER_SHIFT);
+    }
+
+    private static void addLine(long[] filter, CharSequence text, int start, int end) {
+        if (end - start < 3)
+            return;
+        int c0 = fold(text.charAt(start)), c1 = fold(text.charAt(start + 1));
+        for (int i = start + 2; i < end; i++) {
+            int c2 = fold(text.charAt(i));
+            int bit = hash(c0, c1, c2);
+            filter[bit >>> 6] |= 1L << bit;
+            c0 = c1;
+            c1 = c2;
+        }
+    }
+
+    private boolean mayContain(Block block, int firstLine, String literal) {
+        if (block.filter == null) {
+            long[] filter = new long[FILTER_LONGS];
+            for (int i = firstLine; i < firstLine + block.lineCount; i++) {
+                String line = content.getLine(i);
+                addLine(filter, line, 0, line.length());
+            }
+            block.filter = filter;
+        }
+
+        int c0 = fold(literal.charAt(0)), c1 = fold(literal.charAt(1));
+        for (int i = 2; i < literal.length(); i++) {
+            int c2 = fold(literal.charAt(i));
+            int bit = hash(c0, c1, c2);
+            if ((block.filter[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+            c0 = c1;
+            c1 = c2;
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * Visits the blocks of lines that may contain <code>literal</code>,
+     * ignoring case.
+     * </p>
+     *
+     * @param literal the text that must be found, or <code>null</code> to visit all lines
+     * @param visitor called for each candidate block in line order
+     */
+    void findCandidates(@Nullable String literal, BlockVisitor visitor) {
+        if (!ready || literal == null || literal.length() < 3
+                || literal.indexOf('\n') >= 0 || literal.indexOf('\r') >= 0) {
+            visitor.visit(0, content.getLineCount());
+            return;
+        }
+
+        int line = 0;
+        for (Block block : blocks) {
+            if (mayContain(block, line, literal))
+                if (!visitor.visit(line, block.lineCount))
+                    return;
+            line += block.lineCount;
+        }
+    }
+
+    @Override
+    public void textChanging(TextChangingEvent event) {
+        if (!ready)
+            return;
+        changeLine = content.getLineAtOffset(event.start);
+        replaceLineCount = event.replaceLineCount + 1;
+        newLineCount = event.newLineCount + 1;
+    }
+
+    @Override
+    public void textChanged(TextChangedEvent event) {
+        modifications++;
+        if (!ready)
+            return;
+
+        //   find block containing first changed line
+        int b = 0, line = 0;
+        while (b < blocks.size() - 1 && line + blocks.get(b).lineCount <= changeLine)
+            line += blocks.get(b++).lineCount;
+
+        //   merge blocks containing replaced lines
+        Block block = blocks.get(b);
+        int lineCount = block.lineCount, end = changeLine - line + replaceLineCount;
+        while (lineCount < end && b + 1 < blocks.size())
+            lineCount += blocks.remove(b + 1).lineCount;
+        if (lineCount < end) {
+            rebuild();
+            return;
+        }
+        block.lineCount = lineCount - replaceLineCount + newLineCount;
+        block.filter = null;
+
+        //   split block if it has grown too large
+        if (block.lineCount > BLOCK_LINES * 2) {
+            int remaining = block.lineCount;
+            block.lineCount = BLOCK_LINES;
+            remaining -= BLOCK_LINES;
+            while (remaining > 0) {
+                int size = Math.min(BLOCK_LINES, remaining);
+                blocks.add(++b, new Block(size, null));
+                remaining -= size;
+            }
+        }
+    }
+
+    @Override
+    public void textSet(TextChangedEvent event) {
+        modifications++;
+        rebuild();
+    }
+}
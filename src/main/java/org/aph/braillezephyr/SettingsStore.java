@@ -0,0 +1,457 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Holds the settings, checked against a schema of typed keys, and the
+ * state of recently opened documents, and keeps the settings file up to
+ * date.
+ * </p><p>
+ * The file is read on a background thread as soon as the store is
+ * opened, so reading overlaps with creating the window, and getting or
+ * setting a value waits until it has been read.  Each change is written
+ * on the same thread after a short delay, so a burst of changes is written
+ * once.  The file is written to a temporary file that then replaces it,
+ * so a crash leaves either the old or the new settings, never a partial
+ * file.
+ * </p><p>
+ * The file has one setting per line, the key and its value separated by a
+ * space.  A key may be repeated for a list.  Lines that are not in the
+ * schema are kept, so settings of other versions are not lost.
+ * </p>
+ */
+final class SettingsStore {
+    private static final long WRITE_DELAY = 1000;
+    private static final int MAX_DOCUMENTS = 200;
+    private static final String DOCUMENT_KEY = "document";
+
+    /**
+     * A setting, with how it is read from and written to the file.
+     *
+     * @param <T> the type of the value
+     */
+    static final class Key<T> {
+        private final @NonNull String name;
+        private final @Nullable T defaultValue;
+        private final @NonNull Function<String, T> parser;
+        private final @NonNull Function<T, String> formatter;
+
+        private Key(@NonNull String name, @Nullable T defaultValue, @NonNull Function<String, T> parser, @NonNull Function<T, String> formatter) {
+            this.name = name;
+            this.defaultValue = defaultValue;
+            this.parser = parser;
+            this.formatter = formatter;
+        }
+
+        @NonNull String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * @param defaultValue the value when the setting is not in the file, or null if there is none
+     * @param parser       converts the text of the value, throwing IllegalArgumentException if it is invalid
+     * @param formatter    converts the value to text
+     */
+    static <T> @NonNull Key<T> key(@NonNull String name, @Nullable T defaultValue, @NonNull Function<String, T> parser, @NonNull Function<T, String> formatter) {
+        return new Key<>(name, defaultValue, parser, formatter);
+    }
+
+    static @NonNull Key<Integer> intKey(@NonNull String name) {
+        return key(name, null, Integer::valueOf, String::valueOf);
+    }
+
+    static @NonNull Key<Boolean> booleanKey(@NonNull String name) {
+        return key(name, null, Boolean::valueOf, String::valueOf);
+    }
+
+    static @NonNull Key<String> stringKey(@NonNull String name) {
+        return key(name, null, Function.identity(), Function.identity());
+    }
+
+    /**
+     * The state of a document when it was last open, and of its file when
+     * it was last read or written.
+     *
+     * @param caretOffset  the caret offset
+     * @param viewFocus    the view with the focus, braille or ascii
+     * @param linesPerPage the lines per page
+     * @param charsPerLine the characters per line
+     * @param pageCount    the number of pages
+     * @param size         the size of the file, or -1 if not known
+     * @param modified     the modified time of the file in milliseconds, or -1 if not known
+     */
+    record DocumentSettings(int caretOffset,
+                            @NonNull String viewFocus,
+                            int linesPerPage,
+                            int charsPerLine,
+                            int pageCount,
+                            long size,
+                            long modified) {
+        /**
+         * @return whether the file had this size and modified time
+         */
+        boolean isUnchanged(long size, long modified) {
+            return this.size == size && this.modified == modified && size != -1;
+        }
+    }
+
+    private final @NonNull Path file;
+    private final Map<String, Key<?>> schema = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor;
+    private final CompletableFuture<Void> loaded;
+
+    //   guarded by this, the values of each key as written in the file
+    private final Map<String, List<String>> values = new LinkedHashMap<>();
+    private final List<String> unknown = new ArrayList<>();
+    private final Map<String, DocumentSettings> documents = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<String> problems = new ArrayList<>();
+    private @Nullable ScheduledFuture<?> pendingWrite;
+    private boolean exists;
+
+    private volatile @Nullable Consumer<String> errorHandler;
+
+    /**
+     * <p>
+     * Opens a settings file, and starts reading it in the background.
+     * </p>
+     *
+     * @param file   the settings file, which need not exist
+     * @param schema the keys of the settings
+     */
+    SettingsStore(@NonNull Path file, @NonNull List<Key<?>> schema) {
+        this.file = file;
+        for (Key<?> key : schema)
+            this.schema.put(key.name, key);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BrailleZephyr settings");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loaded = CompletableFuture.runAsync(this::read, executor);
+    }
+
+    @NonNull Path getFile() {
+        return file;
+    }
+
+    /**
+     * @param errorHandler told about settings that could not be written
+     */
+    void setErrorHandler(@Nullable Consumer<String> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * <p>
+     * Waits for the file to be read, and returns whether it existed.
+     * </p>
+     */
+    boolean waitForLoad() {
+        loaded.join();
+        synchronized (this) {
+            return exists;
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the lines of the file that could not be read, and clears
+     * them.
+     * </p>
+     */
+    synchronized @NonNull List<String> takeProblems() {
+        List<String> list = new ArrayList<>(problems);
+        problems.clear();
+        return list;
+    }
+
+    private void read() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException ignored) {
+            return;
+        } catch (IOException exception) {
+            synchronized (this) {
+                problems.add("Unable to read settings file:  " + exception.getMessage());
+            }
+            return;
+        }
+
+        synchronized (this) {
+            exists = true;
+            int lineNumber = 0;
+            for (String line : lines) {
+                lineNumber++;
+                if (line.isEmpty())
+                    continue;
+                int offset = line.indexOf(' ');
+                String name = offset < 0 ? line : line.substring(0, offset);
+                String value = offset < 0 ? "" : line.substring(offset + 1);
+                if (name.equals(DOCUMENT_KEY)) {
+                    if (!readDocument(value))
+                        problems.add("Bad setting value, line #" + lineNumber + ":  " + line);
+                    continue;
+                }
+
+                Key<?> key = schema.get(name);
+                if (key == null) {
+                    unknown.add(line);
+                    problems.add("Unknown setting, line #" + lineNumber + ":  " + line);
+                    continue;
+                }
+                try {
+                    key.parser.apply(value);
+                    values.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+                } catch (IllegalArgumentException ignored) {
+                    problems.add("Bad setting value, line #" + lineNumber + ":  " + line);
+                }
+            }
+        }
+    }
+
+    private boolean readDocument(String value) {
+        String[] tokens = value.split(" ", 8);
+        if (tokens.length != 8)
+            return false;
+        try {
+            documents.put(tokens[7], new DocumentSettings(Integer.parseInt(tokens[0]),
+                                                          tokens[1],
+                                                          Integer.parseInt(tokens[2]),
+                                                          Integer.parseInt(tokens[3]),
+                                                          Integer.parseInt(tokens[4]),
+                                                          Long.parseLong(tokens[5]),
+                                                          Long.parseLong(tokens[6])));
+            return true;
+        } catch (NumberFormatException ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the value of a setting, or its default if it is not set
+     */
+    <T> @Nullable T get(@NonNull Key<T> key) {
+        loaded.join();
+        synchronized (this) {
+            List<String> list = values.get(key.name);
+            if (list == null)
+                return key.defaultValue;
+            return key.parser.apply(list.getLast());
+        }
+    }
+
+    /**
+     * @return the values of a setting that may be repeated, in order
+     */
+    <T> @NonNull List<T> getList(@NonNull Key<T> key) {
+        loaded.join();
+        synchronized (this) {
+            List<T> list = new ArrayList<>();
+            for (String value : values.getOrDefault(key.name, List.of()))
+                list.add(key.parser.apply(value));
+            return list;
+        }
+    }
+
+    /**
+     * <p>
+     * Sets a setting, and writes the file shortly if it has changed.
+     * </p>
+     *
+     * @param value the value, or null to remove the setting
+     */
+    <T> void set(@NonNull Key<T> key, @Nullable T value) {
+        setValues(key.name, value == null ? List.of() : List.of(key.formatter.apply(value)));
+    }
+
+    /**
+     * <p>
+     * Sets the values of a setting that may be repeated, and writes the
+     * file shortly if they have changed.
+     * </p>
+     */
+    <T> void setList(@NonNull Key<T> key, @NonNull List<T> list) {
+        List<String> strings = new ArrayList<>(list.size());
+        for (T value : list)
+            strings.add(key.formatter.apply(value));
+        setValues(key.name, strings);
+    }
+
+    private void setValues(String name, List<String> list) {
+        loaded.join();
+        synchronized (this) {
+            if (Objects.equals(values.getOrDefault(name, List.of()), list))
+                return;
+            if (list.isEmpty())
+                values.remove(name);
+            else
+                values.put(name, new ArrayList<>(list));
+            scheduleWrite();
+        }
+    }
+
+    /**
+     * @return the state of a document when it was last open, or null if it is not known
+     */
+    @Nullable DocumentSettings getDocument(@NonNull String path) {
+        loaded.join();
+        synchronized (this) {
+            return documents.get(path);
+        }
+    }
+
+    /**
+     * <p>
+     * Remembers the state of a document, forgetting the least recently
+     * used document if too many are remembered.
+     * </p>
+     */
+    void putDocument(@NonNull String path, @NonNull DocumentSettings settings) {
+        loaded.join();
+        synchronized (this) {
+            if (settings.equals(documents.put(path, settings)))
+                return;
+            if (documents.size() > MAX_DOCUMENTS)
+                documents.remove(documents.keySet().iterator().next());
+            scheduleWrite();
+        }
+    }
+
+    /**
+     * <p>
+     * Runs a task on the background thread, after the file has been read
+     * and after any tasks run before it.
+     * </p>
+     *
+     * @param task the task, such as reading or writing a cache file
+     */
+    void execute(@NonNull Runnable task) {
+        loaded.thenRunAsync(task, executor);
+    }
+
+    private void scheduleWrite() {
+        if (pendingWrite == null || pendingWrite.isDone())
+            pendingWrite = executor.schedule(this::write, WRITE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>
+     * Writes any changes now, and waits for them to be written.
+     * </p>
+     *
+     * @return whether the settings were written
+     */
+    boolean flush() {
+        loaded.join();
+        synchronized (this) {
+            if (pendingWrite != null)
+                pendingWrite.cancel(false);
+            pendingWrite = null;
+        }
+        try {
+            return executor.submit(this::write).get();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException exception) {
+            return false;
+        }
+    }
+
+    private boolean write() {
+        String text;
+        synchronized (this) {
+            text = format();
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(text);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException exception) {
+            Consumer<String> handler = errorHandler;
+            if (handler != null)
+                handler.accept("Unable to write settings file:  " + exception.getMessage());
+            return false;
+        }
+    }
+
+    private String format() {
+        StringBuilder builder = new StringBuilder();
+        for (String name : schema.keySet())
+            for (String value : values.getOrDefault(name, List.of()))
+                builder.append(name).append(' ').append(value).append('\n');
+        for (String line : unknown)
+            builder.append(line).append('\n');
+        for (Map.Entry<String, DocumentSettings> entry : documents.entrySet()) {
+            DocumentSettings settings = entry.getValue();
+            builder.append(DOCUMENT_KEY).append(' ')
+                   .append(settings.caretOffset()).append(' ')
+                   .append(settings.viewFocus()).append(' ')
+                   .append(settings.linesPerPage()).append(' ')
+                   .append(settings.charsPerLine()).append(' ')
+                   .append(settings.pageCount()).append(' ')
+                   .append(settings.size()).append(' ')
+                   .append(settings.modified()).append(' ')
+                   .append(entry.getKey()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * <p>
+     * Stops the background thread once any change waiting to be written
+     * has been written.
+     * </p>
+     */
+    void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,282 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+import org.jspecify.annotations.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Lets a running editor open the files of a later launch, so they are
+ * shown without starting another JVM, loading SWT and the fonts, and
+ * opening the bells.
+ * </p><p>
+ * The first editor listens on a Unix domain socket.  A later launch
+ * connects to it and sends the time it was launched and the absolute path
+ * of each file, one per line, ending with an empty line.  The running
+ * editor opens the files on the UI thread, then replies with a line, so
+ * the launch only exits once the files are shown.  If nothing is
+ * listening, or the editor does not reply within
+ * {@value #DEFAULT_TIMEOUT} milliseconds, the launch starts a full editor
+ * instead.  The time can be changed with the
+ * <code>braillezephyr.forwardTimeout</code> property.
+ * </p><p>
+ * The socket is in <code>XDG_RUNTIME_DIR</code>, or otherwise in a
+ * directory of the temporary directory that only the user can open,
+ * unless set with the <code>braillezephyr.socket</code> property.  The
+ * directory of the socket must be owned by the user and closed to
+ * everyone else.  A socket owned by another user is never connected to or
+ * replaced, nor is one an editor is still listening on, even if it is too
+ * busy to reply, but one left by an editor that did not exit cleanly is
+ * replaced.
+ * </p>
+ */
+final class SingleInstance {
+    private static final String SOURCE = "SingleInstance";
+    private static final String OPENED = "OK";
+    private static final int DEFAULT_TIMEOUT = 10000;
+    private static final int TIMEOUT = Integer.getInteger("braillezephyr.forwardTimeout", DEFAULT_TIMEOUT);
+    private static final Set<PosixFilePermission> PRIVATE = PosixFilePermissions.fromString("rwx------");
+
+    private final @NonNull Path socket;
+    private final @NonNull Display display;
+    private final @NonNull BZLog log;
+    private final @NonNull Consumer<List<Path>> opener;
+    private final ServerSocketChannel server;
+
+    /**
+     * <p>
+     * Returns the socket of the editor for this user.
+     * </p>
+     */
+    static @NonNull Path getSocketPath() {
+        String value = System.getProperty("braillezephyr.socket");
+        if (value != null)
+            return Path.of(value);
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        if (runtime != null && !runtime.isEmpty() && Files.isDirectory(Path.of(runtime)))
+            return Path.of(runtime, "braillezephyr.socket");
+        return Path.of(System.getProperty("java.io.tmpdir"), "braillezephyr-" + System.getProperty("user.name"), "braillezephyr.socket");
+    }
+
+    /**
+     * @return whether <code>path</code> is owned by this user, without following links
+     */
+    private static boolean isOwned(@NonNull Path path) throws IOException {
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+        return Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).equals(user);
+    }
+
+    /**
+     * @return whether <code>directory</code> is owned by this user and, where there are permissions, only they can open it
+     */
+    private static boolean isPrivate(@NonNull Path directory) throws IOException {
+        if (!isOwned(directory))
+            return false;
+        if (!directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            return true;
+        return Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS).equals(PRIVATE);
+    }
+
+    /**
+     * <p>
+     * Sends files to a running editor and waits for them to be opened.
+     * </p>
+     *
+     * @param socket     the socket of the running editor
+     * @param files      the files to open, which may be none to just show the editor
+     * @param launchTime when this launch started, in milliseconds since the epoch
+     * @return whether a running editor opened the files in time
+     */
+    static boolean forward(@NonNull Path socket, @NonNull List<Path> files, long launchTime) {
+        StringBuilder request = new StringBuilder();
+        request.append(launchTime).append('\n');
+        for (Path file : files)
+            request.append(file.toAbsolutePath()).append('\n');
+        request.append('\n');
+        ByteBuffer output = StandardCharsets.UTF_8.encode(request.toString());
+        ByteBuffer input = ByteBuffer.allocate(OPENED.length() + 1);
+        long deadline = System.nanoTime() + TIMEOUT * 1_000_000L;
+
+        try {
+            Path directory = socket.toAbsolutePath().getParent();
+            if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS) || !isOwned(socket) || directory != null && !isPrivate(directory))
+                return false;
+
+            //   a wedged editor must not hold up this launch
+            try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+                 Selector selector = Selector.open()) {
+                channel.configureBlocking(false);
+                boolean connected = channel.connect(UnixDomainSocketAddress.of(socket));
+                SelectionKey key = channel.register(selector, connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT);
+                while (true) {
+                    long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                    if (remaining <= 0)
+                        return false;
+                    if (selector.select(remaining) == 0)
+                        continue;
+                    selector.selectedKeys().clear();
+
+                    if (key.isConnectable()) {
+                        if (channel.finishConnect())
+                            key.interestOps(SelectionKey.OP_WRITE);
+                    } else if (key.isWritable()) {
+                        channel.write(output);
+                        if (!output.hasRemaining())
+                            key.interestOps(SelectionKey.OP_READ);
+                    } else if (key.isReadable()) {
+                        if (channel.read(input) < 0 || !input.hasRemaining())
+                            return input.position() > 0 && OPENED.equals(new String(input.array(), 0, input.position(), StandardCharsets.UTF_8).strip());
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            //   nothing is listening, or it exited before replying
+            return false;
+        }
+    }
+
+    /**
+     * <p>
+     * Starts listening for later launches.
+     * </p>
+     *
+     * @param socket  the socket to listen on
+     * @param display the display whose thread opens the files
+     * @param log     where the files opened are logged
+     * @param opener  opens the files, on the UI thread
+     * @throws IOException if the socket cannot be created, its directory is not private, or another editor is listening on it
+     */
+    SingleInstance(@NonNull Path socket, @NonNull Display display, @NonNull BZLog log, @NonNull Consumer<List<Path>> opener) throws IOException {
+        this.socket = socket;
+        this.display = display;
+        this.log = log;
+        this.opener = opener;
+
+        Path directory = socket.toAbsolutePath().getParent();
+        if (directory != null) {
+            if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+                if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+                    Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PRIVATE));
+                else
+                    Files.createDirectories(directory);
+            }
+            //   another user able to open the directory could replace the socket
+            if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) || !isPrivate(directory))
+                throw new IOException(directory + " is not a directory only this user can open");
+        }
+
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            if (!isOwned(socket))
+                throw new IOException(socket + " is owned by another user");
+
+            //   an editor too busy to reply is still listening, but a socket
+            //   refusing connections was left by one that did not exit cleanly
+            try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+                throw new IOException(socket + " is in use by another editor");
+            } catch (ConnectException ignored) {
+                Files.deleteIfExists(socket);
+            }
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+
+        Thread thread = new Thread(this::accept, "BrailleZephyr single instance");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try (SocketChannel channel = server.accept()) {
+                receive(channel);
+            } catch (IOException exception) {
+                if (server.isOpen())
+                    log.warning(SOURCE, "Unable to receive files:  " + exception.getMessage());
+            } catch (SWTException ignored) {
+                //   the display was disposed while the files were being opened
+                return;
+            }
+        }
+    }
+
+    private void receive(SocketChannel channel) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line == null)
+            return;
+        long launchTime;
+        try {
+            launchTime = Long.parseLong(line);
+        } catch (NumberFormatException ignored) {
+            log.warning(SOURCE, "Invalid request:  " + line);
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        while ((line = reader.readLine()) != null && !line.isEmpty())
+            files.add(Path.of(line));
+
+        display.syncExec(() -> opener.accept(files));
+        log.info(SOURCE, String.format("Opened %d forwarded %s, %d ms after launch",
+                                       files.size(),
+                                       files.size() == 1 ? "file" : "files",
+                                       System.currentTimeMillis() - launchTime));
+
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        writer.write(OPENED + "\n");
+        writer.flush();
+    }
+
+    /**
+     * <p>
+     * Stops listening and removes the socket.
+     * </p>
+     */
+    void close() {
+        try {
+            server.close();
+            Files.deleteIfExists(socket);
+        } catch (IOException exception) {
+            log.warning(SOURCE, "Unable to remove socket:  " + exception.getMessage());
+        }
+    }
+}
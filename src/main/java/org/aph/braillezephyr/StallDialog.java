@@ -0,0 +1,134 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.*;
+import org.jspecify.annotations.NonNull;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * <p>
+ * A dialog showing how responsive the event loop has been, as recorded by
+ * a {@link UIWatchdog}.
+ * </p><p>
+ * Selecting a stall shows where the UI thread was when it was caught.
+ * </p>
+ */
+final class StallDialog {
+    private final @NonNull UIWatchdog watchdog;
+    private final Shell shell;
+    private final Label turnsLabel;
+    private final Label stallsLabel;
+    private final Table table;
+    private final Text stackText;
+    private List<UIWatchdog.Stall> stalls;
+
+    StallDialog(Shell parentShell, @NonNull UIWatchdog watchdog) {
+        this.watchdog = watchdog;
+        shell = new Shell(parentShell, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.PRIMARY_MODAL);
+        shell.setText("Event Loop Stalls");
+        shell.setLayout(new GridLayout(1, false));
+
+        turnsLabel = new Label(shell, 0);
+        turnsLabel.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        stallsLabel = new Label(shell, 0);
+        stallsLabel.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+
+        table = new Table(shell, SWT.BORDER | SWT.SINGLE | SWT.FULL_SELECTION);
+        table.setHeaderVisible(true);
+        GridData gridData = new GridData(GridData.FILL_BOTH);
+        gridData.heightHint = 200;
+        table.setLayoutData(gridData);
+        addColumn("Time", 100);
+        addColumn("Duration", 100);
+        addColumn("Where", 400);
+        table.addListener(SWT.Selection, e -> showStack());
+
+        stackText = new Text(shell, SWT.BORDER | SWT.MULTI | SWT.READ_ONLY | SWT.V_SCROLL | SWT.H_SCROLL);
+        gridData = new GridData(GridData.FILL_BOTH);
+        gridData.heightHint = 150;
+        stackText.setLayoutData(gridData);
+
+        Composite buttons = new Composite(shell, 0);
+        buttons.setLayout(new RowLayout(SWT.HORIZONTAL));
+        Button refreshButton = new Button(buttons, SWT.PUSH);
+        refreshButton.setText("Refresh");
+        refreshButton.addListener(SWT.Selection, e -> refresh());
+        Button resetButton = new Button(buttons, SWT.PUSH);
+        resetButton.setText("Reset");
+        resetButton.addListener(SWT.Selection, e -> {
+            watchdog.reset();
+            refresh();
+        });
+        Button closeButton = new Button(buttons, SWT.PUSH);
+        closeButton.setText("Close");
+        closeButton.addListener(SWT.Selection, e -> shell.close());
+
+        refresh();
+        shell.pack();
+        shell.open();
+    }
+
+    private void addColumn(String name, int width) {
+        TableColumn column = new TableColumn(table, SWT.LEFT);
+        column.setText(name);
+        column.setWidth(width);
+    }
+
+    private void refresh() {
+        turnsLabel.setText("Event loop turns:  " + watchdog.getTurns().summary());
+        stallsLabel.setText("Stalls over " + watchdog.getThreshold() + " ms:  " + watchdog.getStalls().summary());
+
+        stalls = watchdog.getRecentStalls();
+        table.removeAll();
+        for (int i = stalls.size() - 1; i >= 0; i--) {
+            UIWatchdog.Stall stall = stalls.get(i);
+            TableItem item = new TableItem(table, 0);
+            item.setText(0, BZLog.TIME_FORMAT.format(Instant.ofEpochMilli(stall.time())));
+            item.setText(1, String.format("%.0f ms", LatencyHistogram.toMillis(stall.duration())));
+            item.setText(2, getWhere(stall.stack()));
+        }
+        stackText.setText("");
+    }
+
+    /**
+     * <p>
+     * Returns the innermost frame in BrailleZephyr's own code, as that is
+     * usually more telling than the toolkit frames above it.
+     * </p>
+     */
+    private static String getWhere(StackTraceElement[] stack) {
+        for (StackTraceElement element : stack)
+            if (element.getClassName().startsWith("org.aph.braillezephyr."))
+                return element.toString();
+        return stack.length > 0 ? stack[0].toString() : "";
+    }
+
+    private void showStack() {
+        int index = table.getSelectionIndex();
+        if (index == -1)
+            return;
+        StringBuilder builder = new StringBuilder();
+        for (StackTraceElement element : stalls.get(stalls.size() - 1 - index).stack())
+            builder.append(element).append('\n');
+        stackText.setText(builder.toString());
+    }
+}
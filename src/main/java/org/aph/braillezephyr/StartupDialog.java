@@ -0,0 +1,88 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.dnd.Clipboard;
+import org.eclipse.swt.dnd.TextTransfer;
+import org.eclipse.swt.dnd.Transfer;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.*;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * <p>
+ * A dialog showing how long each phase of starting the editor took, as
+ * recorded by the {@link StartupTimeline}.
+ * </p>
+ */
+final class StartupDialog {
+    private final Shell shell;
+    private final Table table;
+
+    StartupDialog(Shell parentShell, @NonNull StartupTimeline timeline) {
+        shell = new Shell(parentShell, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.PRIMARY_MODAL);
+        shell.setText("Startup Timeline");
+        shell.setLayout(new GridLayout(1, false));
+
+        Label totalLabel = new Label(shell, 0);
+        totalLabel.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        totalLabel.setText(String.format("%s %.0f ms after launch",
+                                         timeline.isPainted() ? "First paint" : "Started",
+                                         LatencyHistogram.toMillis(timeline.getTotal())));
+
+        table = new Table(shell, SWT.BORDER | SWT.SINGLE | SWT.FULL_SELECTION);
+        table.setHeaderVisible(true);
+        GridData gridData = new GridData(GridData.FILL_BOTH);
+        gridData.heightHint = 250;
+        table.setLayoutData(gridData);
+        addColumn("Phase", 150);
+        addColumn("Duration", 100);
+        addColumn("Since Launch", 100);
+
+        long since = 0;
+        for (StartupTimeline.Phase phase : timeline.getPhases()) {
+            since += phase.duration();
+            TableItem item = new TableItem(table, 0);
+            item.setText(0, phase.name());
+            item.setText(1, String.format("%.1f ms", LatencyHistogram.toMillis(phase.duration())));
+            item.setText(2, String.format("%.0f ms", LatencyHistogram.toMillis(since)));
+        }
+
+        Composite buttons = new Composite(shell, 0);
+        buttons.setLayout(new RowLayout(SWT.HORIZONTAL));
+        Button copyButton = new Button(buttons, SWT.PUSH);
+        copyButton.setText("Copy");
+        copyButton.addListener(SWT.Selection, e -> {
+            Clipboard clipboard = new Clipboard(shell.getDisplay());
+            clipboard.setContents(new Object[]{timeline.summary()}, new Transfer[]{TextTransfer.getInstance()});
+            clipboard.dispose();
+        });
+        Button closeButton = new Button(buttons, SWT.PUSH);
+        closeButton.setText("Close");
+        closeButton.addListener(SWT.Selection, e -> shell.close());
+
+        shell.pack();
+        shell.open();
+    }
+
+    private void addColumn(String name, int width) {
+        TableColumn column = new TableColumn(table, SWT.LEFT);
+        column.setText(name);
+        column.setWidth(width);
+    }
+}
@@ -0,0 +1,138 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Records how long each phase of starting the editor takes, up to the
+ * first paint.
+ * </p><p>
+ * The timeline starts when the editor's main method is first run.  Each
+ * call to {@link #mark(String)} ends a phase, which took the time since
+ * the previous one.  How long the JVM took to start before the main
+ * method is only looked up when asked for, as that loads the management
+ * classes.  Marks after the first paint are ignored, so a timeline
+ * describes one startup.
+ * </p><p>
+ * The timeline is only used on the UI thread.
+ * </p>
+ */
+final class StartupTimeline {
+    /**
+     * A phase of startup.
+     *
+     * @param name     what was being done
+     * @param duration how long it took, in nanoseconds
+     */
+    record Phase(@NonNull String name, long duration) {
+    }
+
+    private static final StartupTimeline instance = new StartupTimeline();
+
+    private final long startTime = System.currentTimeMillis();
+    private final long start = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private long last = start;
+    private boolean painted;
+
+    private StartupTimeline() {
+    }
+
+    static @NonNull StartupTimeline getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return when the main method started, in milliseconds since the epoch
+     */
+    long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * <p>
+     * Ends a phase of startup.
+     * </p>
+     *
+     * @param name what was being done since the previous mark
+     */
+    void mark(@NonNull String name) {
+        if (painted)
+            return;
+        long now = System.nanoTime();
+        phases.add(new Phase(name, now - last));
+        last = now;
+    }
+
+    /**
+     * <p>
+     * Ends the last phase of startup, when the window has first been
+     * painted.
+     * </p>
+     */
+    void markFirstPaint() {
+        mark("First paint");
+        painted = true;
+    }
+
+    /**
+     * @return whether the window has been painted
+     */
+    boolean isPainted() {
+        return painted;
+    }
+
+    /**
+     * @return the phases so far, starting with the JVM
+     */
+    @NonNull List<Phase> getPhases() {
+        List<Phase> list = new ArrayList<>(phases.size() + 1);
+        list.add(new Phase("JVM", getJvmTime() * 1_000_000));
+        list.addAll(phases);
+        return list;
+    }
+
+    /**
+     * @return how long from the JVM starting to the last mark, in nanoseconds
+     */
+    long getTotal() {
+        return getJvmTime() * 1_000_000 + last - start;
+    }
+
+    private long getJvmTime() {
+        return Math.max(0, startTime - ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    /**
+     * @return the total and each phase in milliseconds, on one line
+     */
+    @NonNull String summary() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(painted ? "First paint " : "Started ")
+               .append(String.format("%.0f ms after launch:", LatencyHistogram.toMillis(getTotal())));
+        String separator = "  ";
+        for (Phase phase : getPhases()) {
+            builder.append(separator).append(String.format("%s %.0f ms", phase.name(), LatencyHistogram.toMillis(phase.duration())));
+            separator = ", ";
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * Holds the characters of a {@link BZDocument}.  The document keeps the
+ * line index and tells its listeners about changes, the storage only
+ * holds the text.
+ * </p><p>
+ * Characters below U+00FF are stored in one byte where the storage
+ * allows, with {@link BZFormat#PARAGRAPH_END} stored as 0xff.
+ * </p>
+ *
+ * @see GapStorage
+ * @see MappedStorage
+ */
+interface TextStorage {
+    byte PARAGRAPH_END_BYTE = (byte) 0xff;
+
+    /**
+     * Builds a storage from text appended in order, such as while reading
+     * a file.
+     */
+    interface Builder extends Appendable {
+        @Override
+        @NonNull Builder append(char c) throws IOException;
+
+        @Override
+        @NonNull Builder append(@NonNull CharSequence text) throws IOException;
+
+        @Override
+        @NonNull Builder append(@NonNull CharSequence text, int start, int end) throws IOException;
+
+        @NonNull Builder append(char @NonNull [] chars, int offset, int length) throws IOException;
+
+        @NonNull TextStorage build() throws IOException;
+    }
+
+    int length();
+
+    char charAt(int index);
+
+    @NonNull String substring(int start, int length);
+
+    /**
+     * <p>
+     * Replaces a range of text.  The range has already been checked by the
+     * document.
+     * </p>
+     */
+    void replace(int start, int length, @NonNull String text);
+
+    /**
+     * @return whether the text is held in one byte per character
+     */
+    boolean isCompact();
+
+    /**
+     * <p>
+     * Returns the approximate number of bytes used on the Java heap,
+     * including unused space.
+     * </p>
+     */
+    long getHeapSize();
+
+    static char decode(byte b) {
+        return b == PARAGRAPH_END_BYTE ? BZFormat.PARAGRAPH_END : (char) (b & 0xff);
+    }
+
+    static byte encode(char c) {
+        return c == BZFormat.PARAGRAPH_END ? PARAGRAPH_END_BYTE : (byte) c;
+    }
+
+    static boolean canEncode(char c) {
+        return c < 0xff || c == BZFormat.PARAGRAPH_END;
+    }
+
+    static boolean canEncode(@NonNull CharSequence text) {
+        for (int i = 0; i < text.length(); i++)
+            if (!canEncode(text.charAt(i)))
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+import org.jspecify.annotations.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Watches for the UI thread being held up by long running work.
+ * </p><p>
+ * A background thread regularly posts a heartbeat with
+ * {@link Display#asyncExec(Runnable)} and measures how long the event loop
+ * takes to run it.  If the heartbeat has not run by the threshold, the UI
+ * thread's stack is captured, and once it does run the stall is logged
+ * with its duration and where the UI thread was.  Every turn is counted
+ * in one histogram and every stall in another.
+ * </p>
+ */
+final class UIWatchdog {
+    /**
+     * A single stall of the event loop.
+     *
+     * @param time     when the stall started, in milliseconds since the epoch
+     * @param duration how long the event loop was held up, in nanoseconds
+     * @param stack    the UI thread's stack at the threshold
+     */
+    record Stall(long time, long duration, StackTraceElement @NonNull [] stack) {
+    }
+
+    private static final String SOURCE = "UIWatchdog";
+    static final long DEFAULT_INTERVAL = 100;
+    static final long DEFAULT_THRESHOLD = 250;
+    private static final int MAX_STALLS = 100;
+    private static final int LOGGED_FRAMES = 8;
+
+    private final @NonNull Display display;
+    private final @NonNull Thread uiThread;
+    private final @NonNull BZLog log;
+    private final long interval;
+    private final long threshold;
+    private final LatencyHistogram turns = new LatencyHistogram();
+    private final LatencyHistogram stalls = new LatencyHistogram();
+    private final ArrayDeque<Stall> recentStalls = new ArrayDeque<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * A heartbeat posted to the event loop.
+     */
+    private static final class Heartbeat implements Runnable {
+        private final long time = System.currentTimeMillis();
+        private final long posted = System.nanoTime();
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile long ran;
+
+        @Override
+        public void run() {
+            ran = System.nanoTime();
+            latch.countDown();
+        }
+    }
+
+    /**
+     * <p>
+     * Creates and starts a watchdog for the event loop of a display.
+     * </p>
+     *
+     * @param display   the display whose thread is watched
+     * @param log       where stalls are logged
+     * @param interval  the time between heartbeats in milliseconds
+     * @param threshold the turn latency counted as a stall in milliseconds
+     */
+    UIWatchdog(@NonNull Display display, @NonNull BZLog log, long interval, long threshold) {
+        this.display = display;
+        this.log = log;
+        this.interval = interval;
+        this.threshold = threshold;
+        uiThread = display.getThread();
+        thread = new Thread(this::watch, "BZ UI watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        while (running) {
+            Heartbeat heartbeat = new Heartbeat();
+            try {
+                display.asyncExec(heartbeat);
+            } catch (SWTException ignored) {
+                //   display has been disposed
+                return;
+            }
+
+            try {
+                StackTraceElement[] stack = null;
+                if (!heartbeat.latch.await(threshold, TimeUnit.MILLISECONDS)) {
+                    stack = uiThread.getStackTrace();
+                    while (!heartbeat.latch.await(interval, TimeUnit.MILLISECONDS))
+                        if (!running || display.isDisposed())
+                            return;
+                }
+
+                long latency = heartbeat.ran - heartbeat.posted;
+                turns.record(latency);
+                if (stack != null)
+                    recordStall(heartbeat.time, latency, stack);
+
+                Thread.sleep(interval);
+            } catch (InterruptedException ignored) {
+                return;
+            }
+        }
+    }
+
+    private void recordStall(long time, long duration, StackTraceElement[] stack) {
+        stalls.record(duration);
+        synchronized (recentStalls) {
+            if (recentStalls.size() == MAX_STALLS)
+                recentStalls.removeFirst();
+            recentStalls.addLast(new Stall(time, duration, stack));
+        }
+
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("Event loop stalled for %.0f ms", LatencyHistogram.toMillis(duration)));
+        for (int i = 0; i < stack.length && i < LOGGED_FRAMES; i++)
+            message.append("\n\tat ").append(stack[i]);
+        log.warning(SOURCE, message.toString());
+    }
+
+    /**
+     * Returns the latency of every heartbeat.
+     */
+    @NonNull LatencyHistogram getTurns() {
+        return turns;
+    }
+
+    /**
+     * Returns the durations of the stalls.
+     */
+    @NonNull LatencyHistogram getStalls() {
+        return stalls;
+    }
+
+    /**
+     * Returns the most recent stalls, oldest first.
+     */
+    @NonNull List<Stall> getRecentStalls() {
+        synchronized (recentStalls) {
+            return new ArrayList<>(recentStalls);
+        }
+    }
+
+    long getThreshold() {
+        return threshold;
+    }
+
+    void reset() {
+        turns.reset();
+        stalls.reset();
+        synchronized (recentStalls) {
+            recentStalls.clear();
+        }
+    }
+
+    void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    /**
+     * <p>
+     * Returns the stall threshold in milliseconds set by the
+     * <code>braillezephyr.stallThreshold</code> property, or the default.
+     * </p>
+     */
+    static long getThresholdProperty(@NonNull BZLog log) {
+        String value = System.getProperty("braillezephyr.stallThreshold");
+        if (value == null)
+            return DEFAULT_THRESHOLD;
+        try {
+            return Math.max(1, Long.parseLong(value.trim()));
+        } catch (NumberFormatException ignored) {
+            log.warning(SOURCE, "Invalid braillezephyr.stallThreshold:  " + value);
+            return DEFAULT_THRESHOLD;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+/**
+ * <p>
+ * Lookup tables for converting between BRF ASCII braille and the Unicode
+ * braille patterns block (U+2800 to U+28FF).
+ * </p><p>
+ * Only dots 1 to 6 take part in the conversion, dots 7 and 8 are dropped
+ * when converting to ASCII.  Characters outside of the tables, such as line
+ * delimiters and form feeds, pass through unchanged.
+ * </p>
+ */
+final class UnicodeBraille {
+    /**
+     * The ASCII braille characters indexed by their dot pattern.
+     */
+    static final String ASCII_BRAILLE = " A1B'K2L@CIF/MSP\"E3H9O6R^DJG>NTQ,*5<-U8V.%[$+X!&;:4\\0Z7(_?W]#Y)=";
+
+    static final char BLANK_CELL = 0x2800;
+
+    private static final char[] ASCII_TO_UNICODE = new char[128];
+
+    static {
+        for (int i = 0; i < ASCII_TO_UNICODE.length; i++)
+            ASCII_TO_UNICODE[i] = (char) i;
+        for (int dots = 0; dots < 64; dots++) {
+            char c = ASCII_BRAILLE.charAt(dots);
+            ASCII_TO_UNICODE[c] = (char) (BLANK_CELL | dots);
+
+            //   lowercase BRF uses the same cells as uppercase
+            if (c >= 0x40 && c < 0x5f)
+                ASCII_TO_UNICODE[c + 0x20] = (char) (BLANK_CELL | dots);
+        }
+    }
+
+    private UnicodeBraille() {
+    }
+
+    /**
+     * <p>
+     * Returns the Unicode braille cell for an ASCII braille character.
+     * </p>
+     *
+     * @param c the ASCII braille character
+     * @return the Unicode braille character, or <code>c</code> if it is not ASCII braille
+     */
+    static char toUnicode(char c) {
+        if (c < ASCII_TO_UNICODE.length)
+            return ASCII_TO_UNICODE[c];
+        return c;
+    }
+
+    /**
+     * <p>
+     * Returns the ASCII braille character for a Unicode braille cell.
+     * </p>
+     *
+     * @param c the Unicode braille character
+     * @return the ASCII braille character, or <code>c</code> if it is not Unicode braille
+     */
+    static char toAscii(char c) {
+        if (c >= BLANK_CELL && c <= 0x28ff)
+            return ASCII_BRAILLE.charAt(c & 0x3f);
+        return c;
+    }
+}
@@ -0,0 +1,73 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * <p>
+ * Reads Unicode braille text as BRF ASCII braille.
+ * </p><p>
+ * Each buffer is converted as it is read, so no intermediate copy of the
+ * document is made.  A leading byte order mark is dropped as it would
+ * otherwise be read as a paragraph end marker.
+ * </p>
+ *
+ * @see UnicodeBrailleWriter
+ */
+final class UnicodeBrailleReader extends FilterReader {
+    private static final char BYTE_ORDER_MARK = 0xfeff;
+
+    private final BrailleTranscoder transcoder = BrailleTranscoder.getInstance();
+    private boolean start = true;
+
+    UnicodeBrailleReader(Reader reader) {
+        super(reader);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c = super.read();
+        if (start) {
+            start = false;
+            if (c == BYTE_ORDER_MARK)
+                c = super.read();
+        }
+        if (c < 0)
+            return c;
+        return UnicodeBraille.toAscii((char) c);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        int cnt = super.read(buffer, offset, length);
+        if (cnt <= 0)
+            return cnt;
+
+        if (start) {
+            start = false;
+            if (buffer[offset] == BYTE_ORDER_MARK) {
+                if (cnt == 1)
+                    return read(buffer, offset, length);
+                System.arraycopy(buffer, offset + 1, buffer, offset, --cnt);
+            }
+        }
+
+        transcoder.toAscii(buffer, offset, cnt);
+        return cnt;
+    }
+}
@@ -0,0 +1,67 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>
+ * Writes BRF ASCII braille as Unicode braille text.
+ * </p><p>
+ * Characters are converted in small buffers as they are written, so no
+ * intermediate copy of the document is made.
+ * </p>
+ *
+ * @see UnicodeBrailleReader
+ */
+final class UnicodeBrailleWriter extends FilterWriter {
+    private final BrailleTranscoder transcoder = BrailleTranscoder.getInstance();
+    private final char[] buffer = new char[8192];
+
+    UnicodeBrailleWriter(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        super.write(UnicodeBraille.toUnicode((char) c));
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        while (length > 0) {
+            int cnt = Math.min(length, buffer.length);
+            System.arraycopy(chars, offset, buffer, 0, cnt);
+            transcoder.toUnicode(buffer, 0, cnt);
+            out.write(buffer, 0, cnt);
+            offset += cnt;
+            length -= cnt;
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        while (length > 0) {
+            int cnt = Math.min(length, buffer.length);
+            string.getChars(offset, offset + cnt, buffer, 0);
+            transcoder.toUnicode(buffer, 0, cnt);
+            out.write(buffer, 0, cnt);
+            offset += cnt;
+            length -= cnt;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ * Converts braille characters using the vector API.
+ * </p><p>
+ * The 64 entry conversion tables are split into four tables of sixteen
+ * lanes.  Each character's table index is used to rearrange all four
+ * tables, and the high bits of the index select which of the results is
+ * kept.
+ * </p><p>
+ * This class must only be loaded when the <code>jdk.incubator.vector</code>
+ * module is present.
+ * </p>
+ *
+ * @see BrailleTranscoder#vector()
+ */
+final class VectorBrailleTranscoder extends BrailleTranscoder {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_256;
+    private static final int TABLE_LANES = SPECIES.length();
+
+    private final ShortVector[] unicodeTables = new ShortVector[4];
+    private final ShortVector[] asciiTables = new ShortVector[4];
+
+    /**
+     * <p>
+     * Returns whether the hardware has vectors of at least 256 bits.  On
+     * smaller vectors the API falls back to a Java implementation which is
+     * much slower than the scalar loops.
+     * </p>
+     */
+    static boolean isSupported() {
+        return ShortVector.SPECIES_PREFERRED.vectorBitSize() >= SPECIES.vectorBitSize();
+    }
+
+    VectorBrailleTranscoder() {
+        short[] unicode = new short[64];
+        short[] ascii = new short[64];
+        for (int i = 0; i < 64; i++) {
+            unicode[i] = (short) UnicodeBraille.toUnicode((char) (0x20 + i));
+            ascii[i] = (short) UnicodeBraille.ASCII_BRAILLE.charAt(i);
+        }
+        for (int i = 0; i < 4; i++) {
+            unicodeTables[i] = ShortVector.fromArray(SPECIES, unicode, i * TABLE_LANES);
+            asciiTables[i] = ShortVector.fromArray(SPECIES, ascii, i * TABLE_LANES);
+        }
+    }
+
+    private static ShortVector lookup(ShortVector[] tables, ShortVector index) {
+        VectorShuffle<Short> shuffle = index.and((short) 0xf).toShuffle();
+        ShortVector high = index.lanewise(VectorOperators.LSHR, 4);
+        ShortVector result = tables[0].rearrange(shuffle);
+        for (int i = 1; i < tables.length; i++)
+            result = result.blend(tables[i].rearrange(shuffle), high.eq((short) i));
+        return result;
+    }
+
+    private static ShortVector toUpperCase(ShortVector vector) {
+        VectorMask<Short> lower = vector.compare(VectorOperators.GE, (short) 0x60)
+                .and(vector.compare(VectorOperators.LT, (short) 0x7f));
+        return vector.sub((short) 0x20, lower);
+    }
+
+    @Override
+    void toUnicode(char[] chars, int offset, int length) {
+        int bound = offset + SPECIES.loopBound(length);
+        int i = offset;
+        for (; i < bound; i += SPECIES.length()) {
+            ShortVector vector = toUpperCase(ShortVector.fromCharArray(SPECIES, chars, i));
+            VectorMask<Short> braille = vector.compare(VectorOperators.GE, (short) 0x20)
+                    .and(vector.compare(VectorOperators.LT, (short) 0x60));
+            if (!braille.anyTrue())
+                continue;
+            ShortVector index = vector.sub((short) 0x20).and((short) 0x3f);
+            vector.blend(lookup(unicodeTables, index), braille).intoCharArray(chars, i);
+        }
+        for (; i < offset + length; i++)
+            chars[i] = UnicodeBraille.toUnicode(chars[i]);
+    }
+
+    @Override
+    void toAscii(char[] chars, int offset, int length) {
+        int bound = offset + SPECIES.loopBound(length);
+        int i = offset;
+        for (; i < bound; i += SPECIES.length()) {
+            ShortVector vector = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> braille = vector.and((short) 0xff00).eq((short) UnicodeBraille.BLANK_CELL);
+            if (!braille.anyTrue())
+                continue;
+            ShortVector index = vector.and((short) 0x3f);
+            vector.blend(lookup(asciiTables, index), braille).intoCharArray(chars, i);
+        }
+        for (; i < offset + length; i++)
+            chars[i] = UnicodeBraille.toAscii(chars[i]);
+    }
+
+    @Override
+    void toUpperCase(char[] chars, int offset, int length) {
+        int bound = offset + SPECIES.loopBound(length);
+        int i = offset;
+        for (; i < bound; i += SPECIES.length())
+            toUpperCase(ShortVector.fromCharArray(SPECIES, chars, i)).intoCharArray(chars, i);
+        for (; i < offset + length; i++)
+            chars[i] = BrailleTranscoder.toUpperCase(chars[i]);
+    }
+}
@@ -0,0 +1,560 @@
+/* Copyright (C) 2026 Michael Whapples.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aph.braillezephyr;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * A set of braille volumes shown as one document, such as the volumes of
+ * a textbook transcription.
+ * </p><p>
+ * A set is opened from a directory, taking its BRF and BZY files in
+ * natural order of their names, or from a manifest file ending in
+ * {@value #MANIFEST_EXTENSION} listing one volume per line relative to the
+ * manifest.  Blank lines and lines starting with # are ignored.
+ * </p><p>
+ * The volumes are joined by a line break that belongs to neither of them,
+ * so each volume starts on a new line and a new page, and pages are
+ * numbered continuously through the set.  Opening a set reads each volume
+ * once to count its lines and keep a deflated copy of its text.  After
+ * that a volume is only loaded from its copy when its text is asked for,
+ * and is held by a soft reference so that volumes not in use are dropped
+ * when memory runs short.  The files are not read again, so a volume
+ * changed by another program cannot disagree with the counts.  A volume
+ * that has been changed is held until it is saved, and saving only writes
+ * the changed volumes.
+ * </p><p>
+ * A change that spans volumes leaves the line breaks between them in
+ * place, emptying any volumes in between, and the change passed on to the
+ * listener includes the line breaks.
+ * </p>
+ */
+final class VolumeSet implements BZDocumentContent.Source {
+    static final String MANIFEST_EXTENSION = ".bzv";
+
+    private static final class Volume {
+        private final @NonNull Path path;
+        private int charCount, lineCount, pageCount;
+        private @Nullable Packed packed;
+        private @Nullable SoftReference<BZDocument> loaded;
+        private @Nullable BZDocument modified;
+
+        private Volume(@NonNull Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * <p>
+     * The text and settings of a volume, with the text deflated.
+     * </p>
+     */
+    private record Packed(byte @NonNull [] text, int length, @NonNull String eol, int charsPerLine, int linesPerPage) {
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        private static @NonNull Packed of(@NonNull BZDocument document) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int length = 0;
+            try {
+                for (int start = 0; start < document.getCharCount(); start += CHUNK_SIZE) {
+                    byte[] bytes = document.getTextRange(start, Math.min(CHUNK_SIZE, document.getCharCount() - start)).getBytes(StandardCharsets.UTF_8);
+                    length += bytes.length;
+                    deflater.setInput(bytes);
+                    while (!deflater.needsInput())
+                        output.write(buffer, 0, deflater.deflate(buffer));
+                }
+                deflater.finish();
+                while (!deflater.finished())
+                    output.write(buffer, 0, deflater.deflate(buffer));
+            } finally {
+                deflater.end();
+            }
+            return new Packed(output.toByteArray(), length, document.getEol(), document.getCharsPerLine(), document.getLinesPerPage());
+        }
+
+        private @NonNull BZDocument unpack() {
+            byte[] bytes = new byte[length];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(text);
+                inflater.inflate(bytes);
+            } catch (DataFormatException exception) {
+                throw new IllegalStateException(exception);
+            } finally {
+                inflater.end();
+            }
+
+            BZDocument document = new BZDocument();
+            document.setText(new String(bytes, StandardCharsets.UTF_8));
+            document.setEol(eol);
+            document.setCharsPerLine(charsPerLine);
+            document.setLinesPerPage(linesPerPage);
+            return document;
+        }
+    }
+
+    /**
+     * Passes on changes to a volume, with offsets in the set.
+     */
+    private final class VolumeListener implements BZDocument.Listener {
+        private final int volume;
+        private final @NonNull BZDocument document;
+
+        private VolumeListener(int volume, @NonNull BZDocument document) {
+            this.volume = volume;
+            this.document = document;
+        }
+
+        @Override
+        public void textChanging(int start, int replaceCharCount, int newCharCount, int replaceLineCount, int newLineCount, @NonNull String newText) {
+            if (!replacing && listener != null)
+                listener.textChanging(charStarts[volume] + start, replaceCharCount, newCharCount, replaceLineCount, newLineCount, newText);
+        }
+
+        @Override
+        public void textChanged() {
+            changed(volume, document);
+            if (!replacing && listener != null)
+                listener.textChanged();
+        }
+
+        @Override
+        public void textSet() {
+            changed(volume, document);
+        }
+    }
+
+    private final @NonNull Path path;
+    private BZDocument.@Nullable Listener listener;
+    private final List<Volume> volumes;
+
+    //   where each volume starts in the set, with the totals at the end
+    private final int[] charStarts, lineStarts, pageStarts;
+
+    private boolean replacing;
+    private int loads;
+
+    /**
+     * <p>
+     * Opens a volume set, reading each volume to count its lines.
+     * </p>
+     *
+     * @param path a directory of volumes or a manifest
+     * @throws IOException if a volume cannot be read, or there are none
+     * @throws BZException if a volume is a BrailleZephyr file with an invalid header
+     */
+    VolumeSet(@NonNull Path path) throws IOException, BZException {
+        this.path = path;
+        volumes = new ArrayList<>();
+        for (Path volumePath : listVolumes(path))
+            volumes.add(new Volume(volumePath));
+        if (volumes.isEmpty())
+            throw new IOException("No volumes in " + path);
+
+        charStarts = new int[volumes.size() + 1];
+        lineStarts = new int[volumes.size() + 1];
+        pageStarts = new int[volumes.size() + 1];
+        for (Volume volume : volumes) {
+            BZDocument document = BZFile.readDocument(volume.path);
+            count(volume, document);
+            volume.packed = Packed.of(document);
+        }
+        index();
+    }
+
+    /**
+     * @param path a file or directory
+     * @return whether the path is a directory or manifest that can be opened as a volume set
+     */
+    static boolean isVolumeSet(@NonNull Path path) {
+        return Files.isDirectory(path) || path.toString().endsWith(MANIFEST_EXTENSION);
+    }
+
+    private static @NonNull List<Path> listVolumes(@NonNull Path path) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> stream = Files.list(path)) {
+                stream.filter(Files::isRegularFile)
+                      .filter(p -> {
+                          String name = p.getFileName().toString().toLowerCase();
+                          return name.endsWith(".brf") || name.endsWith(".bzy");
+                      })
+                      .sorted(Comparator.comparing(p -> p.getFileName().toString(), VolumeSet::compareNames))
+                      .forEach(paths::add);
+            }
+            return paths;
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            line = line.strip();
+            if (!line.isEmpty() && line.charAt(0) != '#')
+                paths.add(directory.resolve(line).normalize());
+        }
+        return paths;
+    }
+
+    /**
+     * <p>
+     * Compares file names with runs of digits compared by value, so that
+     * volume 2 comes before volume 10.
+     * </p>
+     */
+    static int compareNames(@NonNull String a, @NonNull String b) {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            char c = a.charAt(i), d = b.charAt(j);
+            if (Character.isDigit(c) && Character.isDigit(d)) {
+                int iEnd = i, jEnd = j;
+                while (iEnd < a.length() && Character.isDigit(a.charAt(iEnd)))
+                    iEnd++;
+                while (jEnd < b.length() && Character.isDigit(b.charAt(jEnd)))
+                    jEnd++;
+
+                //   compare by length without leading zeros, then digit by digit
+                String x = a.substring(i, iEnd).replaceFirst("^0+(?=.)", ""), y = b.substring(j, jEnd).replaceFirst("^0+(?=.)", "");
+                int result = x.length() != y.length() ? Integer.compare(x.length(), y.length()) : x.compareTo(y);
+                if (result != 0)
+                    return result;
+                i = iEnd;
+                j = jEnd;
+            } else {
+                int result = Character.compare(Character.toLowerCase(c), Character.toLowerCase(d));
+                if (result != 0)
+                    return result;
+                i++;
+                j++;
+            }
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static void count(@NonNull Volume volume, @NonNull BZDocument document) {
+        volume.charCount = document.getCharCount();
+        volume.lineCount = document.getLineCount();
+
+        //   a delimiter at the end does not start another page
+        int lines = volume.lineCount;
+        if (lines > 1 && document.getLine(lines - 1).isEmpty())
+            lines--;
+        int linesPerPage = document.getLinesPerPage();
+        volume.pageCount = linesPerPage > 0 ? (lines + linesPerPage - 1) / linesPerPage : 1;
+    }
+
+    /**
+     * <p>
+     * Recalculates where each volume starts.
+     * </p>
+     */
+    private void index() {
+        for (int i = 0; i < volumes.size(); i++) {
+            Volume volume = volumes.get(i);
+
+            //   the line break between volumes is counted with the volume before it
+            int separator = i + 1 < volumes.size() ? 1 : 0;
+            charStarts[i + 1] = charStarts[i] + volume.charCount + separator;
+            lineStarts[i + 1] = lineStarts[i] + volume.lineCount;
+            pageStarts[i + 1] = pageStarts[i] + volume.pageCount;
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the text of a volume, loading it from its copy if it is not
+     * held.
+     * </p>
+     */
+    private @NonNull BZDocument getDocument(int volume) {
+        Volume v = volumes.get(volume);
+        if (v.modified != null)
+            return v.modified;
+        BZDocument document = v.loaded != null ? v.loaded.get() : null;
+        if (document != null)
+            return document;
+
+        document = Objects.requireNonNull(v.packed).unpack();
+        document.addListener(new VolumeListener(volume, document));
+        v.loaded = new SoftReference<>(document);
+        loads++;
+        return document;
+    }
+
+    /**
+     * <p>
+     * Returns the lines per page of a volume, from its copy if its text is
+     * not held, so that it is not loaded just for its pages.
+     * </p>
+     */
+    private int getLinesPerPage(int volume) {
+        Volume v = volumes.get(volume);
+        if (v.modified != null)
+            return v.modified.getLinesPerPage();
+        BZDocument document = v.loaded != null ? v.loaded.get() : null;
+        if (document != null)
+            return document.getLinesPerPage();
+        return Objects.requireNonNull(v.packed).linesPerPage();
+    }
+
+    private void changed(int volume, @NonNull BZDocument document) {
+        Volume v = volumes.get(volume);
+        v.modified = document;
+        count(v, document);
+        index();
+    }
+
+    @NonNull Path getPath() {
+        return path;
+    }
+
+    int getVolumeCount() {
+        return volumes.size();
+    }
+
+    @NonNull Path getVolumePath(int volume) {
+        return volumes.get(volume).path;
+    }
+
+    /**
+     * @return the number of times a volume has been loaded since the set was opened
+     */
+    int getLoads() {
+        return loads;
+    }
+
+    /**
+     * @return the number of volumes currently held in memory
+     */
+    int getLoadedCount() {
+        int count = 0;
+        for (Volume volume : volumes)
+            if (volume.modified != null || (volume.loaded != null && volume.loaded.get() != null))
+                count++;
+        return count;
+    }
+
+    boolean isModified() {
+        for (Volume volume : volumes)
+            if (volume.modified != null)
+                return true;
+        return false;
+    }
+
+    int getVolumeAtLine(int lineIndex) {
+        int index = Arrays.binarySearch(lineStarts, 0, volumes.size(), lineIndex);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * <p>
+     * Returns the volume holding an offset, where the line break after a
+     * volume belongs to it.
+     * </p>
+     */
+    int getVolumeAtOffset(int offset) {
+        int index = Arrays.binarySearch(charStarts, 0, volumes.size(), offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @param lineIndex the line
+     * @return the page number of the line, counting from 1 at the start of the set
+     */
+    int getPageNumber(int lineIndex) {
+        int volume = getVolumeAtLine(lineIndex);
+        int linesPerPage = getLinesPerPage(volume);
+        int page = linesPerPage > 0 ? (lineIndex - lineStarts[volume]) / linesPerPage : 0;
+        return pageStarts[volume] + Math.min(page, volumes.get(volume).pageCount - 1) + 1;
+    }
+
+    int getPageCount() {
+        return pageStarts[volumes.size()];
+    }
+
+    @Override
+    public int getCharCount() {
+        return charStarts[volumes.size()];
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineStarts[volumes.size()];
+    }
+
+    @Override
+    public @NonNull String getLine(int lineIndex) {
+        int volume = getVolumeAtLine(lineIndex);
+        return getDocument(volume).getLine(lineIndex - lineStarts[volume]);
+    }
+
+    @Override
+    public int getOffsetAtLine(int lineIndex) {
+        int volume = getVolumeAtLine(lineIndex);
+        return charStarts[volume] + getDocument(volume).getOffsetAtLine(lineIndex - lineStarts[volume]);
+    }
+
+    @Override
+    public int getLineAtOffset(int offset) {
+        int volume = getVolumeAtOffset(offset);
+        int local = Math.min(offset - charStarts[volume], volumes.get(volume).charCount);
+        return lineStarts[volume] + getDocument(volume).getLineAtOffset(local);
+    }
+
+    @Override
+    public @NonNull String getTextRange(int start, int length) {
+        StringBuilder text = new StringBuilder(length);
+        int end = start + length;
+        for (int volume = getVolumeAtOffset(start); text.length() < length && volume < volumes.size(); volume++) {
+            int volumeStart = charStarts[volume], volumeEnd = volumeStart + volumes.get(volume).charCount;
+            int from = Math.max(start, volumeStart), to = Math.min(end, volumeEnd);
+            if (from < to)
+                text.append(getDocument(volume).getTextRange(from - volumeStart, to - from));
+            if (end > volumeEnd && volume + 1 < volumes.size())
+                text.append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void replaceTextRange(int start, int replaceLength, @NonNull String text) {
+        int end = start + replaceLength;
+        int first = getVolumeAtOffset(start), last = getVolumeAtOffset(end);
+        if (first == last) {
+            getDocument(first).replaceTextRange(start - charStarts[first], replaceLength, text);
+            return;
+        }
+
+        //   the line breaks between the volumes stay, after the new text
+        String newText = text + "\n".repeat(last - first);
+        int replaceLineCount = getLineAtOffset(end) - getLineAtOffset(start);
+        int newLineCount = countLines(text) + last - first;
+        if (listener != null)
+            listener.textChanging(start, replaceLength, newText.length(), replaceLineCount, newLineCount, newText);
+        replacing = true;
+        try {
+            if (end > charStarts[last])
+                getDocument(last).replaceTextRange(0, end - charStarts[last], "");
+            for (int volume = last - 1; volume > first; volume--)
+                if (volumes.get(volume).charCount > 0)
+                    getDocument(volume).replaceTextRange(0, volumes.get(volume).charCount, "");
+            int local = start - charStarts[first];
+            if (local < volumes.get(first).charCount || !text.isEmpty())
+                getDocument(first).replaceTextRange(local, volumes.get(first).charCount - local, text);
+        } finally {
+            replacing = false;
+        }
+        if (listener != null)
+            listener.textChanged();
+    }
+
+    private static int countLines(@NonNull String text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                lines++;
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n')
+                    i++;
+            } else if (c == '\n')
+                lines++;
+        }
+        return lines;
+    }
+
+    @Override
+    public boolean isFirstLineOnPage(int lineIndex, int linesPerPage) {
+        int volume = getVolumeAtLine(lineIndex);
+        return BZFormat.isFirstLineOnPage(lineIndex - lineStarts[volume], getLinesPerPage(volume));
+    }
+
+    @Override
+    public @NonNull List<String> getLines() {
+        List<String> lines = new ArrayList<>(getLineCount());
+        for (int volume = 0; volume < volumes.size(); volume++)
+            lines.addAll(getDocument(volume).getLines());
+        return lines;
+    }
+
+    /**
+     * <p>
+     * Wraps lines from a line to the end of its volume.
+     * </p>
+     *
+     * @param lineIndex    the first line to wrap
+     * @param charsPerLine the characters per line
+     * @see BZFormat#rewrap(BZDocument, int)
+     */
+    void rewrap(int lineIndex, int charsPerLine) {
+        int volume = getVolumeAtLine(lineIndex);
+        BZDocument document = getDocument(volume);
+        document.setCharsPerLine(charsPerLine);
+        BZFormat.rewrap(document, lineIndex - lineStarts[volume]);
+    }
+
+    @Override
+    public void setListener(BZDocument.@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * <p>
+     * Writes the volumes that have changed.  A volume is no longer held
+     * once it is written.
+     * </p>
+     *
+     * @return the number of volumes written
+     */
+    int save() throws IOException {
+        int saved = 0;
+        for (Volume volume : volumes) {
+            if (volume.modified == null)
+                continue;
+            BZFile.writeDocument(volume.modified, volume.path);
+            volume.packed = Packed.of(volume.modified);
+            volume.loaded = new SoftReference<>(volume.modified);
+            volume.modified = null;
+            saved++;
+        }
+        return saved;
+    }
+
+    @Override
+    public void close() {
+        for (Volume volume : volumes) {
+            volume.packed = null;
+            volume.loaded = null;
+            volume.modified = null;
+        }
+    }
+}